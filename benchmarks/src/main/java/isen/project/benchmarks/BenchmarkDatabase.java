@@ -0,0 +1,75 @@
+package isen.project.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import isen.project.db.DataSourceFactory;
+import isen.project.db.PersonDao;
+import isen.project.tools.ContactGenerator;
+
+/**
+ * Generated databases the benchmarks run against, one file per size, filled by the
+ * {@link ContactGenerator} with the size as seed.
+ * Files are kept in target/bench-db (or the folder set with -Disen.bench.dir) and only
+ * generated again when their row count does not match.
+ */
+public class BenchmarkDatabase {
+
+	static final String DIRECTORY_PROPERTY = "isen.bench.dir";
+
+	private BenchmarkDatabase() {
+		throw new IllegalStateException("This is a static class that should not be instantiated");
+	}
+
+	/**
+	 * Opens a generated database of the given size, generating it first if needed.
+	 * @param rows The number of persons in the database.
+	 * @param scratchCopy True to work on a copy, for benchmarks that modify the data.
+	 * @return a DAO on the database, whose pool is to be closed by the caller
+	 * @throws Exception if the database cannot be generated.
+	 */
+	public static PersonDao open(int rows, boolean scratchCopy) throws Exception {
+		Path directory = Paths.get(System.getProperty(DIRECTORY_PROPERTY, "target/bench-db"));
+		Files.createDirectories(directory);
+		Path file = directory.resolve("persons-" + rows + ".db");
+		if (countRows(file) != rows) {
+			Files.deleteIfExists(file);
+			generate(file, rows);
+		}
+		if (scratchCopy) {
+			Path copy = directory.resolve("persons-" + rows + "-scratch.db");
+			Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+			file = copy;
+		}
+		PersonDao personDao = new PersonDao(DataSourceFactory.createConnectionPool(url(file)));
+		personDao.initDb();
+		return personDao;
+	}
+
+	private static long countRows(Path file) {
+		if (!Files.exists(file)) {
+			return -1;
+		}
+		try (Connection connection = DriverManager.getConnection(url(file));
+				Statement statement = connection.createStatement();
+				ResultSet results = statement.executeQuery("SELECT COUNT(*) FROM person")) {
+			return results.getLong(1);
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	private static void generate(Path file, int rows) throws Exception {
+		ContactGenerator.generateDatabase(file, rows, rows);
+	}
+
+	private static String url(Path file) {
+		return "jdbc:sqlite:" + file.toAbsolutePath();
+	}
+}
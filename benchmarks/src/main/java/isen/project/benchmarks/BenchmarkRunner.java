@@ -0,0 +1,38 @@
+package isen.project.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Entry point of the benchmarks jar.
+ * Accepts the usual JMH command line options and writes the results as JSON to
+ * target/jmh-result.json unless another result format or file is given, so runs
+ * of different releases can be compared.
+ */
+public class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+		throw new IllegalStateException("This is a static class that should not be instantiated");
+	}
+
+	/**
+	 * Runs the benchmarks.
+	 * @param args JMH command line options, for instance a regular expression selecting benchmarks.
+	 * @throws Exception if JMH fails to run.
+	 */
+	public static void main(String[] args) throws Exception {
+		List<String> options = new ArrayList<>(Arrays.asList(args));
+		if (!options.contains("-rf")) {
+			options.add(0, "-rf");
+			options.add(1, "json");
+		}
+		if (!options.contains("-rff")) {
+			options.add(0, "-rff");
+			options.add(1, "target/jmh-result.json");
+		}
+		Main.main(options.toArray(new String[0]));
+	}
+}
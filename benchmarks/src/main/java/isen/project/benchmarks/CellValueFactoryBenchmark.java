@@ -0,0 +1,84 @@
+package isen.project.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import isen.project.model.Person;
+import isen.project.tools.PersonGenerator;
+import isen.project.util.PersonValueFactoryAddress;
+import isen.project.util.PersonValueFactoryBirthDate;
+import isen.project.util.PersonValueFactoryEmail;
+import isen.project.util.PersonValueFactoryFirstname;
+import isen.project.util.PersonValueFactoryId;
+import isen.project.util.PersonValueFactoryLastname;
+import isen.project.util.PersonValueFactoryNickname;
+import isen.project.util.PersonValueFactoryPhone;
+import javafx.scene.control.TableColumn.CellDataFeatures;
+
+/**
+ * Headless benchmark of the cell mapping of the overview table: what the PersonValueFactory
+ * classes cost for one screen of rows. No JavaFX toolkit is started, the cell data
+ * features are built without table nor column, as the factories only read the row value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CellValueFactoryBenchmark {
+
+	// Rows mapped per invocation, about what a full screen of the overview shows
+	private static final int ROWS = 50;
+
+	private final PersonValueFactoryId idFactory = new PersonValueFactoryId();
+	private final PersonValueFactoryLastname lastnameFactory = new PersonValueFactoryLastname();
+	private final PersonValueFactoryFirstname firstnameFactory = new PersonValueFactoryFirstname();
+	private final PersonValueFactoryNickname nicknameFactory = new PersonValueFactoryNickname();
+	private final PersonValueFactoryPhone phoneFactory = new PersonValueFactoryPhone();
+	private final PersonValueFactoryAddress addressFactory = new PersonValueFactoryAddress();
+	private final PersonValueFactoryEmail emailFactory = new PersonValueFactoryEmail();
+	private final PersonValueFactoryBirthDate birthDateFactory = new PersonValueFactoryBirthDate();
+
+	private List<Person> persons;
+
+	@Setup
+	public void createPersons() {
+		PersonGenerator generator = new PersonGenerator(42);
+		persons = new ArrayList<>(ROWS);
+		for (int i = 0; i < ROWS; i++) {
+			Person person = generator.next();
+			person.setIdperson(i + 1);
+			persons.add(person);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void mapRows(Blackhole blackhole) {
+		for (Person person : persons) {
+			blackhole.consume(idFactory.call(new CellDataFeatures<>(null, null, person)));
+			blackhole.consume(lastnameFactory.call(new CellDataFeatures<>(null, null, person)));
+			blackhole.consume(firstnameFactory.call(new CellDataFeatures<>(null, null, person)));
+			blackhole.consume(nicknameFactory.call(new CellDataFeatures<>(null, null, person)));
+			blackhole.consume(phoneFactory.call(new CellDataFeatures<>(null, null, person)));
+			blackhole.consume(addressFactory.call(new CellDataFeatures<>(null, null, person)));
+			blackhole.consume(emailFactory.call(new CellDataFeatures<>(null, null, person)));
+			blackhole.consume(birthDateFactory.call(new CellDataFeatures<>(null, null, person)));
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package isen.project.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import isen.project.db.PersonDao;
+import isen.project.db.PersonPage;
+import isen.project.db.PersonSortColumn;
+import isen.project.db.SortDirection;
+import isen.project.model.Person;
+
+/**
+ * Benchmarks of the PersonDao read methods on databases of growing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersonDaoReadBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int rows;
+
+	private PersonDao personDao;
+	private Random random;
+
+	@Setup(Level.Trial)
+	public void openDatabase() throws Exception {
+		personDao = BenchmarkDatabase.open(rows, false);
+		random = new Random(42);
+	}
+
+	@TearDown(Level.Trial)
+	public void closeDatabase() {
+		personDao.getConnectionPool().close();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public List<Person> listPersons() {
+		return personDao.listPersons();
+	}
+
+	@Benchmark
+	public List<Person> searchPersonByPrefix() throws Exception {
+		return personDao.searchPerson("dub");
+	}
+
+	@Benchmark
+	public List<Person> searchPersonExact() throws Exception {
+		return personDao.searchPerson("Martin");
+	}
+
+	@Benchmark
+	public PersonPage firstPageByLastname() throws Exception {
+		return personDao.page(PersonSortColumn.LASTNAME, SortDirection.ASCENDING, null, 100);
+	}
+
+	@Benchmark
+	public Person getPerson() throws Exception {
+		return personDao.getPerson(1 + random.nextInt(rows));
+	}
+}
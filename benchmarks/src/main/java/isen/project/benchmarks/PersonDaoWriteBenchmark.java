@@ -0,0 +1,90 @@
+package isen.project.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import isen.project.db.PersonDao;
+import isen.project.model.Person;
+import isen.project.tools.PersonGenerator;
+
+/**
+ * Benchmarks of the PersonDao write methods, run on a scratch copy of the generated databases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersonDaoWriteBenchmark {
+
+	// Number of persons inserted per call by the bulk benchmark
+	private static final int BULK_SIZE = 1000;
+
+	@Param({ "1000", "100000", "1000000" })
+	public int rows;
+
+	private PersonDao personDao;
+	private Random random;
+	private PersonGenerator generator;
+	private int personToDelete;
+
+	@Setup(Level.Trial)
+	public void openDatabase() throws Exception {
+		personDao = BenchmarkDatabase.open(rows, true);
+		random = new Random(42);
+		generator = new PersonGenerator(42);
+	}
+
+	@TearDown(Level.Trial)
+	public void closeDatabase() {
+		personDao.getConnectionPool().close();
+	}
+
+	@Setup(Level.Invocation)
+	public void insertPersonToDelete() throws Exception {
+		personToDelete = personDao.insertPerson(generator.next()).getIdperson();
+	}
+
+	@Benchmark
+	public Person insertPerson() throws Exception {
+		return personDao.insertPerson(generator.next());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BULK_SIZE)
+	public List<Integer> insertPersonsInBulk() throws Exception {
+		List<Person> persons = new ArrayList<>(BULK_SIZE);
+		for (int i = 0; i < BULK_SIZE; i++) {
+			persons.add(generator.next());
+		}
+		return personDao.insertPersons(persons);
+	}
+
+	@Benchmark
+	public void updatePerson() throws Exception {
+		personDao.updatePerson(1 + random.nextInt(rows), generator.next());
+	}
+
+	@Benchmark
+	public void deletePerson() throws Exception {
+		personDao.deletePerson(personToDelete);
+	}
+}
@@ -1,21 +1,43 @@
 package isen.project;
 
+import isen.project.db.AsyncPersonDao;
+import isen.project.db.PersonCache;
+import isen.project.metrics.MetricsRegistry;
+import isen.project.metrics.MetricsReporter;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Pos;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The main application class that extends JavaFX's Application class.
  */
 public class App extends Application {
 
+    private static final Logger LOGGER = Logger.getLogger(App.class.getName());
+
+    // Seconds between two reports of the metrics in the log, 0 to disable them
+    static final String METRICS_REPORT_PERIOD_PROPERTY = "isen.metrics.reportPeriodSec";
+
     // Scene to hold the UI elements
     private static Scene scene;
 
+    // Writes the latency of the operations to the log
+    private MetricsReporter metricsReporter;
+
     /**
      * The entry point of the JavaFX application.
      * @param stage The primary stage for this application.
@@ -23,12 +45,63 @@ public class App extends Application {
      */
     @Override
     public void start(Stage stage) throws Exception {
-        // Load the HomeScreen.fxml file into the scene with specified dimensions
-        scene = new Scene(loadFXML("HomeScreen"), 900, 600);
-        // Set the scene to the primary stage
+        // Publish the operation timers in JMX and report them periodically
+        MetricsRegistry.getDefault().registerMBeans(ManagementFactory.getPlatformMBeanServer());
+        long reportPeriod = Long.getLong(METRICS_REPORT_PERIOD_PROPERTY, 60L);
+        if (reportPeriod > 0) {
+            metricsReporter = new MetricsReporter(MetricsRegistry.getDefault());
+            metricsReporter.start(reportPeriod, TimeUnit.SECONDS);
+        }
+        // The migrations may backfill large tables on the first start after an upgrade: they run
+        // on the database executor while the window shows their progress
+        Label message = new Label("Updating the database...");
+        VBox progress = new VBox(12, new ProgressIndicator(), message);
+        progress.setAlignment(Pos.CENTER);
+        scene = new Scene(progress, 900, 600);
         stage.setScene(scene);
-        // Show the primary stage
         stage.show();
+        AsyncPersonDao personDao = new AsyncPersonDao(PersonCache.getShared(), Platform::runLater);
+        personDao.submit(() -> {
+            personDao.getPersonDao().initDb();
+            return null;
+        }).whenComplete((done, error) -> {
+            if (error != null) {
+                LOGGER.log(Level.SEVERE, "Could not open the database", error);
+                new Alert(Alert.AlertType.ERROR, "The database could not be opened: " + error.getMessage()).showAndWait();
+                Platform.exit();
+                return;
+            }
+            openHomeScreen(personDao);
+        });
+    }
+
+    /**
+     * Replaces the progress by the home screen once the schema is up to date, then indexes the
+     * names written by other programs in the background.
+     * @param personDao The DAO the screens use.
+     */
+    private static void openHomeScreen(AsyncPersonDao personDao) {
+        try {
+            setRoot("HomeScreen");
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not load the home screen", e);
+            Platform.exit();
+            return;
+        }
+        personDao.indexMissingFuzzyKeys().exceptionally(e -> {
+            LOGGER.log(Level.WARNING, "Could not index the names for the fuzzy search", e);
+            return 0;
+        });
+    }
+
+    /**
+     * Method called when the application exits, stopping the metrics reports.
+     */
+    @Override
+    public void stop() {
+        if (metricsReporter != null) {
+            metricsReporter.close();
+        }
     }
 
     /**
@@ -50,8 +123,8 @@ public class App extends Application {
     private static Parent loadFXML(String fxml) throws IOException {
         // Create an FXMLLoader object with the specified FXML file path
         FXMLLoader fxmlLoader = new FXMLLoader(App.class.getResource("/isen/project/view/" + fxml + ".fxml"));
-        // Load the FXML file and return its root node
-        return fxmlLoader.load();
+        // Load the FXML file and return its root node, timing each screen on its own
+        return MetricsRegistry.getDefault().timer("App.loadFXML." + fxml).time(fxmlLoader::load);
     }
 
     /**
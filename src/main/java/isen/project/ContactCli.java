@@ -0,0 +1,524 @@
+package isen.project;
+
+import isen.project.db.ConnectionPool;
+import isen.project.db.DataSourceFactory;
+import isen.project.db.PersonDao;
+import isen.project.dedupe.DuplicateFinder;
+import isen.project.dedupe.DuplicatePair;
+import isen.project.io.ImportReport;
+import isen.project.io.PersonCsvExporter;
+import isen.project.io.PersonCsvImporter;
+import isen.project.io.PersonVCardExporter;
+import isen.project.io.PersonVCardImporter;
+import isen.project.model.Person;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Headless entry point running the operations of the application from a terminal or a script,
+ * without starting JavaFX: no JavaFX class is loaded, so it runs on servers without a display.
+ * Usage: {@code ContactCli [--db <file>] <command> [arguments]}, the commands being:
+ * <pre>
+ * list                                  every person, one tab-separated line each
+ * search [--fuzzy] [--limit n] words    the persons matching the words, most relevant first
+ * import file                           a CSV or vCard file (.vcf, .vcard)
+ * export file|-                         every person to a CSV or vCard file, or as CSV to the output
+ * delete id...|-                        the persons with these IDs, read one per line from the input for "-"
+ * dedupe [--threshold t] [--merge]      the likely duplicates, merged into the first of each pair with --merge
+ * batch file|-                          the commands of a file, one per line, stopping at the first failure
+ * </pre>
+ * The persons are streamed from the database to the output, and the lines of {@code list} and
+ * {@code search} start with the ID so they can be piped into {@code delete -}.
+ * Exits with 0 on success, 1 if a command failed and 2 if the command line is wrong.
+ */
+public class ContactCli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILURE = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = "Usage: ContactCli [--db <file>] <command> [arguments]\n"
+            + "  list\n"
+            + "  search [--fuzzy] [--limit <n>] <words>\n"
+            + "  import <file.csv|file.vcf>\n"
+            + "  export <file.csv|file.vcf|->\n"
+            + "  delete <id>...|-\n"
+            + "  dedupe [--threshold <score>] [--merge]\n"
+            + "  batch <file|->";
+
+    // Number of IDs read from the input deleted in one transaction
+    private static final int DELETE_CHUNK_SIZE = 10_000;
+
+    // Number of lines between two checks that the reader of the output is still there
+    private static final int OUTPUT_CHECK_STEP = 1024;
+
+    private final PersonDao personDao;
+    private final BufferedReader in;
+    private final PrintWriter out;
+    private final PrintWriter err;
+
+    /**
+     * Creates a command line on a database.
+     * @param personDao The DAO of the database the commands run against.
+     * @param in The input the IDs to delete and the batch commands are read from for "-".
+     * @param out The output the persons and the results are written to.
+     * @param err The output of the errors and of the progress messages.
+     */
+    public ContactCli(PersonDao personDao, BufferedReader in, PrintWriter out, PrintWriter err) {
+        this.personDao = personDao;
+        this.in = in;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Runs a command and exits with its status.
+     * @param args The command line options, see the class comment.
+     */
+    public static void main(String[] args) {
+        List<String> command = new ArrayList<>(Arrays.asList(args));
+        ConnectionPool pool;
+        if (command.size() >= 2 && command.get(0).equals("--db")) {
+            pool = DataSourceFactory.createConnectionPool("jdbc:sqlite:" + Paths.get(command.get(1)).toAbsolutePath());
+            command = command.subList(2, command.size());
+        } else {
+            pool = DataSourceFactory.getConnectionPool();
+        }
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024));
+        PrintWriter err = new PrintWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8), true);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        int status;
+        // Closing the pool checkpoints the journal before exiting
+        try (pool) {
+            status = new ContactCli(new PersonDao(pool), in, out, err).run(command);
+        }
+        out.flush();
+        System.exit(status);
+    }
+
+    /**
+     * Method to run one command.
+     * @param args The command followed by its arguments.
+     * @return the exit status: {@link #EXIT_OK}, {@link #EXIT_FAILURE} or {@link #EXIT_USAGE}
+     */
+    public int run(List<String> args) {
+        try {
+            if (args.isEmpty()) {
+                throw new UsageException("No command given");
+            }
+            String command = args.get(0);
+            Arguments arguments = new Arguments(args.subList(1, args.size()));
+            switch (command) {
+            case "list":
+                list(arguments);
+                break;
+            case "search":
+                search(arguments);
+                break;
+            case "import":
+                importFile(arguments);
+                break;
+            case "export":
+                export(arguments);
+                break;
+            case "delete":
+                delete(arguments);
+                break;
+            case "dedupe":
+                dedupe(arguments);
+                break;
+            case "batch":
+                return batch(arguments);
+            default:
+                throw new UsageException("Unknown command " + command);
+            }
+            return EXIT_OK;
+        } catch (UsageException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        } catch (Exception e) {
+            err.println("Error: " + e);
+            return EXIT_FAILURE;
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * Streams every person to the output.
+     */
+    private void list(Arguments arguments) throws Exception {
+        arguments.checkEmpty();
+        ensureSchema();
+        printHeader();
+        long count = 0;
+        try (Stream<Person> persons = personDao.streamPersons()) {
+            Iterator<Person> iterator = persons.iterator();
+            while (iterator.hasNext()) {
+                printPerson(iterator.next());
+                // Stop reading the table once the output is closed, as by "| head"
+                if (++count % OUTPUT_CHECK_STEP == 0 && out.checkError()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the persons matching the words, by full-text or fuzzy search.
+     */
+    private void search(Arguments arguments) throws Exception {
+        boolean fuzzy = arguments.flag("--fuzzy");
+        int limit = arguments.intOption("--limit", PersonDao.SEARCH_LIMIT);
+        List<String> words = arguments.remaining();
+        if (words.isEmpty()) {
+            throw new UsageException("Nothing to search");
+        }
+        ensureSchema();
+        String input = String.join(" ", words);
+        List<Person> persons = fuzzy ? personDao.fuzzySearchPersons(input, limit) : personDao.searchPersons(input, limit);
+        printHeader();
+        for (Person person : persons) {
+            printPerson(person);
+        }
+    }
+
+    /**
+     * Imports a CSV or vCard file and reports the rejected lines.
+     */
+    private void importFile(Arguments arguments) throws Exception {
+        Path file = Paths.get(arguments.single("file"));
+        ensureSchema();
+        ImportReport report = isVCard(file.toString())
+                ? new PersonVCardImporter(personDao).importFile(file)
+                : new PersonCsvImporter(personDao).importFile(file);
+        for (ImportReport.Rejection rejection : report.getRejections()) {
+            err.println(file + ": " + rejection);
+        }
+        out.println(report);
+        if (report.getImportedCount() == 0 && report.getRejectedCount() > 0) {
+            throw new IOException("No person could be imported from " + file);
+        }
+    }
+
+    /**
+     * Exports every person to a file, or as CSV to the output for "-".
+     */
+    private void export(Arguments arguments) throws Exception {
+        String target = arguments.single("file");
+        ensureSchema();
+        if (target.equals("-")) {
+            new PersonCsvExporter(personDao).export(out);
+            return;
+        }
+        Path file = Paths.get(target);
+        long count = isVCard(target)
+                ? new PersonVCardExporter(personDao).exportFile(file)
+                : new PersonCsvExporter(personDao).exportFile(file);
+        err.println(count + " persons exported to " + file);
+    }
+
+    /**
+     * Deletes the persons with the given IDs, or with the IDs read from the input.
+     * IDs read from the input are the first field of each line, so the output of
+     * {@code list} and {@code search} can be piped in, and are deleted by chunks.
+     */
+    private void delete(Arguments arguments) throws Exception {
+        List<String> values = arguments.remaining();
+        if (values.isEmpty()) {
+            throw new UsageException("No ID to delete");
+        }
+        ensureSchema();
+        long deleted = 0;
+        List<Integer> ids = new ArrayList<>();
+        if (values.equals(List.of("-"))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String field = line.split("\t", 2)[0].trim();
+                // Skip the blank lines and the header line of the listings
+                if (field.isEmpty() || field.equals("idperson")) {
+                    continue;
+                }
+                ids.add(parseId(field));
+                if (ids.size() == DELETE_CHUNK_SIZE) {
+                    deleted += personDao.deletePersons(ids);
+                    ids.clear();
+                }
+            }
+        } else {
+            for (String value : values) {
+                ids.add(parseId(value));
+            }
+        }
+        deleted += personDao.deletePersons(ids);
+        out.println(deleted + " persons deleted");
+    }
+
+    /**
+     * Prints the likely duplicates as they are found, then merges them if asked.
+     * Each pair is merged into the person with the smaller ID; a person already merged
+     * into another is replaced by the one it was merged into.
+     */
+    private void dedupe(Arguments arguments) throws Exception {
+        boolean merge = arguments.flag("--merge");
+        double threshold = arguments.doubleOption("--threshold", DuplicateFinder.DEFAULT_THRESHOLD);
+        arguments.checkEmpty();
+        ensureSchema();
+        List<int[]> pairs = new ArrayList<>();
+        long found = new DuplicateFinder(personDao, ForkJoinPool.commonPool(), threshold).findDuplicates(pair -> {
+            printPair(pair);
+            if (merge) {
+                pairs.add(new int[] { pair.getFirst().getIdperson(), pair.getSecond().getIdperson() });
+            }
+        });
+        if (!merge) {
+            out.println(found + " duplicate pairs found");
+            return;
+        }
+        out.flush();
+        // The persons are merged once the scan is over, the finder holding a read connection
+        Map<Integer, Integer> mergedInto = new HashMap<>();
+        long merged = 0;
+        for (int[] pair : pairs) {
+            int kept = resolve(mergedInto, pair[0]);
+            int duplicate = resolve(mergedInto, pair[1]);
+            if (kept == duplicate) {
+                continue;
+            }
+            if (kept > duplicate) {
+                int swap = kept;
+                kept = duplicate;
+                duplicate = swap;
+            }
+            if (personDao.mergePersons(kept, duplicate) != null) {
+                mergedInto.put(duplicate, kept);
+                merged++;
+            }
+        }
+        out.println(found + " duplicate pairs found, " + merged + " persons merged");
+    }
+
+    private static int resolve(Map<Integer, Integer> mergedInto, int id) {
+        Integer target = mergedInto.get(id);
+        while (target != null) {
+            id = target;
+            target = mergedInto.get(id);
+        }
+        return id;
+    }
+
+    /**
+     * Runs the commands of a file, one per line, in the same process.
+     * Blank lines and lines starting with '#' are skipped, and double quotes group words.
+     */
+    private int batch(Arguments arguments) throws Exception {
+        String source = arguments.single("file");
+        if (source.equals("-")) {
+            return runLines(in);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+            return runLines(reader);
+        }
+    }
+
+    private int runLines(BufferedReader reader) throws Exception {
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            List<String> args = tokenize(line);
+            if (args.isEmpty() || args.get(0).startsWith("#")) {
+                continue;
+            }
+            if (args.get(0).equals("batch")) {
+                throw new UsageException("Line " + lineNumber + ": batches cannot be nested");
+            }
+            int status = run(args);
+            if (status != EXIT_OK) {
+                err.println("Batch stopped at line " + lineNumber + ": " + line);
+                return status;
+            }
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Splits a line of a batch on spaces, keeping the words between double quotes together.
+     */
+    static List<String> tokenize(String line) throws UsageException {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = null;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                if (token == null) {
+                    token = new StringBuilder();
+                }
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (token != null) {
+                    tokens.add(token.toString());
+                    token = null;
+                }
+            } else {
+                if (token == null) {
+                    token = new StringBuilder();
+                }
+                token.append(c);
+            }
+        }
+        if (quoted) {
+            throw new UsageException("Unbalanced quotes in " + line);
+        }
+        if (token != null) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Creates the schema of a new database and migrates an older one. A database that is up
+     * to date is recognized from its schema version, so the commands start after a single read.
+     */
+    private void ensureSchema() throws Exception {
+        personDao.migrateSchema();
+    }
+
+    private void printHeader() {
+        out.println("idperson\tlastname\tfirstname\tnickname\tphone_number\taddress\temail_address\tbirth_date");
+    }
+
+    private void printPerson(Person person) {
+        out.print(person.getIdperson());
+        printField(person.getLastname());
+        printField(person.getFirstname());
+        printField(person.getNickname());
+        printField(person.getPhoneNumber());
+        printField(person.getAddress());
+        printField(person.getEmailAddress());
+        printField(person.getBirthDate() == null ? null : person.getBirthDate().toString());
+        out.println();
+    }
+
+    private void printField(String value) {
+        out.print('\t');
+        if (value != null) {
+            // Keep each person on a single line of tab-separated fields
+            out.print(value.replaceAll("[\\t\\r\\n]+", " "));
+        }
+    }
+
+    private void printPair(DuplicatePair pair) {
+        Person first = pair.getFirst();
+        Person second = pair.getSecond();
+        out.printf("%d\t%d\t%.2f\t%s %s\t%s %s%n", first.getIdperson(), second.getIdperson(), pair.getScore(),
+                first.getFirstname(), first.getLastname(), second.getFirstname(), second.getLastname());
+    }
+
+    private static int parseId(String value) throws UsageException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException("Not a person ID: " + value);
+        }
+    }
+
+    private static boolean isVCard(String name) {
+        String lowerCase = name.toLowerCase();
+        return lowerCase.endsWith(".vcf") || lowerCase.endsWith(".vcard");
+    }
+
+    /**
+     * Error in the command line, reported with the usage.
+     */
+    static class UsageException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Arguments of a command: options are taken out as they are read, leaving the operands.
+     */
+    private static class Arguments {
+
+        private final List<String> values;
+
+        Arguments(List<String> values) {
+            this.values = new ArrayList<>(values);
+        }
+
+        boolean flag(String name) {
+            return values.remove(name);
+        }
+
+        String option(String name) throws UsageException {
+            int index = values.indexOf(name);
+            if (index < 0) {
+                return null;
+            }
+            if (index + 1 >= values.size()) {
+                throw new UsageException("Missing value for " + name);
+            }
+            values.remove(index);
+            return values.remove(index);
+        }
+
+        int intOption(String name, int defaultValue) throws UsageException {
+            String value = option(name);
+            try {
+                return value == null ? defaultValue : Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new UsageException("Not a number for " + name + ": " + value);
+            }
+        }
+
+        double doubleOption(String name, double defaultValue) throws UsageException {
+            String value = option(name);
+            try {
+                return value == null ? defaultValue : Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new UsageException("Not a number for " + name + ": " + value);
+            }
+        }
+
+        String single(String operand) throws UsageException {
+            if (values.size() != 1) {
+                throw new UsageException("Expected a single " + operand);
+            }
+            return values.get(0);
+        }
+
+        List<String> remaining() {
+            return values;
+        }
+
+        void checkEmpty() throws UsageException {
+            if (!values.isEmpty()) {
+                throw new UsageException("Unexpected arguments " + values);
+            }
+        }
+    }
+}
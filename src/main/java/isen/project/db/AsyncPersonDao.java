@@ -0,0 +1,257 @@
+package isen.project.db;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import isen.project.model.Person;
+
+/**
+ * Asynchronous facade over {@link PersonDao}.
+ * Every call runs on a database executor and returns a CompletableFuture that is
+ * completed through the callback executor, so with {@code Platform::runLater} the
+ * results and their dependent actions are handled on the JavaFX application thread.
+ */
+public class AsyncPersonDao {
+
+	// Executors of the facades created without one, a single one per connection pool
+	private static final Map<ConnectionPool, ExecutorService> SHARED_EXECUTORS = new ConcurrentHashMap<>();
+
+	private final PersonDao personDao;
+	private final ExecutorService executor;
+	private final Executor callbackExecutor;
+
+	// Latest request submitted under each key, see latest()
+	private final Map<String, CompletableFuture<?>> latestRequests = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a facade running on the database executor shared by the DAOs of its connection pool.
+	 * @param personDao The DAO doing the actual work.
+	 * @param callbackExecutor The executor the futures are completed on.
+	 */
+	public AsyncPersonDao(PersonDao personDao, Executor callbackExecutor) {
+		this(personDao, SHARED_EXECUTORS.computeIfAbsent(personDao.getConnectionPool(),
+				pool -> newDatabaseExecutor("person-dao", pool)), callbackExecutor);
+	}
+
+	/**
+	 * Creates a facade.
+	 * @param personDao The DAO doing the actual work.
+	 * @param executor The executor the database calls run on.
+	 * @param callbackExecutor The executor the futures are completed on.
+	 */
+	public AsyncPersonDao(PersonDao personDao, ExecutorService executor, Executor callbackExecutor) {
+		this.personDao = personDao;
+		this.executor = executor;
+		this.callbackExecutor = callbackExecutor;
+	}
+
+	/**
+	 * @return the DAO doing the actual work
+	 */
+	public PersonDao getPersonDao() {
+		return personDao;
+	}
+
+	/**
+	 * @return a future list of all persons
+	 * @see PersonDao#listPersons()
+	 */
+	public CompletableFuture<List<Person>> listPersons() {
+		return submit(personDao::listPersons);
+	}
+
+	/**
+	 * @param id The ID of the person.
+	 * @return a future person, or null if there is no person with this ID
+	 * @see PersonDao#getPerson(Integer)
+	 */
+	public CompletableFuture<Person> getPerson(Integer id) {
+		return submit(() -> personDao.getPerson(id));
+	}
+
+	/**
+	 * Searches persons, cancelling the previous search if it has not completed yet.
+	 * @param searchInput The text to search.
+	 * @return the future search results
+	 * @see PersonDao#searchPerson(String)
+	 */
+	public CompletableFuture<List<Person>> searchPerson(String searchInput) {
+		return latest("search", () -> personDao.searchPerson(searchInput));
+	}
+
+	/**
+	 * Reads a page of persons, cancelling the previous page request if it has not completed yet.
+	 * @return the future page
+	 * @see PersonDao#page(PersonSortColumn, SortDirection, PageKey, int)
+	 */
+	public CompletableFuture<PersonPage> page(PersonSortColumn sortColumn, SortDirection direction, PageKey afterKey, int limit) {
+		return latest("page", () -> personDao.page(sortColumn, direction, afterKey, limit));
+	}
+
+	/**
+	 * @param person The person to insert.
+	 * @return the future inserted person, with its ID
+	 * @see PersonDao#insertPerson(Person)
+	 */
+	public CompletableFuture<Person> insertPerson(Person person) {
+		return submit(() -> personDao.insertPerson(person));
+	}
+
+	/**
+	 * @param id The ID of the person to update.
+	 * @param person The new data of the person.
+	 * @return a future completed once the person is updated
+	 * @see PersonDao#updatePerson(Integer, Person)
+	 */
+	public CompletableFuture<Void> updatePerson(Integer id, Person person) {
+		return submit(() -> {
+			personDao.updatePerson(id, person);
+			return null;
+		});
+	}
+
+	/**
+	 * @param person The person read from the database, with its changed fields.
+	 * @return a future completed with false if nothing was changed, or exceptionally with an
+	 *         {@link OptimisticLockException} if the person was changed by someone else meanwhile
+	 * @see PersonDao#updatePersonIfUnchanged(Person)
+	 */
+	public CompletableFuture<Boolean> updatePersonIfUnchanged(Person person) {
+		return submit(() -> personDao.updatePersonIfUnchanged(person));
+	}
+
+	/**
+	 * @param id The ID of the person to delete.
+	 * @return a future completed once the person is deleted
+	 * @see PersonDao#deletePerson(Integer)
+	 */
+	public CompletableFuture<Void> deletePerson(Integer id) {
+		return submit(() -> {
+			personDao.deletePerson(id);
+			return null;
+		});
+	}
+
+	/**
+	 * @param id The ID of the person to delete.
+	 * @param version The version of the row the person was read with.
+	 * @return a future completed once the person is deleted, or exceptionally with an
+	 *         {@link OptimisticLockException} if the person was changed by someone else meanwhile
+	 * @see PersonDao#deletePersonIfUnchanged(int, int)
+	 */
+	public CompletableFuture<Void> deletePersonIfUnchanged(int id, int version) {
+		return submit(() -> {
+			personDao.deletePersonIfUnchanged(id, version);
+			return null;
+		});
+	}
+
+	/**
+	 * @return the future number of persons whose fuzzy search keys were written
+	 * @see PersonDao#indexMissingFuzzyKeys()
+	 */
+	public CompletableFuture<Integer> indexMissingFuzzyKeys() {
+		return submit(personDao::indexMissingFuzzyKeys);
+	}
+
+	/**
+	 * Cancels the pending request submitted under a key, if any.
+	 * @param key The key the request was submitted under.
+	 */
+	public void cancel(String key) {
+		CompletableFuture<?> pending = latestRequests.remove(key);
+		if (pending != null) {
+			pending.cancel(true);
+		}
+	}
+
+	/**
+	 * Runs a call on the database executor, superseding the previous call made under the same key.
+	 * The previous future is cancelled: its callbacks never run, and if it has not started yet,
+	 * the call is skipped. Useful for requests where only the last answer matters.
+	 * @param key The key identifying the kind of request.
+	 * @param call The database call.
+	 * @return the future result of the call
+	 */
+	public <T> CompletableFuture<T> latest(String key, Callable<T> call) {
+		CompletableFuture<T> result = submit(call);
+		CompletableFuture<?> previous = latestRequests.put(key, result);
+		if (previous != null) {
+			previous.cancel(true);
+		}
+		result.whenComplete((value, error) -> latestRequests.remove(key, result));
+		return result;
+	}
+
+	/**
+	 * Runs a call on the database executor.
+	 * @param call The database call.
+	 * @return the future result, completed on the callback executor
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> call) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Future<?> task = executor.submit(() -> {
+			if (result.isDone()) {
+				// Cancelled before it had a chance to run
+				return;
+			}
+			try {
+				T value = call.call();
+				callbackExecutor.execute(() -> result.complete(value));
+			} catch (Exception e) {
+				callbackExecutor.execute(() -> result.completeExceptionally(e));
+			}
+		});
+		result.whenComplete((value, error) -> {
+			if (result.isCancelled()) {
+				task.cancel(true);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Creates an executor for database calls: one virtual thread per task when the
+	 * runtime supports them, otherwise a fixed pool of daemon threads sized after the
+	 * connection pool, since more threads would only wait for a connection.
+	 * @param name The prefix of the thread names.
+	 * @param connectionPool The pool the calls borrow their connections from.
+	 * @return a new executor
+	 */
+	public static ExecutorService newDatabaseExecutor(String name, ConnectionPool connectionPool) {
+		return newVirtualThreadExecutor(name, connectionPool.getMaxReaders() + 1);
+	}
+
+	/**
+	 * Creates an executor running each task on its own virtual thread when the runtime
+	 * supports them, otherwise on a fixed pool of daemon threads.
+	 * @param name The prefix of the thread names of the fallback pool.
+	 * @param threads The number of threads of the fallback pool.
+	 * @return a new executor
+	 */
+	public static ExecutorService newVirtualThreadExecutor(String name, int threads) {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// Virtual threads are not available before Java 21
+		}
+		AtomicInteger counter = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		return Executors.newFixedThreadPool(threads, threadFactory);
+	}
+}
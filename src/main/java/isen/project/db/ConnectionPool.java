@@ -0,0 +1,665 @@
+package isen.project.db;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.sqlite.SQLiteDataSource;
+
+import isen.project.metrics.MetricsRegistry;
+import isen.project.metrics.OperationTimer;
+
+/**
+ * Bounded pool of SQLite connections.
+ * SQLite only allows one writer at a time, so the pool hands out a single writer
+ * connection ({@link #getConnection()}) and several reader connections
+ * ({@link #getReadConnection()}). Closing a borrowed connection gives it back to the pool.
+ * Every new physical connection is configured with the {@link SqliteProfile} of the pool,
+ * and keeps its most used prepared statements open: closing such a statement only
+ * resets it, so preparing the same SQL again on that connection costs nothing.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+	private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+	// Time taken to hand out a connection, waiting included, across every pool of the application
+	private static final OperationTimer WRITER_BORROW_TIMER = MetricsRegistry.getDefault().timer("ConnectionPool.getConnection");
+	private static final OperationTimer READER_BORROW_TIMER = MetricsRegistry.getDefault().timer("ConnectionPool.getReadConnection");
+
+	private final SQLiteDataSource source;
+	private final SqliteProfile profile;
+	private final int maxReaders;
+	private final long borrowTimeoutMillis;
+	private final long idleTimeoutMillis;
+
+	// Permits bounding the number of borrowed connections
+	private final Semaphore writerPermit = new Semaphore(1, true);
+	private final Semaphore readerPermits;
+
+	// Open connections waiting to be borrowed, most recently released first
+	private final Deque<PooledConnection> idleWriters = new ArrayDeque<>();
+	private final Deque<PooledConnection> idleReaders = new ArrayDeque<>();
+
+	// Statistics
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong totalBorrowWaitNanos = new AtomicLong();
+	private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+	private final AtomicLong evictedCount = new AtomicLong();
+	private final AtomicLong statementCacheHits = new AtomicLong();
+	private final AtomicLong statementCacheMisses = new AtomicLong();
+
+	private volatile boolean closed;
+
+	// Log of the slow statements, null when they are not measured
+	private volatile SlowQueryLog slowQueryLog;
+
+	/**
+	 * Creates a new pool leaving the SQLite settings untouched.
+	 * @param source The data source used to open the physical connections.
+	 * @param maxReaders The maximum number of reader connections borrowed at the same time.
+	 * @param borrowTimeoutMillis How long a caller waits for a free connection before failing.
+	 * @param idleTimeoutMillis How long an unused connection stays open in the pool.
+	 */
+	public ConnectionPool(SQLiteDataSource source, int maxReaders, long borrowTimeoutMillis, long idleTimeoutMillis) {
+		this(source, SqliteProfile.NONE, maxReaders, borrowTimeoutMillis, idleTimeoutMillis);
+	}
+
+	/**
+	 * Creates a new pool.
+	 * @param source The data source used to open the physical connections.
+	 * @param profile The settings applied to every physical connection.
+	 * @param maxReaders The maximum number of reader connections borrowed at the same time.
+	 * @param borrowTimeoutMillis How long a caller waits for a free connection before failing.
+	 * @param idleTimeoutMillis How long an unused connection stays open in the pool.
+	 */
+	public ConnectionPool(SQLiteDataSource source, SqliteProfile profile, int maxReaders, long borrowTimeoutMillis,
+			long idleTimeoutMillis) {
+		if (maxReaders < 1) {
+			throw new IllegalArgumentException("The pool needs at least one reader connection");
+		}
+		this.source = source;
+		this.profile = profile;
+		this.maxReaders = maxReaders;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.readerPermits = new Semaphore(maxReaders, true);
+	}
+
+	/**
+	 * @return the writer connection, waiting until it is free
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		return WRITER_BORROW_TIMER.time(() -> borrow(true));
+	}
+
+	/**
+	 * @return a reader connection, waiting until one is free
+	 * @throws SQLException if no connection could be obtained before the borrow timeout
+	 */
+	public Connection getReadConnection() throws SQLException {
+		return READER_BORROW_TIMER.time(() -> borrow(false));
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("SQLite connections do not use credentials");
+	}
+
+	/**
+	 * @return a snapshot of the pool statistics
+	 */
+	public PoolStats getStats() {
+		int idle;
+		synchronized (this) {
+			idle = idleWriters.size() + idleReaders.size();
+		}
+		return new PoolStats(1 - writerPermit.availablePermits(), maxReaders - readerPermits.availablePermits(), idle,
+				borrowCount.get(), totalBorrowWaitNanos.get(), maxBorrowWaitNanos.get(), evictedCount.get(),
+				statementCacheHits.get(), statementCacheMisses.get());
+	}
+
+	/**
+	 * Method to log the statements slower than a threshold, run on connections borrowed from now on.
+	 * @param slowQueryLog The log, closed with the pool, or null to stop measuring the statements.
+	 */
+	public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+		this.slowQueryLog = slowQueryLog;
+	}
+
+	/**
+	 * @return the log of the slow statements, null if they are not measured
+	 */
+	public SlowQueryLog getSlowQueryLog() {
+		return slowQueryLog;
+	}
+
+	/**
+	 * @return the settings applied to every physical connection
+	 */
+	public SqliteProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * @return the maximum number of reader connections
+	 */
+	public int getMaxReaders() {
+		return maxReaders;
+	}
+
+	/**
+	 * Closes the connections that stayed unused longer than the idle timeout.
+	 */
+	public void evictIdleConnections() {
+		long now = System.currentTimeMillis();
+		Deque<PooledConnection> expired = new ArrayDeque<>();
+		synchronized (this) {
+			collectExpired(idleWriters, now, expired);
+			collectExpired(idleReaders, now, expired);
+		}
+		for (PooledConnection connection : expired) {
+			discard(connection);
+		}
+	}
+
+	/**
+	 * Closes every idle connection and refuses any further borrow.
+	 * Borrowed connections are closed when they are given back.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		Deque<PooledConnection> toClose = new ArrayDeque<>();
+		synchronized (this) {
+			toClose.addAll(idleWriters);
+			toClose.addAll(idleReaders);
+			idleWriters.clear();
+			idleReaders.clear();
+		}
+		for (PooledConnection connection : toClose) {
+			discard(connection);
+		}
+		SlowQueryLog log = slowQueryLog;
+		if (log != null) {
+			log.close();
+		}
+	}
+
+	private Connection borrow(boolean writer) throws SQLException {
+		if (closed) {
+			throw new SQLException("The connection pool is closed");
+		}
+		Semaphore permits = writer ? writerPermit : readerPermits;
+		long start = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new SQLException("Timed out after " + borrowTimeoutMillis + "ms waiting for a "
+						+ (writer ? "writer" : "reader") + " connection");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", e);
+		}
+		recordWait(System.nanoTime() - start);
+		try {
+			PooledConnection connection = takeValidIdle(writer);
+			if (connection == null) {
+				connection = new PooledConnection(open(), writer, profile.getStatementCacheSize());
+			}
+			return connection.newHandle(this);
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens a physical connection configured with the profile of the pool.
+	 */
+	private Connection open() throws SQLException {
+		Connection physical = source.getConnection();
+		try {
+			profile.apply(physical);
+		} catch (SQLException | RuntimeException e) {
+			physical.close();
+			throw e;
+		}
+		return physical;
+	}
+
+	private PooledConnection takeValidIdle(boolean writer) {
+		Deque<PooledConnection> idle = writer ? idleWriters : idleReaders;
+		long now = System.currentTimeMillis();
+		while (true) {
+			PooledConnection connection;
+			synchronized (this) {
+				connection = idle.pollFirst();
+			}
+			if (connection == null) {
+				return null;
+			}
+			// Validation on borrow: drop connections that expired or were closed underneath us
+			if (now - connection.lastReleased < idleTimeoutMillis && connection.isValid()) {
+				return connection;
+			}
+			discard(connection);
+		}
+	}
+
+	/**
+	 * Gives a connection back to the pool, called when a borrowed handle is closed.
+	 */
+	void release(PooledConnection connection) {
+		Semaphore permits = connection.writer ? writerPermit : readerPermits;
+		try {
+			if (closed || !connection.reset()) {
+				discard(connection);
+				return;
+			}
+			connection.lastReleased = System.currentTimeMillis();
+			synchronized (this) {
+				(connection.writer ? idleWriters : idleReaders).addFirst(connection);
+			}
+		} finally {
+			permits.release();
+		}
+		evictIdleConnections();
+	}
+
+	private void collectExpired(Deque<PooledConnection> idle, long now, Deque<PooledConnection> expired) {
+		Iterator<PooledConnection> iterator = idle.iterator();
+		while (iterator.hasNext()) {
+			PooledConnection connection = iterator.next();
+			if (now - connection.lastReleased >= idleTimeoutMillis) {
+				iterator.remove();
+				expired.add(connection);
+			}
+		}
+	}
+
+	private void discard(PooledConnection connection) {
+		evictedCount.incrementAndGet();
+		try {
+			connection.closeStatements();
+			connection.physical.close();
+		} catch (SQLException e) {
+			LOGGER.log(Level.WARNING, "Could not close the discarded connection", e);
+		}
+	}
+
+	private void recordWait(long waitNanos) {
+		borrowCount.incrementAndGet();
+		totalBorrowWaitNanos.addAndGet(waitNanos);
+		maxBorrowWaitNanos.accumulateAndGet(waitNanos, Math::max);
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return source.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		source.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		source.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return source.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return source.getParentLogger();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return source.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || source.isWrapperFor(iface);
+	}
+
+	/**
+	 * A physical connection owned by the pool, with its cache of prepared statements.
+	 */
+	static class PooledConnection {
+
+		final Connection physical;
+		final boolean writer;
+		volatile long lastReleased;
+
+		// Open statements by SQL, least recently used first
+		private final int statementCacheSize;
+		private final Map<String, CachedStatement> statements;
+
+		PooledConnection(Connection physical, boolean writer, int statementCacheSize) {
+			this.physical = physical;
+			this.writer = writer;
+			this.statementCacheSize = statementCacheSize;
+			this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+					if (size() > statementCacheSize) {
+						eldest.getValue().evict();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		/**
+		 * Method to prepare a statement, reusing the cached one if it is not already in use.
+		 * @param key The SQL query and the preparation options.
+		 * @param handle The connection handle the statement is borrowed through.
+		 * @param prepare How to prepare the statement on the physical connection.
+		 * @return the cached statement, or a plain one when caching is not possible.
+		 */
+		synchronized PreparedStatement prepare(String key, Connection handle, ConnectionPool pool,
+				StatementPreparer prepare) throws SQLException {
+			if (statementCacheSize <= 0) {
+				return prepare.prepare();
+			}
+			CachedStatement cached = statements.get(key);
+			if (cached != null && !cached.inUse) {
+				pool.statementCacheHits.incrementAndGet();
+				return cached.borrow(handle);
+			}
+			pool.statementCacheMisses.incrementAndGet();
+			PreparedStatement statement = prepare.prepare();
+			if (cached != null) {
+				// The same query is prepared twice at the same time, the second one is not cached
+				return statement;
+			}
+			cached = new CachedStatement(statement);
+			statements.put(key, cached);
+			return cached.borrow(handle);
+		}
+
+		/**
+		 * Resets the statements a caller forgot to close before giving the connection back.
+		 */
+		synchronized void recycleStatements() {
+			for (CachedStatement cached : statements.values()) {
+				if (cached.inUse) {
+					cached.recycle();
+				}
+			}
+		}
+
+		synchronized void closeStatements() {
+			List<CachedStatement> toClose = new ArrayList<>(statements.values());
+			statements.clear();
+			for (CachedStatement cached : toClose) {
+				cached.evict();
+			}
+		}
+
+		Connection newHandle(ConnectionPool pool) {
+			return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new Handle(pool, this, pool.slowQueryLog));
+		}
+
+		boolean isValid() {
+			try {
+				return !physical.isClosed() && physical.isValid(1);
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * Puts the connection back in its default state before it returns to the pool.
+		 * @return false if the connection cannot be reused.
+		 */
+		boolean reset() {
+			try {
+				if (physical.isClosed()) {
+					return false;
+				}
+				if (!physical.getAutoCommit()) {
+					// Never leak an unfinished transaction to the next borrower
+					physical.rollback();
+					physical.setAutoCommit(true);
+				}
+				return true;
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * The connection handed to callers: closing it returns the physical connection to the pool.
+	 */
+	private static class Handle implements InvocationHandler {
+
+		private final ConnectionPool pool;
+		private final PooledConnection connection;
+		private final SlowQueryLog slowQueryLog;
+		private boolean closed;
+
+		Handle(ConnectionPool pool, PooledConnection connection, SlowQueryLog slowQueryLog) {
+			this.pool = pool;
+			this.connection = connection;
+			this.slowQueryLog = slowQueryLog;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (!closed) {
+					closed = true;
+					connection.recycleStatements();
+					pool.release(connection);
+				}
+				return null;
+			case "prepareStatement":
+				if (!closed && (args.length == 1 || (args.length == 2 && args[1] instanceof Integer))) {
+					String key = args.length == 1 ? (String) args[0] : args[1] + ":" + args[0];
+					return traced(connection.prepare(key, (Connection) proxy, pool,
+							() -> (PreparedStatement) forward(method, args)), (String) args[0]);
+				}
+				return traced((Statement) forward(method, args), (String) args[0]);
+			case "createStatement":
+				return traced((Statement) forward(method, args), null);
+			case "isClosed":
+				return closed || connection.physical.isClosed();
+			case "unwrap":
+				if (((Class<?>) args[0]).isInstance(proxy)) {
+					return proxy;
+				}
+				break;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "Pooled" + (connection.writer ? "Writer" : "Reader") + "[" + connection.physical + "]";
+			default:
+				break;
+			}
+			return forward(method, args);
+		}
+
+		/**
+		 * Wraps a statement to measure it when the slow statements are logged.
+		 */
+		private Statement traced(Statement statement, String sql) {
+			if (slowQueryLog == null) {
+				return statement;
+			}
+			return TracedStatement.wrap(statement, sql, connection.physical, slowQueryLog);
+		}
+
+		private Object forward(Method method, Object[] args) throws SQLException {
+			if (closed) {
+				throw new SQLException("The connection has already been given back to the pool");
+			}
+			return invokeOn(connection.physical, method, args);
+		}
+	}
+
+	/**
+	 * Prepares a statement on the physical connection.
+	 */
+	@FunctionalInterface
+	interface StatementPreparer {
+		PreparedStatement prepare() throws SQLException;
+	}
+
+	/**
+	 * A prepared statement kept open by its connection: closing the statement handed to
+	 * callers only resets it so it can be borrowed again.
+	 */
+	private static class CachedStatement implements InvocationHandler {
+
+		private final PreparedStatement physical;
+		private final PreparedStatement proxy;
+		private Connection handle;
+		private ResultSet openResults;
+		private boolean inUse;
+		private boolean evicted;
+
+		CachedStatement(PreparedStatement physical) {
+			this.physical = physical;
+			this.proxy = (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, this);
+		}
+
+		PreparedStatement borrow(Connection handle) {
+			this.handle = handle;
+			this.inUse = true;
+			return proxy;
+		}
+
+		/**
+		 * Closes the results and clears the parameters, so the next borrower starts from a clean statement.
+		 */
+		void recycle() {
+			inUse = false;
+			handle = null;
+			try {
+				if (openResults != null) {
+					// Closing the results resets the statement and ends its read transaction
+					openResults.close();
+				}
+				physical.clearParameters();
+				physical.clearBatch();
+			} catch (SQLException e) {
+				evicted = true;
+			} finally {
+				openResults = null;
+			}
+			if (evicted) {
+				closePhysical();
+			}
+		}
+
+		/**
+		 * Removes the statement from the cache: it is closed now or when its borrower closes it.
+		 */
+		void evict() {
+			evicted = true;
+			if (!inUse) {
+				closePhysical();
+			}
+		}
+
+		private void closePhysical() {
+			try {
+				physical.close();
+			} catch (SQLException e) {
+				LOGGER.log(Level.WARNING, "Could not close the evicted connection", e);
+			}
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (inUse) {
+					recycle();
+				}
+				return null;
+			case "isClosed":
+				return !inUse;
+			case "getConnection":
+				return handle;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "Cached[" + physical + "]";
+			default:
+				break;
+			}
+			if (!inUse) {
+				throw new SQLException("The statement has already been closed");
+			}
+			Object result = invokeOn(physical, method, args);
+			if (result instanceof ResultSet) {
+				openResults = (ResultSet) result;
+			}
+			return result;
+		}
+	}
+
+	static Object invokeOn(Object target, Method method, Object[] args) throws SQLException {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof SQLException) {
+				throw (SQLException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new SQLException(e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
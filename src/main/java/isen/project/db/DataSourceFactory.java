@@ -1,27 +1,84 @@
 package isen.project.db;
 
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import javax.sql.DataSource;
 
 import org.sqlite.SQLiteDataSource;
 
 public class DataSourceFactory {
 
-	private static SQLiteDataSource dataSource;
+	// Settings of the pool, can be overridden with -D system properties
+	static final String URL_PROPERTY = "isen.db.url";
+	static final String READERS_PROPERTY = "isen.db.pool.readers";
+	static final String BORROW_TIMEOUT_PROPERTY = "isen.db.pool.borrowTimeoutMs";
+	static final String IDLE_TIMEOUT_PROPERTY = "isen.db.pool.idleTimeoutMs";
+	// The statements are only measured when a threshold is set
+	static final String SLOW_QUERY_THRESHOLD_PROPERTY = "isen.db.slowQuery.thresholdMs";
+	static final String SLOW_QUERY_FILE_PROPERTY = "isen.db.slowQuery.file";
+
+	// Size and number of the rotated files of the slow query log
+	private static final int SLOW_QUERY_FILE_LIMIT = 10 * 1024 * 1024;
+	private static final int SLOW_QUERY_FILE_COUNT = 5;
+
+	private static final Logger LOGGER = Logger.getLogger(DataSourceFactory.class.getName());
 
 	private DataSourceFactory() {
 		throw new IllegalStateException("This is a static class that should not be instantiated");
 	}
 
 	/**
-	 * @return a connection to the SQLite Database
-	 * 
+	 * Lazily created pool, the class loading guarantees it is only built once even
+	 * when several threads ask for it at the same time.
 	 */
-	public static DataSource getDataSource() {
-		if (dataSource == null) {
-			dataSource = new SQLiteDataSource();
-			dataSource.setUrl("jdbc:sqlite:database.db");
+	private static class PoolHolder {
+		private static final ConnectionPool POOL = createPool();
+	}
+
+	private static ConnectionPool createPool() {
+		ConnectionPool pool = createConnectionPool(System.getProperty(URL_PROPERTY, "jdbc:sqlite:database.db"));
+		Long slowQueryThreshold = Long.getLong(SLOW_QUERY_THRESHOLD_PROPERTY);
+		if (slowQueryThreshold != null) {
+			String file = System.getProperty(SLOW_QUERY_FILE_PROPERTY, "slow-queries.%g.log");
+			try {
+				pool.setSlowQueryLog(SlowQueryLog.toFiles(file, SLOW_QUERY_FILE_LIMIT, SLOW_QUERY_FILE_COUNT,
+						slowQueryThreshold));
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Could not open the slow query log " + file, e);
+			}
 		}
-		return dataSource;
+		return pool;
+	}
+
+	/**
+	 * Creates a new pool on another database, with the same settings as the application pool.
+	 * Its connections use the {@link SqliteProfile#fromSystemProperties() performance profile}.
+	 * @param url The JDBC URL of the SQLite database.
+	 * @return a new pool, to be closed by the caller
+	 */
+	public static ConnectionPool createConnectionPool(String url) {
+		SQLiteDataSource dataSource = new SQLiteDataSource();
+		dataSource.setUrl(url);
+		return new ConnectionPool(dataSource, SqliteProfile.fromSystemProperties(),
+				Integer.getInteger(READERS_PROPERTY, 4),
+				Long.getLong(BORROW_TIMEOUT_PROPERTY, 30_000L),
+				Long.getLong(IDLE_TIMEOUT_PROPERTY, 60_000L));
+	}
+
+	/**
+	 * @return a data source whose connections are the writer connection of the pool
+	 *
+	 */
+	public static DataSource getDataSource() {
+		return PoolHolder.POOL;
 	}
-}
 
+	/**
+	 * @return the connection pool of the SQLite Database, giving access to reader connections and statistics
+	 */
+	public static ConnectionPool getConnectionPool() {
+		return PoolHolder.POOL;
+	}
+}
@@ -0,0 +1,173 @@
+package isen.project.db;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Keys the fuzzy search finds names by, despite typos and spelling variants.
+ * Each word of a name gives a phonetic key (American Soundex, so "Schmidt" and "Smith"
+ * share S530) and its trigrams ("smith" gives smi, mit, ith), which a misspelled word
+ * mostly shares with the right one. Both are stored in the 'person_fuzzy' full-text
+ * table; the candidates it returns are then ranked by edit distance.
+ */
+public final class NameKeys {
+
+	// Soundex digit of each letter from 'a' to 'z', '0' for the vowels and '-' for h and w
+	private static final String SOUNDEX_CODES = "0123012-02245501262301-202";
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern NOT_LETTERS = Pattern.compile("[^\\p{L}]+");
+
+	private NameKeys() {
+		throw new IllegalStateException("This is a static class that should not be instantiated");
+	}
+
+	/**
+	 * Method to cut a name into comparable words: lower case, without accents, letters only.
+	 * @param name The name, may be null.
+	 * @return the words of the name, empty if it has none
+	 */
+	public static List<String> words(String name) {
+		List<String> words = new ArrayList<>();
+		if (name == null) {
+			return words;
+		}
+		String plain = MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+		for (String word : NOT_LETTERS.split(plain.toLowerCase(Locale.ROOT))) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Method to compute the American Soundex code of a word.
+	 * @param word A word as given by {@link #words(String)}.
+	 * @return the code in lower case (s530 for "smith"), or null if the word has no latin letter
+	 */
+	public static String soundex(String word) {
+		StringBuilder code = new StringBuilder(4);
+		char last = 0;
+		for (int i = 0; i < word.length() && code.length() < 4; i++) {
+			char c = word.charAt(i);
+			if (c < 'a' || c > 'z') {
+				continue;
+			}
+			char digit = SOUNDEX_CODES.charAt(c - 'a');
+			if (code.length() == 0) {
+				code.append(c);
+			} else if (digit != '0' && digit != '-' && digit != last) {
+				code.append(digit);
+			}
+			// H and W do not separate two letters with the same code, vowels do
+			if (digit != '-') {
+				last = digit;
+			}
+		}
+		if (code.length() == 0) {
+			return null;
+		}
+		while (code.length() < 4) {
+			code.append('0');
+		}
+		return code.toString();
+	}
+
+	/**
+	 * Method to list the trigrams of a word, the word itself if it is shorter than three letters.
+	 * @param word A word as given by {@link #words(String)}.
+	 * @return the distinct trigrams, in order
+	 */
+	public static Set<String> trigrams(String word) {
+		Set<String> trigrams = new LinkedHashSet<>();
+		if (word.length() < 3) {
+			trigrams.add(word);
+		}
+		for (int i = 0; i + 3 <= word.length(); i++) {
+			trigrams.add(word.substring(i, i + 3));
+		}
+		return trigrams;
+	}
+
+	/**
+	 * Method to compute the phonetic keys stored for some names.
+	 * @param names The names, null ones are ignored.
+	 * @return the distinct Soundex codes of their words, separated by spaces
+	 */
+	public static String phoneticText(String... names) {
+		Set<String> keys = new LinkedHashSet<>();
+		for (String name : names) {
+			for (String word : words(name)) {
+				String key = soundex(word);
+				if (key != null) {
+					keys.add(key);
+				}
+			}
+		}
+		return String.join(" ", keys);
+	}
+
+	/**
+	 * Method to compute the trigrams stored for some names.
+	 * @param names The names, null ones are ignored.
+	 * @return the distinct trigrams of their words, separated by spaces
+	 */
+	public static String trigramText(String... names) {
+		Set<String> keys = new LinkedHashSet<>();
+		for (String name : names) {
+			for (String word : words(name)) {
+				keys.addAll(trigrams(word));
+			}
+		}
+		return String.join(" ", keys);
+	}
+
+	/**
+	 * Method to compute the Damerau-Levenshtein distance between two words (optimal string
+	 * alignment): the number of inserted, deleted or replaced letters, or swapped neighbours,
+	 * turning one into the other. "smtih" is at 1 from "smith".
+	 * @param a A word.
+	 * @param b Another word.
+	 * @return the distance
+	 */
+	public static int distance(String a, String b) {
+		int[] previousPrevious = new int[b.length() + 1];
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				int best = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					best = Math.min(best, previousPrevious[j - 2] + 1);
+				}
+				current[j] = best;
+			}
+			int[] recycled = previousPrevious;
+			previousPrevious = previous;
+			previous = current;
+			current = recycled;
+		}
+		return previous[b.length()];
+	}
+
+	/**
+	 * Method to give the number of edits a word of the query may be away from a name
+	 * and still match it: one for short words, up to three for long ones.
+	 * @param word A word of the query.
+	 * @return the maximum distance accepted
+	 */
+	public static int maxDistance(String word) {
+		return word.length() <= 4 ? 1 : word.length() <= 8 ? 2 : 3;
+	}
+}
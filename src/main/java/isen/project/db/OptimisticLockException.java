@@ -0,0 +1,61 @@
+package isen.project.db;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a person cannot be updated because its row was updated or deleted by someone
+ * else since it was read, see {@link PersonDao#updatePersonIfUnchanged(isen.project.model.Person)}.
+ * Nothing was written: the caller reads the person again and decides what to do with its changes.
+ */
+public class OptimisticLockException extends SQLException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int idperson;
+	private final int expectedVersion;
+	private final int currentVersion;
+
+	/**
+	 * Creates the exception.
+	 * @param idperson The ID of the person.
+	 * @param expectedVersion The version the person had when it was read.
+	 * @param currentVersion The version of the row now, 0 if the row was deleted.
+	 */
+	public OptimisticLockException(int idperson, int expectedVersion, int currentVersion) {
+		super(currentVersion == 0
+				? "The person " + idperson + " was deleted since it was read"
+				: "The person " + idperson + " was changed since it was read (version " + expectedVersion + ", now "
+						+ currentVersion + ")");
+		this.idperson = idperson;
+		this.expectedVersion = expectedVersion;
+		this.currentVersion = currentVersion;
+	}
+
+	/**
+	 * @return the ID of the person
+	 */
+	public int getIdperson() {
+		return idperson;
+	}
+
+	/**
+	 * @return the version the person had when it was read
+	 */
+	public int getExpectedVersion() {
+		return expectedVersion;
+	}
+
+	/**
+	 * @return the version of the row now, 0 if it was deleted
+	 */
+	public int getCurrentVersion() {
+		return currentVersion;
+	}
+
+	/**
+	 * @return true if the row was deleted rather than updated
+	 */
+	public boolean isDeleted() {
+		return currentVersion == 0;
+	}
+}
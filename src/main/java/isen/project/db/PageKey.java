@@ -0,0 +1,41 @@
+package isen.project.db;
+
+/**
+ * Position of the last row of a page, used to seek the next page.
+ * It holds the raw value of the sort column as stored in the database and the ID
+ * of the row, which breaks ties between rows with the same value.
+ */
+public class PageKey {
+
+	private final Object sortValue;
+	private final int idperson;
+
+	/**
+	 * Creates a key.
+	 * @param sortValue The value of the sort column on the last row of the page.
+	 * @param idperson The ID of the last row of the page.
+	 */
+	public PageKey(Object sortValue, int idperson) {
+		this.sortValue = sortValue;
+		this.idperson = idperson;
+	}
+
+	/**
+	 * @return the value of the sort column on the last row of the page
+	 */
+	public Object getSortValue() {
+		return sortValue;
+	}
+
+	/**
+	 * @return the ID of the last row of the page
+	 */
+	public int getIdperson() {
+		return idperson;
+	}
+
+	@Override
+	public String toString() {
+		return "PageKey[" + sortValue + ", " + idperson + "]";
+	}
+}
@@ -0,0 +1,191 @@
+package isen.project.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import isen.project.model.Person;
+
+/**
+ * Inserts a stream of persons with one reused PreparedStatement, sending them to
+ * SQLite in batches and committing everything in a single transaction.
+ * Obtained from {@link PersonDao#openBulkInserter()}; nothing is kept if
+ * {@link #close()} is called before {@link #commit()}.
+ * For large loads the indexes are dropped at the start of the transaction and rebuilt
+ * at commit: building an index from sorted rows is much cheaper than inserting every
+ * row in it one by one. Schema changes are transactional in SQLite, so a rollback
+ * brings the indexes back as well.
+ */
+public class PersonBulkInserter implements AutoCloseable {
+
+    // Share of the stored rows from which the indexes are rebuilt rather than maintained:
+    // inserting a row in the indexes costs about four times what rebuilding them costs per row
+    private static final double DEFERRED_INDEX_RATIO = 0.25;
+
+    // Below this number of expected rows the indexes are always maintained
+    private static final long DEFERRED_INDEX_MIN_COUNT = 1_000;
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    // Writes the keys of the fuzzy search once the IDs are known
+    private final PreparedStatement keysStatement;
+    private final int batchSize;
+    // Called once the transaction is committed, null if nothing has to be notified
+    private final Runnable afterCommit;
+
+    // Persons added since the last flush, their IDs are set once the batch is executed
+    private final List<Person> pending = new ArrayList<>();
+    private long insertedCount;
+    private boolean committed;
+
+    // True when the indexes are rebuilt at commit
+    private boolean deferredIndexes;
+    // Whether the full-text index has to be rebuilt too, and the last ID it already holds
+    private boolean deferredSearchIndex;
+    private long lastIndexedId;
+
+    PersonBulkInserter(Connection connection, int batchSize) throws SQLException {
+        this(connection, batchSize, null, 0);
+    }
+
+    PersonBulkInserter(Connection connection, int batchSize, Runnable afterCommit, long expectedCount)
+            throws SQLException {
+        this.connection = connection;
+        this.batchSize = batchSize;
+        this.afterCommit = afterCommit;
+        try {
+            connection.setAutoCommit(false);
+            if (expectedCount >= DEFERRED_INDEX_MIN_COUNT) {
+                deferIndexes(expectedCount);
+            }
+            this.statement = connection.prepareStatement(PersonDao.INSERT_QUERY);
+            this.keysStatement = connection.prepareStatement(PersonDao.FUZZY_KEYS_QUERY);
+        } catch (SQLException e) {
+            connection.rollback();
+            connection.setAutoCommit(true);
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the indexes if the expected rows are many compared to the stored ones.
+     */
+    private void deferIndexes(long expectedCount) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            long storedCount;
+            try (ResultSet result = stmt.executeQuery("SELECT IFNULL(MAX(idperson), 0), COUNT(*) FROM person")) {
+                lastIndexedId = result.getLong(1);
+                storedCount = result.getLong(2);
+            }
+            if (expectedCount < storedCount * DEFERRED_INDEX_RATIO) {
+                return;
+            }
+            try (ResultSet result = stmt.executeQuery(
+                    "SELECT 1 FROM sqlite_master WHERE type = 'trigger' AND name = 'person_fts_insert'")) {
+                deferredSearchIndex = result.next();
+            }
+            PersonSchema.execute(stmt, PersonSchema.DROP_SORT_INDEXES);
+            if (deferredSearchIndex) {
+                stmt.executeUpdate(PersonSchema.DROP_SEARCH_INSERT_TRIGGER);
+            }
+            deferredIndexes = true;
+        }
+    }
+
+    /**
+     * Queues a person for insertion, executing the batch when it is full.
+     * @param person The person to insert, its ID is set when its batch is executed.
+     * @throws SQLException if the batch could not be executed.
+     */
+    public void add(Person person) throws SQLException {
+        PersonDao.bindPerson(statement, person);
+        statement.addBatch();
+        pending.add(person);
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Executes the queued inserts and sets the generated IDs on the queued persons.
+     * @throws SQLException if the batch could not be executed.
+     */
+    public void flush() throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        statement.executeBatch();
+        // The single writer holds the lock for the whole transaction and AUTOINCREMENT
+        // always takes the next value, so the batch received consecutive IDs
+        long lastId;
+        try (Statement lastIdStatement = connection.createStatement();
+                ResultSet result = lastIdStatement.executeQuery("SELECT last_insert_rowid()")) {
+            result.next();
+            lastId = result.getLong(1);
+        }
+        long firstId = lastId - pending.size() + 1;
+        for (int i = 0; i < pending.size(); i++) {
+            Person person = pending.get(i);
+            person.setIdperson((int) (firstId + i));
+            person.setVersion(PersonDao.FIRST_VERSION);
+            person.clearDirtyFields();
+            PersonDao.bindFuzzyKeys(keysStatement, person.getIdperson(), person);
+            keysStatement.addBatch();
+        }
+        keysStatement.executeBatch();
+        insertedCount += pending.size();
+        pending.clear();
+    }
+
+    /**
+     * Flushes the remaining inserts and commits the transaction.
+     * @throws SQLException if the inserts could not be committed.
+     */
+    public void commit() throws SQLException {
+        flush();
+        if (deferredIndexes) {
+            try (Statement stmt = connection.createStatement()) {
+                PersonSchema.execute(stmt, PersonSchema.SORT_INDEXES);
+                if (deferredSearchIndex) {
+                    PersonDao.indexSearchColumnsAfter(stmt, lastIndexedId);
+                    stmt.executeUpdate(PersonSchema.SEARCH_INSERT_TRIGGER);
+                }
+            }
+        }
+        connection.commit();
+        committed = true;
+        if (afterCommit != null) {
+            afterCommit.run();
+        }
+    }
+
+    /**
+     * @return the number of persons inserted so far
+     */
+    public long getInsertedCount() {
+        return insertedCount;
+    }
+
+    /**
+     * Releases the connection, rolling back the transaction if it was not committed.
+     * @throws SQLException if the connection could not be released.
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            statement.close();
+            keysStatement.close();
+            if (!committed) {
+                connection.rollback();
+            }
+            connection.setAutoCommit(true);
+        } finally {
+            connection.close();
+        }
+    }
+}
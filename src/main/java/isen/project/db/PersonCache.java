@@ -0,0 +1,442 @@
+package isen.project.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import isen.project.model.Person;
+
+/**
+ * Read-through cache of persons placed in front of the database.
+ * It is a {@link PersonDao}, so it can be used wherever a DAO is expected: reads are
+ * served from memory when possible, and writes go to the database then update the
+ * cache (write-through). Records are keyed by ID and evicted in least recently used
+ * order once the size bound is reached. Pages of the overview are cached as well and
+ * dropped on every write, since a write can move rows from one page to another.
+ * Persons returned by the cache are shared and must not be modified by callers.
+ */
+public class PersonCache extends PersonDao {
+
+	static final String MAX_SIZE_PROPERTY = "isen.cache.maxSize";
+
+	// Number of pages kept, enough for the first pages of every sort of the overview
+	private static final int MAX_PAGES = 64;
+
+	private final int maxSize;
+	private final LinkedHashMap<Integer, Person> records;
+	private final LinkedHashMap<PageRequest, PersonPage> pages;
+
+	// True when the records hold the whole table, so listPersons() needs no query
+	private boolean complete;
+
+	// Incremented by every write, so results read before a write are not cached after it
+	private long generation;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Creates a cache in front of the application database.
+	 * @param maxSize The maximum number of persons kept in memory.
+	 */
+	public PersonCache(int maxSize) {
+		this(DataSourceFactory.getConnectionPool(), maxSize);
+	}
+
+	/**
+	 * Creates a cache in front of the database of the given pool.
+	 * @param connectionPool The pool the connections are borrowed from.
+	 * @param maxSize The maximum number of persons kept in memory.
+	 */
+	public PersonCache(ConnectionPool connectionPool, int maxSize) {
+		super(connectionPool);
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("The cache must hold at least one person");
+		}
+		this.maxSize = maxSize;
+		this.records = new LinkedHashMap<Integer, Person>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Person> eldest) {
+				if (size() > PersonCache.this.maxSize) {
+					complete = false;
+					return true;
+				}
+				return false;
+			}
+		};
+		this.pages = new LinkedHashMap<PageRequest, PersonPage>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<PageRequest, PersonPage> eldest) {
+				return size() > MAX_PAGES;
+			}
+		};
+	}
+
+	/**
+	 * @return the cache shared by the screens of the application, sized by the
+	 *         {@value #MAX_SIZE_PROPERTY} system property (10000 persons by default)
+	 */
+	public static PersonCache getShared() {
+		return SharedHolder.CACHE;
+	}
+
+	private static class SharedHolder {
+		private static final PersonCache CACHE = new PersonCache(Integer.getInteger(MAX_SIZE_PROPERTY, 10_000));
+	}
+
+	/**
+	 * Loads the whole table in the cache if it fits within the size bound.
+	 * Nothing is queried if the cache already holds the whole table.
+	 */
+	public void fill() {
+		listPersons();
+	}
+
+	/**
+	 * Method to retrieve all persons, from memory once the whole table has been loaded.
+	 * @return A list of all persons, sorted by ID.
+	 */
+	@Override
+	public List<Person> listPersons() {
+		synchronized (this) {
+			if (complete) {
+				hitCount.incrementAndGet();
+				List<Person> persons = new ArrayList<>(records.values());
+				persons.sort(Comparator.comparingInt(Person::getIdperson));
+				return persons;
+			}
+		}
+		missCount.incrementAndGet();
+		long readGeneration = currentGeneration();
+		List<Person> persons = super.listPersons();
+		synchronized (this) {
+			if (persons.size() <= maxSize && readGeneration == generation) {
+				records.clear();
+				// Copies, so the listed views do not keep the whole store alive
+				for (Person person : persons) {
+					records.put(person.getIdperson(), copyOf(person.getIdperson(), person));
+				}
+				complete = true;
+			}
+		}
+		return persons;
+	}
+
+	@Override
+	public Person getPerson(Integer id) throws SQLException {
+		synchronized (this) {
+			Person person = records.get(id);
+			if (person != null || complete) {
+				hitCount.incrementAndGet();
+				return person;
+			}
+		}
+		missCount.incrementAndGet();
+		long readGeneration = currentGeneration();
+		Person person = super.getPerson(id);
+		synchronized (this) {
+			if (person != null && readGeneration == generation) {
+				records.put(person.getIdperson(), copyOf(person.getIdperson(), person));
+			}
+		}
+		return person;
+	}
+
+	@Override
+	public PersonPage page(PersonSortColumn sortColumn, SortDirection direction, PageKey afterKey, int limit) throws SQLException {
+		PageRequest request = new PageRequest(sortColumn, direction, afterKey, limit);
+		synchronized (this) {
+			PersonPage page = pages.get(request);
+			if (page != null) {
+				hitCount.incrementAndGet();
+				return page;
+			}
+		}
+		missCount.incrementAndGet();
+		long readGeneration = currentGeneration();
+		PersonPage page = super.page(sortColumn, direction, afterKey, limit);
+		synchronized (this) {
+			if (readGeneration != generation) {
+				return page;
+			}
+			pages.put(request, page);
+			for (Person person : page.getPersons()) {
+				records.put(person.getIdperson(), copyOf(person.getIdperson(), person));
+			}
+		}
+		return page;
+	}
+
+	@Override
+	public Person insertPerson(Person person) throws Exception {
+		Person inserted = super.insertPerson(person);
+		synchronized (this) {
+			written();
+			if (inserted != null) {
+				records.put(inserted.getIdperson(), copyOf(inserted.getIdperson(), inserted));
+			}
+		}
+		return inserted;
+	}
+
+	@Override
+	public boolean updatePerson(Integer id, Person person) throws Exception {
+		boolean updated;
+		try {
+			updated = super.updatePerson(id, person);
+		} catch (Exception e) {
+			forgetUnknown(id);
+			throw e;
+		}
+		if (!updated) {
+			// Failed or no such row: the cached person, if any, may not be the stored one
+			forgetUnknown(id);
+			return false;
+		}
+		synchronized (this) {
+			written();
+			records.put(id, copyOf(id, person));
+		}
+		return true;
+	}
+
+	@Override
+	public boolean updatePersonIfUnchanged(Person person) throws SQLException {
+		int id = person.getIdperson();
+		boolean updated;
+		try {
+			updated = super.updatePersonIfUnchanged(person);
+		} catch (SQLException e) {
+			// The cached person may be the stale one
+			forgetUnknown(id);
+			throw e;
+		}
+		if (updated) {
+			synchronized (this) {
+				written();
+				records.put(id, copyOf(id, person));
+			}
+		}
+		return updated;
+	}
+
+	@Override
+	public void deletePerson(Integer id) throws Exception {
+		try {
+			super.deletePerson(id);
+		} finally {
+			forget(id);
+		}
+	}
+
+	@Override
+	public void deletePersonIfUnchanged(int id, int version) throws SQLException {
+		try {
+			super.deletePersonIfUnchanged(id, version);
+		} finally {
+			forget(id);
+		}
+	}
+
+	@Override
+	public List<Integer> insertPersons(Collection<Person> persons) throws SQLException {
+		List<Integer> ids = super.insertPersons(persons);
+		synchronized (this) {
+			written();
+			for (Person person : persons) {
+				records.put(person.getIdperson(), copyOf(person.getIdperson(), person));
+			}
+		}
+		return ids;
+	}
+
+	@Override
+	public void updatePersons(Map<Integer, Person> persons) throws SQLException {
+		super.updatePersons(persons);
+		synchronized (this) {
+			written();
+			for (Map.Entry<Integer, Person> entry : persons.entrySet()) {
+				records.put(entry.getKey(), copyOf(entry.getKey(), entry.getValue()));
+			}
+		}
+	}
+
+	@Override
+	public SyncReport upsertPersons(Stream<Person> persons) throws SQLException {
+		try {
+			return super.upsertPersons(persons);
+		} finally {
+			invalidateAll();
+		}
+	}
+
+	@Override
+	public int deletePersons(Collection<Integer> ids) throws SQLException {
+		int deleted = super.deletePersons(ids);
+		synchronized (this) {
+			written();
+			for (Integer id : ids) {
+				records.remove(id);
+			}
+		}
+		return deleted;
+	}
+
+	@Override
+	public Person mergePersons(int keptId, int duplicateId) throws SQLException {
+		Person merged;
+		try {
+			merged = super.mergePersons(keptId, duplicateId);
+		} finally {
+			forget(duplicateId);
+		}
+		synchronized (this) {
+			if (merged != null) {
+				records.put(keptId, copyOf(keptId, merged));
+			} else {
+				records.remove(keptId);
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Empties the cache once a bulk inserter committed, since the inserted persons do not go
+	 * through it, then notifies the listeners.
+	 */
+	@Override
+	protected void bulkInserted() {
+		invalidateAll();
+		super.bulkInserted();
+	}
+
+	/**
+	 * Forgets every cached person and page, for when the table was modified without this cache.
+	 */
+	public synchronized void invalidateAll() {
+		written();
+		records.clear();
+		complete = false;
+	}
+
+	/**
+	 * @return the number of persons currently cached
+	 */
+	public synchronized int size() {
+		return records.size();
+	}
+
+	/**
+	 * @return the maximum number of persons kept in memory
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of reads served from memory
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of reads that had to query the database
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the fraction of reads served from memory, between 0 and 1
+	 */
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	private synchronized long currentGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Records a write: pages may have changed and reads started before it must not be cached.
+	 */
+	private void written() {
+		generation++;
+		pages.clear();
+	}
+
+	private synchronized void forget(Integer id) {
+		written();
+		records.remove(id);
+	}
+
+	/**
+	 * Forgets a person whose row may still exist, in a state the cache does not know: the
+	 * records no longer hold the whole table, so listPersons() reads it again.
+	 */
+	private synchronized void forgetUnknown(Integer id) {
+		forget(id);
+		complete = false;
+	}
+
+	/**
+	 * Copies a person written by a caller, so later changes to their object do not leak in the cache.
+	 */
+	private static Person copyOf(int id, Person person) {
+		Person copy = new Person(id, person.getLastname(), person.getFirstname(), person.getNickname(),
+				person.getPhoneNumber(), person.getAddress(), person.getEmailAddress(), person.getBirthDate());
+		copy.setVersion(person.getVersion());
+		copy.clearDirtyFields();
+		return copy;
+	}
+
+	/**
+	 * The arguments of a page() call, used as the key of the cached pages.
+	 */
+	private static class PageRequest {
+
+		private final PersonSortColumn sortColumn;
+		private final SortDirection direction;
+		private final Object afterValue;
+		private final Integer afterId;
+		private final int limit;
+
+		PageRequest(PersonSortColumn sortColumn, SortDirection direction, PageKey afterKey, int limit) {
+			this.sortColumn = sortColumn;
+			this.direction = direction;
+			this.afterValue = afterKey == null ? null : afterKey.getSortValue();
+			this.afterId = afterKey == null ? null : afterKey.getIdperson();
+			this.limit = limit;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof PageRequest)) {
+				return false;
+			}
+			PageRequest request = (PageRequest) other;
+			return sortColumn == request.sortColumn && direction == request.direction
+					&& Objects.equals(afterValue, request.afterValue) && Objects.equals(afterId, request.afterId)
+					&& limit == request.limit;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(sortColumn, direction, afterValue, afterId, limit);
+		}
+	}
+}
@@ -5,10 +5,29 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import isen.project.metrics.MetricsRegistry;
+import isen.project.metrics.OperationTimer;
 import isen.project.model.Person;
+import isen.project.model.PersonField;
+import isen.project.model.PersonStore;
 
 /**
  * Data Access Object (DAO) class for interacting with the 'person' table in the database.
@@ -16,46 +35,393 @@ import isen.project.model.Person;
  */
 public class PersonDao {
 
+    // Number of statements sent to SQLite at once by the batch methods
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    // Number of rows the streaming methods ask the driver to read at once
+    public static final int DEFAULT_FETCH_SIZE = 256;
+
+    static final String INSERT_QUERY = "INSERT INTO person(lastname, firstname, nickname, phone_number, address, email_address, birth_date) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    static final String UPDATE_QUERY = "UPDATE person SET lastname = ?, firstname = ?, nickname = ?, phone_number = ?, address = ?, email_address = ?, birth_date = ?, version = version + 1 WHERE idperson = ?";
+    static final String DELETE_QUERY = "DELETE FROM person WHERE idperson = ?";
+    static final String CHECKED_DELETE_QUERY = "DELETE FROM person WHERE idperson = ? AND version = ?";
+    static final String VERSION_QUERY = "SELECT version FROM person WHERE idperson = ?";
+
+    // Version of a newly inserted row, every update increments it
+    public static final int FIRST_VERSION = 1;
+
+    // Number of persons written per transaction by upsertPersons
+    public static final int SYNC_TRANSACTION_SIZE = 10_000;
+
+    // Maximum number of results returned by searchPerson
+    public static final int SEARCH_LIMIT = 500;
+
+    // Columns of the full-text index, the weights of SEARCH_RANKING follow the same order
+    static final String SEARCH_COLUMNS = "lastname, firstname, nickname, email_address, phone_number";
+    static final String SEARCH_RANKING = "bm25(person_fts, 10.0, 5.0, 3.0, 2.0, 1.0)";
+
+    // Keys of the fuzzy search, see NameKeys; REPLACE also serves the updates
+    static final String FUZZY_KEYS_QUERY = "INSERT OR REPLACE INTO person_fuzzy(rowid, phonetic, grams) VALUES (?, ?, ?)";
+    // A phonetic match weighs as much as four shared trigrams
+    static final String FUZZY_RANKING = "bm25(person_fuzzy, 4.0, 1.0)";
+
+    // Candidates read from 'person_fuzzy' for each result, before they are ranked by edit distance
+    static final int FUZZY_CANDIDATES_PER_RESULT = 4;
+    static final int FUZZY_MIN_CANDIDATES = 200;
+
+    // Above this number of changed rows, a batch write publishes a single RELOADED event
+    public static final int MAX_EVENTS_PER_WRITE = 1000;
+
+    private static final Logger LOGGER = Logger.getLogger(PersonDao.class.getName());
+
+    // Latency, errors and rows of each operation, shared by every DAO of the application
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    private static final OperationTimer LOAD_TIMER = METRICS.timer("PersonDao.loadPersonStore");
+    private static final OperationTimer STREAM_TIMER = METRICS.timer("PersonDao.streamPersons");
+    private static final OperationTimer PAGE_TIMER = METRICS.timer("PersonDao.page");
+    private static final OperationTimer GET_TIMER = METRICS.timer("PersonDao.getPerson");
+    private static final OperationTimer INSERT_TIMER = METRICS.timer("PersonDao.insertPerson");
+    private static final OperationTimer UPDATE_TIMER = METRICS.timer("PersonDao.updatePerson");
+    private static final OperationTimer CHECKED_UPDATE_TIMER = METRICS.timer("PersonDao.updatePersonIfUnchanged");
+    private static final OperationTimer DELETE_TIMER = METRICS.timer("PersonDao.deletePerson");
+    private static final OperationTimer CHECKED_DELETE_TIMER = METRICS.timer("PersonDao.deletePersonIfUnchanged");
+    private static final OperationTimer UPSERT_TIMER = METRICS.timer("PersonDao.upsertPersons");
+    private static final OperationTimer SEARCH_TIMER = METRICS.timer("PersonDao.searchPerson");
+    private static final OperationTimer PREFIX_SEARCH_TIMER = METRICS.timer("PersonDao.searchPersons");
+    private static final OperationTimer FUZZY_SEARCH_TIMER = METRICS.timer("PersonDao.fuzzySearchPersons");
+    private static final OperationTimer INSERT_BATCH_TIMER = METRICS.timer("PersonDao.insertPersons");
+    private static final OperationTimer UPDATE_BATCH_TIMER = METRICS.timer("PersonDao.updatePersons");
+    private static final OperationTimer DELETE_BATCH_TIMER = METRICS.timer("PersonDao.deletePersons");
+    private static final OperationTimer MERGE_TIMER = METRICS.timer("PersonDao.mergePersons");
+    private static final OperationTimer FUZZY_KEYS_TIMER = METRICS.timer("PersonDao.indexMissingFuzzyKeys");
+
+    // Pool the connections of this DAO are borrowed from
+    private final ConnectionPool connectionPool;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    // Notified of every committed write
+    private final List<PersonEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a DAO working on the application database.
+     */
+    public PersonDao() {
+        this(DataSourceFactory.getConnectionPool());
+    }
+
+    /**
+     * Creates a DAO working on the database of the given pool.
+     * @param connectionPool The pool the connections are borrowed from.
+     */
+    public PersonDao(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Get the pool the connections of this DAO are borrowed from.
+     * @return The connection pool.
+     */
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Set the number of statements sent to the database at once by the batch methods.
+     * @param batchSize The number of rows per batch.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Get the number of statements sent to the database at once by the batch methods.
+     * @return The number of rows per batch.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Registers a listener notified of the changes committed through this DAO.
+     * @param listener The listener.
+     */
+    public void addPersonEventListener(PersonEventListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addPersonEventListener(PersonEventListener)}.
+     * @param listener The listener.
+     */
+    public void removePersonEventListener(PersonEventListener listener) {
+        listeners.remove(listener);
+    }
+
     /**
-     * Method to initialize the database by creating the 'person' table if it doesn't exist.
+     * @return true if a listener would receive the published events
+     */
+    protected boolean hasPersonEventListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Sends events to every listener. A failing listener does not prevent the others from being notified.
+     * @param events The changes of a committed write.
+     */
+    protected void publish(List<PersonEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<PersonEvent> readOnlyEvents = Collections.unmodifiableList(events);
+        for (PersonEventListener listener : listeners) {
+            try {
+                listener.personsChanged(readOnlyEvents);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "A person event listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Method called once a bulk inserter committed its persons, which are not published one by one.
+     */
+    protected void bulkInserted() {
+        if (hasPersonEventListeners()) {
+            publish(Collections.singletonList(PersonEvent.reloaded()));
+        }
+    }
+
+    /**
+     * Method to initialize the database: brings its schema to the latest version, see
+     * {@link #migrateSchema()}. A database that is up to date is opened after a single read.
      * @throws Exception if an error occurs during database initialization.
      */
     public void initDb() throws Exception {
-        Connection connection = DataSourceFactory.getDataSource().getConnection();
-        Statement stmt = connection.createStatement();
-        stmt.executeUpdate(
-                "CREATE TABLE IF NOT EXISTS person (idperson INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,lastname VARCHAR(45) NOT NULL, firstname VARCHAR(45) NOT NULL, nickname VARCHAR(45) NOT NULL, phone_number VARCHAR(15) NULL, address VARCHAR(200) NULL, email_address VARCHAR(150) NULL, birth_date DATE NULL);");
-        stmt.close();
-        connection.close();
+        migrateSchema();
+    }
+
+    /**
+     * Method to apply the schema migrations the database has not received yet: the 'person'
+     * table, its indexes and triggers. A database created by an older version of the
+     * application, including before the schema was versioned, is brought up to date; one
+     * that is already up to date is recognized from a single read of its schema version.
+     * @return The migrations applied, empty if the schema was up to date.
+     * @throws SQLException if a migration fails, in which case the previous ones stay applied.
+     */
+    public List<SchemaMigration> migrateSchema() throws SQLException {
+        try (Connection connection = connectionPool.getConnection()) {
+            return PersonSchema.migrator().migrate(connection);
+        }
+    }
+
+    /**
+     * Method to write the fuzzy search keys of the persons that have none, such as the persons
+     * inserted by another program. The keys are computed in Java, so only the DAO writes them.
+     * Every row is checked, a chunk of rows per transaction: this is meant to run in the
+     * background after startup, see {@link AsyncPersonDao#indexMissingFuzzyKeys()}.
+     * @return The number of persons whose keys were written.
+     * @throws SQLException if the keys cannot be written, in which case the committed chunks are kept.
+     */
+    public int indexMissingFuzzyKeys() throws SQLException {
+        return FUZZY_KEYS_TIMER.time(() -> {
+            try (Connection connection = connectionPool.getConnection()) {
+                return PersonSchema.backfillFuzzyKeys(connection, PersonSchema.BACKFILL_CHUNK_SIZE);
+            }
+        });
+    }
+
+    /**
+     * Adds the persons whose ID is greater than the given one to the full-text index,
+     * for rows inserted while the insert trigger was dropped.
+     */
+    static void indexSearchColumnsAfter(Statement stmt, long lastIndexedId) throws SQLException {
+        stmt.executeUpdate("INSERT INTO person_fts(rowid, " + SEARCH_COLUMNS + ") SELECT idperson, " + SEARCH_COLUMNS
+                + " FROM person WHERE idperson > " + lastIndexedId);
     }
 
     /**
      * Method to retrieve a list of all persons from the 'person' table.
+     * The persons are held by a {@link PersonStore}, see {@link #loadPersonStore()}.
      * @return A list of Person objects representing all persons in the database.
      */
     public List<Person> listPersons() {
-        List<Person> persons = new ArrayList<>();
-        try (Connection connection = DataSourceFactory.getDataSource().getConnection()) {
-            try (Statement statement = connection.createStatement()) {
-                try (ResultSet results = statement.executeQuery("SELECT * FROM person")) {
-                    while (results.next()) {
-                        persons.add(new Person(
-                                results.getInt("idperson"),
-                                results.getString("lastname"),
-                                results.getString("firstname"),
-                                results.getString("nickname"),
-                                results.getString("phone_number"),
-                                results.getString("address"),
-                                results.getString("email_address"),
-                                results.getDate("birth_date").toLocalDate()));
+        try {
+            return loadPersonStore().asList();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not list the persons", e);
+            return new ArrayList<>(); // return an empty list if there's an error
+        }
+    }
+
+    /**
+     * Method to load all persons from the 'person' table in a compact {@link PersonStore},
+     * which takes several times less memory than one Person object per row.
+     * @return The store holding every person, sorted by ID.
+     * @throws SQLException if an error occurs during the query.
+     */
+    public PersonStore loadPersonStore() throws SQLException {
+        return LOAD_TIMER.time(() -> {
+            PersonStore store = new PersonStore();
+            try (Connection connection = connectionPool.getReadConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    try (ResultSet results = statement.executeQuery("SELECT * FROM person")) {
+                        PersonRowMapper mapper = PersonRowMapper.of(results);
+                        while (results.next()) {
+                            mapper.mapInto(results, store);
+                        }
                     }
                 }
             }
-            return persons;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return new ArrayList<>(); // return an empty list if there's an error
+            store.trimToSize();
+            LOAD_TIMER.addRows(store.size(), store.size());
+            return store;
+        });
+    }
+
+    /**
+     * Method to stream all persons from the 'person' table without loading them all in memory.
+     * Rows are read lazily from the database as the stream is consumed. The stream holds a
+     * database connection and must be closed, ideally with a try-with-resources block.
+     * @param fetchSize The number of rows the driver reads at once.
+     * @return A lazy stream of the persons in the database.
+     * @throws SQLException if the query could not be started.
+     */
+    public Stream<Person> streamPersons(int fetchSize) throws SQLException {
+        // Only opening the stream is timed, the rows are counted as they are read
+        return STREAM_TIMER.time(() -> {
+            Connection connection = connectionPool.getReadConnection();
+            try {
+                Statement statement = connection.createStatement();
+                statement.setFetchSize(fetchSize);
+                ResultSet results = statement.executeQuery("SELECT * FROM person");
+                PersonRowMapper mapper = PersonRowMapper.of(results);
+                Spliterator<Person> spliterator = new Spliterators.AbstractSpliterator<Person>(Long.MAX_VALUE,
+                        Spliterator.ORDERED | Spliterator.NONNULL) {
+                    @Override
+                    public boolean tryAdvance(Consumer<? super Person> action) {
+                        try {
+                            if (!results.next()) {
+                                return false;
+                            }
+                            action.accept(mapper.map(results));
+                            STREAM_TIMER.addRows(1, 1);
+                            return true;
+                        } catch (SQLException e) {
+                            throw new IllegalStateException("Could not read the next person", e);
+                        }
+                    }
+                };
+                return StreamSupport.stream(spliterator, false).onClose(() -> {
+                    try {
+                        results.close();
+                        statement.close();
+                        connection.close();
+                    } catch (SQLException e) {
+                        LOGGER.log(Level.WARNING, "Could not close the stream of persons", e);
+                    }
+                });
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Method to stream all persons from the 'person' table with the default fetch size.
+     * @return A lazy stream of the persons in the database, to be closed by the caller.
+     * @throws SQLException if the query could not be started.
+     * @see #streamPersons(int)
+     */
+    public Stream<Person> streamPersons() throws SQLException {
+        return streamPersons(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Method to read one page of persons sorted on a column.
+     * Pages are found by seeking the index of the sort column right after the last row of the
+     * previous page (keyset pagination), so reading a page costs the same at any depth in the table.
+     * @param sortColumn The column the persons are sorted by, ties are broken by ID.
+     * @param direction The direction of the sort.
+     * @param afterKey The key of the previous page ({@link PersonPage#getNextKey()}), or null for the first page.
+     * @param limit The maximum number of persons in the page.
+     * @return The page of persons.
+     * @throws SQLException if an error occurs during the query.
+     */
+    public PersonPage page(PersonSortColumn sortColumn, SortDirection direction, PageKey afterKey, int limit) throws SQLException {
+        String sortExpression = sortColumn.getSortExpression();
+        StringBuilder sqlQuery = new StringBuilder("SELECT *, ").append(sortExpression).append(" AS sort_key FROM person");
+        if (afterKey != null) {
+            String operator = direction.getSeekOperator();
+            if (sortColumn == PersonSortColumn.ID) {
+                sqlQuery.append(" WHERE idperson ").append(operator).append(" ?");
+            } else {
+                // The redundant single column bound lets SQLite seek the index instead of scanning it
+                sqlQuery.append(" WHERE ").append(sortExpression).append(' ').append(operator).append("= ?")
+                        .append(" AND (").append(sortExpression).append(", idperson) ").append(operator).append(" (?, ?)");
+            }
+        }
+        sqlQuery.append(" ORDER BY ").append(sortExpression).append(' ').append(direction.getKeyword());
+        if (sortColumn != PersonSortColumn.ID) {
+            sqlQuery.append(", idperson ").append(direction.getKeyword());
         }
+        sqlQuery.append(" LIMIT ?");
+
+        return PAGE_TIMER.time(() -> {
+            List<Person> persons = new ArrayList<>(limit);
+            Object lastSortValue = null;
+            try (Connection connection = connectionPool.getReadConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(sqlQuery.toString())) {
+                    int index = 1;
+                    if (afterKey != null) {
+                        if (sortColumn == PersonSortColumn.ID) {
+                            statement.setInt(index++, afterKey.getIdperson());
+                        } else {
+                            statement.setObject(index++, afterKey.getSortValue());
+                            statement.setObject(index++, afterKey.getSortValue());
+                            statement.setInt(index++, afterKey.getIdperson());
+                        }
+                    }
+                    statement.setInt(index, limit);
+                    try (ResultSet results = statement.executeQuery()) {
+                        PersonRowMapper mapper = PersonRowMapper.of(results);
+                        while (results.next()) {
+                            persons.add(mapper.map(results));
+                            lastSortValue = results.getObject("sort_key");
+                        }
+                    }
+                }
+            }
+            PAGE_TIMER.addRows(persons.size(), persons.size());
+            PageKey nextKey = null;
+            if (persons.size() == limit && limit > 0) {
+                nextKey = new PageKey(lastSortValue, persons.get(persons.size() - 1).getIdperson());
+            }
+            return new PersonPage(persons, nextKey);
+        });
+    }
+
+    /**
+     * Method to retrieve a single person by their ID.
+     * @param id The ID of the person.
+     * @return The person, or null if there is no person with this ID.
+     * @throws SQLException if an error occurs during the query.
+     */
+    public Person getPerson(Integer id) throws SQLException {
+        return GET_TIMER.time(() -> {
+            try (Connection connection = connectionPool.getReadConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM person WHERE idperson = ?")) {
+                    statement.setInt(1, id);
+                    try (ResultSet results = statement.executeQuery()) {
+                        return results.next() ? PersonRowMapper.of(results).map(results) : null;
+                    }
+                }
+            }
+        });
     }
 
     /**
@@ -65,53 +431,172 @@ public class PersonDao {
      * @throws Exception if an error occurs during the insertion process.
      */
     public Person insertPerson(Person person) throws Exception {
-        try (Connection connection = DataSourceFactory.getDataSource().getConnection()) {
-            String sqlQuery = "INSERT INTO person(lastname, firstname, nickname, phone_number, address, email_address, birth_date) VALUES (?, ?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement statement = connection.prepareStatement(sqlQuery, Statement.RETURN_GENERATED_KEYS)) {
-                statement.setString(1, person.getLastname());
-                statement.setString(2, person.getFirstname());
-                statement.setString(3, person.getNickname());
-                statement.setString(4, person.getPhoneNumber());
-                statement.setString(5, person.getAddress());
-                statement.setString(6, person.getEmailAddress());
-                statement.setDate(7, java.sql.Date.valueOf(person.getBirthDate()));
-                statement.executeUpdate();
+        try {
+            INSERT_TIMER.time(() -> {
+                try (Connection connection = connectionPool.getConnection()) {
+                    // The row and its fuzzy keys are committed together
+                    connection.setAutoCommit(false);
+                    try {
+                        try (PreparedStatement statement = connection.prepareStatement(INSERT_QUERY, Statement.RETURN_GENERATED_KEYS)) {
+                            bindPerson(statement, person);
+                            statement.executeUpdate();
 
-                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        person.setIdperson(generatedKeys.getInt(1));
+                            try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                                if (generatedKeys.next()) {
+                                    person.setIdperson(generatedKeys.getInt(1));
+                                }
+                            }
+                        }
+                        writeFuzzyKeys(connection, person.getIdperson(), person);
+                        connection.commit();
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    } finally {
+                        connection.setAutoCommit(true);
                     }
                 }
-            }
-            return person;
+                person.setVersion(FIRST_VERSION);
+                person.clearDirtyFields();
+                return person;
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOGGER.log(Level.WARNING, "Could not insert the person", e);
             return null;
         }
+        if (hasPersonEventListeners()) {
+            publish(Collections.singletonList(PersonEvent.inserted(person)));
+        }
+        return person;
     }
 
     /**
      * Method to update an existing person in the 'person' table.
+     * Every column is overwritten, whatever was written since the person was read; the person
+     * receives the new version of the row. See {@link #updatePersonIfUnchanged(Person)} to only
+     * write the changed columns and detect concurrent updates.
      * @param id The ID of the person to be updated.
      * @param person The updated Person object with new data.
+     * @return true if the row was updated, false if there is no person with this ID or the
+     *         update failed, in which case the error is logged.
      * @throws Exception if an error occurs during the update process.
      */
-    public void updatePerson(Integer id, Person person) throws Exception {
-        try (Connection connection = DataSourceFactory.getDataSource().getConnection()) {
-            String sqlQuery = "UPDATE person SET lastname = ?, firstname = ?, nickname = ?, phone_number = ?, address = ?, email_address = ?, birth_date = ? WHERE idperson = ?";
-            try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
-                statement.setString(1, person.getLastname());
-                statement.setString(2, person.getFirstname());
-                statement.setString(3, person.getNickname());
-                statement.setString(4, person.getPhoneNumber());
-                statement.setString(5, person.getAddress());
-                statement.setString(6, person.getEmailAddress());
-                statement.setDate(7, java.sql.Date.valueOf(person.getBirthDate()));
-                statement.setInt(8, id);
-                statement.executeUpdate();
-            }
+    public boolean updatePerson(Integer id, Person person) throws Exception {
+        boolean updated;
+        try {
+            updated = UPDATE_TIMER.time(() -> {
+                try (Connection connection = connectionPool.getConnection()) {
+                    // The row and its fuzzy keys are committed together
+                    connection.setAutoCommit(false);
+                    int version;
+                    try {
+                        try (PreparedStatement statement = connection.prepareStatement(UPDATE_QUERY)) {
+                            bindPerson(statement, person);
+                            statement.setInt(8, id);
+                            if (statement.executeUpdate() == 0) {
+                                connection.rollback();
+                                return false;
+                            }
+                        }
+                        writeFuzzyKeys(connection, id, person);
+                        version = readVersion(connection, id);
+                        connection.commit();
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    } finally {
+                        connection.setAutoCommit(true);
+                    }
+                    person.setVersion(version);
+                    person.clearDirtyFields();
+                    return true;
+                }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOGGER.log(Level.WARNING, "Could not update the person " + id, e);
+            return false;
+        }
+        if (updated && hasPersonEventListeners()) {
+            publish(Collections.singletonList(PersonEvent.updated(id, person)));
+        }
+        return updated;
+    }
+
+    /**
+     * Method to write the changes of a person read from the database, unless its row was
+     * updated or deleted since (optimistic locking). Only the columns of the changed fields are
+     * written, and the row is updated only if its version is still the one the person was read
+     * with, in a single statement, so two editors of the same person never overwrite each other:
+     * the second one gets an {@link OptimisticLockException} and nothing is written.
+     * The full-text index and the fuzzy keys are only rewritten when an indexed field changed.
+     * On success the person receives the new version and has no changed field anymore.
+     * @param person The person, as read from the database then modified through its setters.
+     * @return true if something was written, false if no field was changed
+     * @throws OptimisticLockException if the row was updated or deleted since the person was read.
+     * @throws SQLException if an error occurs during the update.
+     * @throws IllegalArgumentException if the person was not read from the database.
+     */
+    public boolean updatePersonIfUnchanged(Person person) throws SQLException {
+        if (person.getVersion() < FIRST_VERSION) {
+            throw new IllegalArgumentException("The person " + person.getIdperson() + " was not read from the database");
+        }
+        Set<PersonField> dirtyFields = person.getDirtyFields();
+        if (dirtyFields.isEmpty()) {
+            return false;
+        }
+        StringBuilder sqlQuery = new StringBuilder("UPDATE person SET ");
+        for (PersonField field : dirtyFields) {
+            sqlQuery.append(field.getColumn()).append(" = ?, ");
+        }
+        sqlQuery.append("version = version + 1 WHERE idperson = ? AND version = ?");
+        int id = person.getIdperson();
+        int version = person.getVersion();
+        CHECKED_UPDATE_TIMER.time(() -> {
+            try (Connection connection = connectionPool.getConnection()) {
+                // The row, its new version and its fuzzy keys are committed together
+                connection.setAutoCommit(false);
+                try {
+                    try (PreparedStatement statement = connection.prepareStatement(sqlQuery.toString())) {
+                        int index = 1;
+                        for (PersonField field : dirtyFields) {
+                            bindField(statement, index++, person, field);
+                        }
+                        statement.setInt(index++, id);
+                        statement.setInt(index, version);
+                        if (statement.executeUpdate() == 0) {
+                            throw new OptimisticLockException(id, version, readVersion(connection, id));
+                        }
+                    }
+                    if (dirtyFields.contains(PersonField.LASTNAME) || dirtyFields.contains(PersonField.FIRSTNAME)) {
+                        writeFuzzyKeys(connection, id, person);
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+            return null;
+        });
+        person.setVersion(version + 1);
+        person.clearDirtyFields();
+        if (hasPersonEventListeners()) {
+            publish(Collections.singletonList(PersonEvent.updated(id, person)));
+        }
+        return true;
+    }
+
+    /**
+     * Reads the version of a row, 0 if it does not exist.
+     */
+    private static int readVersion(Connection connection, int id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(VERSION_QUERY)) {
+            statement.setInt(1, id);
+            try (ResultSet results = statement.executeQuery()) {
+                return results.next() ? results.getInt(1) : 0;
+            }
         }
     }
 
@@ -121,51 +606,617 @@ public class PersonDao {
      * @throws Exception if an error occurs during the deletion process.
      */
     public void deletePerson(Integer id) throws Exception {
-        try (Connection connection = DataSourceFactory.getDataSource().getConnection()) {
-            String sqlQuery = "DELETE FROM person WHERE idperson = ?";
-            try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
-                statement.setInt(1, id);
-                statement.executeUpdate();
-            }
+        boolean deleted;
+        try {
+            deleted = DELETE_TIMER.time(() -> {
+                try (Connection connection = connectionPool.getConnection()) {
+                    try (PreparedStatement statement = connection.prepareStatement(DELETE_QUERY)) {
+                        statement.setInt(1, id);
+                        return statement.executeUpdate() > 0;
+                    }
+                }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOGGER.log(Level.WARNING, "Could not delete the person " + id, e);
+            return;
+        }
+        if (deleted && hasPersonEventListeners()) {
+            publish(Collections.singletonList(PersonEvent.deleted(id)));
         }
     }
 	
     /**
-     * Method to search a person in the database by their lastname from a string input.
+     * Method to delete a person, unless its row was updated since it was read with the given
+     * version (optimistic locking). The version is checked by the delete statement itself, so a
+     * change committed between the read and the delete is never lost.
+     * @param id The ID of the person to be deleted.
+     * @param version The version of the row the person was read with.
+     * @throws OptimisticLockException if the row was updated or deleted since it was read.
+     * @throws SQLException if an error occurs during the deletion.
+     */
+    public void deletePersonIfUnchanged(int id, int version) throws SQLException {
+        CHECKED_DELETE_TIMER.time(() -> {
+            try (Connection connection = connectionPool.getConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(CHECKED_DELETE_QUERY)) {
+                    statement.setInt(1, id);
+                    statement.setInt(2, version);
+                    if (statement.executeUpdate() == 0) {
+                        throw new OptimisticLockException(id, version, readVersion(connection, id));
+                    }
+                }
+            }
+            return null;
+        });
+        if (hasPersonEventListeners()) {
+            publish(Collections.singletonList(PersonEvent.deleted(id)));
+        }
+    }
+
+    /**
+     * Method to search a person in the database from a string input.
+     * The input is matched as word prefixes against the lastname, firstname, nickname, email
+     * and phone number, ignoring case, and at most {@link #SEARCH_LIMIT} persons are returned.
+     * When nothing matches, the names are searched again allowing typos and spelling variants,
+     * see {@link #fuzzySearchPersons(String, int)}.
      * If the input is empty, it returns the full content of the database.
-     * @param searchInput, The lastname provided in the text field to search the person
+     * @param searchInput, The text provided in the text field to search the person
      * @throws Exception if an error occurs during the search process.
      */
 	public List<Person> searchPerson(String searchInput) throws Exception {
-		List<Person> persons = new ArrayList<>();
-		if(searchInput.length() == 0) {
+		if(searchInput.trim().length() == 0) {
 			return listPersons();
 		}
 		else {
-			try (Connection connection = DataSourceFactory.getDataSource().getConnection()) {
-				try(PreparedStatement statement = connection.prepareStatement("SELECT * FROM person WHERE lastname = ?")){
-					statement.setString(1, searchInput);
-					try(ResultSet results = statement.executeQuery()){
-						while (results.next()) {
-							persons.add(new Person(
-									results.getInt("idperson"), 
-									results.getString("lastname"),
-									results.getString("firstname"), 
-									results.getString("nickname"),
-									results.getString("phone_number"), 
-									results.getString("address"),
-									results.getString("email_address"), 
-									results.getDate("birth_date").toLocalDate()));
-						}
-					}
-				}
-				return persons;
+			try {
+				return SEARCH_TIMER.time(() -> {
+					List<Person> persons = searchPersons(searchInput, SEARCH_LIMIT);
+					return persons.isEmpty() ? fuzzySearchPersons(searchInput, SEARCH_LIMIT) : persons;
+				});
 			} catch (SQLException e) {
-				e.printStackTrace();
+				LOGGER.log(Level.WARNING, "Could not search the persons", e);
 				return new ArrayList<>(); // return an empty list if there's an error
 			}
 		}
 	}
+
+    /**
+     * Method to search persons from a string input, most relevant first.
+     * Every word of the input must start a word of one of the searchable columns, so "smi"
+     * finds "Smith" and "jane smi" finds "Jane Smith". Matches in the lastname rank above
+     * matches in the firstname, nickname, email and phone number. The search is served by
+     * the full-text index and never scans the 'person' table. It stops early when the calling
+     * thread is interrupted, as done by {@link AsyncPersonDao} when a newer search replaces it.
+     * @param searchInput The text to search.
+     * @param limit The maximum number of persons returned.
+     * @return The matching persons, ranked by relevance, empty if the input has no word.
+     * @throws SQLException if an error occurs during the search.
+     */
+    public List<Person> searchPersons(String searchInput, int limit) throws SQLException {
+        List<Person> persons = new ArrayList<>();
+        String matchQuery = toMatchQuery(searchInput);
+        if (matchQuery.isEmpty()) {
+            return persons;
+        }
+        return PREFIX_SEARCH_TIMER.time(() -> {
+            try (Connection connection = connectionPool.getReadConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT person.* FROM person_fts JOIN person ON person.idperson = person_fts.rowid"
+                                + " WHERE person_fts MATCH ? ORDER BY " + SEARCH_RANKING + " LIMIT ?")) {
+                    statement.setString(1, matchQuery);
+                    statement.setInt(2, limit);
+                    try (ResultSet results = statement.executeQuery()) {
+                        PersonRowMapper mapper = PersonRowMapper.of(results);
+                        while (results.next()) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                // The search was cancelled, its results would be thrown away
+                                throw new SQLException("The search was interrupted");
+                            }
+                            persons.add(mapper.map(results));
+                        }
+                    }
+                }
+            }
+            PREFIX_SEARCH_TIMER.addRows(persons.size(), persons.size());
+            return persons;
+        });
+    }
+
+    /**
+     * Method to search persons by name despite typos and spelling variants.
+     * Every word of the input must be close to a word of the lastname or firstname: a few
+     * letters away ("Smtih" finds "Smith") or pronounced alike ("Schmidt" finds "Smith").
+     * Candidates sharing a phonetic key or trigrams with the input are read from the
+     * 'person_fuzzy' full-text table, most similar first, then ranked by edit distance, so
+     * the cost depends on the number of candidates read rather than on the size of the table.
+     * @param searchInput The names to search.
+     * @param limit The maximum number of persons returned.
+     * @return The matching persons, closest first, empty if the input has no word.
+     * @throws SQLException if an error occurs during the search.
+     */
+    public List<Person> fuzzySearchPersons(String searchInput, int limit) throws SQLException {
+        return FUZZY_SEARCH_TIMER.time(() -> {
+            List<String> queryWords = NameKeys.words(searchInput);
+            List<Person> persons = new ArrayList<>();
+            if (queryWords.isEmpty()) {
+                return persons;
+            }
+            // Each word must share a key with the names: (keys of word 1) AND (keys of word 2)...
+            StringBuilder matchQuery = new StringBuilder();
+            for (String word : queryWords) {
+                StringBuilder wordQuery = new StringBuilder();
+                String phonetic = NameKeys.soundex(word);
+                if (phonetic != null) {
+                    appendMatchToken(wordQuery, phonetic);
+                }
+                for (String trigram : NameKeys.trigrams(word)) {
+                    appendMatchToken(wordQuery, trigram);
+                }
+                if (matchQuery.length() > 0) {
+                    matchQuery.append(" AND ");
+                }
+                matchQuery.append('(').append(wordQuery).append(')');
+            }
+            List<Integer> distances = new ArrayList<>();
+            int candidates = 0;
+            try (Connection connection = connectionPool.getReadConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT person.* FROM person_fuzzy JOIN person ON person.idperson = person_fuzzy.rowid"
+                                + " WHERE person_fuzzy MATCH ? ORDER BY " + FUZZY_RANKING + " LIMIT ?")) {
+                    statement.setString(1, matchQuery.toString());
+                    statement.setInt(2, Math.max(limit * FUZZY_CANDIDATES_PER_RESULT, FUZZY_MIN_CANDIDATES));
+                    try (ResultSet results = statement.executeQuery()) {
+                        PersonRowMapper mapper = PersonRowMapper.of(results);
+                        while (results.next()) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                throw new SQLException("The search was interrupted");
+                            }
+                            Person person = mapper.map(results);
+                            candidates++;
+                            int distance = fuzzyDistance(queryWords, person);
+                            if (distance >= 0) {
+                                persons.add(person);
+                                distances.add(distance);
+                            }
+                        }
+                    }
+                }
+            }
+            // Stable sort: equally distant persons keep the order of the full-text ranking
+            List<Integer> order = new ArrayList<>(persons.size());
+            for (int i = 0; i < persons.size(); i++) {
+                order.add(i);
+            }
+            order.sort(Comparator.comparing(distances::get));
+            List<Person> ranked = new ArrayList<>(Math.min(limit, order.size()));
+            for (int i = 0; i < order.size() && i < limit; i++) {
+                ranked.add(persons.get(order.get(i)));
+            }
+            FUZZY_SEARCH_TIMER.addRows(candidates, ranked.size());
+            return ranked;
+        });
+    }
+
+    private static void appendMatchToken(StringBuilder matchQuery, String token) {
+        if (matchQuery.length() > 0) {
+            matchQuery.append(" OR ");
+        }
+        matchQuery.append('"').append(token).append('"');
+    }
+
+    /**
+     * Sums, for every word of the query, the edit distance to the closest word of the person's
+     * names. A word only pronounced like a name counts one edit more than the accepted typos.
+     * @return the distance, or -1 if a word of the query matches no name
+     */
+    static int fuzzyDistance(List<String> queryWords, Person person) {
+        List<String> nameWords = NameKeys.words(person.getLastname());
+        nameWords.addAll(NameKeys.words(person.getFirstname()));
+        int total = 0;
+        for (String queryWord : queryWords) {
+            int maxDistance = NameKeys.maxDistance(queryWord);
+            String phonetic = NameKeys.soundex(queryWord);
+            int best = Integer.MAX_VALUE;
+            for (String nameWord : nameWords) {
+                int distance = NameKeys.distance(queryWord, nameWord);
+                if (distance > maxDistance) {
+                    distance = phonetic != null && phonetic.equals(NameKeys.soundex(nameWord)) ? maxDistance + 1
+                            : Integer.MAX_VALUE;
+                }
+                best = Math.min(best, distance);
+            }
+            if (best == Integer.MAX_VALUE) {
+                return -1;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    /**
+     * Turns user input into an FTS5 query where each word is a quoted prefix, so characters
+     * with a meaning in the FTS5 syntax cannot break the query.
+     */
+    static String toMatchQuery(String searchInput) {
+        StringBuilder matchQuery = new StringBuilder();
+        for (String word : searchInput.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                if (matchQuery.length() > 0) {
+                    matchQuery.append(' ');
+                }
+                matchQuery.append('"').append(word).append("\"*");
+            }
+        }
+        return matchQuery.toString();
+    }
+
+    /**
+     * Method to insert several persons in a single transaction.
+     * The inserts reuse one PreparedStatement and are sent in batches of {@link #getBatchSize()} rows.
+     * @param persons The persons to insert, their IDs are set once inserted.
+     * @return The generated IDs, in the iteration order of the given collection.
+     * @throws SQLException if an error occurs, in which case nothing is inserted.
+     */
+    public List<Integer> insertPersons(Collection<Person> persons) throws SQLException {
+        return INSERT_BATCH_TIMER.time(() -> {
+            // The inserted persons are published below, not as a bulk load
+            try (PersonBulkInserter inserter = new PersonBulkInserter(connectionPool.getConnection(), batchSize, null,
+                    persons.size())) {
+                for (Person person : persons) {
+                    inserter.add(person);
+                }
+                inserter.commit();
+            }
+            List<Integer> ids = new ArrayList<>(persons.size());
+            List<PersonEvent> events = newEventList(persons.size());
+            for (Person person : persons) {
+                ids.add(person.getIdperson());
+                if (events != null) {
+                    events.add(PersonEvent.inserted(person));
+                }
+            }
+            publishBatch(events);
+            return ids;
+        });
+    }
+
+    /**
+     * Method to update several persons in a single transaction.
+     * @param persons The updated persons, keyed by the ID of the row they replace.
+     * @throws SQLException if an error occurs, in which case nothing is updated.
+     */
+    public void updatePersons(Map<Integer, Person> persons) throws SQLException {
+        UPDATE_BATCH_TIMER.time(() -> {
+            try (Connection connection = connectionPool.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_QUERY);
+                        PreparedStatement keysStatement = connection.prepareStatement(FUZZY_KEYS_QUERY);
+                        PreparedStatement versionStatement = connection.prepareStatement(VERSION_QUERY)) {
+                    List<Map.Entry<Integer, Person>> queued = new ArrayList<>(batchSize);
+                    for (Map.Entry<Integer, Person> entry : persons.entrySet()) {
+                        bindPerson(statement, entry.getValue());
+                        statement.setInt(8, entry.getKey());
+                        statement.addBatch();
+                        queued.add(entry);
+                        if (queued.size() == batchSize) {
+                            executeUpdateBatch(statement, keysStatement, versionStatement, queued);
+                        }
+                    }
+                    executeUpdateBatch(statement, keysStatement, versionStatement, queued);
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+            List<PersonEvent> events = newEventList(persons.size());
+            if (events != null) {
+                for (Map.Entry<Integer, Person> entry : persons.entrySet()) {
+                    events.add(PersonEvent.updated(entry.getKey(), entry.getValue()));
+                }
+            }
+            publishBatch(events);
+            return null;
+        });
+    }
+
+    /**
+     * Executes the queued updates, then writes the fuzzy keys of the persons that were found
+     * and gives them the new version of their row.
+     */
+    private static void executeUpdateBatch(PreparedStatement statement, PreparedStatement keysStatement,
+            PreparedStatement versionStatement, List<Map.Entry<Integer, Person>> queued) throws SQLException {
+        int[] updateCounts = statement.executeBatch();
+        for (int i = 0; i < queued.size(); i++) {
+            if (updateCounts[i] != 0) {
+                Person person = queued.get(i).getValue();
+                bindFuzzyKeys(keysStatement, queued.get(i).getKey(), person);
+                keysStatement.addBatch();
+                versionStatement.setInt(1, queued.get(i).getKey());
+                try (ResultSet results = versionStatement.executeQuery()) {
+                    person.setVersion(results.next() ? results.getInt(1) : 0);
+                }
+                person.clearDirtyFields();
+            }
+        }
+        keysStatement.executeBatch();
+        queued.clear();
+    }
+
+    /**
+     * Method to synchronize the persons of an external source, such as a nightly export of a
+     * directory, without reading them one by one to decide between an insert and an update.
+     * The persons are identified by their email address, trimmed and in lower case, stored as
+     * their sync key: a person whose key is not stored yet is inserted, the stored one is
+     * updated otherwise. Each row keeps a hash of the content it was last synchronized with,
+     * so persons that did not change are recognized from a lookup per chunk of keys and not
+     * written, and a synchronization costs a number of writes proportional to the changes.
+     * Persons created in the application have no sync key: the first synchronization gives it
+     * to the oldest one with the same email address, which is then updated rather than copied.
+     * Changes made in the application to a synchronized person are kept until the source changes it.
+     * The persons are written in transactions of {@link #SYNC_TRANSACTION_SIZE} rows.
+     * @param persons The persons of the source, their IDs and versions are set once written.
+     * @return The counts of inserted, updated, unchanged and skipped persons.
+     * @throws SQLException if an error occurs, in which case the transactions committed before
+     *         it are kept: synchronizing the same persons again resumes where it stopped.
+     */
+    public SyncReport upsertPersons(Stream<Person> persons) throws SQLException {
+        SyncReport report = new SyncReport();
+        long start = System.nanoTime();
+        UPSERT_TIMER.time(() -> {
+            PersonUpserter upserter = new PersonUpserter(connectionPool.getConnection(), SYNC_TRANSACTION_SIZE, report);
+            try (upserter) {
+                upserter.upsert(persons.iterator());
+            } finally {
+                if (report.getChangedCount() > 0 && hasPersonEventListeners()) {
+                    publishBatch(upserter.getEvents());
+                }
+            }
+            return null;
+        });
+        report.finished(System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Method to delete several persons in a single transaction.
+     * @param ids The IDs of the persons to delete.
+     * @return The number of deleted rows.
+     * @throws SQLException if an error occurs, in which case nothing is deleted.
+     */
+    public int deletePersons(Collection<Integer> ids) throws SQLException {
+        return DELETE_BATCH_TIMER.time(() -> {
+            int deleted = 0;
+            try (Connection connection = connectionPool.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement(DELETE_QUERY)) {
+                    int queued = 0;
+                    for (Integer id : ids) {
+                        statement.setInt(1, id);
+                        statement.addBatch();
+                        if (++queued % batchSize == 0) {
+                            deleted += sum(statement.executeBatch());
+                        }
+                    }
+                    deleted += sum(statement.executeBatch());
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+            List<PersonEvent> events = newEventList(ids.size());
+            if (events != null) {
+                for (Integer id : ids) {
+                    events.add(PersonEvent.deleted(id));
+                }
+            }
+            publishBatch(events);
+            return deleted;
+        });
+    }
+
+    /**
+     * Method to merge a duplicate into another person, in a single transaction.
+     * The kept person keeps its data; the columns it lacks (no phone number, empty nickname...)
+     * are taken from the duplicate, which is then deleted.
+     * @param keptId The ID of the person kept.
+     * @param duplicateId The ID of the person merged into it and deleted.
+     * @return The kept person after the merge, or null if one of the persons does not exist.
+     * @throws SQLException if an error occurs, in which case nothing is changed.
+     */
+    public Person mergePersons(int keptId, int duplicateId) throws SQLException {
+        if (keptId == duplicateId) {
+            throw new IllegalArgumentException("A person cannot be merged with itself");
+        }
+        return MERGE_TIMER.time(() -> {
+            Person merged;
+            try (Connection connection = connectionPool.getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    Person kept = readPerson(connection, keptId);
+                    Person duplicate = readPerson(connection, duplicateId);
+                    if (kept == null || duplicate == null) {
+                        connection.rollback();
+                        return null;
+                    }
+                    merged = new Person(keptId, kept.getLastname(), kept.getFirstname(),
+                            orElse(kept.getNickname(), duplicate.getNickname()),
+                            orElse(kept.getPhoneNumber(), duplicate.getPhoneNumber()),
+                            orElse(kept.getAddress(), duplicate.getAddress()),
+                            orElse(kept.getEmailAddress(), duplicate.getEmailAddress()),
+                            kept.getBirthDate() != null ? kept.getBirthDate() : duplicate.getBirthDate());
+                    merged.setVersion(kept.getVersion() + 1);
+                    merged.clearDirtyFields();
+                    try (PreparedStatement update = connection.prepareStatement(UPDATE_QUERY)) {
+                        bindPerson(update, merged);
+                        update.setInt(8, keptId);
+                        update.executeUpdate();
+                    }
+                    writeFuzzyKeys(connection, keptId, merged);
+                    try (PreparedStatement delete = connection.prepareStatement(DELETE_QUERY)) {
+                        delete.setInt(1, duplicateId);
+                        delete.executeUpdate();
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+            if (hasPersonEventListeners()) {
+                List<PersonEvent> events = new ArrayList<>(2);
+                events.add(PersonEvent.updated(keptId, merged));
+                events.add(PersonEvent.deleted(duplicateId));
+                publish(events);
+            }
+            return merged;
+        });
+    }
+
+    private static Person readPerson(Connection connection, int id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM person WHERE idperson = ?")) {
+            statement.setInt(1, id);
+            try (ResultSet results = statement.executeQuery()) {
+                return results.next() ? PersonRowMapper.of(results).map(results) : null;
+            }
+        }
+    }
+
+    private static String orElse(String value, String fallback) {
+        return value == null || value.trim().isEmpty() ? fallback : value;
+    }
+
+    /**
+     * Method to open an inserter streaming persons into the database in a single transaction.
+     * Useful when the persons to insert do not fit in memory; the writer connection is held
+     * until the inserter is closed.
+     * @return A new inserter, to be closed by the caller.
+     * @throws SQLException if the writer connection could not be obtained.
+     */
+    public PersonBulkInserter openBulkInserter() throws SQLException {
+        return openBulkInserter(0);
+    }
+
+    /**
+     * Method to open an inserter for a number of persons known in advance.
+     * When they are many compared to the persons already stored, the sort indexes and the
+     * full-text index are not maintained row by row but rebuilt once at commit, which is
+     * several times faster. Readers keep using the indexes meanwhile since they do not see
+     * the uncommitted transaction.
+     * @param expectedCount An estimate of the number of persons that will be inserted, 0 if unknown.
+     * @return A new inserter, to be closed by the caller.
+     * @throws SQLException if the writer connection could not be obtained.
+     */
+    public PersonBulkInserter openBulkInserter(long expectedCount) throws SQLException {
+        return new PersonBulkInserter(connectionPool.getConnection(), batchSize, this::bulkInserted, expectedCount);
+    }
+
+    /**
+     * Creates the list of events of a batch write, or returns null when nobody listens
+     * or when the batch is too large to be described row by row.
+     */
+    private List<PersonEvent> newEventList(int changedCount) {
+        if (!hasPersonEventListeners() || changedCount > MAX_EVENTS_PER_WRITE) {
+            return null;
+        }
+        return new ArrayList<>(changedCount);
+    }
+
+    /**
+     * Publishes the events of a batch write, a RELOADED event if they were not collected.
+     */
+    private void publishBatch(List<PersonEvent> events) {
+        if (events != null) {
+            publish(events);
+        } else if (hasPersonEventListeners()) {
+            publish(Collections.singletonList(PersonEvent.reloaded()));
+        }
+    }
+
+    /**
+     * Writes the fuzzy search keys of a person, replacing the previous ones.
+     */
+    static void writeFuzzyKeys(Connection connection, int id, Person person) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(FUZZY_KEYS_QUERY)) {
+            bindFuzzyKeys(statement, id, person);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Binds the ID and the fuzzy search keys of a person to a {@link #FUZZY_KEYS_QUERY} statement.
+     */
+    static void bindFuzzyKeys(PreparedStatement statement, int id, Person person) throws SQLException {
+        statement.setInt(1, id);
+        statement.setString(2, NameKeys.phoneticText(person.getLastname(), person.getFirstname()));
+        statement.setString(3, NameKeys.trigramText(person.getLastname(), person.getFirstname()));
+    }
+
+    /**
+     * Binds the column of one field of a person to a parameter of a statement.
+     */
+    private static void bindField(PreparedStatement statement, int index, Person person, PersonField field) throws SQLException {
+        switch (field) {
+        case LASTNAME:
+            statement.setString(index, person.getLastname());
+            break;
+        case FIRSTNAME:
+            statement.setString(index, person.getFirstname());
+            break;
+        case NICKNAME:
+            statement.setString(index, person.getNickname());
+            break;
+        case PHONE_NUMBER:
+            statement.setString(index, person.getPhoneNumber());
+            break;
+        case ADDRESS:
+            statement.setString(index, person.getAddress());
+            break;
+        case EMAIL_ADDRESS:
+            statement.setString(index, person.getEmailAddress());
+            break;
+        case BIRTH_DATE:
+            LocalDate birthDate = person.getBirthDate();
+            if (birthDate == null) {
+                statement.setNull(index, Types.DATE);
+            } else {
+                statement.setDate(index, java.sql.Date.valueOf(birthDate));
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+
+    /**
+     * Binds the columns of a person to the first seven parameters of an insert or update statement.
+     */
+    static void bindPerson(PreparedStatement statement, Person person) throws SQLException {
+        statement.setString(1, person.getLastname());
+        statement.setString(2, person.getFirstname());
+        statement.setString(3, person.getNickname());
+        statement.setString(4, person.getPhoneNumber());
+        statement.setString(5, person.getAddress());
+        statement.setString(6, person.getEmailAddress());
+        LocalDate birthDate = person.getBirthDate();
+        if (birthDate == null) {
+            statement.setNull(7, Types.DATE);
+        } else {
+            statement.setDate(7, java.sql.Date.valueOf(birthDate));
+        }
+    }
+
+    private static int sum(int[] updateCounts) {
+        int total = 0;
+        for (int count : updateCounts) {
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
 }
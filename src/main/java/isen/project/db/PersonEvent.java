@@ -0,0 +1,102 @@
+package isen.project.db;
+
+import isen.project.model.Person;
+
+/**
+ * Change made to the 'person' table, published by {@link PersonDao} to its
+ * {@link PersonEventListener}s once the change is committed.
+ */
+public class PersonEvent {
+
+	/**
+	 * Kinds of change.
+	 */
+	public enum Type {
+		INSERTED,
+		UPDATED,
+		DELETED,
+		// Too many rows changed to describe them one by one, everything must be read again
+		RELOADED
+	}
+
+	private final Type type;
+	private final int idperson;
+	private final Person person;
+
+	private PersonEvent(Type type, int idperson, Person person) {
+		this.type = type;
+		this.idperson = idperson;
+		this.person = person;
+	}
+
+	/**
+	 * @param person The inserted person, with its ID.
+	 * @return an event holding a copy of the person
+	 */
+	public static PersonEvent inserted(Person person) {
+		return new PersonEvent(Type.INSERTED, person.getIdperson(), copyOf(person.getIdperson(), person));
+	}
+
+	/**
+	 * @param id The ID of the updated person.
+	 * @param person The new data of the person.
+	 * @return an event holding a copy of the person
+	 */
+	public static PersonEvent updated(int id, Person person) {
+		return new PersonEvent(Type.UPDATED, id, copyOf(id, person));
+	}
+
+	/**
+	 * @param id The ID of the deleted person.
+	 * @return an event without person
+	 */
+	public static PersonEvent deleted(int id) {
+		return new PersonEvent(Type.DELETED, id, null);
+	}
+
+	/**
+	 * @return an event telling the whole table must be read again
+	 */
+	public static PersonEvent reloaded() {
+		return new PersonEvent(Type.RELOADED, 0, null);
+	}
+
+	/**
+	 * @return the kind of change
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the ID of the changed person, 0 for {@link Type#RELOADED}
+	 */
+	public int getIdperson() {
+		return idperson;
+	}
+
+	/**
+	 * @return the person as stored after the change, null for {@link Type#DELETED} and {@link Type#RELOADED}
+	 */
+	public Person getPerson() {
+		return person;
+	}
+
+	/**
+	 * Copies the person given by the writer, so later changes to their object are not seen by the listeners.
+	 * The copy has the version of the written row and no changed field, so it can be edited and saved
+	 * with {@link PersonDao#updatePersonIfUnchanged(Person)}.
+	 */
+	private static Person copyOf(int id, Person person) {
+		Person copy = new Person(id, person.getLastname(), person.getFirstname(), person.getNickname(),
+				person.getPhoneNumber(), person.getAddress(), person.getEmailAddress(), person.getBirthDate());
+		copy.setVersion(person.getVersion());
+		copy.clearDirtyFields();
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		return type + (type == Type.RELOADED ? "" : " " + idperson);
+	}
+}
@@ -0,0 +1,17 @@
+package isen.project.db;
+
+import java.util.List;
+
+/**
+ * Receives the changes made to the 'person' table through a {@link PersonDao}.
+ * It is called on the thread that made the write, right after the commit, so it should
+ * return quickly and hand the events over to its own thread if it needs one.
+ */
+public interface PersonEventListener {
+
+	/**
+	 * Method called once a write is committed.
+	 * @param events The changes made by the write, in order.
+	 */
+	void personsChanged(List<PersonEvent> events);
+}
@@ -0,0 +1,40 @@
+package isen.project.db;
+
+import java.util.List;
+
+import isen.project.model.Person;
+
+/**
+ * A page of persons returned by {@link PersonDao#page(PersonSortColumn, SortDirection, PageKey, int)}.
+ */
+public class PersonPage {
+
+	private final List<Person> persons;
+	private final PageKey nextKey;
+
+	PersonPage(List<Person> persons, PageKey nextKey) {
+		this.persons = persons;
+		this.nextKey = nextKey;
+	}
+
+	/**
+	 * @return the persons of the page, in sort order
+	 */
+	public List<Person> getPersons() {
+		return persons;
+	}
+
+	/**
+	 * @return the key to pass to get the following page, or null if this is the last page
+	 */
+	public PageKey getNextKey() {
+		return nextKey;
+	}
+
+	/**
+	 * @return true if there are more rows after this page
+	 */
+	public boolean hasNext() {
+		return nextKey != null;
+	}
+}
@@ -0,0 +1,202 @@
+package isen.project.db;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+import isen.project.model.Person;
+import isen.project.model.PersonStore;
+
+/**
+ * Reads the persons of a result set holding the columns of the 'person' table.
+ * The position of each column is resolved once per query from the metadata of the result set,
+ * instead of by name on every row. Birth dates are read from the value SQLite holds, with no
+ * java.sql.Date in between, and may be missing:
+ * <ul>
+ * <li>an integer is a number of milliseconds since the epoch, as written by the driver from a
+ * java.sql.Date, which counts the days before 1582 in the Julian calendar;</li>
+ * <li>a text starts with an ISO date ("1990-01-01" or "1990-01-01 12:00:00.000");</li>
+ * <li>a real number is a Julian day.</li>
+ * </ul>
+ */
+public final class PersonRowMapper {
+
+	// Julian day of 1970-01-01 at midnight
+	private static final double JULIAN_DAY_OF_EPOCH = 2440587.5;
+
+	// First day of the Gregorian calendar, 1582-10-15, in milliseconds since the epoch
+	private static final long GREGORIAN_CUTOVER = -12219292800000L;
+
+	private boolean resolved;
+	private int idColumn;
+	private int lastnameColumn;
+	private int firstnameColumn;
+	private int nicknameColumn;
+	private int phoneNumberColumn;
+	private int addressColumn;
+	private int emailAddressColumn;
+	private int birthDateColumn;
+	// 0 when the query does not read the version
+	private int versionColumn;
+	// The dates are stored at midnight in the zone of the machine that wrote them
+	private final ZoneId zone = ZoneId.systemDefault();
+
+	private PersonRowMapper() {
+	}
+
+	/**
+	 * Method to create a mapper for the rows of a query.
+	 * @param results The result set of the query, whatever the order of its columns.
+	 * @return the mapper, to be used with this result set only
+	 * @throws SQLException if a column of the 'person' table is missing from the result set.
+	 */
+	public static PersonRowMapper of(ResultSet results) throws SQLException {
+		PersonRowMapper mapper = new PersonRowMapper();
+		// The driver closes the result set of a query without rows: there is nothing to map
+		if (!results.isClosed()) {
+			mapper.resolve(results);
+		}
+		return mapper;
+	}
+
+	/**
+	 * Looks up the position of every column in a single pass over the metadata. When a label
+	 * appears twice, as in a join, the first column wins, as with {@link ResultSet#findColumn(String)}.
+	 */
+	private void resolve(ResultSet results) throws SQLException {
+		if (resolved) {
+			return;
+		}
+		ResultSetMetaData metaData = results.getMetaData();
+		for (int i = metaData.getColumnCount(); i >= 1; i--) {
+			switch (metaData.getColumnLabel(i).toLowerCase(Locale.ROOT)) {
+			case "idperson":
+				idColumn = i;
+				break;
+			case "lastname":
+				lastnameColumn = i;
+				break;
+			case "firstname":
+				firstnameColumn = i;
+				break;
+			case "nickname":
+				nicknameColumn = i;
+				break;
+			case "phone_number":
+				phoneNumberColumn = i;
+				break;
+			case "address":
+				addressColumn = i;
+				break;
+			case "email_address":
+				emailAddressColumn = i;
+				break;
+			case "birth_date":
+				birthDateColumn = i;
+				break;
+			case "version":
+				versionColumn = i;
+				break;
+			default:
+				break;
+			}
+		}
+		if (idColumn == 0 || lastnameColumn == 0 || firstnameColumn == 0 || nicknameColumn == 0
+				|| phoneNumberColumn == 0 || addressColumn == 0 || emailAddressColumn == 0 || birthDateColumn == 0) {
+			throw new SQLException("The result set does not hold every column of the person table");
+		}
+		resolved = true;
+	}
+
+	/**
+	 * Method to read the person on the current row.
+	 * @param results The result set the mapper was created for.
+	 * @return a new person, with the version of its row and no changed field
+	 * @throws SQLException if a column is missing or cannot be read.
+	 */
+	public Person map(ResultSet results) throws SQLException {
+		resolve(results);
+		Person person = new Person(
+				results.getInt(idColumn),
+				results.getString(lastnameColumn),
+				results.getString(firstnameColumn),
+				results.getString(nicknameColumn),
+				results.getString(phoneNumberColumn),
+				results.getString(addressColumn),
+				results.getString(emailAddressColumn),
+				readBirthDate(results));
+		person.setVersion(readVersion(results));
+		person.clearDirtyFields();
+		return person;
+	}
+
+	/**
+	 * Method to append the person on the current row to a store, without creating a Person.
+	 * @param results The result set the mapper was created for.
+	 * @param store The store.
+	 * @throws SQLException if a column is missing or cannot be read.
+	 */
+	public void mapInto(ResultSet results, PersonStore store) throws SQLException {
+		resolve(results);
+		store.add(
+				results.getInt(idColumn),
+				results.getString(lastnameColumn),
+				results.getString(firstnameColumn),
+				results.getString(nicknameColumn),
+				results.getString(phoneNumberColumn),
+				results.getString(addressColumn),
+				results.getString(emailAddressColumn),
+				readBirthDate(results),
+				readVersion(results));
+	}
+
+	/**
+	 * Method to read the version of the row of the current person.
+	 * @param results The result set the mapper was created for.
+	 * @return the version, 0 if the query does not read it
+	 * @throws SQLException if the column cannot be read.
+	 */
+	public int readVersion(ResultSet results) throws SQLException {
+		resolve(results);
+		return versionColumn == 0 ? 0 : results.getInt(versionColumn);
+	}
+
+	/**
+	 * Method to read the birth date of the current row.
+	 * @param results The result set the mapper was created for.
+	 * @return the date, null if it is missing
+	 * @throws SQLException if the column is missing or its value is not a date.
+	 */
+	public LocalDate readBirthDate(ResultSet results) throws SQLException {
+		resolve(results);
+		Object value = results.getObject(birthDateColumn);
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof Long || value instanceof Integer) {
+			long millis = ((Number) value).longValue();
+			if (millis < GREGORIAN_CUTOVER) {
+				// Rare enough to go through the calendar java.sql.Date was written with
+				return new java.sql.Date(millis).toLocalDate();
+			}
+			return LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone);
+		}
+		if (value instanceof Double) {
+			return LocalDate.ofEpochDay((long) Math.floor((Double) value - JULIAN_DAY_OF_EPOCH));
+		}
+		String text = value.toString().trim();
+		if (text.isEmpty()) {
+			return null;
+		}
+		try {
+			return LocalDate.parse(text.length() > 10 ? text.substring(0, 10) : text);
+		} catch (DateTimeParseException e) {
+			throw new SQLException("Invalid birth date: " + text, e);
+		}
+	}
+}
@@ -0,0 +1,343 @@
+package isen.project.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import isen.project.model.Person;
+
+/**
+ * The migrations of the schema of the 'person' table, its indexes and triggers, in the order
+ * they were introduced. A migration is never changed once released: the schema evolves by
+ * adding one at the end of {@link #MIGRATIONS}. Their statements are written out in full
+ * rather than built from {@link PersonSortColumn} or {@link PersonDao#SEARCH_COLUMNS}, so a
+ * new database receives exactly what an upgraded one received.
+ * The first ones reproduce the schema the application created before it was versioned, and
+ * check what exists since such a database may hold any of them already.
+ */
+final class PersonSchema {
+
+	// Rows backfilled per transaction by the chunked migrations
+	static final int BACKFILL_CHUNK_SIZE = 1_000;
+
+	// Body of the update triggers of the full-text index of V3 and V7
+	private static final String SEARCH_UPDATE_ACTIONS = "INSERT INTO person_fts(person_fts, rowid, lastname, firstname,"
+			+ " nickname, email_address, phone_number) VALUES ('delete', old.idperson, old.lastname, old.firstname,"
+			+ " old.nickname, old.email_address, old.phone_number); INSERT INTO person_fts(rowid, lastname, firstname,"
+			+ " nickname, email_address, phone_number) VALUES (new.idperson, new.lastname, new.firstname, new.nickname,"
+			+ " new.email_address, new.phone_number);";
+
+	// Statements of the sort indexes, as created by V2 and, for the birth date, by V10
+	private static final String LASTNAME_INDEX = "CREATE INDEX IF NOT EXISTS person_lastname_idx ON person(lastname)";
+	private static final String FIRSTNAME_INDEX = "CREATE INDEX IF NOT EXISTS person_firstname_idx ON person(firstname)";
+	private static final String NICKNAME_INDEX = "CREATE INDEX IF NOT EXISTS person_nickname_idx ON person(nickname)";
+	private static final String PHONE_NUMBER_INDEX = "CREATE INDEX IF NOT EXISTS person_phone_number_idx ON person(IFNULL(phone_number, ''))";
+	private static final String ADDRESS_INDEX = "CREATE INDEX IF NOT EXISTS person_address_idx ON person(IFNULL(address, ''))";
+	private static final String EMAIL_ADDRESS_INDEX = "CREATE INDEX IF NOT EXISTS person_email_address_idx ON person(IFNULL(email_address, ''))";
+	private static final String BIRTH_DATE_INDEX = "CREATE INDEX person_birth_date_idx ON person(IFNULL(birth_date, -9223372036854775808))";
+	private static final String DROP_BIRTH_DATE_INDEX = "DROP INDEX IF EXISTS person_birth_date_idx";
+
+	/**
+	 * The insert trigger of the full-text index of V3, which {@link PersonBulkInserter} drops
+	 * while it loads many rows and creates again with this statement.
+	 */
+	static final String SEARCH_INSERT_TRIGGER = "CREATE TRIGGER IF NOT EXISTS person_fts_insert AFTER INSERT ON person BEGIN "
+			+ "INSERT INTO person_fts(rowid, lastname, firstname, nickname, email_address, phone_number)"
+			+ " VALUES (new.idperson, new.lastname, new.firstname, new.nickname, new.email_address, new.phone_number); END";
+
+	/**
+	 * The sort indexes as the migrations leave them, for {@link PersonBulkInserter} to rebuild
+	 * them with the very statements that created them.
+	 */
+	static final List<String> SORT_INDEXES = Collections.unmodifiableList(Arrays.asList(LASTNAME_INDEX,
+			FIRSTNAME_INDEX, NICKNAME_INDEX, PHONE_NUMBER_INDEX, ADDRESS_INDEX, EMAIL_ADDRESS_INDEX, BIRTH_DATE_INDEX));
+
+	/**
+	 * The statements dropping the indexes of {@link #SORT_INDEXES}.
+	 */
+	static final List<String> DROP_SORT_INDEXES = Collections.unmodifiableList(Arrays.asList(
+			"DROP INDEX IF EXISTS person_lastname_idx",
+			"DROP INDEX IF EXISTS person_firstname_idx",
+			"DROP INDEX IF EXISTS person_nickname_idx",
+			"DROP INDEX IF EXISTS person_phone_number_idx",
+			"DROP INDEX IF EXISTS person_address_idx",
+			"DROP INDEX IF EXISTS person_email_address_idx",
+			DROP_BIRTH_DATE_INDEX));
+
+	/**
+	 * The statement dropping {@link #SEARCH_INSERT_TRIGGER}.
+	 */
+	static final String DROP_SEARCH_INSERT_TRIGGER = "DROP TRIGGER IF EXISTS person_fts_insert";
+
+	static final List<SchemaMigration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+			SchemaMigration.of(1, "Create the person table", PersonSchema::createPersonTable),
+			SchemaMigration.of(2, "Index the sortable columns", connection -> execute(connection,
+					LASTNAME_INDEX, FIRSTNAME_INDEX, NICKNAME_INDEX, PHONE_NUMBER_INDEX, ADDRESS_INDEX, EMAIL_ADDRESS_INDEX,
+					"CREATE INDEX IF NOT EXISTS person_birth_date_idx ON person(IFNULL(birth_date, ''))")),
+			SchemaMigration.of(3, "Index the searchable columns for full-text search", PersonSchema::createSearchIndex),
+			SchemaMigration.chunked(4, "Index the phonetic keys and trigrams of the names", connection -> {
+				createFuzzyIndex(connection);
+				backfillFuzzyKeys(connection, BACKFILL_CHUNK_SIZE);
+			}),
+			SchemaMigration.of(5, "Add the version of the rows for optimistic locking", PersonSchema::createVersionColumn),
+			SchemaMigration.of(6, "Add the sync keys and content hashes of synchronized persons", PersonSchema::createSyncColumns),
+			SchemaMigration.of(7, "Only update the full-text index when an indexed column changes",
+					PersonSchema::restrictSearchUpdateTrigger),
+			SchemaMigration.of(8, "Index the email addresses of the persons without a sync key", connection -> execute(connection,
+					"CREATE INDEX IF NOT EXISTS person_email_key_idx ON person(lower(trim(email_address))) WHERE sync_key IS NULL")),
+			SchemaMigration.of(9, "Drop the fuzzy search keys of renamed persons", connection -> execute(connection,
+					"CREATE TRIGGER IF NOT EXISTS person_fuzzy_update AFTER UPDATE OF lastname, firstname ON person"
+							+ " WHEN new.lastname IS NOT old.lastname OR new.firstname IS NOT old.firstname BEGIN "
+							+ "DELETE FROM person_fuzzy WHERE rowid = new.idperson; END")),
+			SchemaMigration.of(10, "Sort the missing birth dates first whatever the storage of the dates", connection -> execute(connection,
+					DROP_BIRTH_DATE_INDEX, BIRTH_DATE_INDEX)),
+			SchemaMigration.chunked(11, "Store every birth date as the driver writes it",
+					connection -> convertBirthDates(connection, BACKFILL_CHUNK_SIZE))));
+
+	private PersonSchema() {
+		throw new IllegalStateException("This is a static class that should not be instantiated");
+	}
+
+	/**
+	 * @return a migrator bringing a database to the latest schema
+	 */
+	static SchemaMigrator migrator() {
+		return new SchemaMigrator(MIGRATIONS);
+	}
+
+	private static void createPersonTable(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.executeUpdate(
+					"CREATE TABLE IF NOT EXISTS person (idperson INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,lastname VARCHAR(45) NOT NULL, firstname VARCHAR(45) NOT NULL, nickname VARCHAR(45) NOT NULL, phone_number VARCHAR(15) NULL, address VARCHAR(200) NULL, email_address VARCHAR(150) NULL, birth_date DATE NULL);");
+		}
+	}
+
+	/**
+	 * Creates the full-text index of the searchable columns and the triggers keeping it in sync
+	 * with the 'person' table. The index is filled from the existing rows when it is first created.
+	 */
+	private static void createSearchIndex(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			boolean exists = tableExists(stmt, "person_fts");
+			// External content table: only the index is stored, the text stays in 'person'
+			stmt.executeUpdate("CREATE VIRTUAL TABLE IF NOT EXISTS person_fts USING fts5(lastname, firstname, nickname,"
+					+ " email_address, phone_number, content='person', content_rowid='idperson', prefix='2 3')");
+			stmt.executeUpdate(SEARCH_INSERT_TRIGGER);
+			stmt.executeUpdate("CREATE TRIGGER IF NOT EXISTS person_fts_delete AFTER DELETE ON person BEGIN "
+					+ "INSERT INTO person_fts(person_fts, rowid, lastname, firstname, nickname, email_address, phone_number)"
+					+ " VALUES ('delete', old.idperson, old.lastname, old.firstname, old.nickname, old.email_address, old.phone_number); END");
+			stmt.executeUpdate("CREATE TRIGGER IF NOT EXISTS person_fts_update AFTER UPDATE ON person BEGIN "
+					+ SEARCH_UPDATE_ACTIONS + " END");
+			if (!exists) {
+				stmt.executeUpdate("INSERT INTO person_fts(person_fts) VALUES ('rebuild')");
+			}
+		}
+	}
+
+	/**
+	 * Replaces the update trigger of the full-text index by one that only fires when an indexed
+	 * column is written, so updates of the address or of the version leave the index alone.
+	 */
+	private static void restrictSearchUpdateTrigger(Connection connection) throws SQLException {
+		execute(connection, "DROP TRIGGER IF EXISTS person_fts_update",
+				"CREATE TRIGGER person_fts_update AFTER UPDATE OF lastname, firstname, nickname, email_address, phone_number"
+						+ " ON person BEGIN " + SEARCH_UPDATE_ACTIONS + " END");
+	}
+
+	/**
+	 * Creates the table holding the phonetic keys and trigrams of the names, see {@link NameKeys}.
+	 * The keys are computed in Java, so they are written by the DAO rather than by triggers; the
+	 * triggers only drop the keys of deleted persons and, since V9, of renamed ones, which the DAO
+	 * writes again after its own updates and {@link PersonDao#indexMissingFuzzyKeys()} after
+	 * those of other programs.
+	 */
+	private static void createFuzzyIndex(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.executeUpdate("CREATE VIRTUAL TABLE IF NOT EXISTS person_fuzzy USING fts5(phonetic, grams)");
+			stmt.executeUpdate("CREATE TRIGGER IF NOT EXISTS person_fuzzy_delete AFTER DELETE ON person BEGIN "
+					+ "DELETE FROM person_fuzzy WHERE rowid = old.idperson; END");
+		}
+		// Visible to the chunks of the backfill, which commit on their own
+		connection.commit();
+	}
+
+	/**
+	 * Writes the fuzzy search keys of the persons that have none, a chunk of rows per
+	 * transaction so the writer is never held for long; rows already handled are skipped,
+	 * so an interrupted backfill resumes where it stopped.
+	 * @param connection The writer connection.
+	 * @param chunkSize The number of rows per transaction.
+	 * @return the number of persons whose keys were written
+	 * @throws SQLException if the keys cannot be written, the committed chunks are kept.
+	 */
+	static int backfillFuzzyKeys(Connection connection, int chunkSize) throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		int written = 0;
+		try (PreparedStatement select = connection.prepareStatement("SELECT idperson, lastname, firstname FROM person"
+				+ " WHERE idperson > ? AND NOT EXISTS (SELECT 1 FROM person_fuzzy WHERE rowid = person.idperson)"
+				+ " ORDER BY idperson LIMIT ?");
+				PreparedStatement insert = connection.prepareStatement(PersonDao.FUZZY_KEYS_QUERY)) {
+			int lastId = 0;
+			int chunk;
+			do {
+				chunk = 0;
+				select.setInt(1, lastId);
+				select.setInt(2, chunkSize);
+				try (ResultSet results = select.executeQuery()) {
+					while (results.next()) {
+						Person person = new Person();
+						person.setLastname(results.getString("lastname"));
+						person.setFirstname(results.getString("firstname"));
+						lastId = results.getInt("idperson");
+						PersonDao.bindFuzzyKeys(insert, lastId, person);
+						insert.addBatch();
+						chunk++;
+					}
+				}
+				insert.executeBatch();
+				connection.commit();
+				written += chunk;
+			} while (chunk == chunkSize);
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+		return written;
+	}
+
+	/**
+	 * Rewrites the birth dates stored as a text or as a Julian day as the milliseconds of their
+	 * local midnight, the way the driver writes a java.sql.Date. SQLite orders every number before
+	 * every text, so with both forms in the table the birth date index did not order the persons
+	 * like the comparator of {@link PersonSortColumn#BIRTH_DATE}. An empty text becomes NULL, as it
+	 * is read; a text that is not a date is left as it is. The rows are rewritten a chunk per
+	 * transaction, and the version trigger marks them as changed.
+	 * @param connection The writer connection.
+	 * @param chunkSize The number of rows per transaction.
+	 * @return the number of birth dates rewritten
+	 * @throws SQLException if the dates cannot be written, the committed chunks are kept.
+	 */
+	static int convertBirthDates(Connection connection, int chunkSize) throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		int written = 0;
+		try (PreparedStatement select = connection.prepareStatement("SELECT idperson, lastname, firstname, nickname,"
+				+ " phone_number, address, email_address, birth_date FROM person"
+				+ " WHERE idperson > ? AND typeof(birth_date) IN ('text', 'real') ORDER BY idperson LIMIT ?");
+				PreparedStatement update = connection.prepareStatement("UPDATE person SET birth_date = ? WHERE idperson = ?")) {
+			int lastId = 0;
+			int chunk;
+			do {
+				chunk = 0;
+				select.setInt(1, lastId);
+				select.setInt(2, chunkSize);
+				try (ResultSet results = select.executeQuery()) {
+					PersonRowMapper mapper = PersonRowMapper.of(results);
+					while (results.next()) {
+						lastId = results.getInt("idperson");
+						chunk++;
+						LocalDate birthDate;
+						try {
+							birthDate = mapper.readBirthDate(results);
+						} catch (SQLException e) {
+							// Not a date: reading this person fails whatever its storage
+							continue;
+						}
+						if (birthDate == null) {
+							update.setNull(1, Types.DATE);
+						} else {
+							update.setDate(1, java.sql.Date.valueOf(birthDate));
+						}
+						update.setInt(2, lastId);
+						update.addBatch();
+						written++;
+					}
+				}
+				update.executeBatch();
+				connection.commit();
+			} while (chunk == chunkSize);
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+		return written;
+	}
+
+	/**
+	 * Adds the version column, and the trigger incrementing it when a row is updated by a
+	 * program that does not know about it. The DAO increments the version itself, so the
+	 * trigger does nothing for its updates.
+	 */
+	private static void createVersionColumn(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			addColumnIfMissing(stmt, "version", "INTEGER NOT NULL DEFAULT 1");
+			stmt.executeUpdate("CREATE TRIGGER IF NOT EXISTS person_version AFTER UPDATE ON person"
+					+ " WHEN new.version = old.version BEGIN "
+					+ "UPDATE person SET version = old.version + 1 WHERE idperson = new.idperson; END");
+		}
+	}
+
+	/**
+	 * Adds the columns identifying the persons of an external source and the content they had
+	 * when last synchronized, see {@link PersonDao#upsertPersons(java.util.stream.Stream)}. The
+	 * index is partial: the persons created in the application have no sync key and cost nothing in it.
+	 */
+	private static void createSyncColumns(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			addColumnIfMissing(stmt, "sync_key", "TEXT NULL");
+			addColumnIfMissing(stmt, "content_hash", "INTEGER NULL");
+			stmt.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS person_sync_key ON person(sync_key) WHERE sync_key IS NOT NULL");
+		}
+	}
+
+	/**
+	 * Adds a column to the 'person' table, unless an unversioned database already has it.
+	 */
+	private static void addColumnIfMissing(Statement stmt, String name, String definition) throws SQLException {
+		boolean exists = false;
+		try (ResultSet results = stmt.executeQuery("PRAGMA table_info(person)")) {
+			while (results.next()) {
+				exists |= results.getString("name").equals(name);
+			}
+		}
+		if (!exists) {
+			stmt.executeUpdate("ALTER TABLE person ADD COLUMN " + name + " " + definition);
+		}
+	}
+
+	private static void execute(Connection connection, String... statements) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			execute(stmt, Arrays.asList(statements));
+		}
+	}
+
+	/**
+	 * Executes the given statements in order, such as {@link #SORT_INDEXES} or {@link #DROP_SORT_INDEXES}.
+	 * @param stmt The statement to execute them with.
+	 * @param statements The statements.
+	 * @throws SQLException if one of them fails.
+	 */
+	static void execute(Statement stmt, List<String> statements) throws SQLException {
+		for (String statement : statements) {
+			stmt.executeUpdate(statement);
+		}
+	}
+
+	private static boolean tableExists(Statement stmt, String name) throws SQLException {
+		try (ResultSet results = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + name + "'")) {
+			return results.next();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package isen.project.db;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+import isen.project.model.Person;
+
+/**
+ * Columns of the 'person' table the persons can be sorted and paged by.
+ * Each column is backed by an index created in {@link PersonDao#initDb()}.
+ */
+public enum PersonSortColumn {
+
+	ID("idperson", "idperson", Comparator.comparingInt(Person::getIdperson)),
+	LASTNAME("lastname", "lastname", text(Person::getLastname)),
+	FIRSTNAME("firstname", "firstname", text(Person::getFirstname)),
+	NICKNAME("nickname", "nickname", text(Person::getNickname)),
+	// Nullable columns are sorted on an expression index so NULL rows can be paged through
+	PHONE_NUMBER("phone_number", "IFNULL(phone_number, '')", text(Person::getPhoneNumber)),
+	ADDRESS("address", "IFNULL(address, '')", text(Person::getAddress)),
+	EMAIL_ADDRESS("email_address", "IFNULL(email_address, '')", text(Person::getEmailAddress)),
+	// Missing dates take the smallest integer, which SQLite sorts before the dates stored as
+	// numbers and as text alike; a database mixing both still sorts the numbers first
+	BIRTH_DATE("birth_date", "IFNULL(birth_date, -9223372036854775808)",
+			Comparator.comparing(Person::getBirthDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+	private final String column;
+	private final String sortExpression;
+	private final Comparator<Person> comparator;
+
+	PersonSortColumn(String column, String sortExpression, Comparator<Person> valueComparator) {
+		this.column = column;
+		this.sortExpression = sortExpression;
+		this.comparator = valueComparator.thenComparingInt(Person::getIdperson);
+	}
+
+	private static Comparator<Person> text(Function<Person, String> getter) {
+		return Comparator.comparing(person -> {
+			String value = getter.apply(person);
+			return value == null ? "" : value;
+		});
+	}
+
+	/**
+	 * @return the name of the column in the 'person' table
+	 */
+	public String getColumn() {
+		return column;
+	}
+
+	/**
+	 * @return the SQL expression the rows are ordered by, matching the index definition
+	 */
+	String getSortExpression() {
+		return sortExpression;
+	}
+
+	/**
+	 * @return a comparator ordering persons in memory the way {@link PersonDao#page} orders
+	 *         them in ascending order, ties broken by ID
+	 */
+	public Comparator<Person> getComparator() {
+		return comparator;
+	}
+}
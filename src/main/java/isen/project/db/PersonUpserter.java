@@ -0,0 +1,374 @@
+package isen.project.db;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import isen.project.model.Person;
+
+/**
+ * Writes the persons of an external source, identified by their sync key, with one
+ * {@code INSERT ... ON CONFLICT DO UPDATE} statement: new keys are inserted, known keys are
+ * updated in place. Each person carries a hash of its content, stored with the row, so
+ * persons that did not change since the last synchronization are recognized from a single
+ * lookup per chunk of keys and not written at all: the cost of a synchronization grows with
+ * the number of changes, not with the number of stored persons.
+ * A key found on no row is first looked for among the persons created in the application,
+ * which have no sync key: the one with the same email address, if any, receives the key and is
+ * updated by the source from then on rather than copied.
+ * The persons are written in transactions of {@link PersonDao#SYNC_TRANSACTION_SIZE} rows;
+ * if one fails, the previous ones stay committed and running the synchronization again
+ * resumes it, since writing the same persons twice changes nothing.
+ * Used by {@link PersonDao#upsertPersons(java.util.stream.Stream)}.
+ */
+class PersonUpserter implements AutoCloseable {
+
+    static final String UPSERT_QUERY = "INSERT INTO person(lastname, firstname, nickname, phone_number, address, email_address, birth_date, sync_key, content_hash)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT(sync_key) WHERE sync_key IS NOT NULL DO UPDATE SET"
+            + " lastname = excluded.lastname, firstname = excluded.firstname, nickname = excluded.nickname,"
+            + " phone_number = excluded.phone_number, address = excluded.address, email_address = excluded.email_address,"
+            + " birth_date = excluded.birth_date, content_hash = excluded.content_hash, version = person.version + 1"
+            + " WHERE person.content_hash IS NOT excluded.content_hash";
+
+    // Keys looked up at once, SQLite accepts at most 999 parameters per statement
+    static final int LOOKUP_SIZE = 500;
+
+    private final Connection connection;
+    private final int transactionSize;
+    private final SyncReport report;
+    private final PreparedStatement statement;
+    private final PreparedStatement keysStatement;
+    private final MessageDigest digest;
+
+    // Persons waiting for the lookup of their keys, the last one of each key wins
+    private final Map<String, Person> pending = new LinkedHashMap<>();
+    // Counts of the current transaction, added to the report at commit
+    private long inserted;
+    private long updated;
+    private long unchanged;
+    private long skipped;
+    // Changes of the current transaction, then of the committed ones, null once they are
+    // too many to be published one by one
+    private List<PersonEvent> transactionEvents = new ArrayList<>();
+    private List<PersonEvent> events = new ArrayList<>();
+
+    PersonUpserter(Connection connection, int transactionSize, SyncReport report) throws SQLException {
+        this.connection = connection;
+        this.transactionSize = transactionSize;
+        this.report = report;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+        try {
+            connection.setAutoCommit(false);
+            this.statement = connection.prepareStatement(UPSERT_QUERY);
+            this.keysStatement = connection.prepareStatement(PersonDao.FUZZY_KEYS_QUERY);
+        } catch (SQLException e) {
+            connection.setAutoCommit(true);
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes every person, committing every {@link #transactionSize} persons and at the end.
+     */
+    void upsert(Iterator<Person> persons) throws SQLException {
+        long inTransaction = 0;
+        while (persons.hasNext()) {
+            add(persons.next());
+            if (++inTransaction == transactionSize) {
+                commit();
+                inTransaction = 0;
+            }
+        }
+        commit();
+    }
+
+    private void add(Person person) throws SQLException {
+        String key = syncKeyOf(person);
+        if (key == null || pending.put(key, person) != null) {
+            // No key, or a person with the same key replaced in the chunk
+            skipped++;
+        }
+        if (pending.size() == LOOKUP_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the pending persons whose content changed.
+     */
+    private void flush() throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, StoredRow> stored = lookup(pending.keySet());
+        List<String> unknownKeys = new ArrayList<>();
+        for (String key : pending.keySet()) {
+            if (!stored.containsKey(key)) {
+                unknownKeys.add(key);
+            }
+        }
+        stored.putAll(adopt(unknownKeys));
+        List<Person> updatedPersons = new ArrayList<>();
+        List<String> insertedKeys = new ArrayList<>();
+        for (Map.Entry<String, Person> entry : pending.entrySet()) {
+            Person person = entry.getValue();
+            long hash = contentHash(person);
+            StoredRow row = stored.get(entry.getKey());
+            if (row != null) {
+                person.setIdperson(row.id);
+                if (row.hash != null && row.hash == hash) {
+                    person.setVersion(row.version);
+                    person.clearDirtyFields();
+                    unchanged++;
+                    continue;
+                }
+                person.setVersion(row.version + 1);
+                updatedPersons.add(person);
+            } else {
+                insertedKeys.add(entry.getKey());
+                person.setVersion(PersonDao.FIRST_VERSION);
+            }
+            PersonDao.bindPerson(statement, person);
+            statement.setString(8, entry.getKey());
+            statement.setLong(9, hash);
+            statement.addBatch();
+        }
+        statement.executeBatch();
+        List<Person> insertedPersons = new ArrayList<>(insertedKeys.size());
+        if (!insertedKeys.isEmpty()) {
+            // No RETURNING clause in this SQLite version: the new IDs are read back by key
+            Map<String, StoredRow> insertedRows = lookup(insertedKeys);
+            for (String key : insertedKeys) {
+                Person person = pending.get(key);
+                person.setIdperson(insertedRows.get(key).id);
+                insertedPersons.add(person);
+            }
+        }
+        for (Person person : insertedPersons) {
+            written(person, PersonEvent.inserted(person));
+        }
+        for (Person person : updatedPersons) {
+            written(person, PersonEvent.updated(person.getIdperson(), person));
+        }
+        keysStatement.executeBatch();
+        inserted += insertedPersons.size();
+        updated += updatedPersons.size();
+        pending.clear();
+    }
+
+    /**
+     * Queues the fuzzy keys and the event of a written person.
+     */
+    private void written(Person person, PersonEvent event) throws SQLException {
+        person.clearDirtyFields();
+        PersonDao.bindFuzzyKeys(keysStatement, person.getIdperson(), person);
+        keysStatement.addBatch();
+        if (transactionEvents != null) {
+            transactionEvents.add(event);
+            if (transactionEvents.size() > PersonDao.MAX_EVENTS_PER_WRITE) {
+                transactionEvents = null;
+            }
+        }
+    }
+
+    /**
+     * Reads the ID, content hash and version of the rows holding some sync keys.
+     */
+    private Map<String, StoredRow> lookup(Collection<String> keys) throws SQLException {
+        StringBuilder sqlQuery = new StringBuilder("SELECT sync_key, idperson, content_hash, version FROM person WHERE sync_key IN (");
+        for (int i = 0; i < keys.size(); i++) {
+            sqlQuery.append(i == 0 ? "?" : ", ?");
+        }
+        sqlQuery.append(')');
+        Map<String, StoredRow> rows = new HashMap<>();
+        try (PreparedStatement lookupStatement = connection.prepareStatement(sqlQuery.toString())) {
+            int index = 1;
+            for (String key : keys) {
+                lookupStatement.setString(index++, key);
+            }
+            try (ResultSet results = lookupStatement.executeQuery()) {
+                while (results.next()) {
+                    long hash = results.getLong(3);
+                    rows.put(results.getString(1), new StoredRow(results.getInt(2), results.wasNull() ? null : hash,
+                            results.getInt(4)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Gives their sync key to the persons without one whose email address has it, the first
+     * created for each key, and reads their ID, the hash of their content and their version.
+     */
+    private Map<String, StoredRow> adopt(Collection<String> keys) throws SQLException {
+        Map<String, StoredRow> rows = new HashMap<>();
+        if (keys.isEmpty()) {
+            return rows;
+        }
+        // Same expression as the partial index person_email_key_idx, so it is used
+        StringBuilder sqlQuery = new StringBuilder("SELECT * FROM person WHERE sync_key IS NULL AND lower(trim(email_address)) IN (");
+        for (int i = 0; i < keys.size(); i++) {
+            sqlQuery.append(i == 0 ? "?" : ", ?");
+        }
+        sqlQuery.append(") ORDER BY idperson");
+        Map<String, Person> adopted = new LinkedHashMap<>();
+        try (PreparedStatement adoptStatement = connection.prepareStatement(sqlQuery.toString())) {
+            int index = 1;
+            for (String key : keys) {
+                adoptStatement.setString(index++, key);
+            }
+            try (ResultSet results = adoptStatement.executeQuery()) {
+                PersonRowMapper mapper = PersonRowMapper.of(results);
+                while (results.next()) {
+                    Person person = mapper.map(results);
+                    adopted.putIfAbsent(syncKeyOf(person), person);
+                }
+            }
+        }
+        if (adopted.isEmpty()) {
+            return rows;
+        }
+        try (PreparedStatement keyStatement = connection.prepareStatement(
+                "UPDATE person SET sync_key = ?, content_hash = ?, version = version + 1 WHERE idperson = ?")) {
+            for (Map.Entry<String, Person> entry : adopted.entrySet()) {
+                Person person = entry.getValue();
+                // The stored content is the one synchronized, so an equal person is left unchanged
+                long hash = contentHash(person);
+                keyStatement.setString(1, entry.getKey());
+                keyStatement.setLong(2, hash);
+                keyStatement.setInt(3, person.getIdperson());
+                keyStatement.addBatch();
+                rows.put(entry.getKey(), new StoredRow(person.getIdperson(), hash, person.getVersion() + 1));
+            }
+            keyStatement.executeBatch();
+        }
+        return rows;
+    }
+
+    private void commit() throws SQLException {
+        flush();
+        connection.commit();
+        report.committed(inserted, updated, unchanged, skipped);
+        if (events != null && transactionEvents != null && events.size() + transactionEvents.size() <= PersonDao.MAX_EVENTS_PER_WRITE) {
+            events.addAll(transactionEvents);
+            transactionEvents.clear();
+        } else {
+            events = null;
+            transactionEvents = null;
+        }
+        inserted = 0;
+        updated = 0;
+        unchanged = 0;
+        skipped = 0;
+    }
+
+    /**
+     * @return the events of the committed changes, or null if they were too many to be listed
+     */
+    List<PersonEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Rolls back the transaction in progress, if any, and releases the writer connection.
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            connection.rollback();
+            statement.close();
+            keysStatement.close();
+        } finally {
+            connection.setAutoCommit(true);
+            connection.close();
+        }
+    }
+
+    /**
+     * Method to compute the sync key of a person: its email address without the spaces around it
+     * and with the letters A to Z in lower case, the same key as {@code lower(trim(email_address))}
+     * in SQLite, which matches the persons without a sync key.
+     * @param person The person.
+     * @return the key, or null if the person has no email address
+     */
+    static String syncKeyOf(Person person) {
+        String emailAddress = person.getEmailAddress();
+        if (emailAddress == null) {
+            return null;
+        }
+        int start = 0;
+        int end = emailAddress.length();
+        while (start < end && emailAddress.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && emailAddress.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        char[] key = emailAddress.substring(start, end).toCharArray();
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] >= 'A' && key[i] <= 'Z') {
+                key[i] += 'a' - 'A';
+            }
+        }
+        return new String(key);
+    }
+
+    /**
+     * Method to compute a 64-bit hash of the fields of a person, equal for equal contents.
+     */
+    long contentHash(Person person) {
+        digest.reset();
+        String[] fields = { person.getLastname(), person.getFirstname(), person.getNickname(), person.getPhoneNumber(),
+                person.getAddress(), person.getEmailAddress(),
+                person.getBirthDate() == null ? null : person.getBirthDate().toString() };
+        for (String field : fields) {
+            // Each field is preceded by its length, -1 for null, so no two contents hash the same bytes
+            byte[] bytes = field == null ? new byte[0] : field.getBytes(StandardCharsets.UTF_8);
+            int length = field == null ? -1 : bytes.length;
+            digest.update(new byte[] { (byte) (length >> 24), (byte) (length >> 16), (byte) (length >> 8), (byte) length });
+            digest.update(bytes);
+        }
+        byte[] hash = digest.digest();
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = value << 8 | (hash[i] & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * What the lookup of a key found.
+     */
+    private static class StoredRow {
+
+        private final int id;
+        private final Long hash;
+        private final int version;
+
+        StoredRow(int id, Long hash, int version) {
+            this.id = id;
+            this.hash = hash;
+            this.version = version;
+        }
+    }
+}
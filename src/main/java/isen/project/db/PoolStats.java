@@ -0,0 +1,115 @@
+package isen.project.db;
+
+/**
+ * Immutable snapshot of the statistics of a {@link ConnectionPool}.
+ */
+public class PoolStats {
+
+	private final int activeWriters;
+	private final int activeReaders;
+	private final int idleConnections;
+	private final long borrowCount;
+	private final long totalBorrowWaitNanos;
+	private final long maxBorrowWaitNanos;
+	private final long evictedCount;
+	private final long statementCacheHits;
+	private final long statementCacheMisses;
+
+	PoolStats(int activeWriters, int activeReaders, int idleConnections, long borrowCount, long totalBorrowWaitNanos,
+			long maxBorrowWaitNanos, long evictedCount, long statementCacheHits, long statementCacheMisses) {
+		this.activeWriters = activeWriters;
+		this.activeReaders = activeReaders;
+		this.idleConnections = idleConnections;
+		this.borrowCount = borrowCount;
+		this.totalBorrowWaitNanos = totalBorrowWaitNanos;
+		this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+		this.evictedCount = evictedCount;
+		this.statementCacheHits = statementCacheHits;
+		this.statementCacheMisses = statementCacheMisses;
+	}
+
+	/**
+	 * @return the number of connections currently borrowed (writer and readers)
+	 */
+	public int getActiveCount() {
+		return activeWriters + activeReaders;
+	}
+
+	/**
+	 * @return 1 if the writer connection is currently borrowed, 0 otherwise
+	 */
+	public int getActiveWriters() {
+		return activeWriters;
+	}
+
+	/**
+	 * @return the number of reader connections currently borrowed
+	 */
+	public int getActiveReaders() {
+		return activeReaders;
+	}
+
+	/**
+	 * @return the number of open connections waiting in the pool
+	 */
+	public int getIdleCount() {
+		return idleConnections;
+	}
+
+	/**
+	 * @return the number of connections handed out since the pool was created
+	 */
+	public long getBorrowCount() {
+		return borrowCount;
+	}
+
+	/**
+	 * @return the cumulated time callers spent waiting for a connection, in nanoseconds
+	 */
+	public long getTotalBorrowWaitNanos() {
+		return totalBorrowWaitNanos;
+	}
+
+	/**
+	 * @return the longest time a caller waited for a connection, in nanoseconds
+	 */
+	public long getMaxBorrowWaitNanos() {
+		return maxBorrowWaitNanos;
+	}
+
+	/**
+	 * @return the average time a caller waited for a connection, in nanoseconds
+	 */
+	public long getAverageBorrowWaitNanos() {
+		return borrowCount == 0 ? 0 : totalBorrowWaitNanos / borrowCount;
+	}
+
+	/**
+	 * @return the number of physical connections closed because they were idle or invalid
+	 */
+	public long getEvictedCount() {
+		return evictedCount;
+	}
+
+	/**
+	 * @return the number of prepared statements reused from the cache of their connection
+	 */
+	public long getStatementCacheHits() {
+		return statementCacheHits;
+	}
+
+	/**
+	 * @return the number of prepared statements that had to be compiled by SQLite
+	 */
+	public long getStatementCacheMisses() {
+		return statementCacheMisses;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolStats[active=" + getActiveCount() + ", idle=" + idleConnections + ", borrows=" + borrowCount
+				+ ", avgWaitNanos=" + getAverageBorrowWaitNanos() + ", maxWaitNanos=" + maxBorrowWaitNanos
+				+ ", evicted=" + evictedCount + ", statementCacheHits=" + statementCacheHits
+				+ ", statementCacheMisses=" + statementCacheMisses + "]";
+	}
+}
@@ -0,0 +1,97 @@
+package isen.project.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A change of the database schema, numbered by the version the schema has once it is applied.
+ * Migrations are applied in order by a {@link SchemaMigrator}, each one once per database.
+ */
+public class SchemaMigration {
+
+	/**
+	 * The statements of a migration, run on the writer connection with auto-commit off.
+	 */
+	@FunctionalInterface
+	public interface Step {
+
+		/**
+		 * Method to apply the migration.
+		 * @param connection The writer connection, with auto-commit off.
+		 * @throws SQLException if the migration cannot be applied.
+		 */
+		void apply(Connection connection) throws SQLException;
+	}
+
+	private final int version;
+	private final String description;
+	private final boolean chunked;
+	private final Step step;
+
+	private SchemaMigration(int version, String description, boolean chunked, Step step) {
+		if (version < 1) {
+			throw new IllegalArgumentException("Schema versions start at 1: " + version);
+		}
+		this.version = version;
+		this.description = description;
+		this.chunked = chunked;
+		this.step = step;
+	}
+
+	/**
+	 * Method to create a migration applied in a single transaction, together with the new
+	 * schema version: if it fails, nothing of it remains. Index builds and column additions
+	 * are done this way; readers keep using the previous schema until it is committed.
+	 * @param version The version of the schema once the migration is applied.
+	 * @param description What the migration does, for the logs.
+	 * @param step The statements of the migration.
+	 * @return the migration
+	 */
+	public static SchemaMigration of(int version, String description, Step step) {
+		return new SchemaMigration(version, description, false, step);
+	}
+
+	/**
+	 * Method to create a migration that commits its work in chunks, for backfills of large
+	 * tables that would otherwise hold the writer for a long time. The schema version is only
+	 * updated once the last chunk is committed, so an interrupted migration is applied again
+	 * at the next startup: the step must skip the rows it already handled.
+	 * @param version The version of the schema once the migration is applied.
+	 * @param description What the migration does, for the logs.
+	 * @param step The statements of the migration, committing after each chunk.
+	 * @return the migration
+	 */
+	public static SchemaMigration chunked(int version, String description, Step step) {
+		return new SchemaMigration(version, description, true, step);
+	}
+
+	/**
+	 * @return the version of the schema once the migration is applied
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return what the migration does
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * @return true if the migration commits its work in chunks rather than in a single transaction
+	 */
+	public boolean isChunked() {
+		return chunked;
+	}
+
+	void apply(Connection connection) throws SQLException {
+		step.apply(connection);
+	}
+
+	@Override
+	public String toString() {
+		return "V" + version + " " + description;
+	}
+}
@@ -0,0 +1,99 @@
+package isen.project.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Brings a database to the latest version of its schema by applying, in order, the
+ * migrations it has not received yet. The version of the schema is kept in the header of
+ * the database file ({@code PRAGMA user_version}), so a database that is up to date is
+ * recognized from a single read and opened without any other check.
+ * Databases created before the schema was versioned have version 0 and receive every
+ * migration, which is why the migrations only create what does not exist yet.
+ */
+public class SchemaMigrator {
+
+	private static final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+
+	private final List<SchemaMigration> migrations;
+
+	/**
+	 * Creates a migrator.
+	 * @param migrations The migrations, numbered from 1 without gaps.
+	 * @throws IllegalArgumentException if the migrations are not numbered 1, 2, 3...
+	 */
+	public SchemaMigrator(List<SchemaMigration> migrations) {
+		for (int i = 0; i < migrations.size(); i++) {
+			if (migrations.get(i).getVersion() != i + 1) {
+				throw new IllegalArgumentException("Expected the migration to version " + (i + 1) + ", got "
+						+ migrations.get(i));
+			}
+		}
+		this.migrations = Collections.unmodifiableList(new ArrayList<>(migrations));
+	}
+
+	/**
+	 * @return the version of the schema once every migration is applied
+	 */
+	public int getLatestVersion() {
+		return migrations.size();
+	}
+
+	/**
+	 * Method to apply the migrations the database has not received yet.
+	 * Each migration is committed with the new schema version, so a failure leaves the
+	 * database at the version of the last migration that succeeded.
+	 * @param connection The writer connection.
+	 * @return the migrations applied, empty if the schema was up to date
+	 * @throws SQLException if a migration fails, or if the database was created by a newer
+	 *         version of the application.
+	 */
+	public List<SchemaMigration> migrate(Connection connection) throws SQLException {
+		int current = getSchemaVersion(connection);
+		if (current > getLatestVersion()) {
+			throw new SQLException("The database schema is at version " + current
+					+ ", newer than the version " + getLatestVersion() + " this application knows");
+		}
+		List<SchemaMigration> applied = new ArrayList<>();
+		for (SchemaMigration migration : migrations.subList(current, migrations.size())) {
+			long start = System.nanoTime();
+			connection.setAutoCommit(false);
+			try {
+				migration.apply(connection);
+				try (Statement stmt = connection.createStatement()) {
+					// Written in the same transaction as the last statements of the migration
+					stmt.executeUpdate("PRAGMA user_version = " + migration.getVersion());
+				}
+				connection.commit();
+			} catch (SQLException e) {
+				connection.rollback();
+				throw new SQLException("Could not migrate the database schema to " + migration, e);
+			} finally {
+				connection.setAutoCommit(true);
+			}
+			applied.add(migration);
+			LOGGER.log(Level.INFO, "Migrated the database schema to {0} in {1} ms",
+					new Object[] { migration, (System.nanoTime() - start) / 1_000_000 });
+		}
+		return applied;
+	}
+
+	/**
+	 * Method to read the version of the schema of a database.
+	 * @param connection A connection to the database.
+	 * @return the version, 0 for a new database or one created before the schema was versioned
+	 * @throws SQLException if the version cannot be read.
+	 */
+	public static int getSchemaVersion(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement(); ResultSet results = stmt.executeQuery("PRAGMA user_version")) {
+			return results.next() ? results.getInt(1) : 0;
+		}
+	}
+}
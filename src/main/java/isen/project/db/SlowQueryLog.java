@@ -0,0 +1,188 @@
+package isen.project.db;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Log of the statements slower than a threshold, written by the connections of a
+ * {@link ConnectionPool} to a rotating file meant to be analyzed offline.
+ * Each slow statement is written on a line of tab-separated fields:
+ * <pre>
+ * time	SLOW	elapsed ms	rows	SQL	bound parameters
+ * </pre>
+ * The elapsed time of a query covers its execution and the reading of its rows, and the
+ * rows are those read by the caller. The first time a statement shape (its SQL, whatever
+ * its parameters) is slow, the plan SQLite chose for it is captured with
+ * EXPLAIN QUERY PLAN and written on a PLAN line, the full scans of a table being flagged:
+ * <pre>
+ * time	PLAN	SQL	plan steps separated by " | "	FULL SCAN: table,...
+ * </pre>
+ */
+public class SlowQueryLog implements AutoCloseable {
+
+	// Parameters longer than this are cut in the log
+	private static final int MAX_PARAMETER_LENGTH = 100;
+
+	// Plan step reading a whole table, in the formats of SQLite before and after 3.36
+	private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (?:TABLE )?+(\\w++)(?! USING)(?!.*VIRTUAL TABLE)");
+
+	private final Handler handler;
+	private final long thresholdNanos;
+	// SQL of the statements whose plan was already captured
+	private final Set<String> explained = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Creates a log writing to a handler.
+	 * @param handler The handler the lines are published to, closed with the log.
+	 * @param thresholdMillis The duration from which a statement is logged, 0 to log every statement.
+	 */
+	public SlowQueryLog(Handler handler, long thresholdMillis) {
+		this.handler = handler;
+		this.thresholdNanos = thresholdMillis * 1_000_000;
+	}
+
+	/**
+	 * Method to create a log writing to rotating files.
+	 * @param pattern The path of the files, "%g" standing for the generation number, such as "slow-queries.%g.log".
+	 * @param limitBytes The size from which the next file is started.
+	 * @param fileCount The number of files kept.
+	 * @param thresholdMillis The duration from which a statement is logged, 0 to log every statement.
+	 * @return the log, to be closed with its pool
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public static SlowQueryLog toFiles(String pattern, int limitBytes, int fileCount, long thresholdMillis)
+			throws IOException {
+		FileHandler handler = new FileHandler(pattern, limitBytes, fileCount, true);
+		handler.setEncoding("UTF-8");
+		handler.setFormatter(new LineFormatter());
+		return new SlowQueryLog(handler, thresholdMillis);
+	}
+
+	/**
+	 * @return the duration from which a statement is logged, in nanoseconds
+	 */
+	public long getThresholdNanos() {
+		return thresholdNanos;
+	}
+
+	/**
+	 * Method to log a statement if it was slow.
+	 * @param sql The SQL of the statement.
+	 * @param parameters The parameters bound to the statement, in order.
+	 * @param elapsedNanos The time the statement took.
+	 * @param rows The rows read or changed by the statement.
+	 * @param connection The physical connection the statement ran on, to explain its plan.
+	 */
+	void record(String sql, List<Object> parameters, long elapsedNanos, long rows, Connection connection) {
+		if (elapsedNanos < thresholdNanos) {
+			return;
+		}
+		StringBuilder line = new StringBuilder("SLOW\t")
+				.append(String.format(Locale.ROOT, "%.3f ms", elapsedNanos / 1_000_000.0)).append('\t')
+				.append("rows=").append(rows).append('\t')
+				.append(oneLine(sql)).append('\t')
+				.append(formatParameters(parameters));
+		publish(line.toString());
+		if (explained.add(sql)) {
+			publish(explain(sql, parameters, connection));
+		}
+	}
+
+	/**
+	 * Runs EXPLAIN QUERY PLAN for a statement with the same parameters.
+	 */
+	private static String explain(String sql, List<Object> parameters, Connection connection) {
+		List<String> steps = new ArrayList<>();
+		List<String> scannedTables = new ArrayList<>();
+		StringBuilder line = new StringBuilder("PLAN\t").append(oneLine(sql)).append('\t');
+		try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+			for (int i = 0; i < parameters.size(); i++) {
+				statement.setObject(i + 1, parameters.get(i));
+			}
+			try (ResultSet results = statement.executeQuery()) {
+				while (results.next()) {
+					String detail = results.getString("detail");
+					steps.add(detail);
+					Matcher matcher = FULL_SCAN.matcher(detail);
+					if (matcher.find()) {
+						scannedTables.add(matcher.group(1));
+					}
+				}
+			}
+		} catch (SQLException e) {
+			// Statements such as PRAGMA have no plan
+			return line.append("no plan: ").append(oneLine(String.valueOf(e.getMessage()))).toString();
+		}
+		line.append(String.join(" | ", steps));
+		if (!scannedTables.isEmpty()) {
+			line.append("\tFULL SCAN: ").append(String.join(",", scannedTables));
+		}
+		return line.toString();
+	}
+
+	private void publish(String line) {
+		handler.publish(new LogRecord(Level.INFO, line));
+	}
+
+	static String formatParameters(List<Object> parameters) {
+		StringBuilder text = new StringBuilder("[");
+		for (int i = 0; i < parameters.size(); i++) {
+			if (i > 0) {
+				text.append(", ");
+			}
+			Object parameter = parameters.get(i);
+			if (parameter instanceof String) {
+				String value = (String) parameter;
+				if (value.length() > MAX_PARAMETER_LENGTH) {
+					value = value.substring(0, MAX_PARAMETER_LENGTH) + "...";
+				}
+				text.append('\'').append(oneLine(value)).append('\'');
+			} else {
+				text.append(parameter);
+			}
+		}
+		return text.append(']').toString();
+	}
+
+	/**
+	 * Keeps a value on its field of the line.
+	 */
+	private static String oneLine(String text) {
+		return text.replaceAll("[\\t\\r\\n]+", " ");
+	}
+
+	/**
+	 * Flushes and closes the file.
+	 */
+	@Override
+	public void close() {
+		handler.close();
+	}
+
+	/**
+	 * Writes each record on a line starting with its time.
+	 */
+	static class LineFormatter extends Formatter {
+
+		@Override
+		public String format(LogRecord record) {
+			return Instant.ofEpochMilli(record.getMillis()) + "\t" + record.getMessage() + System.lineSeparator();
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package isen.project.db;
+
+/**
+ * Direction of a sort on a {@link PersonSortColumn}.
+ */
+public enum SortDirection {
+
+	ASCENDING("ASC", ">"),
+	DESCENDING("DESC", "<");
+
+	private final String keyword;
+	private final String seekOperator;
+
+	SortDirection(String keyword, String seekOperator) {
+		this.keyword = keyword;
+		this.seekOperator = seekOperator;
+	}
+
+	/**
+	 * @return the SQL keyword of the direction
+	 */
+	String getKeyword() {
+		return keyword;
+	}
+
+	/**
+	 * @return the comparison operator selecting the rows after a key in this direction
+	 */
+	String getSeekOperator() {
+		return seekOperator;
+	}
+}
@@ -0,0 +1,133 @@
+package isen.project.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Performance settings applied to every physical connection opened by a {@link ConnectionPool}.
+ * The default profile switches the database to write-ahead logging, so readers keep
+ * reading the last committed state while the writer works instead of waiting for it,
+ * and only syncs the disk at checkpoints (a crash may lose the last transactions but
+ * never corrupts the database).
+ */
+public class SqliteProfile {
+
+	// Settings of the profile, can be overridden with -D system properties
+	static final String JOURNAL_MODE_PROPERTY = "isen.db.journalMode";
+	static final String SYNCHRONOUS_PROPERTY = "isen.db.synchronous";
+	static final String CACHE_SIZE_PROPERTY = "isen.db.cacheSizeKib";
+	static final String MMAP_SIZE_PROPERTY = "isen.db.mmapSize";
+	static final String TEMP_STORE_PROPERTY = "isen.db.tempStore";
+	static final String BUSY_TIMEOUT_PROPERTY = "isen.db.busyTimeoutMs";
+	static final String STATEMENT_CACHE_SIZE_PROPERTY = "isen.db.statementCacheSize";
+
+	/**
+	 * Profile that leaves every setting of SQLite untouched and caches no statement.
+	 */
+	public static final SqliteProfile NONE = new SqliteProfile(null, null, 0, -1, null, -1, 0);
+
+	private final String journalMode;
+	private final String synchronous;
+	private final int cacheSizeKib;
+	private final long mmapSize;
+	private final String tempStore;
+	private final int busyTimeoutMillis;
+	private final int statementCacheSize;
+
+	/**
+	 * Creates a profile.
+	 * @param journalMode The journal mode (WAL, DELETE, ...), null to keep the current one.
+	 * @param synchronous The synchronous level (OFF, NORMAL, FULL), null to keep the default.
+	 * @param cacheSizeKib The page cache size in KiB, 0 to keep the default.
+	 * @param mmapSize The number of bytes of the file accessed through memory mapping, -1 to keep the default.
+	 * @param tempStore Where temporary tables and indexes live (DEFAULT, FILE, MEMORY), null to keep the default.
+	 * @param busyTimeoutMillis How long a statement waits for a lock held by another process, -1 to keep the default.
+	 * @param statementCacheSize The number of prepared statements kept open per connection, 0 to disable the cache.
+	 */
+	public SqliteProfile(String journalMode, String synchronous, int cacheSizeKib, long mmapSize, String tempStore,
+			int busyTimeoutMillis, int statementCacheSize) {
+		this.journalMode = journalMode;
+		this.synchronous = synchronous;
+		this.cacheSizeKib = cacheSizeKib;
+		this.mmapSize = mmapSize;
+		this.tempStore = tempStore;
+		this.busyTimeoutMillis = busyTimeoutMillis;
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * @return the default profile, each setting being overridable with its system property
+	 */
+	public static SqliteProfile fromSystemProperties() {
+		return new SqliteProfile(
+				System.getProperty(JOURNAL_MODE_PROPERTY, "WAL"),
+				System.getProperty(SYNCHRONOUS_PROPERTY, "NORMAL"),
+				Integer.getInteger(CACHE_SIZE_PROPERTY, 16_384),
+				Long.getLong(MMAP_SIZE_PROPERTY, 256L * 1024 * 1024),
+				System.getProperty(TEMP_STORE_PROPERTY, "MEMORY"),
+				Integer.getInteger(BUSY_TIMEOUT_PROPERTY, 5_000),
+				Integer.getInteger(STATEMENT_CACHE_SIZE_PROPERTY, 32));
+	}
+
+	/**
+	 * Method to apply the profile to a newly opened connection.
+	 * @param connection The physical connection.
+	 * @throws SQLException if a setting is rejected by SQLite.
+	 */
+	public void apply(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			// The journal mode is stored in the file, the other settings only last as long as the connection
+			if (journalMode != null) {
+				statement.execute("PRAGMA journal_mode = " + keyword(journalMode));
+			}
+			if (synchronous != null) {
+				statement.execute("PRAGMA synchronous = " + keyword(synchronous));
+			}
+			if (cacheSizeKib != 0) {
+				// A negative cache size is a number of KiB instead of a number of pages
+				statement.execute("PRAGMA cache_size = " + (-Math.abs(cacheSizeKib)));
+			}
+			if (mmapSize >= 0) {
+				statement.execute("PRAGMA mmap_size = " + mmapSize);
+			}
+			if (tempStore != null) {
+				statement.execute("PRAGMA temp_store = " + keyword(tempStore));
+			}
+			if (busyTimeoutMillis >= 0) {
+				statement.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of prepared statements kept open per connection
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * @return the journal mode, null if the current one is kept
+	 */
+	public String getJournalMode() {
+		return journalMode;
+	}
+
+	/**
+	 * Pragma values cannot be bound as parameters, so only plain words are accepted.
+	 */
+	private static String keyword(String value) {
+		if (!value.matches("[A-Za-z]+")) {
+			throw new IllegalArgumentException("Invalid pragma value: " + value);
+		}
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return "SqliteProfile[journalMode=" + journalMode + ", synchronous=" + synchronous + ", cacheSizeKib="
+				+ cacheSizeKib + ", mmapSize=" + mmapSize + ", tempStore=" + tempStore + ", busyTimeoutMs="
+				+ busyTimeoutMillis + ", statementCacheSize=" + statementCacheSize + "]";
+	}
+}
@@ -0,0 +1,74 @@
+package isen.project.db;
+
+/**
+ * Outcome of a synchronization from an external source: how many persons were inserted,
+ * updated, left as they were because their content did not change, or skipped because
+ * they had no sync key. Only the committed transactions are counted.
+ */
+public class SyncReport {
+
+	private long insertedCount;
+	private long updatedCount;
+	private long unchangedCount;
+	private long skippedCount;
+	private long elapsedNanos;
+
+	void committed(long inserted, long updated, long unchanged, long skipped) {
+		insertedCount += inserted;
+		updatedCount += updated;
+		unchangedCount += unchanged;
+		skippedCount += skipped;
+	}
+
+	void finished(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return the number of persons whose sync key was not stored yet
+	 */
+	public long getInsertedCount() {
+		return insertedCount;
+	}
+
+	/**
+	 * @return the number of stored persons whose content changed
+	 */
+	public long getUpdatedCount() {
+		return updatedCount;
+	}
+
+	/**
+	 * @return the number of stored persons whose content did not change, which were not written
+	 */
+	public long getUnchangedCount() {
+		return unchangedCount;
+	}
+
+	/**
+	 * @return the number of persons without a sync key, or followed by another one with the same key
+	 */
+	public long getSkippedCount() {
+		return skippedCount;
+	}
+
+	/**
+	 * @return the number of rows written
+	 */
+	public long getChangedCount() {
+		return insertedCount + updatedCount;
+	}
+
+	/**
+	 * @return how long the synchronization took, in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return insertedCount + " persons inserted, " + updatedCount + " updated, " + unchangedCount + " unchanged, "
+				+ skippedCount + " skipped in " + String.format("%.1f", elapsedNanos / 1e9) + " s";
+	}
+}
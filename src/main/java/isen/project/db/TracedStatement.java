@@ -0,0 +1,214 @@
+package isen.project.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the statements of a pooled connection for the {@link SlowQueryLog}: the time spent
+ * executing them and reading their results, the rows read or changed, and the parameters bound
+ * to them. A query is recorded once its rows are all read or its results closed.
+ */
+class TracedStatement implements InvocationHandler {
+
+	private final Statement target;
+	private final String sql;
+	private final Connection physical;
+	private final SlowQueryLog log;
+
+	// Parameters bound to the prepared statement, by index from 1
+	private final List<Object> parameters = new ArrayList<>();
+	private int batchSize;
+
+	// Query whose results are being read, numbered to tell its results from those of earlier executions
+	private long queryNumber;
+	private String pendingSql;
+	private List<Object> pendingParameters;
+	private long pendingNanos;
+	private long pendingRows;
+
+	private TracedStatement(Statement target, String sql, Connection physical, SlowQueryLog log) {
+		this.target = target;
+		this.sql = sql;
+		this.physical = physical;
+		this.log = log;
+	}
+
+	/**
+	 * Method to wrap a statement so that its executions are measured.
+	 * @param target The statement handed out by the pool.
+	 * @param sql The SQL of a prepared statement, null for a plain statement which gets its SQL on execution.
+	 * @param physical The physical connection of the statement, to explain its plans.
+	 * @param log The log of the slow statements.
+	 * @return a statement implementing the same interface as the target
+	 */
+	static Statement wrap(Statement target, String sql, Connection physical, SlowQueryLog log) {
+		Class<?> type = target instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+		return (Statement) Proxy.newProxyInstance(TracedStatement.class.getClassLoader(), new Class<?>[] { type },
+				new TracedStatement(target, sql, physical, log));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+				&& method.getDeclaringClass() == PreparedStatement.class) {
+			bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+			return ConnectionPool.invokeOn(target, method, args);
+		}
+		switch (name) {
+		case "clearParameters":
+			parameters.clear();
+			break;
+		case "addBatch":
+			batchSize++;
+			break;
+		case "clearBatch":
+			batchSize = 0;
+			break;
+		case "executeQuery":
+			return executeQuery(method, args);
+		case "executeUpdate":
+		case "executeLargeUpdate":
+		case "execute":
+			return executeUpdate(method, args);
+		case "executeBatch":
+		case "executeLargeBatch":
+			return executeBatch(method, args);
+		case "close":
+			finishQuery();
+			break;
+		case "equals":
+			return proxy == args[0];
+		case "hashCode":
+			return System.identityHashCode(proxy);
+		default:
+			break;
+		}
+		return ConnectionPool.invokeOn(target, method, args);
+	}
+
+	private void bind(int index, Object value) {
+		while (parameters.size() < index) {
+			parameters.add(null);
+		}
+		parameters.set(index - 1, value);
+	}
+
+	private Object executeQuery(Method method, Object[] args) throws SQLException {
+		finishQuery();
+		long start = System.nanoTime();
+		ResultSet results = (ResultSet) ConnectionPool.invokeOn(target, method, args);
+		pendingSql = sqlOf(args);
+		pendingParameters = new ArrayList<>(parameters);
+		pendingNanos = System.nanoTime() - start;
+		pendingRows = 0;
+		queryNumber++;
+		return Proxy.newProxyInstance(TracedStatement.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+				new TracedResults(results));
+	}
+
+	private Object executeUpdate(Method method, Object[] args) throws SQLException {
+		finishQuery();
+		long start = System.nanoTime();
+		Object result = ConnectionPool.invokeOn(target, method, args);
+		long elapsed = System.nanoTime() - start;
+		long rows = result instanceof Number ? ((Number) result).longValue() : target.getUpdateCount();
+		log.record(sqlOf(args), parameters, elapsed, Math.max(rows, 0), physical);
+		return result;
+	}
+
+	private Object executeBatch(Method method, Object[] args) throws SQLException {
+		finishQuery();
+		int statements = batchSize;
+		batchSize = 0;
+		long start = System.nanoTime();
+		Object result = ConnectionPool.invokeOn(target, method, args);
+		long elapsed = System.nanoTime() - start;
+		long rows = 0;
+		if (result instanceof int[]) {
+			for (int count : (int[]) result) {
+				rows += Math.max(count, 0);
+			}
+		} else if (result instanceof long[]) {
+			for (long count : (long[]) result) {
+				rows += Math.max(count, 0);
+			}
+		}
+		// The parameters of the last statement of the batch stand for the others
+		log.record(sql + " -- batch of " + statements, parameters, elapsed, rows, physical);
+		return result;
+	}
+
+	/**
+	 * Records the query whose results were being read, if any.
+	 */
+	private void finishQuery() {
+		if (pendingSql != null) {
+			String finishedSql = pendingSql;
+			pendingSql = null;
+			log.record(finishedSql, pendingParameters, pendingNanos, pendingRows, physical);
+		}
+	}
+
+	private String sqlOf(Object[] args) {
+		return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+	}
+
+	/**
+	 * The results of a query: counts the rows and the time spent reading them.
+	 */
+	private class TracedResults implements InvocationHandler {
+
+		private final ResultSet results;
+		private final long number = queryNumber;
+
+		TracedResults(ResultSet results) {
+			this.results = results;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "next":
+				long start = System.nanoTime();
+				Object hasRow = ConnectionPool.invokeOn(results, method, args);
+				if (isPending()) {
+					pendingNanos += System.nanoTime() - start;
+					if (Boolean.TRUE.equals(hasRow)) {
+						pendingRows++;
+					} else {
+						finishQuery();
+					}
+				}
+				return hasRow;
+			case "close":
+				if (isPending()) {
+					finishQuery();
+				}
+				break;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				break;
+			}
+			return ConnectionPool.invokeOn(results, method, args);
+		}
+
+		/**
+		 * @return true if these are the results the statement is still waiting for
+		 */
+		private boolean isPending() {
+			return pendingSql != null && number == queryNumber;
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package isen.project.dedupe;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import isen.project.db.PersonDao;
+import isen.project.db.PersonRowMapper;
+import isen.project.model.Person;
+
+/**
+ * Finds the persons likely to be the same contact.
+ * Comparing every person with every other one is out of reach on large tables, so the persons
+ * are first put in blocks sharing a key: the same email address, the same phone number, or
+ * lastname and firstname pronounced alike (see {@link PersonSimilarity#blockingKeys()}). Only
+ * the persons of a block are compared together; in the few very large blocks, such as a common
+ * name, each person is only compared with its neighbours in name order.
+ * The blocks are sorted by SQLite in a temporary table, so memory holds a few blocks at a time,
+ * and they are scored on a fork-join pool while the next ones are read. The pairs are handed to
+ * the caller as soon as their block is scored.
+ */
+public class DuplicateFinder {
+
+	/**
+	 * Score from which two persons are reported as duplicates.
+	 */
+	public static final double DEFAULT_THRESHOLD = 0.85;
+
+	// Blocks larger than this are compared through a sliding window
+	private static final int MAX_BLOCK_SIZE = 200;
+
+	// Number of following persons each person of a large block is compared with
+	private static final int WINDOW_SIZE = 20;
+
+	// Number of persons read before their blocks are handed to the pool
+	private static final int CHUNK_SIZE = 4096;
+
+	// Blocks a fork-join task scores without splitting them further
+	private static final int SCORING_THRESHOLD = 32;
+
+	private final PersonDao personDao;
+	private final ForkJoinPool pool;
+	private final double threshold;
+
+	/**
+	 * Creates a finder scoring on the common fork-join pool with the default threshold.
+	 * @param personDao The DAO of the database to search.
+	 */
+	public DuplicateFinder(PersonDao personDao) {
+		this(personDao, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Creates a finder.
+	 * @param personDao The DAO of the database to search.
+	 * @param pool The pool the pairs are scored on.
+	 * @param threshold The score from which two persons are reported, between 0 and 1.
+	 */
+	public DuplicateFinder(PersonDao personDao, ForkJoinPool pool, double threshold) {
+		this.personDao = personDao;
+		this.pool = pool;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Method to search the whole table for duplicates.
+	 * Each pair is reported once, even if the two persons share several blocks.
+	 * @param consumer Receives the pairs as they are found, on the calling thread.
+	 * @return the number of pairs found
+	 * @throws SQLException if the persons cannot be read.
+	 */
+	public long findDuplicates(Consumer<DuplicatePair> consumer) throws SQLException {
+		try (Connection connection = personDao.getConnectionPool().getReadConnection();
+				Statement stmt = connection.createStatement()) {
+			String tempStore;
+			try (ResultSet result = stmt.executeQuery("PRAGMA temp_store")) {
+				tempStore = result.getString(1);
+			}
+			// The blocks may not fit in memory, let SQLite sort them on disk
+			stmt.executeUpdate("PRAGMA temp_store = FILE");
+			try {
+				stmt.executeUpdate("DROP TABLE IF EXISTS temp.dedupe_block");
+				stmt.executeUpdate("CREATE TEMP TABLE dedupe_block(block_hash INTEGER NOT NULL, idperson INTEGER NOT NULL)");
+				fillBlocks(connection, stmt);
+				return scoreBlocks(stmt, consumer);
+			} finally {
+				stmt.executeUpdate("DROP TABLE IF EXISTS temp.dedupe_block");
+				stmt.executeUpdate("PRAGMA temp_store = " + Integer.parseInt(tempStore));
+			}
+		}
+	}
+
+	/**
+	 * Writes the blocking keys of every person in the temporary table, hashed to save space.
+	 * Two keys with the same hash only make a larger block.
+	 */
+	private void fillBlocks(Connection connection, Statement stmt) throws SQLException {
+		connection.setAutoCommit(false);
+		try (PreparedStatement insert = connection.prepareStatement(
+				"INSERT INTO dedupe_block(block_hash, idperson) VALUES (?, ?)");
+				ResultSet results = stmt.executeQuery("SELECT * FROM person")) {
+			PersonRowMapper mapper = PersonRowMapper.of(results);
+			int queued = 0;
+			while (results.next()) {
+				Person person = mapper.map(results);
+				for (String key : new PersonSimilarity(person).blockingKeys()) {
+					insert.setLong(1, hash(key));
+					insert.setInt(2, person.getIdperson());
+					insert.addBatch();
+					if (++queued % PersonDao.DEFAULT_BATCH_SIZE == 0) {
+						insert.executeBatch();
+					}
+				}
+			}
+			insert.executeBatch();
+			connection.commit();
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Reads the blocks in order, scores them on the pool and reports their pairs.
+	 */
+	private long scoreBlocks(Statement stmt, Consumer<DuplicatePair> consumer) throws SQLException {
+		int maxInFlight = pool.getParallelism() * 2;
+		Deque<ScoringTask> inFlight = new ArrayDeque<>();
+		Set<Long> reported = new HashSet<>();
+		long[] found = new long[1];
+		try (ResultSet results = stmt.executeQuery("SELECT dedupe_block.block_hash, person.* FROM dedupe_block"
+				+ " JOIN person ON person.idperson = dedupe_block.idperson ORDER BY dedupe_block.block_hash")) {
+			PersonRowMapper mapper = PersonRowMapper.of(results);
+			List<List<PersonSimilarity>> chunk = new ArrayList<>();
+			int chunkSize = 0;
+			List<PersonSimilarity> block = new ArrayList<>();
+			long blockHash = 0;
+			boolean more = results.next();
+			while (more) {
+				long rowHash = results.getLong(1);
+				if (!block.isEmpty() && rowHash != blockHash) {
+					if (block.size() > 1) {
+						chunk.add(block);
+						chunkSize += block.size();
+					}
+					block = new ArrayList<>();
+				}
+				blockHash = rowHash;
+				block.add(new PersonSimilarity(mapper.map(results)));
+				more = results.next();
+				if (!more && block.size() > 1) {
+					chunk.add(block);
+					chunkSize += block.size();
+				}
+				if (chunkSize >= CHUNK_SIZE || (!more && !chunk.isEmpty())) {
+					ScoringTask task = new ScoringTask(chunk, 0, chunk.size(), threshold);
+					pool.execute(task);
+					inFlight.add(task);
+					chunk = new ArrayList<>();
+					chunkSize = 0;
+					if (inFlight.size() >= maxInFlight) {
+						report(inFlight.poll(), reported, consumer, found);
+					}
+				}
+			}
+			while (!inFlight.isEmpty()) {
+				report(inFlight.poll(), reported, consumer, found);
+			}
+		} finally {
+			for (ScoringTask task : inFlight) {
+				task.cancel(true);
+			}
+		}
+		return found[0];
+	}
+
+	/**
+	 * Waits for a scored chunk and hands its pairs not reported yet to the consumer.
+	 */
+	private static void report(ScoringTask task, Set<Long> reported, Consumer<DuplicatePair> consumer, long[] found) {
+		for (DuplicatePair pair : task.join()) {
+			long key = ((long) pair.getFirst().getIdperson() << 32) | pair.getSecond().getIdperson();
+			if (reported.add(key)) {
+				found[0]++;
+				consumer.accept(pair);
+			}
+		}
+	}
+
+	/**
+	 * Method to compare the persons of a block, each with the following ones of a sliding
+	 * window when the block is too large to compare every pair.
+	 * @param block The persons sharing a blocking key.
+	 * @param threshold The score from which a pair is kept.
+	 * @return the pairs scoring at least the threshold
+	 */
+	static List<DuplicatePair> scoreBlock(List<PersonSimilarity> block, double threshold) {
+		List<DuplicatePair> pairs = new ArrayList<>();
+		int window = block.size();
+		if (block.size() > MAX_BLOCK_SIZE) {
+			block.sort(Comparator.comparing(PersonSimilarity::sortKey));
+			window = WINDOW_SIZE;
+		}
+		for (int i = 0; i < block.size(); i++) {
+			PersonSimilarity a = block.get(i);
+			for (int j = i + 1; j < block.size() && j <= i + window; j++) {
+				PersonSimilarity b = block.get(j);
+				if (a.person.getIdperson() == b.person.getIdperson()) {
+					continue;
+				}
+				double score = a.score(b);
+				if (score >= threshold) {
+					boolean ordered = a.person.getIdperson() < b.person.getIdperson();
+					pairs.add(new DuplicatePair(ordered ? a.person : b.person, ordered ? b.person : a.person, score));
+				}
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of a blocking key.
+	 */
+	static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Scores a range of the blocks of a chunk, splitting it between the workers of the pool.
+	 */
+	private static class ScoringTask extends RecursiveTask<List<DuplicatePair>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<List<PersonSimilarity>> blocks;
+		private final int from;
+		private final int to;
+		private final double threshold;
+
+		ScoringTask(List<List<PersonSimilarity>> blocks, int from, int to, double threshold) {
+			this.blocks = blocks;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected List<DuplicatePair> compute() {
+			if (to - from <= SCORING_THRESHOLD) {
+				List<DuplicatePair> pairs = new ArrayList<>();
+				for (int i = from; i < to; i++) {
+					pairs.addAll(scoreBlock(blocks.get(i), threshold));
+				}
+				return pairs;
+			}
+			int middle = (from + to) >>> 1;
+			ScoringTask left = new ScoringTask(blocks, from, middle, threshold);
+			left.fork();
+			List<DuplicatePair> pairs = new ScoringTask(blocks, middle, to, threshold).compute();
+			List<DuplicatePair> leftPairs = left.join();
+			leftPairs.addAll(pairs);
+			return leftPairs;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package isen.project.dedupe;
+
+import isen.project.model.Person;
+
+/**
+ * Two persons found likely to be the same contact, with the similarity that made them a pair.
+ */
+public class DuplicatePair {
+
+	private final Person first;
+	private final Person second;
+	private final double score;
+
+	DuplicatePair(Person first, Person second, double score) {
+		this.first = first;
+		this.second = second;
+		this.score = score;
+	}
+
+	/**
+	 * @return the person with the smaller ID, usually the one to keep
+	 */
+	public Person getFirst() {
+		return first;
+	}
+
+	/**
+	 * @return the person with the larger ID
+	 */
+	public Person getSecond() {
+		return second;
+	}
+
+	/**
+	 * @return the similarity of the two persons, between 0 and 1
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d ~ %d (%.2f)", first.getIdperson(), second.getIdperson(), score);
+	}
+}
@@ -0,0 +1,139 @@
+package isen.project.dedupe;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import isen.project.db.NameKeys;
+import isen.project.model.Person;
+
+/**
+ * A person reduced to the normalized values it is compared on, computed once so that
+ * comparing two persons only compares strings.
+ * The score weighs the agreement of the names, email address, phone number and birth date;
+ * a value missing on either side is left out of the score rather than counted as a difference.
+ */
+class PersonSimilarity {
+
+	// Weight of each value in the score
+	private static final double NAME_WEIGHT = 0.30;
+	private static final double EMAIL_WEIGHT = 0.30;
+	private static final double PHONE_WEIGHT = 0.25;
+	private static final double BIRTH_DATE_WEIGHT = 0.15;
+
+	// Digits kept at the end of the phone numbers, so "+33 6 12..." and "06 12..." are the same number
+	private static final int PHONE_DIGITS = 9;
+
+	// Phone numbers with fewer digits are too short to tell persons apart
+	private static final int MIN_PHONE_DIGITS = 6;
+
+	final Person person;
+	final String lastname;
+	final String firstname;
+	final String email;
+	final String phone;
+	final LocalDate birthDate;
+
+	PersonSimilarity(Person person) {
+		this.person = person;
+		this.lastname = String.join(" ", NameKeys.words(person.getLastname()));
+		this.firstname = String.join(" ", NameKeys.words(person.getFirstname()));
+		this.email = normalizeEmail(person.getEmailAddress());
+		this.phone = normalizePhone(person.getPhoneNumber());
+		this.birthDate = person.getBirthDate();
+	}
+
+	/**
+	 * @return the normalized email address, null if there is none
+	 */
+	static String normalizeEmail(String email) {
+		if (email == null || email.trim().isEmpty()) {
+			return null;
+		}
+		return email.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @return the last digits of the phone number, null if it is missing or too short
+	 */
+	static String normalizePhone(String phone) {
+		if (phone == null) {
+			return null;
+		}
+		StringBuilder digits = new StringBuilder(phone.length());
+		for (int i = 0; i < phone.length(); i++) {
+			char c = phone.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits.append(c);
+			}
+		}
+		if (digits.length() < MIN_PHONE_DIGITS) {
+			return null;
+		}
+		return digits.length() > PHONE_DIGITS ? digits.substring(digits.length() - PHONE_DIGITS) : digits.toString();
+	}
+
+	/**
+	 * @return the keys of the blocks this person is compared within: its email address, its
+	 *         phone number, and the phonetic codes of its lastname and firstname
+	 */
+	List<String> blockingKeys() {
+		List<String> keys = new ArrayList<>(3);
+		if (email != null) {
+			keys.add("e:" + email);
+		}
+		if (phone != null) {
+			keys.add("p:" + phone);
+		}
+		List<String> lastnameWords = NameKeys.words(lastname);
+		List<String> firstnameWords = NameKeys.words(firstname);
+		String lastnameCode = lastnameWords.isEmpty() ? null : NameKeys.soundex(lastnameWords.get(0));
+		String firstnameCode = firstnameWords.isEmpty() ? null : NameKeys.soundex(firstnameWords.get(0));
+		if (lastnameCode != null) {
+			keys.add("n:" + lastnameCode + (firstnameCode == null ? "" : firstnameCode));
+		}
+		return keys;
+	}
+
+	/**
+	 * @return the key the persons of a large block are sorted by, so that similar names are neighbours
+	 */
+	String sortKey() {
+		return lastname + " " + firstname;
+	}
+
+	/**
+	 * Method to compute how likely two persons are the same contact.
+	 * @param other The other person.
+	 * @return the score, between 0 (nothing in common) and 1 (every known value agrees)
+	 */
+	double score(PersonSimilarity other) {
+		double total = NAME_WEIGHT * (similarity(lastname, other.lastname) + similarity(firstname, other.firstname)) / 2;
+		double weights = NAME_WEIGHT;
+		if (email != null && other.email != null) {
+			total += email.equals(other.email) ? EMAIL_WEIGHT : 0;
+			weights += EMAIL_WEIGHT;
+		}
+		if (phone != null && other.phone != null) {
+			total += phone.equals(other.phone) ? PHONE_WEIGHT : 0;
+			weights += PHONE_WEIGHT;
+		}
+		if (birthDate != null && other.birthDate != null) {
+			total += birthDate.equals(other.birthDate) ? BIRTH_DATE_WEIGHT : 0;
+			weights += BIRTH_DATE_WEIGHT;
+		}
+		return total / weights;
+	}
+
+	/**
+	 * @return 1 minus the edit distance between two names relative to the longest one
+	 */
+	static double similarity(String a, String b) {
+		int length = Math.max(a.length(), b.length());
+		if (length == 0) {
+			return 1;
+		}
+		return 1 - (double) NameKeys.distance(a, b) / length;
+	}
+}
@@ -0,0 +1,737 @@
+package isen.project.http;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import isen.project.db.AsyncPersonDao;
+import isen.project.db.ConnectionPool;
+import isen.project.db.DataSourceFactory;
+import isen.project.db.OptimisticLockException;
+import isen.project.db.PageKey;
+import isen.project.db.PersonDao;
+import isen.project.db.PersonPage;
+import isen.project.db.PersonSortColumn;
+import isen.project.db.PoolStats;
+import isen.project.db.SortDirection;
+import isen.project.io.PersonNormalizer;
+import isen.project.metrics.HistogramSnapshot;
+import isen.project.metrics.MetricsRegistry;
+import isen.project.metrics.OperationStats;
+import isen.project.metrics.OperationTimer;
+import isen.project.model.Person;
+
+/**
+ * Embedded HTTP server giving other tools access to the persons as JSON (see {@link PersonJson}).
+ * <pre>
+ * GET    /persons?sort=lastname&amp;direction=asc&amp;limit=50&amp;after=cursor   a page, with the cursor of the next one
+ * GET    /persons?q=words[&amp;fuzzy=true][&amp;limit=n]                      the persons matching the words
+ * GET    /persons/export                                              every person, streamed as a JSON array
+ * GET    /persons/{id}                                                one person
+ * POST   /persons                                                     creates a person, 201 with its Location
+ * PUT    /persons/{id}                                                replaces a person
+ * DELETE /persons/{id}                                                deletes a person, 204
+ * GET    /metrics                                                     latency and throughput of the operations
+ * </pre>
+ * Pages, searches and single persons carry an ETag computed from their content: a GET with
+ * a matching If-None-Match is answered with 304 and no body, and a PUT or DELETE with an
+ * If-Match that no longer matches fails with 412. A PUT only writes the fields that differ,
+ * and only if the row still has the version that was checked, so two clients updating the
+ * same person cannot both succeed from the same ETag. The export is read in batches of rows
+ * by ID, written to the client as they are read, so its size does not matter; a reader
+ * connection is only held while a batch is read, so slow clients do not hold them all.
+ * Requests are handled on virtual threads, or on a pool of worker threads before Java 21;
+ * reads run on the reader connections of the {@link ConnectionPool}, so they do not wait for
+ * each other nor for the writer.
+ */
+public class PersonApiServer implements AutoCloseable {
+
+	static final int DEFAULT_PAGE_SIZE = 50;
+	static final int MAX_PAGE_SIZE = 1000;
+	static final int MAX_UPDATE_ATTEMPTS = 5;
+
+	// Largest request body accepted, a person is far smaller
+	private static final int MAX_BODY_SIZE = 64 * 1024;
+	// Connections waiting to be accepted, for bursts of clients
+	private static final int BACKLOG = 1024;
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	private static final String JSON = "application/json; charset=utf-8";
+
+	private static final Logger LOGGER = Logger.getLogger(PersonApiServer.class.getName());
+
+	// Time taken to answer each kind of request, errors being the 5xx responses
+	private static final OperationTimer LIST_TIMER = MetricsRegistry.getDefault().timer("PersonApiServer.listPersons");
+	private static final OperationTimer SEARCH_TIMER = MetricsRegistry.getDefault().timer("PersonApiServer.searchPersons");
+	private static final OperationTimer EXPORT_TIMER = MetricsRegistry.getDefault().timer("PersonApiServer.exportPersons");
+	private static final OperationTimer GET_TIMER = MetricsRegistry.getDefault().timer("PersonApiServer.getPerson");
+	private static final OperationTimer CREATE_TIMER = MetricsRegistry.getDefault().timer("PersonApiServer.createPerson");
+	private static final OperationTimer UPDATE_TIMER = MetricsRegistry.getDefault().timer("PersonApiServer.updatePerson");
+	private static final OperationTimer DELETE_TIMER = MetricsRegistry.getDefault().timer("PersonApiServer.deletePerson");
+	private static final OperationTimer OTHER_TIMER = MetricsRegistry.getDefault().timer("PersonApiServer.other");
+
+	private final PersonDao personDao;
+	private final HttpServer server;
+	private final ExecutorService workers;
+
+	// Throughput of the server since it started
+	private final long startNanos = System.nanoTime();
+	private final LongAdder requestCount = new LongAdder();
+	private final LongAdder notModifiedCount = new LongAdder();
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * Creates a server, which accepts no request until it is started.
+	 * @param personDao The DAO of the database served.
+	 * @param address The address to listen on, port 0 for any free port.
+	 * @param threads The number of requests handled at the same time before Java 21; from
+	 *        Java 21 on, each request runs on its own virtual thread.
+	 * @throws IOException if the address cannot be bound.
+	 */
+	public PersonApiServer(PersonDao personDao, InetSocketAddress address, int threads) throws IOException {
+		this.personDao = personDao;
+		// A request waiting for a connection or a slow client then costs no platform thread
+		this.workers = AsyncPersonDao.newVirtualThreadExecutor("http-worker", threads);
+		this.server = HttpServer.create(address, BACKLOG);
+		server.setExecutor(workers);
+		server.createContext("/persons", exchange -> handle(exchange, this::handlePersons));
+		server.createContext("/metrics", exchange -> handle(exchange, this::handleMetrics));
+	}
+
+	/**
+	 * Method to start accepting requests, on a background thread.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops accepting requests, waits a second for those in progress and stops the workers.
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		workers.shutdown();
+		try {
+			workers.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Runs a server until the process is stopped.
+	 * Usage: {@code PersonApiServer [--db database.db] [--host 127.0.0.1] [--port 8080] [--threads 64]}
+	 * Reads run on as many connections as the pool has readers, see the {@code isen.db.pool.readers} property.
+	 * @param args The command line options.
+	 * @throws Exception if the server cannot start.
+	 */
+	public static void main(String[] args) throws Exception {
+		String host = "127.0.0.1";
+		int port = 8080;
+		int threads = 64;
+		ConnectionPool pool = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--db":
+				pool = DataSourceFactory.createConnectionPool("jdbc:sqlite:" + Paths.get(args[++i]).toAbsolutePath());
+				break;
+			case "--host":
+				host = args[++i];
+				break;
+			case "--port":
+				port = Integer.parseInt(args[++i]);
+				break;
+			case "--threads":
+				threads = Integer.parseInt(args[++i]);
+				break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.err.println("Usage: PersonApiServer [--db <file>] [--host <address>] [--port <port>] [--threads <count>]");
+				System.exit(2);
+			}
+		}
+		ConnectionPool connectionPool = pool != null ? pool : DataSourceFactory.getConnectionPool();
+		PersonDao personDao = new PersonDao(connectionPool);
+		personDao.initDb();
+		// The requests are served while the names written by other programs are indexed
+		new AsyncPersonDao(personDao, Runnable::run).indexMissingFuzzyKeys().exceptionally(e -> {
+			LOGGER.log(Level.WARNING, "Could not index the names for the fuzzy search", e);
+			return 0;
+		});
+		MetricsRegistry.getDefault().registerMBeans(ManagementFactory.getPlatformMBeanServer());
+		PersonApiServer apiServer = new PersonApiServer(personDao, new InetSocketAddress(InetAddress.getByName(host), port), threads);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			apiServer.close();
+			connectionPool.close();
+		}));
+		apiServer.start();
+		LOGGER.info("Serving the persons on http://" + host + ":" + apiServer.getPort() + "/persons");
+	}
+
+	/**
+	 * Handles a request, returning the status of the response.
+	 */
+	@FunctionalInterface
+	private interface Handler {
+		int handle(HttpExchange exchange, Request request) throws Exception;
+	}
+
+	/**
+	 * What a request asks for, as parsed from its URL, and the timer measuring its handling.
+	 */
+	private static class Request {
+
+		final String method;
+		final String path;
+		final Map<String, String> query;
+		OperationTimer timer = OTHER_TIMER;
+
+		Request(HttpExchange exchange, String context) {
+			method = exchange.getRequestMethod();
+			path = exchange.getRequestURI().getPath().substring(context.length());
+			query = parseQuery(exchange.getRequestURI().getRawQuery());
+		}
+	}
+
+	/**
+	 * Runs a handler, turning its failures into JSON error responses, and measures it.
+	 */
+	private void handle(HttpExchange exchange, Handler handler) {
+		long start = System.nanoTime();
+		requestCount.increment();
+		inFlight.incrementAndGet();
+		int status = 500;
+		Request request = null;
+		try {
+			request = new Request(exchange, exchange.getHttpContext().getPath());
+			status = handler.handle(exchange, request);
+		} catch (ApiException e) {
+			status = sendError(exchange, e.status, e.getMessage());
+		} catch (IllegalArgumentException e) {
+			status = sendError(exchange, 400, e.getMessage());
+		} catch (Exception e) {
+			LOGGER.log(Level.WARNING, "Could not answer " + exchange.getRequestMethod() + " " + exchange.getRequestURI(), e);
+			sendError(exchange, 500, "Internal error");
+		} finally {
+			exchange.close();
+			inFlight.decrementAndGet();
+			(request != null ? request.timer : OTHER_TIMER).record(System.nanoTime() - start, status < 500);
+		}
+	}
+
+	private int handlePersons(HttpExchange exchange, Request request) throws Exception {
+		if (request.path.isEmpty() || request.path.equals("/")) {
+			switch (request.method) {
+			case "GET":
+				return request.query.containsKey("q") ? searchPersons(exchange, request) : listPersons(exchange, request);
+			case "POST":
+				return createPerson(exchange, request);
+			default:
+				throw methodNotAllowed(exchange, "GET, POST");
+			}
+		}
+		if (request.path.equals("/export")) {
+			if (!request.method.equals("GET")) {
+				throw methodNotAllowed(exchange, "GET");
+			}
+			return exportPersons(exchange, request);
+		}
+		int id;
+		try {
+			id = Integer.parseInt(request.path.substring(1));
+		} catch (NumberFormatException e) {
+			throw new ApiException(404, "No such resource " + exchange.getRequestURI().getPath());
+		}
+		switch (request.method) {
+		case "GET":
+			return getPerson(exchange, request, id);
+		case "PUT":
+			return updatePerson(exchange, request, id);
+		case "DELETE":
+			return deletePerson(exchange, request, id);
+		default:
+			throw methodNotAllowed(exchange, "GET, PUT, DELETE");
+		}
+	}
+
+	private int listPersons(HttpExchange exchange, Request request) throws Exception {
+		request.timer = LIST_TIMER;
+		PersonSortColumn sortColumn = parseSortColumn(request.query.getOrDefault("sort", "idperson"));
+		SortDirection direction = parseDirection(request.query.getOrDefault("direction", "asc"));
+		int limit = parseLimit(request.query.get("limit"), DEFAULT_PAGE_SIZE);
+		String after = request.query.get("after");
+		PersonPage page = personDao.page(sortColumn, direction, after == null ? null : decodeCursor(after), limit);
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (Writer out = new OutputStreamWriter(body, StandardCharsets.UTF_8)) {
+			out.write("{\"persons\":");
+			writePersons(out, page.getPersons());
+			out.write(",\"next\":");
+			PersonJson.writeString(out, page.hasNext() ? encodeCursor(page.getNextKey()) : null);
+			out.write('}');
+		}
+		return sendCacheable(exchange, body.toByteArray());
+	}
+
+	private int searchPersons(HttpExchange exchange, Request request) throws Exception {
+		request.timer = SEARCH_TIMER;
+		String input = request.query.get("q");
+		int limit = parseLimit(request.query.get("limit"), PersonDao.SEARCH_LIMIT);
+		List<Person> persons = Boolean.parseBoolean(request.query.get("fuzzy"))
+				? personDao.fuzzySearchPersons(input, limit)
+				: personDao.searchPersons(input, limit);
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (Writer out = new OutputStreamWriter(body, StandardCharsets.UTF_8)) {
+			out.write("{\"persons\":");
+			writePersons(out, persons);
+			out.write('}');
+		}
+		return sendCacheable(exchange, body.toByteArray());
+	}
+
+	/**
+	 * Streams every person as a JSON array, a batch of rows at a time, as they are read.
+	 */
+	private int exportPersons(HttpExchange exchange, Request request) throws Exception {
+		request.timer = EXPORT_TIMER;
+		// The first batch is read before the headers, so a failing query is still answered with 500
+		PersonPage page = personDao.page(PersonSortColumn.ID, SortDirection.ASCENDING, null, MAX_PAGE_SIZE);
+		exchange.getResponseHeaders().set("Content-Type", JSON);
+		exchange.sendResponseHeaders(200, 0);
+		// Once the headers are sent a failure can only cut the response, which the client sees as truncated
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+				WRITE_BUFFER_SIZE)) {
+			out.write('[');
+			boolean first = true;
+			while (true) {
+				for (Person person : page.getPersons()) {
+					if (!first) {
+						out.write(',');
+					}
+					PersonJson.write(out, person);
+					first = false;
+				}
+				if (page.getNextKey() == null) {
+					break;
+				}
+				// No connection is held while the client reads the batch
+				page = personDao.page(PersonSortColumn.ID, SortDirection.ASCENDING, page.getNextKey(), MAX_PAGE_SIZE);
+			}
+			out.write(']');
+		}
+		return 200;
+	}
+
+	private int getPerson(HttpExchange exchange, Request request, int id) throws Exception {
+		request.timer = GET_TIMER;
+		return sendCacheable(exchange, toJson(findPerson(id)));
+	}
+
+	private int createPerson(HttpExchange exchange, Request request) throws Exception {
+		request.timer = CREATE_TIMER;
+		Person person = readPerson(exchange);
+		if (personDao.insertPerson(person) == null) {
+			throw new SQLException("The person could not be inserted");
+		}
+		byte[] body = toJson(person);
+		exchange.getResponseHeaders().set("Location", "/persons/" + person.getIdperson());
+		exchange.getResponseHeaders().set("ETag", etagOf(body));
+		return send(exchange, 201, body);
+	}
+
+	private int updatePerson(HttpExchange exchange, Request request, int id) throws Exception {
+		request.timer = UPDATE_TIMER;
+		Person person = readPerson(exchange);
+		boolean conditional = exchange.getRequestHeaders().getFirst("If-Match") != null;
+		for (int attempt = 1;; attempt++) {
+			Person current = findPerson(id);
+			checkIfMatch(exchange, current);
+			// Only the changed columns are written, and only if nobody wrote the row since it was read
+			Person edited = new Person(current);
+			copyFields(person, edited);
+			try {
+				personDao.updatePersonIfUnchanged(edited);
+				return send(exchange, 200, withETag(exchange, toJson(edited)));
+			} catch (OptimisticLockException e) {
+				if (e.isDeleted()) {
+					throw new ApiException(404, "No person with ID " + id);
+				}
+				if (conditional) {
+					throw new ApiException(412, "The person was changed since it was read");
+				}
+				if (attempt == MAX_UPDATE_ATTEMPTS) {
+					throw new ApiException(409, "The person keeps being changed, try again later");
+				}
+				// An unconditional update applies to the latest version: read it again
+			}
+		}
+	}
+
+	private int deletePerson(HttpExchange exchange, Request request, int id) throws Exception {
+		request.timer = DELETE_TIMER;
+		if (exchange.getRequestHeaders().getFirst("If-Match") == null) {
+			if (personDao.deletePersons(Collections.singletonList(id)) == 0) {
+				throw new ApiException(404, "No person with ID " + id);
+			}
+		} else {
+			Person current = findPerson(id);
+			checkIfMatch(exchange, current);
+			// Deletes the row only if it still has the version whose ETag matched
+			try {
+				personDao.deletePersonIfUnchanged(id, current.getVersion());
+			} catch (OptimisticLockException e) {
+				if (e.isDeleted()) {
+					throw new ApiException(404, "No person with ID " + id);
+				}
+				throw new ApiException(412, "The person was changed since it was read");
+			}
+		}
+		exchange.sendResponseHeaders(204, -1);
+		return 204;
+	}
+
+	/**
+	 * Answers with the latency percentiles and counts of every operation of the application,
+	 * the throughput of the server and the state of the connection pool.
+	 */
+	private int handleMetrics(HttpExchange exchange, Request request) throws Exception {
+		if (!request.method.equals("GET")) {
+			throw methodNotAllowed(exchange, "GET");
+		}
+		double uptimeSeconds = (System.nanoTime() - startNanos) / 1e9;
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (Writer out = new OutputStreamWriter(body, StandardCharsets.UTF_8)) {
+			out.write(String.format(Locale.ROOT, "{\"uptimeSeconds\":%.3f,\"requests\":%d,\"requestsPerSecond\":%.3f,"
+					+ "\"notModified\":%d,\"inFlight\":%d", uptimeSeconds, requestCount.sum(),
+					requestCount.sum() / Math.max(uptimeSeconds, 1e-3), notModifiedCount.sum(), inFlight.get()));
+			PoolStats pool = personDao.getConnectionPool().getStats();
+			out.write(String.format(Locale.ROOT, ",\"pool\":{\"activeReaders\":%d,\"activeWriters\":%d,\"idle\":%d,"
+					+ "\"borrows\":%d,\"averageBorrowWaitMs\":%.3f,\"maxBorrowWaitMs\":%.3f}", pool.getActiveReaders(),
+					pool.getActiveWriters(), pool.getIdleCount(), pool.getBorrowCount(),
+					pool.getAverageBorrowWaitNanos() / 1e6, pool.getMaxBorrowWaitNanos() / 1e6));
+			out.write(",\"operations\":[");
+			boolean first = true;
+			for (OperationStats stats : MetricsRegistry.getDefault().getStats()) {
+				if (!first) {
+					out.write(',');
+				}
+				writeStats(out, stats, uptimeSeconds);
+				first = false;
+			}
+			out.write("]}");
+		}
+		return send(exchange, 200, body.toByteArray());
+	}
+
+	private static void writeStats(Writer out, OperationStats stats, double uptimeSeconds) throws IOException {
+		HistogramSnapshot latency = stats.getLatency();
+		out.write("{\"name\":");
+		PersonJson.writeString(out, stats.getName());
+		out.write(String.format(Locale.ROOT, ",\"count\":%d,\"errors\":%d,\"perSecond\":%.3f,\"rowsScanned\":%d,"
+				+ "\"rowsReturned\":%d,\"meanMs\":%.3f,\"p50Ms\":%.3f,\"p99Ms\":%.3f,\"p999Ms\":%.3f,\"maxMs\":%.3f}",
+				stats.getCount(), stats.getErrorCount(), stats.getCount() / Math.max(uptimeSeconds, 1e-3),
+				stats.getRowsScanned(), stats.getRowsReturned(), latency.getMeanNanos() / 1e6,
+				latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6,
+				latency.getValueAtPercentile(99.9) / 1e6, latency.getMaxNanos() / 1e6));
+	}
+
+	private Person findPerson(int id) throws SQLException, ApiException {
+		Person person = personDao.getPerson(id);
+		if (person == null) {
+			throw new ApiException(404, "No person with ID " + id);
+		}
+		return person;
+	}
+
+	/**
+	 * Reads and validates the person sent in the body of a request.
+	 */
+	private static Person readPerson(HttpExchange exchange) throws IOException, ApiException {
+		byte[] body;
+		try (InputStream in = exchange.getRequestBody()) {
+			body = in.readNBytes(MAX_BODY_SIZE + 1);
+		}
+		if (body.length > MAX_BODY_SIZE) {
+			throw new ApiException(413, "The body is larger than " + MAX_BODY_SIZE + " bytes");
+		}
+		Person person = PersonJson.read(new String(body, StandardCharsets.UTF_8));
+		String rejection = PersonNormalizer.normalize(person);
+		if (rejection != null) {
+			throw new ApiException(400, rejection);
+		}
+		return person;
+	}
+
+	/**
+	 * Sets the fields of a person to those of another one, through the setters, so only the
+	 * fields that differ are marked as changed.
+	 */
+	private static void copyFields(Person from, Person to) {
+		to.setLastname(from.getLastname());
+		to.setFirstname(from.getFirstname());
+		to.setNickname(from.getNickname());
+		to.setPhoneNumber(from.getPhoneNumber());
+		to.setAddress(from.getAddress());
+		to.setEmailAddress(from.getEmailAddress());
+		to.setBirthDate(from.getBirthDate());
+	}
+
+	/**
+	 * Fails with 412 if the request only applies to another version of the person.
+	 */
+	private static void checkIfMatch(HttpExchange exchange, Person current) throws IOException, ApiException {
+		String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+		if (ifMatch != null && !matches(ifMatch, etagOf(toJson(current)))) {
+			throw new ApiException(412, "The person was changed since it was read");
+		}
+	}
+
+	/**
+	 * Sends a body with its ETag, or 304 without the body if the client already has it.
+	 */
+	private int sendCacheable(HttpExchange exchange, byte[] body) throws IOException {
+		String etag = etagOf(body);
+		exchange.getResponseHeaders().set("ETag", etag);
+		String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+		if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+			notModifiedCount.increment();
+			exchange.sendResponseHeaders(304, -1);
+			return 304;
+		}
+		return send(exchange, 200, body);
+	}
+
+	private static byte[] withETag(HttpExchange exchange, byte[] body) {
+		exchange.getResponseHeaders().set("ETag", etagOf(body));
+		return body;
+	}
+
+	private static int send(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", JSON);
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+		return status;
+	}
+
+	private static int sendError(HttpExchange exchange, int status, String message) {
+		try {
+			StringBuilder body = new StringBuilder("{\"error\":");
+			PersonJson.writeString(body, message);
+			send(exchange, status, body.append('}').toString().getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			// The client is gone, or the headers were already sent by a streamed response
+			LOGGER.log(Level.FINE, "Could not send the error " + status, e);
+		}
+		return status;
+	}
+
+	private static ApiException methodNotAllowed(HttpExchange exchange, String allowed) {
+		exchange.getResponseHeaders().set("Allow", allowed);
+		return new ApiException(405, "Method " + exchange.getRequestMethod() + " not allowed");
+	}
+
+	private static void writePersons(Writer out, List<Person> persons) throws IOException {
+		out.write('[');
+		for (int i = 0; i < persons.size(); i++) {
+			if (i > 0) {
+				out.write(',');
+			}
+			PersonJson.write(out, persons.get(i));
+		}
+		out.write(']');
+	}
+
+	private static byte[] toJson(Person person) throws IOException {
+		StringBuilder json = new StringBuilder();
+		PersonJson.write(json, person);
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Method to compute the strong ETag of a response body.
+	 * @param body The body.
+	 * @return the ETag, quoted
+	 */
+	static String etagOf(byte[] body) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+			StringBuilder etag = new StringBuilder("\"");
+			// 128 bits are plenty to tell the versions of a resource apart
+			for (int i = 0; i < 16; i++) {
+				etag.append(String.format("%02x", digest[i]));
+			}
+			return etag.append('"').toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is always available", e);
+		}
+	}
+
+	/**
+	 * @return true if a list of ETags from an If-Match or If-None-Match header holds the given one
+	 */
+	private static boolean matches(String header, String etag) {
+		for (String candidate : header.split(",")) {
+			String value = candidate.trim();
+			if (value.startsWith("W/")) {
+				value = value.substring(2);
+			}
+			if (value.equals("*") || value.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Method to write the key of a page as an opaque cursor, safe in a URL.
+	 * @param key The key of the last row of a page.
+	 * @return the cursor
+	 */
+	static String encodeCursor(PageKey key) {
+		Object value = key.getSortValue();
+		String typed;
+		if (value == null) {
+			typed = "n";
+		} else if (value instanceof Integer || value instanceof Long) {
+			typed = "l" + value;
+		} else if (value instanceof Double || value instanceof Float) {
+			typed = "d" + value;
+		} else {
+			typed = "s" + value;
+		}
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((key.getIdperson() + ":" + typed).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Method to read a cursor written by {@link #encodeCursor(PageKey)}.
+	 * @param cursor The cursor.
+	 * @return the key of the page it stands for
+	 * @throws IllegalArgumentException if the cursor is not valid.
+	 */
+	static PageKey decodeCursor(String cursor) {
+		try {
+			String text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int separator = text.indexOf(':');
+			int id = Integer.parseInt(text.substring(0, separator));
+			char type = text.charAt(separator + 1);
+			String value = text.substring(separator + 2);
+			switch (type) {
+			case 'n':
+				return new PageKey(null, id);
+			case 'l':
+				return new PageKey(Long.valueOf(value), id);
+			case 'd':
+				return new PageKey(Double.valueOf(value), id);
+			case 's':
+				return new PageKey(value, id);
+			default:
+				throw new IllegalArgumentException("Unknown cursor type " + type);
+			}
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid cursor " + cursor);
+		}
+	}
+
+	private static PersonSortColumn parseSortColumn(String column) {
+		for (PersonSortColumn sortColumn : PersonSortColumn.values()) {
+			if (sortColumn.getColumn().equals(column)) {
+				return sortColumn;
+			}
+		}
+		throw new IllegalArgumentException("Cannot sort on " + column);
+	}
+
+	private static SortDirection parseDirection(String direction) {
+		switch (direction.toLowerCase(Locale.ROOT)) {
+		case "asc":
+			return SortDirection.ASCENDING;
+		case "desc":
+			return SortDirection.DESCENDING;
+		default:
+			throw new IllegalArgumentException("The direction is asc or desc, not " + direction);
+		}
+	}
+
+	private static int parseLimit(String limit, int defaultLimit) {
+		if (limit == null) {
+			return defaultLimit;
+		}
+		try {
+			int value = Integer.parseInt(limit);
+			if (value > 0 && value <= MAX_PAGE_SIZE) {
+				return value;
+			}
+		} catch (NumberFormatException e) {
+			// Reported below
+		}
+		throw new IllegalArgumentException("The limit is a number from 1 to " + MAX_PAGE_SIZE + ", not " + limit);
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> parameters = new HashMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return parameters;
+		}
+		for (String parameter : rawQuery.split("&")) {
+			int equals = parameter.indexOf('=');
+			String name = equals < 0 ? parameter : parameter.substring(0, equals);
+			String value = equals < 0 ? "" : parameter.substring(equals + 1);
+			parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+					URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return parameters;
+	}
+
+	/**
+	 * Failure answered with a given HTTP status.
+	 */
+	private static class ApiException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int status;
+
+		ApiException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package isen.project.http;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import isen.project.model.Person;
+
+/**
+ * Reads and writes persons as JSON objects whose members are named after the columns
+ * of the 'person' table, as in {@code {"idperson":1,"lastname":"Smith",...,"birth_date":"1990-01-02","version":1}}.
+ * Persons are written straight to the output, and only flat objects of strings, numbers
+ * and nulls are read, which is all the API exchanges.
+ */
+class PersonJson {
+
+	private PersonJson() {
+		throw new IllegalStateException("This is a static class that should not be instantiated");
+	}
+
+	/**
+	 * Method to write a person as a JSON object.
+	 * @param out Where the object is written.
+	 * @param person The person.
+	 * @throws IOException if the output cannot be written.
+	 */
+	static void write(Appendable out, Person person) throws IOException {
+		out.append("{\"idperson\":").append(Integer.toString(person.getIdperson()));
+		writeMember(out, "lastname", person.getLastname());
+		writeMember(out, "firstname", person.getFirstname());
+		writeMember(out, "nickname", person.getNickname());
+		writeMember(out, "phone_number", person.getPhoneNumber());
+		writeMember(out, "address", person.getAddress());
+		writeMember(out, "email_address", person.getEmailAddress());
+		writeMember(out, "birth_date", person.getBirthDate() == null ? null : person.getBirthDate().toString());
+		out.append(",\"version\":").append(Integer.toString(person.getVersion()));
+		out.append('}');
+	}
+
+	private static void writeMember(Appendable out, String name, String value) throws IOException {
+		out.append(",\"").append(name).append("\":");
+		writeString(out, value);
+	}
+
+	/**
+	 * Method to write a JSON string, or null.
+	 * @param out Where the string is written.
+	 * @param value The string, may be null.
+	 * @throws IOException if the output cannot be written.
+	 */
+	static void writeString(Appendable out, String value) throws IOException {
+		if (value == null) {
+			out.append("null");
+			return;
+		}
+		out.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				} else {
+					out.append(c);
+				}
+			}
+		}
+		out.append('"');
+	}
+
+	/**
+	 * Method to read a person from a JSON object. Missing members are left null,
+	 * and the ID and version, if present, are ignored: they come from the URL and the If-Match header.
+	 * @param json The JSON object.
+	 * @return the person, not yet validated
+	 * @throws IllegalArgumentException if the text is not a flat JSON object or a member has the wrong type.
+	 */
+	static Person read(String json) {
+		Map<String, Object> members = new Parser(json).readObject();
+		Person person = new Person();
+		person.setLastname(text(members, "lastname"));
+		person.setFirstname(text(members, "firstname"));
+		person.setNickname(text(members, "nickname"));
+		person.setPhoneNumber(text(members, "phone_number"));
+		person.setAddress(text(members, "address"));
+		person.setEmailAddress(text(members, "email_address"));
+		String birthDate = text(members, "birth_date");
+		if (birthDate != null && !birthDate.isEmpty()) {
+			try {
+				person.setBirthDate(LocalDate.parse(birthDate));
+			} catch (DateTimeParseException e) {
+				throw new IllegalArgumentException("Invalid birth_date, expected yyyy-MM-dd: " + birthDate);
+			}
+		}
+		return person;
+	}
+
+	private static String text(Map<String, Object> members, String name) {
+		Object value = members.get(name);
+		if (value == null || value instanceof String) {
+			return (String) value;
+		}
+		if (value instanceof Number) {
+			// Phone numbers sent as numbers
+			return value.toString();
+		}
+		throw new IllegalArgumentException("Expected a string for " + name);
+	}
+
+	/**
+	 * Reads a flat JSON object.
+	 */
+	private static class Parser {
+
+		private final String text;
+		private int position;
+
+		Parser(String text) {
+			this.text = text;
+		}
+
+		Map<String, Object> readObject() {
+			Map<String, Object> members = new LinkedHashMap<>();
+			expect('{');
+			if (peek() == '}') {
+				position++;
+			} else {
+				do {
+					String name = readString();
+					expect(':');
+					members.put(name, readValue());
+				} while (next() == ',');
+				position--;
+				expect('}');
+			}
+			if (skipWhitespace() < text.length()) {
+				throw error("Unexpected content after the object");
+			}
+			return members;
+		}
+
+		private Object readValue() {
+			char c = peek();
+			if (c == '"') {
+				return readString();
+			}
+			if (text.startsWith("null", position)) {
+				position += 4;
+				return null;
+			}
+			if (text.startsWith("true", position) || text.startsWith("false", position)) {
+				throw error("Unexpected boolean");
+			}
+			int start = position;
+			while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+				position++;
+			}
+			if (start == position) {
+				throw error("Unexpected value");
+			}
+			try {
+				String number = text.substring(start, position);
+				return number.matches("-?[0-9]+") ? (Number) Long.valueOf(number) : (Number) Double.valueOf(number);
+			} catch (NumberFormatException e) {
+				throw error("Invalid number");
+			}
+		}
+
+		private String readString() {
+			expect('"');
+			StringBuilder value = new StringBuilder();
+			while (position < text.length()) {
+				char c = text.charAt(position++);
+				if (c == '"') {
+					return value.toString();
+				}
+				if (c != '\\') {
+					value.append(c);
+					continue;
+				}
+				if (position >= text.length()) {
+					break;
+				}
+				char escaped = text.charAt(position++);
+				switch (escaped) {
+				case 'b':
+					value.append('\b');
+					break;
+				case 'f':
+					value.append('\f');
+					break;
+				case 'n':
+					value.append('\n');
+					break;
+				case 'r':
+					value.append('\r');
+					break;
+				case 't':
+					value.append('\t');
+					break;
+				case 'u':
+					if (position + 4 > text.length()) {
+						throw error("Truncated escape");
+					}
+					try {
+						value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Invalid escape");
+					}
+					position += 4;
+					break;
+				default:
+					value.append(escaped);
+				}
+			}
+			throw error("Unterminated string");
+		}
+
+		private void expect(char expected) {
+			if (next() != expected) {
+				throw error("Expected '" + expected + "'");
+			}
+		}
+
+		private char next() {
+			char c = peek();
+			position++;
+			return c;
+		}
+
+		private char peek() {
+			if (skipWhitespace() >= text.length()) {
+				throw error("Unexpected end of the JSON");
+			}
+			return text.charAt(position);
+		}
+
+		private int skipWhitespace() {
+			while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+				position++;
+			}
+			return position;
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at character " + position);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package isen.project.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader of CSV records (RFC 4180) from a channel.
+ * The input is decoded through fixed size buffers, so the memory used does not depend on
+ * the size of the file. Quoted fields may contain separators, doubled quotes and line
+ * breaks; both CRLF and LF line endings are accepted, and a leading byte order mark is skipped.
+ */
+public class CsvReader implements Closeable {
+
+	// Size of the byte and char buffers
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Longest record accepted, longer ones are reported as malformed (usually a missing closing quote)
+	static final int MAX_RECORD_LENGTH = 1024 * 1024;
+
+	private final ReadableByteChannel channel;
+	private final CharsetDecoder decoder;
+	private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+	private final StringBuilder field = new StringBuilder();
+
+	private boolean endOfInput;
+	private boolean flushed;
+	private boolean started;
+	// Character read ahead and given back, -2 when there is none
+	private int pushedBack = -2;
+	private long lineNumber = 1;
+
+	/**
+	 * Creates a reader on a channel.
+	 * @param channel The channel the CSV is read from, closed with the reader.
+	 * @param charset The encoding of the CSV, malformed bytes are replaced.
+	 */
+	public CsvReader(ReadableByteChannel channel, Charset charset) {
+		this.channel = channel;
+		this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		chars.flip();
+	}
+
+	/**
+	 * Opens a reader on a file.
+	 * @param file The CSV file.
+	 * @param charset The encoding of the file.
+	 * @return a reader to be closed by the caller
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public static CsvReader open(Path file, Charset charset) throws IOException {
+		return new CsvReader(FileChannel.open(file, StandardOpenOption.READ), charset);
+	}
+
+	/**
+	 * Method to read the next record, blank lines being skipped.
+	 * @return the next record, or null at the end of the input
+	 * @throws IOException if the input cannot be read.
+	 */
+	public Record next() throws IOException {
+		int c = read();
+		if (!started) {
+			started = true;
+			if (c == '\uFEFF') {
+				c = read();
+			}
+		}
+		while (c == '\r' || c == '\n') {
+			c = endOfLine(c);
+		}
+		if (c == -1) {
+			return null;
+		}
+		long recordLine = lineNumber;
+		List<String> fields = new ArrayList<>();
+		field.setLength(0);
+		boolean quoted = false;
+		boolean fieldStarted = false;
+		int length = 0;
+		while (true) {
+			if (++length > MAX_RECORD_LENGTH) {
+				skipLine(c);
+				return new Record(recordLine, fields, "Record longer than " + MAX_RECORD_LENGTH + " characters");
+			}
+			if (quoted) {
+				if (c == -1) {
+					fields.add(field.toString());
+					return new Record(recordLine, fields, "Unterminated quoted field");
+				}
+				if (c == '"') {
+					int following = read();
+					if (following != '"') {
+						// Closing quote, the following character is read as usual
+						quoted = false;
+						c = following;
+						continue;
+					}
+				} else if (c == '\n') {
+					lineNumber++;
+				}
+				field.append((char) c);
+				c = read();
+			} else if (c == '"' && !fieldStarted) {
+				quoted = true;
+				fieldStarted = true;
+				c = read();
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+				fieldStarted = false;
+				c = read();
+			} else if (c == '\r' || c == '\n' || c == -1) {
+				fields.add(field.toString());
+				if (c != -1) {
+					pushedBack = endOfLine(c);
+				}
+				return new Record(recordLine, fields, null);
+			} else {
+				field.append((char) c);
+				fieldStarted = true;
+				c = read();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of the line the reader is on, starting at 1
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Consumes a line break (CR, LF or CRLF).
+	 * @return the character following the line break
+	 */
+	private int endOfLine(int c) throws IOException {
+		lineNumber++;
+		int following = read();
+		if (c == '\r' && following == '\n') {
+			following = read();
+		}
+		return following;
+	}
+
+	/**
+	 * Skips the rest of a line, ignoring quotes, to resume reading after a malformed record.
+	 */
+	private void skipLine(int c) throws IOException {
+		while (c != '\r' && c != '\n' && c != -1) {
+			c = read();
+		}
+		if (c != -1) {
+			pushedBack = endOfLine(c);
+		}
+	}
+
+	private int read() throws IOException {
+		if (pushedBack != -2) {
+			int c = pushedBack;
+			pushedBack = -2;
+			return c;
+		}
+		if (!chars.hasRemaining() && !fill()) {
+			return -1;
+		}
+		return chars.get();
+	}
+
+	/**
+	 * Decodes the next characters of the channel in the char buffer.
+	 * @return false at the end of the input
+	 */
+	private boolean fill() throws IOException {
+		if (flushed) {
+			return false;
+		}
+		chars.clear();
+		while (chars.position() == 0 && !flushed) {
+			if (!endOfInput && channel.read(bytes) < 0) {
+				endOfInput = true;
+			}
+			bytes.flip();
+			CoderResult result = decoder.decode(bytes, chars, endOfInput);
+			bytes.compact();
+			if (endOfInput && !result.isOverflow()) {
+				decoder.flush(chars);
+				flushed = true;
+			}
+		}
+		chars.flip();
+		return chars.hasRemaining();
+	}
+
+	/**
+	 * A record of the CSV, with the line it starts on.
+	 */
+	public static class Record {
+
+		private final long lineNumber;
+		private final List<String> fields;
+		private final String error;
+
+		Record(long lineNumber, List<String> fields, String error) {
+			this.lineNumber = lineNumber;
+			this.fields = fields;
+			this.error = error;
+		}
+
+		/**
+		 * @return the number of the line the record starts on
+		 */
+		public long getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * @return the fields of the record, unquoted
+		 */
+		public List<String> getFields() {
+			return fields;
+		}
+
+		/**
+		 * @return why the record could not be read completely, null if it is well formed
+		 */
+		public String getError() {
+			return error;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package isen.project.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import isen.project.db.PersonDao;
+import isen.project.model.Person;
+
+/**
+ * Writes export files atomically: the content goes to a temporary file next to the
+ * target, which is moved in place once complete, so a failed export never leaves a
+ * truncated file behind.
+ */
+class ExportFile {
+
+	// Size of the write buffer
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Content of an export.
+	 */
+	@FunctionalInterface
+	interface Content {
+		long writeTo(Writer out) throws IOException, SQLException;
+	}
+
+	/**
+	 * Writes one person.
+	 */
+	@FunctionalInterface
+	interface PersonWriter {
+		void write(Person person) throws IOException;
+	}
+
+	private ExportFile() {
+		throw new IllegalStateException("This is a static class that should not be instantiated");
+	}
+
+	/**
+	 * Method to write a UTF-8 file.
+	 * @param file The file, replaced if it exists.
+	 * @param content What is written in the file.
+	 * @return the number of persons written, as returned by the content
+	 */
+	static long write(Path file, Content content) throws IOException, SQLException {
+		Path directory = file.toAbsolutePath().getParent();
+		Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			long count;
+			try (Writer writer = new BufferedWriter(Channels.newWriter(
+					FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+					StandardCharsets.UTF_8.newEncoder(), -1), BUFFER_SIZE)) {
+				count = content.writeTo(writer);
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return count;
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Method to write every person of the database, streamed from the 'person' table.
+	 * @param personDao The DAO the persons are read with.
+	 * @param writer What is done with each person.
+	 * @return the number of persons written
+	 */
+	static long forEachPerson(PersonDao personDao, PersonWriter writer) throws IOException, SQLException {
+		long count = 0;
+		try (Stream<Person> persons = personDao.streamPersons()) {
+			Iterator<Person> iterator = persons.iterator();
+			while (iterator.hasNext()) {
+				writer.write(iterator.next());
+				count++;
+			}
+		} catch (IllegalStateException e) {
+			// A row could not be read while streaming
+			if (e.getCause() instanceof SQLException) {
+				throw (SQLException) e.getCause();
+			}
+			throw e;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,102 @@
+package isen.project.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of an import: how many persons were stored and which entries were rejected.
+ * Only the first rejections are kept in detail so a broken file cannot exhaust the memory.
+ */
+public class ImportReport {
+
+	// Number of rejected entries described in the report, the others are only counted
+	static final int MAX_DETAILED_REJECTIONS = 1000;
+
+	private long importedCount;
+	private long rejectedCount;
+	private long elapsedNanos;
+	private final List<Rejection> rejections = new ArrayList<>();
+
+	void imported() {
+		importedCount++;
+	}
+
+	void rejected(long lineNumber, String reason) {
+		rejectedCount++;
+		if (rejections.size() < MAX_DETAILED_REJECTIONS) {
+			rejections.add(new Rejection(lineNumber, reason));
+		}
+	}
+
+	void finished(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return the number of persons stored in the database
+	 */
+	public long getImportedCount() {
+		return importedCount;
+	}
+
+	/**
+	 * @return the number of entries that were not imported
+	 */
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 * @return the first rejected entries, in the order of the file
+	 */
+	public List<Rejection> getRejections() {
+		return Collections.unmodifiableList(rejections);
+	}
+
+	/**
+	 * @return how long the import took, in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return importedCount + " persons imported, " + rejectedCount + " rejected in "
+				+ String.format("%.1f", elapsedNanos / 1e9) + " s";
+	}
+
+	/**
+	 * An entry of the file that was not imported.
+	 */
+	public static class Rejection {
+
+		private final long lineNumber;
+		private final String reason;
+
+		Rejection(long lineNumber, String reason) {
+			this.lineNumber = lineNumber;
+			this.reason = reason;
+		}
+
+		/**
+		 * @return the line the entry starts on
+		 */
+		public long getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * @return why the entry was rejected
+		 */
+		public String getReason() {
+			return reason;
+		}
+
+		@Override
+		public String toString() {
+			return "Line " + lineNumber + ": " + reason;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package isen.project.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import isen.project.db.PersonDao;
+
+/**
+ * Exports the 'person' table to CSV files in the {@link PersonCsvFormat} layout.
+ * Rows are streamed from the database straight to the file, so the table is never
+ * loaded in memory whatever its size.
+ */
+public class PersonCsvExporter {
+
+	private final PersonDao personDao;
+
+	/**
+	 * Creates an exporter.
+	 * @param personDao The DAO the persons are read with.
+	 */
+	public PersonCsvExporter(PersonDao personDao) {
+		this.personDao = personDao;
+	}
+
+	/**
+	 * Method to export every person to a UTF-8 CSV file.
+	 * The content is written to a temporary file first and moved in place once complete,
+	 * so a failed export never leaves a truncated file behind.
+	 * @param file The CSV file, replaced if it exists.
+	 * @return the number of persons exported
+	 * @throws IOException if the file cannot be written.
+	 * @throws SQLException if the persons cannot be read.
+	 */
+	public long exportFile(Path file) throws IOException, SQLException {
+		return ExportFile.write(file, this::export);
+	}
+
+	/**
+	 * Method to write every person as CSV, header line included.
+	 * @param out Where the CSV is written.
+	 * @return the number of persons written
+	 * @throws IOException if the CSV cannot be written.
+	 * @throws SQLException if the persons cannot be read.
+	 */
+	public long export(Writer out) throws IOException, SQLException {
+		out.write(PersonCsvFormat.HEADER);
+		out.write("\r\n");
+		return ExportFile.forEachPerson(personDao, person -> PersonCsvFormat.writeRow(out, person));
+	}
+}
@@ -0,0 +1,76 @@
+package isen.project.io;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import isen.project.model.Person;
+
+/**
+ * CSV layout of the persons (RFC 4180): one header line, then one line per person with
+ * the columns of the 'person' table except the ID. Missing values are written as empty fields.
+ */
+public class PersonCsvFormat {
+
+	// Header line of the CSV files
+	public static final String HEADER = "lastname,firstname,nickname,phone_number,address,email_address,birth_date";
+
+	// Number of columns of a line
+	public static final int COLUMN_COUNT = 7;
+
+	private PersonCsvFormat() {
+		throw new IllegalStateException("This is a static class that should not be instantiated");
+	}
+
+	/**
+	 * Writes a person as one CSV line, line separator included.
+	 * @param out Where the line is written.
+	 * @param person The person to write.
+	 * @throws IOException if the line cannot be written.
+	 */
+	public static void writeRow(Appendable out, Person person) throws IOException {
+		writeField(out, person.getLastname());
+		out.append(',');
+		writeField(out, person.getFirstname());
+		out.append(',');
+		writeField(out, person.getNickname());
+		out.append(',');
+		writeField(out, person.getPhoneNumber());
+		out.append(',');
+		writeField(out, person.getAddress());
+		out.append(',');
+		writeField(out, person.getEmailAddress());
+		out.append(',');
+		LocalDate birthDate = person.getBirthDate();
+		if (birthDate != null) {
+			out.append(birthDate.toString());
+		}
+		out.append("\r\n");
+	}
+
+	/**
+	 * Writes a single field, quoted only when it contains a separator, a quote or a line break.
+	 */
+	static void writeField(Appendable out, String value) throws IOException {
+		if (value == null || value.isEmpty()) {
+			return;
+		}
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			out.append(value);
+			return;
+		}
+		out.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				out.append('"');
+			}
+			out.append(c);
+		}
+		out.append('"');
+	}
+}
@@ -0,0 +1,268 @@
+package isen.project.io;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import isen.project.db.PersonBulkInserter;
+import isen.project.db.PersonDao;
+import isen.project.model.Person;
+
+/**
+ * Imports persons from CSV files written in the {@link PersonCsvFormat} layout.
+ * The file is read as a stream by the calling thread and cut in chunks of records; each
+ * chunk is validated and normalized on a fork-join pool while the next ones are read,
+ * then handed, in the order of the file, to a single {@link PersonBulkInserter}. Only a
+ * bounded number of chunks is in flight at any time, so the memory used does not depend
+ * on the size of the file. Every valid row is committed in one transaction, and the
+ * invalid ones are listed in the returned {@link ImportReport}.
+ */
+public class PersonCsvImporter {
+
+	// Number of records validated together
+	private static final int CHUNK_SIZE = 4096;
+
+	// Records a fork-join task validates without splitting them further
+	private static final int VALIDATION_THRESHOLD = 512;
+
+	// Average size of a CSV line in bytes, to estimate the number of persons of a file
+	private static final int ESTIMATED_LINE_LENGTH = 100;
+
+	private final PersonDao personDao;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates an importer validating rows on the common fork-join pool.
+	 * @param personDao The DAO the persons are inserted with.
+	 */
+	public PersonCsvImporter(PersonDao personDao) {
+		this(personDao, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates an importer.
+	 * @param personDao The DAO the persons are inserted with.
+	 * @param pool The pool the rows are validated on.
+	 */
+	public PersonCsvImporter(PersonDao personDao, ForkJoinPool pool) {
+		this.personDao = personDao;
+		this.pool = pool;
+	}
+
+	/**
+	 * Method to import a UTF-8 CSV file.
+	 * @param file The CSV file.
+	 * @return the report of the import
+	 * @throws IOException if the file cannot be read.
+	 * @throws SQLException if the persons cannot be inserted, in which case nothing is imported.
+	 */
+	public ImportReport importFile(Path file) throws IOException, SQLException {
+		return importFrom(CsvReader.open(file, StandardCharsets.UTF_8), Files.size(file) / ESTIMATED_LINE_LENGTH);
+	}
+
+	/**
+	 * Method to import CSV content read from a channel.
+	 * @param channel The channel, closed once read.
+	 * @param charset The encoding of the content.
+	 * @return the report of the import
+	 * @throws IOException if the content cannot be read.
+	 * @throws SQLException if the persons cannot be inserted, in which case nothing is imported.
+	 */
+	public ImportReport importFrom(ReadableByteChannel channel, Charset charset) throws IOException, SQLException {
+		return importFrom(new CsvReader(channel, charset), 0);
+	}
+
+	private ImportReport importFrom(CsvReader reader, long expectedCount) throws IOException, SQLException {
+		long start = System.nanoTime();
+		ImportReport report = new ImportReport();
+		// Enough chunks in flight to keep every worker busy while the writer inserts
+		int maxInFlight = pool.getParallelism() * 2;
+		Deque<ValidationTask> inFlight = new ArrayDeque<>();
+		try (CsvReader csv = reader; PersonBulkInserter inserter = personDao.openBulkInserter(expectedCount)) {
+			CsvReader.Record first = csv.next();
+			int[] columns = first == null ? null : ColumnMapping.fromHeader(first.getFields());
+			List<CsvReader.Record> chunk = new ArrayList<>(CHUNK_SIZE);
+			if (first != null && columns == null) {
+				// No header, the columns are in the default order
+				columns = ColumnMapping.DEFAULT;
+				chunk.add(first);
+			}
+			if (columns != null) {
+				CsvReader.Record record;
+				while ((record = csv.next()) != null) {
+					chunk.add(record);
+					if (chunk.size() == CHUNK_SIZE) {
+						inFlight.add(submit(chunk, columns));
+						chunk = new ArrayList<>(CHUNK_SIZE);
+						if (inFlight.size() >= maxInFlight) {
+							write(inFlight.poll(), inserter, report);
+						}
+					}
+				}
+				if (!chunk.isEmpty()) {
+					inFlight.add(submit(chunk, columns));
+				}
+				while (!inFlight.isEmpty()) {
+					write(inFlight.poll(), inserter, report);
+				}
+			}
+			inserter.commit();
+		} finally {
+			for (ValidationTask task : inFlight) {
+				task.cancel(true);
+			}
+		}
+		report.finished(System.nanoTime() - start);
+		return report;
+	}
+
+	private ValidationTask submit(List<CsvReader.Record> chunk, int[] columns) {
+		ValidationTask task = new ValidationTask(chunk, columns, new Object[chunk.size()], 0, chunk.size());
+		pool.execute(task);
+		return task;
+	}
+
+	/**
+	 * Waits for a validated chunk and inserts its valid persons.
+	 */
+	private static void write(ValidationTask task, PersonBulkInserter inserter, ImportReport report)
+			throws SQLException {
+		task.join();
+		for (int i = 0; i < task.results.length; i++) {
+			Object result = task.results[i];
+			if (result instanceof Person) {
+				inserter.add((Person) result);
+				report.imported();
+			} else {
+				report.rejected(task.records.get(i).getLineNumber(), (String) result);
+			}
+		}
+	}
+
+	/**
+	 * Method to turn a CSV record into a valid, normalized person.
+	 * @param record The record.
+	 * @param columns The index of each person column in the record, -1 if it is missing.
+	 * @return the person, or why the record is rejected
+	 */
+	static Object toPerson(CsvReader.Record record, int[] columns) {
+		if (record.getError() != null) {
+			return record.getError();
+		}
+		List<String> fields = record.getFields();
+		if (fields.size() < ColumnMapping.requiredSize(columns)) {
+			return "Expected " + ColumnMapping.requiredSize(columns) + " fields but found " + fields.size();
+		}
+		Person person = new Person();
+		person.setLastname(field(fields, columns[0]));
+		person.setFirstname(field(fields, columns[1]));
+		person.setNickname(field(fields, columns[2]));
+		person.setPhoneNumber(field(fields, columns[3]));
+		person.setAddress(field(fields, columns[4]));
+		person.setEmailAddress(field(fields, columns[5]));
+		try {
+			person.setBirthDate(PersonNormalizer.parseDate(field(fields, columns[6])));
+		} catch (DateTimeParseException e) {
+			return "Invalid birth date: " + field(fields, columns[6]);
+		}
+		String error = PersonNormalizer.normalize(person);
+		return error != null ? error : person;
+	}
+
+	private static String field(List<String> fields, int index) {
+		return index < 0 ? null : fields.get(index);
+	}
+
+	/**
+	 * Validates a range of a chunk, splitting it between the workers of the pool.
+	 * Each slot of the results receives either a Person or the reason of the rejection.
+	 */
+	private static class ValidationTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<CsvReader.Record> records;
+		private final transient int[] columns;
+		private final transient Object[] results;
+		private final int from;
+		private final int to;
+
+		ValidationTask(List<CsvReader.Record> records, int[] columns, Object[] results, int from, int to) {
+			this.records = records;
+			this.columns = columns;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= VALIDATION_THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					results[i] = toPerson(records.get(i), columns);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			ForkJoinTask.invokeAll(new ValidationTask(records, columns, results, from, middle),
+					new ValidationTask(records, columns, results, middle, to));
+		}
+	}
+
+	/**
+	 * Position of the person columns in the records, read from the header line.
+	 */
+	static class ColumnMapping {
+
+		// Person columns in the order of PersonCsvFormat.HEADER
+		private static final List<String> NAMES = Arrays.asList(PersonCsvFormat.HEADER.split(","));
+
+		// Mapping of the files written without header
+		static final int[] DEFAULT = { 0, 1, 2, 3, 4, 5, 6 };
+
+		private ColumnMapping() {
+		}
+
+		/**
+		 * @return the index of each person column in the records, or null if the fields are not a header
+		 */
+		static int[] fromHeader(List<String> fields) {
+			int[] columns = new int[NAMES.size()];
+			Arrays.fill(columns, -1);
+			boolean header = false;
+			for (int i = 0; i < fields.size(); i++) {
+				int column = NAMES.indexOf(fields.get(i).strip().toLowerCase(Locale.ROOT));
+				if (column >= 0) {
+					columns[column] = i;
+					header = true;
+				}
+			}
+			return header ? columns : null;
+		}
+
+		/**
+		 * @return the number of fields a record needs to hold every mapped column
+		 */
+		static int requiredSize(int[] columns) {
+			int max = -1;
+			for (int column : columns) {
+				max = Math.max(max, column);
+			}
+			return max + 1;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package isen.project.io;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import isen.project.model.Person;
+
+/**
+ * Validation and normalization of the persons coming from imported files, so that
+ * they fit the columns of the 'person' table whatever tool produced the file.
+ */
+public class PersonNormalizer {
+
+	// Maximum lengths of the columns of the 'person' table
+	static final int MAX_NAME_LENGTH = 45;
+	static final int MAX_PHONE_LENGTH = 15;
+	static final int MAX_ADDRESS_LENGTH = 200;
+	static final int MAX_EMAIL_LENGTH = 150;
+
+	private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+	// Separators people put in phone numbers, removed before storing them
+	private static final Pattern PHONE_SEPARATORS = Pattern.compile("[\\s.\\-/()]");
+	private static final Pattern PHONE = Pattern.compile("\\+?[0-9]{3,14}");
+
+	// Date layouts accepted besides ISO 8601 (2000-12-31)
+	private static final DateTimeFormatter[] DATE_FORMATS = { DateTimeFormatter.ofPattern("dd/MM/uuuu"),
+			DateTimeFormatter.ofPattern("uuuuMMdd") };
+
+	private PersonNormalizer() {
+		throw new IllegalStateException("This is a static class that should not be instantiated");
+	}
+
+	/**
+	 * Method to normalize a person in place: values are trimmed, empty optional values
+	 * become null, phone separators are removed and email addresses are lower-cased.
+	 * @param person The person to normalize.
+	 * @return why the person cannot be stored, or null if it is valid
+	 */
+	public static String normalize(Person person) {
+		person.setLastname(trim(person.getLastname()));
+		person.setFirstname(trim(person.getFirstname()));
+		String nickname = trim(person.getNickname());
+		// The nickname column does not accept NULL
+		person.setNickname(nickname == null ? "" : nickname);
+		person.setAddress(trim(person.getAddress()));
+
+		if (person.getLastname() == null) {
+			return "Missing lastname";
+		}
+		if (person.getFirstname() == null) {
+			return "Missing firstname";
+		}
+		if (person.getLastname().length() > MAX_NAME_LENGTH || person.getFirstname().length() > MAX_NAME_LENGTH
+				|| person.getNickname().length() > MAX_NAME_LENGTH) {
+			return "Name longer than " + MAX_NAME_LENGTH + " characters";
+		}
+		if (person.getAddress() != null && person.getAddress().length() > MAX_ADDRESS_LENGTH) {
+			return "Address longer than " + MAX_ADDRESS_LENGTH + " characters";
+		}
+
+		String phone = trim(person.getPhoneNumber());
+		if (phone != null) {
+			phone = PHONE_SEPARATORS.matcher(phone).replaceAll("");
+			if (!PHONE.matcher(phone).matches()) {
+				return "Invalid phone number: " + person.getPhoneNumber().trim();
+			}
+		}
+		person.setPhoneNumber(phone);
+
+		String email = trim(person.getEmailAddress());
+		if (email != null) {
+			email = email.toLowerCase(Locale.ROOT);
+			if (email.length() > MAX_EMAIL_LENGTH || !EMAIL.matcher(email).matches()) {
+				return "Invalid email address: " + email;
+			}
+		}
+		person.setEmailAddress(email);
+
+		if (person.getBirthDate() != null && person.getBirthDate().isAfter(LocalDate.now())) {
+			return "Birth date in the future: " + person.getBirthDate();
+		}
+		return null;
+	}
+
+	/**
+	 * Method to read a date written in ISO 8601 (2000-12-31), French (31/12/2000) or basic (20001231) layout.
+	 * @param value The text of the date.
+	 * @return the date, null if the text is empty
+	 * @throws DateTimeParseException if the text is not a date in one of these layouts.
+	 */
+	public static LocalDate parseDate(String value) {
+		String text = trim(value);
+		if (text == null) {
+			return null;
+		}
+		try {
+			return LocalDate.parse(text);
+		} catch (DateTimeParseException e) {
+			for (DateTimeFormatter format : DATE_FORMATS) {
+				try {
+					return LocalDate.parse(text, format);
+				} catch (DateTimeParseException ignored) {
+					// Try the next layout
+				}
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the value without surrounding spaces, null if nothing is left
+	 */
+	static String trim(String value) {
+		if (value == null) {
+			return null;
+		}
+		String trimmed = value.strip();
+		return trimmed.isEmpty() ? null : trimmed;
+	}
+}
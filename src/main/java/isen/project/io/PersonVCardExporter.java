@@ -0,0 +1,52 @@
+package isen.project.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import isen.project.db.PersonDao;
+
+/**
+ * Exports the 'person' table to vCard 4.0 files, one card per person, in the
+ * {@link PersonVCardFormat} mapping. Rows are streamed from the database straight to
+ * the file, so the table is never loaded in memory whatever its size.
+ */
+public class PersonVCardExporter {
+
+	private final PersonDao personDao;
+
+	/**
+	 * Creates an exporter.
+	 * @param personDao The DAO the persons are read with.
+	 */
+	public PersonVCardExporter(PersonDao personDao) {
+		this.personDao = personDao;
+	}
+
+	/**
+	 * Method to export every person to a UTF-8 .vcf file.
+	 * The content is written to a temporary file first and moved in place once complete.
+	 * @param file The vCard file, replaced if it exists.
+	 * @return the number of persons exported
+	 * @throws IOException if the file cannot be written.
+	 * @throws SQLException if the persons cannot be read.
+	 */
+	public long exportFile(Path file) throws IOException, SQLException {
+		return ExportFile.write(file, this::export);
+	}
+
+	/**
+	 * Method to write every person as a vCard.
+	 * @param out Where the cards are written.
+	 * @return the number of persons written
+	 * @throws IOException if the cards cannot be written.
+	 * @throws SQLException if the persons cannot be read.
+	 */
+	public long export(Writer out) throws IOException, SQLException {
+		VCardWriter writer = new VCardWriter(out);
+		long count = ExportFile.forEachPerson(personDao, person -> PersonVCardFormat.writeCard(writer, person));
+		writer.flush();
+		return count;
+	}
+}
@@ -0,0 +1,182 @@
+package isen.project.io;
+
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import isen.project.model.Person;
+
+/**
+ * Mapping between the persons and vCard properties: N holds the lastname and firstname,
+ * NICKNAME, TEL, ADR, EMAIL and BDAY the other columns. A card with several phone numbers
+ * or email addresses gives the preferred one (PREF parameter or TYPE=pref), then the
+ * mobile phone, then the first one.
+ */
+public class PersonVCardFormat {
+
+	/**
+	 * The properties read from the cards, the others are skipped.
+	 */
+	public static final Set<String> PROPERTIES = new HashSet<>(
+			Arrays.asList("N", "FN", "NICKNAME", "TEL", "ADR", "EMAIL", "BDAY"));
+
+	// Layout of the birth dates written, the basic format of ISO 8601 required by vCard 4.0
+	private static final DateTimeFormatter BIRTH_DATE_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+	private PersonVCardFormat() {
+		throw new IllegalStateException("This is a static class that should not be instantiated");
+	}
+
+	/**
+	 * Method to write a person as a vCard 4.0.
+	 * @param out Where the card is written.
+	 * @param person The person to write.
+	 * @throws IOException if the card cannot be written.
+	 */
+	public static void writeCard(VCardWriter out, Person person) throws IOException {
+		out.property("BEGIN", "VCARD");
+		out.property("VERSION", "4.0");
+		out.property("FN", VCardWriter.escape(fullName(person)));
+		out.property("N", VCardWriter.escape(person.getLastname()) + ";" + VCardWriter.escape(person.getFirstname())
+				+ ";;;");
+		if (person.getNickname() != null && !person.getNickname().isEmpty()) {
+			out.property("NICKNAME", VCardWriter.escape(person.getNickname()));
+		}
+		if (person.getPhoneNumber() != null) {
+			out.property("TEL;TYPE=voice", VCardWriter.escape(person.getPhoneNumber()));
+		}
+		if (person.getEmailAddress() != null) {
+			out.property("EMAIL", VCardWriter.escape(person.getEmailAddress()));
+		}
+		if (person.getAddress() != null) {
+			// The address is free text, kept whole in the street component
+			out.property("ADR", ";;" + VCardWriter.escape(person.getAddress()) + ";;;;");
+		}
+		if (person.getBirthDate() != null) {
+			out.property("BDAY", person.getBirthDate().format(BIRTH_DATE_FORMAT));
+		}
+		out.property("END", "VCARD");
+	}
+
+	/**
+	 * Method to turn a card into a valid, normalized person.
+	 * @param card The card.
+	 * @return the person, or why the card is rejected
+	 */
+	public static Object toPerson(VCardReader.Card card) {
+		if (card.getError() != null) {
+			return card.getError();
+		}
+		Person person = new Person();
+		VCardReader.Property name = card.getProperty("N");
+		if (name != null) {
+			List<String> components = name.getComponents();
+			person.setLastname(components.get(0));
+			person.setFirstname(components.size() > 1 ? components.get(1) : null);
+		}
+		VCardReader.Property formattedName = card.getProperty("FN");
+		if (PersonNormalizer.trim(person.getLastname()) == null && formattedName != null) {
+			// No structured name: the last word of the full name is taken as the lastname
+			String fullName = formattedName.getValue().strip();
+			int space = fullName.lastIndexOf(' ');
+			person.setLastname(fullName.substring(space + 1));
+			if (PersonNormalizer.trim(person.getFirstname()) == null && space > 0) {
+				person.setFirstname(fullName.substring(0, space));
+			}
+		}
+		VCardReader.Property nickname = card.getProperty("NICKNAME");
+		person.setNickname(nickname == null ? null : nickname.getValues().get(0));
+		VCardReader.Property phone = preferred(card.getProperties("TEL"), "cell");
+		person.setPhoneNumber(phone == null ? null : stripScheme(phone.getValue(), "tel:"));
+		VCardReader.Property email = preferred(card.getProperties("EMAIL"), "internet");
+		person.setEmailAddress(email == null ? null : stripScheme(email.getValue(), "mailto:"));
+		VCardReader.Property address = preferred(card.getProperties("ADR"), "home");
+		person.setAddress(address == null ? null : formatAddress(address.getComponents()));
+		VCardReader.Property birthDate = card.getProperty("BDAY");
+		if (birthDate != null) {
+			String value = birthDate.getValue().strip();
+			// Dates without year (--1231) cannot be stored, times are ignored
+			if (!value.startsWith("--")) {
+				int time = value.indexOf('T');
+				try {
+					person.setBirthDate(PersonNormalizer.parseDate(time >= 0 ? value.substring(0, time) : value));
+				} catch (DateTimeParseException e) {
+					return "Invalid birth date: " + value;
+				}
+			}
+		}
+		String error = PersonNormalizer.normalize(person);
+		return error != null ? error : person;
+	}
+
+	/**
+	 * Chooses among several properties: the one with the lowest PREF (vCard 4.0), else the
+	 * one typed "pref" (vCard 3.0), else the first one of the given type, else the first one.
+	 */
+	static VCardReader.Property preferred(List<VCardReader.Property> properties, String type) {
+		VCardReader.Property best = null;
+		int bestPreference = Integer.MAX_VALUE;
+		for (VCardReader.Property property : properties) {
+			int preference = preference(property, type);
+			if (preference < bestPreference) {
+				best = property;
+				bestPreference = preference;
+			}
+		}
+		return best;
+	}
+
+	private static int preference(VCardReader.Property property, String type) {
+		String pref = property.getParameter("PREF");
+		if (pref != null) {
+			try {
+				return Math.max(1, Math.min(100, Integer.parseInt(pref.trim())));
+			} catch (NumberFormatException e) {
+				return 100;
+			}
+		}
+		if (property.hasParameter("TYPE", "pref")) {
+			return 1;
+		}
+		return property.hasParameter("TYPE", type) ? 101 : 102;
+	}
+
+	private static String stripScheme(String value, String scheme) {
+		return value.regionMatches(true, 0, scheme, 0, scheme.length()) ? value.substring(scheme.length()) : value;
+	}
+
+	/**
+	 * Joins the components of an ADR (post box; extended; street; locality; region; code; country)
+	 * into a single line such as "1 rue de la Paix, Apt 2, 75002 Paris, France".
+	 */
+	static String formatAddress(List<String> components) {
+		StringBuilder address = new StringBuilder();
+		String code = component(components, 5);
+		String locality = component(components, 3);
+		String cityLine = code == null ? locality : locality == null ? code : code + " " + locality;
+		for (String part : new String[] { component(components, 2), component(components, 1), component(components, 0),
+				cityLine, component(components, 4), component(components, 6) }) {
+			if (part != null) {
+				if (address.length() > 0) {
+					address.append(", ");
+				}
+				address.append(part);
+			}
+		}
+		return address.length() == 0 ? null : address.toString();
+	}
+
+	private static String component(List<String> components, int index) {
+		return index < components.size() ? PersonNormalizer.trim(components.get(index)) : null;
+	}
+
+	private static String fullName(Person person) {
+		String firstname = person.getFirstname() == null ? "" : person.getFirstname();
+		String lastname = person.getLastname() == null ? "" : person.getLastname();
+		return (firstname + " " + lastname).strip();
+	}
+}
@@ -0,0 +1,76 @@
+package isen.project.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import isen.project.db.PersonBulkInserter;
+import isen.project.db.PersonDao;
+import isen.project.model.Person;
+
+/**
+ * Imports persons from vCard files (versions 2.1, 3.0 and 4.0).
+ * Cards are read one at a time and handed to a single {@link PersonBulkInserter}, so
+ * every valid card is stored in one transaction whatever the size of the file; the
+ * cards that cannot be stored are listed in the returned {@link ImportReport}.
+ */
+public class PersonVCardImporter {
+
+	// Average size of a card in bytes, to estimate the number of persons of a file
+	private static final int ESTIMATED_CARD_LENGTH = 250;
+
+	private final PersonDao personDao;
+
+	/**
+	 * Creates an importer.
+	 * @param personDao The DAO the persons are inserted with.
+	 */
+	public PersonVCardImporter(PersonDao personDao) {
+		this.personDao = personDao;
+	}
+
+	/**
+	 * Method to import a UTF-8 .vcf file.
+	 * @param file The vCard file.
+	 * @return the report of the import
+	 * @throws IOException if the file cannot be read.
+	 * @throws SQLException if the persons cannot be inserted, in which case nothing is imported.
+	 */
+	public ImportReport importFile(Path file) throws IOException, SQLException {
+		return importFrom(VCardReader.open(file, PersonVCardFormat.PROPERTIES),
+				Files.size(file) / ESTIMATED_CARD_LENGTH);
+	}
+
+	/**
+	 * Method to import vCard content.
+	 * @param reader Where the cards are read from, closed once read.
+	 * @return the report of the import
+	 * @throws IOException if the content cannot be read.
+	 * @throws SQLException if the persons cannot be inserted, in which case nothing is imported.
+	 */
+	public ImportReport importFrom(BufferedReader reader) throws IOException, SQLException {
+		return importFrom(new VCardReader(reader, PersonVCardFormat.PROPERTIES), 0);
+	}
+
+	private ImportReport importFrom(VCardReader reader, long expectedCount) throws IOException, SQLException {
+		long start = System.nanoTime();
+		ImportReport report = new ImportReport();
+		try (VCardReader cards = reader; PersonBulkInserter inserter = personDao.openBulkInserter(expectedCount)) {
+			VCardReader.Card card;
+			while ((card = cards.next()) != null) {
+				Object result = PersonVCardFormat.toPerson(card);
+				if (result instanceof Person) {
+					inserter.add((Person) result);
+					report.imported();
+				} else {
+					report.rejected(card.getLineNumber(), (String) result);
+				}
+			}
+			inserter.commit();
+		}
+		report.finished(System.nanoTime() - start);
+		return report;
+	}
+}
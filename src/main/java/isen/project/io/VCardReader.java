@@ -0,0 +1,468 @@
+package isen.project.io;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Streaming reader of vCard files (RFC 6350, also reading the 3.0 and 2.1 versions).
+ * Cards are read one at a time, so files of any size are read with a bounded memory.
+ * Folded lines are unfolded, quoted-printable values of version 2.1 are decoded, and the
+ * properties the caller is not interested in (such as photos) are skipped without being
+ * kept in memory.
+ */
+public class VCardReader implements Closeable {
+
+	// Longest property kept, longer ones make the card malformed
+	static final int MAX_PROPERTY_LENGTH = 64 * 1024;
+
+	// Most properties kept for one card
+	static final int MAX_PROPERTIES = 1000;
+
+	private final BufferedReader reader;
+	private final Set<String> names;
+
+	// Physical line read ahead, not counted yet
+	private String pendingLine;
+	private long lineNumber;
+
+	/**
+	 * Creates a reader.
+	 * @param reader Where the cards are read from, closed with this reader.
+	 * @param names The upper-case names of the properties to keep, the others are skipped.
+	 */
+	public VCardReader(BufferedReader reader, Set<String> names) {
+		this.reader = reader;
+		this.names = names;
+	}
+
+	/**
+	 * Opens a reader on a UTF-8 file.
+	 * @param file The vCard file.
+	 * @param names The upper-case names of the properties to keep, the others are skipped.
+	 * @return a reader to be closed by the caller
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public static VCardReader open(Path file, Set<String> names) throws IOException {
+		return new VCardReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), names);
+	}
+
+	/**
+	 * Method to read the next card. Anything between two cards is ignored.
+	 * @return the next card, or null at the end of the input
+	 * @throws IOException if the input cannot be read.
+	 */
+	public Card next() throws IOException {
+		// Look for the start of a card
+		String line;
+		do {
+			line = readLine();
+			if (line == null) {
+				return null;
+			}
+		} while (!line.trim().equalsIgnoreCase("BEGIN:VCARD"));
+		Card card = new Card(lineNumber);
+		while (true) {
+			long propertyLine = lineNumber + 1;
+			Property property = readProperty();
+			if (property == null) {
+				card.error = "Missing END:VCARD";
+				return card;
+			}
+			if (property.name.equals("END") && property.rawValue.trim().equalsIgnoreCase("VCARD")) {
+				return card;
+			}
+			if (property.name.equals("BEGIN")) {
+				// Nested cards (AGENT of version 2.1) are not supported
+				card.error = "Unexpected BEGIN on line " + propertyLine;
+			} else if (property.error != null) {
+				card.error = property.error + " on line " + propertyLine;
+			} else if (property != SKIPPED) {
+				if (card.properties.size() >= MAX_PROPERTIES) {
+					card.error = "More than " + MAX_PROPERTIES + " properties";
+				} else {
+					card.properties.add(property);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	// Marker of the properties that were skipped
+	private static final Property SKIPPED = new Property(null, "", Collections.emptyList(), "");
+
+	/**
+	 * Reads a property, continuation lines included.
+	 * @return the property, SKIPPED if it is not wanted, or null at the end of the input
+	 */
+	private Property readProperty() throws IOException {
+		String line = readLine();
+		while (line != null && line.isEmpty()) {
+			line = readLine();
+		}
+		if (line == null) {
+			return null;
+		}
+		int nameEnd = 0;
+		while (nameEnd < line.length() && line.charAt(nameEnd) != ';' && line.charAt(nameEnd) != ':') {
+			nameEnd++;
+		}
+		String name = line.substring(line.lastIndexOf('.', nameEnd) + 1, nameEnd).toUpperCase(Locale.ROOT);
+		boolean wanted = names.contains(name) || name.equals("BEGIN") || name.equals("END");
+		boolean quotedPrintable = line.substring(0, Math.min(line.indexOf(':') + 1, line.length()))
+				.toUpperCase(Locale.ROOT).contains("QUOTED-PRINTABLE");
+		StringBuilder unfolded = wanted ? new StringBuilder(line) : null;
+		String error = null;
+		while (true) {
+			String next = peekLine();
+			// Soft line break of quoted-printable: the line ends with '=' and goes on with the next one
+			boolean softBreak = quotedPrintable && next != null && endsWithSoftBreak(unfolded, line);
+			if (!softBreak) {
+				if (next == null || next.isEmpty() || (next.charAt(0) != ' ' && next.charAt(0) != '\t')) {
+					break;
+				}
+				// Folded line: the leading white space is removed
+				next = next.substring(1);
+			}
+			readLine();
+			line = next;
+			if (unfolded != null) {
+				if (softBreak) {
+					unfolded.setLength(unfolded.length() - 1);
+				}
+				if (unfolded.length() + next.length() > MAX_PROPERTY_LENGTH) {
+					error = "Property longer than " + MAX_PROPERTY_LENGTH + " characters";
+					unfolded = null;
+				} else {
+					unfolded.append(next);
+				}
+			}
+		}
+		if (error != null) {
+			return new Property(name, error);
+		}
+		return wanted ? parse(unfolded.toString()) : SKIPPED;
+	}
+
+	private static boolean endsWithSoftBreak(StringBuilder unfolded, String line) {
+		return unfolded != null ? unfolded.length() > 0 && unfolded.charAt(unfolded.length() - 1) == '='
+				: line.endsWith("=");
+	}
+
+	/**
+	 * Splits an unfolded content line in its group, name, parameters and value.
+	 */
+	static Property parse(String line) {
+		int colon = -1;
+		boolean quoted = false;
+		for (int i = 0; i < line.length() && colon < 0; i++) {
+			char c = line.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (c == ':' && !quoted) {
+				colon = i;
+			}
+		}
+		if (colon < 0) {
+			return new Property(null, "Missing ':' in property " + line);
+		}
+		List<String> parts = splitUnquoted(line.substring(0, colon), ';');
+		String name = parts.get(0);
+		String group = null;
+		int dot = name.lastIndexOf('.');
+		if (dot >= 0) {
+			group = name.substring(0, dot);
+			name = name.substring(dot + 1);
+		}
+		List<String[]> parameters = new ArrayList<>();
+		for (String parameter : parts.subList(1, parts.size())) {
+			int equals = parameter.indexOf('=');
+			if (equals < 0) {
+				// Version 2.1 allows the value of TYPE alone, as in TEL;CELL:
+				parameters.add(new String[] { "TYPE", parameter });
+			} else {
+				String key = parameter.substring(0, equals).toUpperCase(Locale.ROOT);
+				for (String value : splitUnquoted(parameter.substring(equals + 1), ',')) {
+					parameters.add(new String[] { key, unquote(value) });
+				}
+			}
+		}
+		Property property = new Property(group, name.toUpperCase(Locale.ROOT), parameters, line.substring(colon + 1));
+		if ("QUOTED-PRINTABLE".equalsIgnoreCase(property.getParameter("ENCODING"))) {
+			property.rawValue = decodeQuotedPrintable(property.rawValue, property.getParameter("CHARSET"));
+		}
+		return property;
+	}
+
+	private static List<String> splitUnquoted(String text, char separator) {
+		List<String> parts = new ArrayList<>();
+		boolean quoted = false;
+		int start = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (c == separator && !quoted) {
+				parts.add(text.substring(start, i));
+				start = i + 1;
+			}
+		}
+		parts.add(text.substring(start));
+		return parts;
+	}
+
+	private static String unquote(String value) {
+		if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+			return value.substring(1, value.length() - 1);
+		}
+		return value;
+	}
+
+	private static String decodeQuotedPrintable(String value, String charsetName) {
+		Charset charset = StandardCharsets.UTF_8;
+		if (charsetName != null) {
+			try {
+				charset = Charset.forName(charsetName);
+			} catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+				// Keep UTF-8
+			}
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '=' && i + 2 < value.length() && isHex(value.charAt(i + 1)) && isHex(value.charAt(i + 2))) {
+				bytes.write(Character.digit(value.charAt(i + 1), 16) * 16 + Character.digit(value.charAt(i + 2), 16));
+				i += 2;
+			} else {
+				bytes.write(c);
+			}
+		}
+		return new String(bytes.toByteArray(), charset);
+	}
+
+	private static boolean isHex(char c) {
+		return Character.digit(c, 16) >= 0;
+	}
+
+	private String readLine() throws IOException {
+		String line;
+		if (pendingLine != null) {
+			line = pendingLine;
+			pendingLine = null;
+		} else {
+			line = reader.readLine();
+		}
+		if (line != null) {
+			lineNumber++;
+		}
+		return line;
+	}
+
+	private String peekLine() throws IOException {
+		if (pendingLine == null) {
+			pendingLine = reader.readLine();
+		}
+		return pendingLine;
+	}
+
+	/**
+	 * A card, with the properties the reader was asked to keep.
+	 */
+	public static class Card {
+
+		private final long lineNumber;
+		private final List<Property> properties = new ArrayList<>();
+		private String error;
+
+		Card(long lineNumber) {
+			this.lineNumber = lineNumber;
+		}
+
+		/**
+		 * @return the number of the line the card starts on
+		 */
+		public long getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * @param name The upper-case name of the properties.
+		 * @return the properties with this name, in the order of the card
+		 */
+		public List<Property> getProperties(String name) {
+			List<Property> found = new ArrayList<>();
+			for (Property property : properties) {
+				if (property.name.equals(name)) {
+					found.add(property);
+				}
+			}
+			return found;
+		}
+
+		/**
+		 * @param name The upper-case name of the property.
+		 * @return the first property with this name, null if there is none
+		 */
+		public Property getProperty(String name) {
+			for (Property property : properties) {
+				if (property.name.equals(name)) {
+					return property;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @return why the card could not be read completely, null if it is well formed
+		 */
+		public String getError() {
+			return error;
+		}
+	}
+
+	/**
+	 * A property of a card, such as {@code TEL;TYPE=cell:+33 6 12 34 56 78}.
+	 */
+	public static class Property {
+
+		private final String group;
+		private final String name;
+		private final List<String[]> parameters;
+		private String rawValue;
+		private final String error;
+
+		Property(String group, String name, List<String[]> parameters, String rawValue) {
+			this.group = group;
+			this.name = name;
+			this.parameters = parameters;
+			this.rawValue = rawValue;
+			this.error = null;
+		}
+
+		Property(String name, String error) {
+			this.group = null;
+			this.name = name == null ? "" : name;
+			this.parameters = Collections.emptyList();
+			this.rawValue = "";
+			this.error = error;
+		}
+
+		/**
+		 * @return the group of the property (item1 in item1.TEL), null if it has none
+		 */
+		public String getGroup() {
+			return group;
+		}
+
+		/**
+		 * @return the upper-case name of the property
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @param key The upper-case name of the parameter.
+		 * @return the first value of the parameter, null if it is absent
+		 */
+		public String getParameter(String key) {
+			for (String[] parameter : parameters) {
+				if (parameter[0].equals(key)) {
+					return parameter[1];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @param key The upper-case name of the parameter.
+		 * @param value The value looked for, whatever its case.
+		 * @return true if the parameter has this value
+		 */
+		public boolean hasParameter(String key, String value) {
+			for (String[] parameter : parameters) {
+				if (parameter[0].equals(key) && parameter[1].equalsIgnoreCase(value)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return the value as written, with its escaped characters
+		 */
+		public String getRawValue() {
+			return rawValue;
+		}
+
+		/**
+		 * @return the value as text, escaped characters decoded
+		 */
+		public String getValue() {
+			return unescape(rawValue);
+		}
+
+		/**
+		 * @return the components of a structured value (N, ADR) separated by ';', each one decoded
+		 */
+		public List<String> getComponents() {
+			return splitEscaped(rawValue, ';');
+		}
+
+		/**
+		 * @return the values of a list (NICKNAME, CATEGORIES) separated by ',', each one decoded
+		 */
+		public List<String> getValues() {
+			return splitEscaped(rawValue, ',');
+		}
+
+		private static List<String> splitEscaped(String value, char separator) {
+			List<String> parts = new ArrayList<>();
+			int start = 0;
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c == '\\') {
+					i++;
+				} else if (c == separator) {
+					parts.add(unescape(value.substring(start, i)));
+					start = i + 1;
+				}
+			}
+			parts.add(unescape(value.substring(start)));
+			return parts;
+		}
+
+		static String unescape(String value) {
+			if (value.indexOf('\\') < 0) {
+				return value;
+			}
+			StringBuilder text = new StringBuilder(value.length());
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c == '\\' && i + 1 < value.length()) {
+					char escaped = value.charAt(++i);
+					text.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+				} else {
+					text.append(c);
+				}
+			}
+			return text.toString();
+		}
+	}
+}
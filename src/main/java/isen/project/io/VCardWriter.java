@@ -0,0 +1,106 @@
+package isen.project.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer of vCard content lines (RFC 6350).
+ * Lines are ended by CRLF and folded so that no line is longer than 75 octets of UTF-8,
+ * without ever cutting a character in two.
+ */
+public class VCardWriter implements Closeable, Flushable {
+
+	// Longest line allowed by the RFC, in octets, line break excluded
+	private static final int MAX_LINE_OCTETS = 75;
+
+	private final Writer out;
+
+	/**
+	 * Creates a writer.
+	 * @param out Where the lines are written, closed with this writer.
+	 */
+	public VCardWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Method to write a content line.
+	 * @param name The name of the property, with its parameters (TEL;TYPE=cell).
+	 * @param value The value, already escaped.
+	 * @throws IOException if the line cannot be written.
+	 */
+	public void property(String name, String value) throws IOException {
+		String line = name + ":" + value;
+		int octets = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			int length = utf8Length(line, i);
+			if (octets + length > MAX_LINE_OCTETS) {
+				// The continuation line starts with a space, which counts in its length
+				out.write("\r\n ");
+				octets = 1;
+			}
+			out.write(c);
+			if (Character.isHighSurrogate(c) && i + 1 < line.length()) {
+				out.write(line.charAt(++i));
+			}
+			octets += length;
+		}
+		out.write("\r\n");
+	}
+
+	/**
+	 * Method to escape a text value: backslashes, commas, semicolons and line breaks.
+	 * @param text The text.
+	 * @return the escaped text, empty if the text is null
+	 */
+	public static String escape(String text) {
+		if (text == null) {
+			return "";
+		}
+		StringBuilder escaped = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '\\':
+			case ',':
+			case ';':
+				escaped.append('\\').append(c);
+				break;
+			case '\r':
+				if (i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+					i++;
+				}
+				escaped.append("\\n");
+				break;
+			case '\n':
+				escaped.append("\\n");
+				break;
+			default:
+				escaped.append(c);
+				break;
+			}
+		}
+		return escaped.toString();
+	}
+
+	private static int utf8Length(String line, int index) {
+		char c = line.charAt(index);
+		if (Character.isHighSurrogate(c) && index + 1 < line.length()) {
+			return 4;
+		}
+		return c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,82 @@
+package isen.project.metrics;
+
+/**
+ * Immutable copy of a {@link LatencyHistogram}.
+ */
+public class HistogramSnapshot {
+
+	private final long[] counts;
+	private final long count;
+	private final long totalNanos;
+	private final long maxNanos;
+
+	HistogramSnapshot(long[] counts, long totalNanos, long maxNanos) {
+		this.counts = counts;
+		long sum = 0;
+		for (long bucketCount : counts) {
+			sum += bucketCount;
+		}
+		this.count = sum;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+	}
+
+	/**
+	 * @return the number of recorded durations
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the average duration, in nanoseconds
+	 */
+	public long getMeanNanos() {
+		return count == 0 ? 0 : totalNanos / count;
+	}
+
+	/**
+	 * @return the longest duration, in nanoseconds
+	 */
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	/**
+	 * Method to read a percentile of the durations.
+	 * @param percentile The percentile, between 0 and 100, such as 99 for the p99.
+	 * @return the duration under which this percentage of the durations fall, in nanoseconds,
+	 *         0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(LatencyHistogram.highestValueOf(i), maxNanos);
+			}
+		}
+		return maxNanos;
+	}
+
+	/**
+	 * Method to get the durations recorded between an earlier snapshot of the same histogram and this one.
+	 * @param earlier The earlier snapshot.
+	 * @return the snapshot of the interval, whose maximum is read from its buckets
+	 */
+	public HistogramSnapshot since(HistogramSnapshot earlier) {
+		long[] interval = new long[counts.length];
+		long intervalMax = 0;
+		for (int i = 0; i < counts.length; i++) {
+			interval[i] = counts[i] - earlier.counts[i];
+			if (interval[i] > 0) {
+				intervalMax = Math.min(LatencyHistogram.highestValueOf(i), maxNanos);
+			}
+		}
+		return new HistogramSnapshot(interval, totalNanos - earlier.totalNanos, intervalMax);
+	}
+}
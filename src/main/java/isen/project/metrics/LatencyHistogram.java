@@ -0,0 +1,73 @@
+package isen.project.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds, in the spirit of HdrHistogram.
+ * The durations are counted in buckets whose width grows with the value: below 64ns each
+ * value has its own bucket, above it each power of two is split in 32 buckets. Recording
+ * is then a few atomic increments whatever the value, the memory is fixed, and a
+ * percentile read from the buckets is within about 3% of the exact one.
+ */
+public class LatencyHistogram {
+
+	// Each power of two is split in 2^SUB_BUCKET_BITS buckets
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	// Enough buckets for any positive long
+	static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Method to count a duration.
+	 * @param nanos The duration in nanoseconds, negative values count as 0.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		counts.incrementAndGet(indexOf(value));
+		totalNanos.add(value);
+		maxNanos.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * Method to copy the counts. Durations recorded while copying may or may not be included.
+	 * @return an immutable copy of the histogram
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] copy = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			copy[i] = counts.get(i);
+		}
+		return new HistogramSnapshot(copy, totalNanos.sum(), maxNanos.get());
+	}
+
+	/**
+	 * @return the bucket a value is counted in
+	 */
+	static int indexOf(long value) {
+		if (value < 2 * SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (int) (shift * SUB_BUCKET_COUNT + (value >>> shift));
+	}
+
+	/**
+	 * @return the largest value counted in a bucket
+	 */
+	static long highestValueOf(int index) {
+		if (index < 2 * SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		// Wraps to Long.MAX_VALUE for the very last bucket
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,120 @@
+package isen.project.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The timers of the application, one per operation name.
+ * Once {@link #registerMBeans(MBeanServer)} is called, every timer, including those created
+ * later, is visible in JMX as "isen.project:type=OperationTimer,name=&lt;operation&gt;".
+ */
+public class MetricsRegistry {
+
+	private static final Logger LOGGER = Logger.getLogger(MetricsRegistry.class.getName());
+
+	// Domain and type of the names the timers are registered under
+	static final String OBJECT_NAME_PREFIX = "isen.project:type=OperationTimer,name=";
+
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+	private final ConcurrentMap<String, OperationTimer> timers = new ConcurrentHashMap<>();
+	private MBeanServer mbeanServer;
+
+	/**
+	 * @return the registry the application records its operations in
+	 */
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Method to get the timer of an operation, created on first use.
+	 * @param name The name of the operation, such as "PersonDao.page".
+	 * @return the timer, always the same for a name
+	 */
+	public OperationTimer timer(String name) {
+		OperationTimer timer = timers.get(name);
+		if (timer != null) {
+			return timer;
+		}
+		synchronized (this) {
+			timer = timers.get(name);
+			if (timer == null) {
+				timer = new OperationTimer(name);
+				timers.put(name, timer);
+				if (mbeanServer != null) {
+					register(timer);
+				}
+			}
+			return timer;
+		}
+	}
+
+	/**
+	 * @return a snapshot of every timer, sorted by name
+	 */
+	public List<OperationStats> getStats() {
+		List<OperationStats> stats = new ArrayList<>(timers.size());
+		for (OperationTimer timer : timers.values()) {
+			stats.add(timer.getStats());
+		}
+		stats.sort(Comparator.comparing(OperationStats::getName));
+		return stats;
+	}
+
+	/**
+	 * Method to publish the timers in JMX, such as the platform MBean server.
+	 * @param server The MBean server, replacing the one the timers were registered with before.
+	 */
+	public synchronized void registerMBeans(MBeanServer server) {
+		unregisterMBeans();
+		mbeanServer = server;
+		for (OperationTimer timer : timers.values()) {
+			register(timer);
+		}
+	}
+
+	/**
+	 * Method to remove the timers from JMX.
+	 */
+	public synchronized void unregisterMBeans() {
+		if (mbeanServer == null) {
+			return;
+		}
+		for (OperationTimer timer : timers.values()) {
+			try {
+				ObjectName objectName = objectName(timer);
+				if (mbeanServer.isRegistered(objectName)) {
+					mbeanServer.unregisterMBean(objectName);
+				}
+			} catch (JMException e) {
+				LOGGER.log(Level.WARNING, "Could not unregister the timer " + timer.getName(), e);
+			}
+		}
+		mbeanServer = null;
+	}
+
+	private void register(OperationTimer timer) {
+		try {
+			ObjectName objectName = objectName(timer);
+			if (!mbeanServer.isRegistered(objectName)) {
+				mbeanServer.registerMBean(timer, objectName);
+			}
+		} catch (JMException e) {
+			LOGGER.log(Level.WARNING, "Could not register the timer " + timer.getName(), e);
+		}
+	}
+
+	static ObjectName objectName(OperationTimer timer) throws JMException {
+		return new ObjectName(OBJECT_NAME_PREFIX + timer.getName());
+	}
+}
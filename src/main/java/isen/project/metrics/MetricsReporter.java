@@ -0,0 +1,91 @@
+package isen.project.metrics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically writes the activity of a {@link MetricsRegistry} to the log.
+ * Each report covers the calls made since the previous one, so its percentiles describe
+ * the last period rather than the whole life of the application; operations without calls
+ * in the period are left out.
+ */
+public class MetricsReporter implements AutoCloseable {
+
+	private static final Logger LOGGER = Logger.getLogger(MetricsReporter.class.getName());
+
+	private final MetricsRegistry registry;
+	// Snapshot of each operation at the previous report
+	private final Map<String, OperationStats> previous = new HashMap<>();
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Creates a reporter, which writes nothing until it is started.
+	 * @param registry The registry to report on.
+	 */
+	public MetricsReporter(MetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Method to write a report at a fixed rate on a background thread.
+	 * @param period The time between two reports.
+	 * @param unit The unit of the period.
+	 */
+	public synchronized void start(long period, TimeUnit unit) {
+		if (scheduler != null) {
+			throw new IllegalStateException("The reporter is already started");
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "metrics-reporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(this::logReport, period, period, unit);
+	}
+
+	/**
+	 * Method to build the report of the calls made since the previous one.
+	 * @return one line per operation called in the period, empty if there was none
+	 */
+	public synchronized String report() {
+		StringBuilder report = new StringBuilder();
+		List<OperationStats> stats = registry.getStats();
+		for (OperationStats current : stats) {
+			OperationStats earlier = previous.put(current.getName(), current);
+			OperationStats interval = earlier == null ? current : current.since(earlier);
+			if (interval.getCount() > 0) {
+				report.append(System.lineSeparator()).append(interval);
+			}
+		}
+		return report.toString();
+	}
+
+	private void logReport() {
+		try {
+			String report = report();
+			if (!report.isEmpty()) {
+				LOGGER.info("Operations of the last period:" + report);
+			}
+		} catch (RuntimeException e) {
+			// An exception would cancel the next reports
+			LOGGER.log(Level.WARNING, "Could not report the metrics", e);
+		}
+	}
+
+	/**
+	 * Stops the reports.
+	 */
+	@Override
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+}
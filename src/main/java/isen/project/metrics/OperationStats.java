@@ -0,0 +1,82 @@
+package isen.project.metrics;
+
+/**
+ * Immutable snapshot of the statistics of an {@link OperationTimer}.
+ */
+public class OperationStats {
+
+	private final String name;
+	private final long errorCount;
+	private final long rowsScanned;
+	private final long rowsReturned;
+	private final HistogramSnapshot latency;
+
+	OperationStats(String name, long errorCount, long rowsScanned, long rowsReturned, HistogramSnapshot latency) {
+		this.name = name;
+		this.errorCount = errorCount;
+		this.rowsScanned = rowsScanned;
+		this.rowsReturned = rowsReturned;
+		this.latency = latency;
+	}
+
+	/**
+	 * @return the name of the operation
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the number of calls
+	 */
+	public long getCount() {
+		return latency.getCount();
+	}
+
+	/**
+	 * @return the number of calls that threw an exception
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * @return the number of rows the calls read from the database
+	 */
+	public long getRowsScanned() {
+		return rowsScanned;
+	}
+
+	/**
+	 * @return the number of rows the calls returned
+	 */
+	public long getRowsReturned() {
+		return rowsReturned;
+	}
+
+	/**
+	 * @return the durations of the calls
+	 */
+	public HistogramSnapshot getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Method to get the statistics of the calls made between an earlier snapshot and this one.
+	 * @param earlier An earlier snapshot of the same operation.
+	 * @return the statistics of the interval
+	 */
+	public OperationStats since(OperationStats earlier) {
+		return new OperationStats(name, errorCount - earlier.errorCount, rowsScanned - earlier.rowsScanned,
+				rowsReturned - earlier.rowsReturned, latency.since(earlier.latency));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[count=%d, errors=%d, rowsScanned=%d, rowsReturned=%d, meanMs=%.3f, p50Ms=%.3f, "
+				+ "p99Ms=%.3f, p999Ms=%.3f, maxMs=%.3f]", name, getCount(), errorCount, rowsScanned, rowsReturned,
+				OperationTimer.toMillis(latency.getMeanNanos()), OperationTimer.toMillis(latency.getValueAtPercentile(50)),
+				OperationTimer.toMillis(latency.getValueAtPercentile(99)),
+				OperationTimer.toMillis(latency.getValueAtPercentile(99.9)), OperationTimer.toMillis(latency.getMaxNanos()));
+	}
+}
@@ -0,0 +1,129 @@
+package isen.project.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the calls of one operation: how many there were, how long they took, how many
+ * failed, and how many rows they read and returned. Timers are obtained from a
+ * {@link MetricsRegistry} and are safe to use from any number of threads.
+ */
+public class OperationTimer implements OperationTimerMXBean {
+
+	private final String name;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder errorCount = new LongAdder();
+	private final LongAdder rowsScanned = new LongAdder();
+	private final LongAdder rowsReturned = new LongAdder();
+
+	OperationTimer(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Method to run an operation and record its duration, as an error if it throws.
+	 * @param <T> The type of the result.
+	 * @param <E> The type of the exception the operation may throw.
+	 * @param operation The operation.
+	 * @return the result of the operation
+	 * @throws E if the operation fails, the exception is rethrown unchanged.
+	 */
+	public <T, E extends Exception> T time(TimedOperation<T, E> operation) throws E {
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			T result = operation.run();
+			succeeded = true;
+			return result;
+		} finally {
+			record(System.nanoTime() - start, succeeded);
+		}
+	}
+
+	/**
+	 * Method to record a call measured by the caller.
+	 * @param nanos The duration of the call, in nanoseconds.
+	 * @param succeeded False if the call failed.
+	 */
+	public void record(long nanos, boolean succeeded) {
+		latency.record(nanos);
+		if (!succeeded) {
+			errorCount.increment();
+		}
+	}
+
+	/**
+	 * Method to count the rows of a call.
+	 * @param scanned The rows read from the database.
+	 * @param returned The rows handed to the caller.
+	 */
+	public void addRows(long scanned, long returned) {
+		rowsScanned.add(scanned);
+		rowsReturned.add(returned);
+	}
+
+	/**
+	 * @return a snapshot of the statistics
+	 */
+	public OperationStats getStats() {
+		return new OperationStats(name, errorCount.sum(), rowsScanned.sum(), rowsReturned.sum(), latency.snapshot());
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getCount() {
+		return latency.snapshot().getCount();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+	@Override
+	public long getRowsScanned() {
+		return rowsScanned.sum();
+	}
+
+	@Override
+	public long getRowsReturned() {
+		return rowsReturned.sum();
+	}
+
+	@Override
+	public double getMeanMillis() {
+		return toMillis(latency.snapshot().getMeanNanos());
+	}
+
+	@Override
+	public double getP50Millis() {
+		return toMillis(latency.snapshot().getValueAtPercentile(50));
+	}
+
+	@Override
+	public double getP90Millis() {
+		return toMillis(latency.snapshot().getValueAtPercentile(90));
+	}
+
+	@Override
+	public double getP99Millis() {
+		return toMillis(latency.snapshot().getValueAtPercentile(99));
+	}
+
+	@Override
+	public double getP999Millis() {
+		return toMillis(latency.snapshot().getValueAtPercentile(99.9));
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return toMillis(latency.snapshot().getMaxNanos());
+	}
+
+	static double toMillis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+}
@@ -0,0 +1,63 @@
+package isen.project.metrics;
+
+/**
+ * Management interface of an {@link OperationTimer}, as shown by JMX consoles.
+ * The durations are counted since the application started.
+ */
+public interface OperationTimerMXBean {
+
+	/**
+	 * @return the name of the operation
+	 */
+	String getName();
+
+	/**
+	 * @return the number of calls
+	 */
+	long getCount();
+
+	/**
+	 * @return the number of calls that threw an exception
+	 */
+	long getErrorCount();
+
+	/**
+	 * @return the number of rows the calls read from the database
+	 */
+	long getRowsScanned();
+
+	/**
+	 * @return the number of rows the calls returned
+	 */
+	long getRowsReturned();
+
+	/**
+	 * @return the average duration of a call, in milliseconds
+	 */
+	double getMeanMillis();
+
+	/**
+	 * @return the median duration of a call, in milliseconds
+	 */
+	double getP50Millis();
+
+	/**
+	 * @return the duration under which 90% of the calls fall, in milliseconds
+	 */
+	double getP90Millis();
+
+	/**
+	 * @return the duration under which 99% of the calls fall, in milliseconds
+	 */
+	double getP99Millis();
+
+	/**
+	 * @return the duration under which 99.9% of the calls fall, in milliseconds
+	 */
+	double getP999Millis();
+
+	/**
+	 * @return the longest duration of a call, in milliseconds
+	 */
+	double getMaxMillis();
+}
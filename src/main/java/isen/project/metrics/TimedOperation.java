@@ -0,0 +1,17 @@
+package isen.project.metrics;
+
+/**
+ * An operation measured by an {@link OperationTimer}.
+ * @param <T> The type of the result.
+ * @param <E> The type of the exception the operation may throw.
+ */
+@FunctionalInterface
+public interface TimedOperation<T, E extends Exception> {
+
+	/**
+	 * Method to run the operation.
+	 * @return the result of the operation
+	 * @throws E if the operation fails.
+	 */
+	T run() throws E;
+}
@@ -1,9 +1,15 @@
 package isen.project.model;
 
 import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Represents a person entity with various attributes.
+ * A person read from the database carries the version of its row, which the database
+ * increments on every update, and remembers which fields were changed since it was read,
+ * so an update only writes those and fails if someone else updated the row meanwhile.
  */
 public class Person {
     
@@ -16,6 +22,8 @@ public class Person {
     private String address; // Address of the person
     private String emailAddress; // Email address of the person
     private LocalDate birthDate; // Date of birth of the person
+    private int version; // Version of the row the person was read from, 0 if unknown
+    private int dirtyFields; // Fields changed since the person was read, one bit per PersonField
     
     /**
      * Default constructor for Person class.
@@ -46,6 +54,17 @@ public class Person {
         this.setBirthDate(birthDate);
     }
 
+    /**
+     * Copy constructor, giving a person that can be changed without affecting the original.
+     * @param person The person to copy, including its version and its changed fields.
+     */
+    public Person(Person person) {
+        this(person.getIdperson(), person.getLastname(), person.getFirstname(), person.getNickname(),
+                person.getPhoneNumber(), person.getAddress(), person.getEmailAddress(), person.getBirthDate());
+        this.version = person.getVersion();
+        this.dirtyFields = person.dirtyFields;
+    }
+
     // Getters and setters for person attributes
 
     /**
@@ -77,6 +96,7 @@ public class Person {
      * @param lastname The last name of the person.
      */
     public void setLastname(String lastname) {
+        changing(PersonField.LASTNAME, this.lastname, lastname);
         this.lastname = lastname;
     }
 
@@ -93,6 +113,7 @@ public class Person {
      * @param firstname The first name of the person.
      */
     public void setFirstname(String firstname) {
+        changing(PersonField.FIRSTNAME, this.firstname, firstname);
         this.firstname = firstname;
     }
 
@@ -109,6 +130,7 @@ public class Person {
      * @param nickname The nickname of the person.
      */
     public void setNickname(String nickname) {
+        changing(PersonField.NICKNAME, this.nickname, nickname);
         this.nickname = nickname;
     }
 
@@ -125,6 +147,7 @@ public class Person {
      * @param phoneNumber The phone number of the person.
      */
     public void setPhoneNumber(String phoneNumber) {
+        changing(PersonField.PHONE_NUMBER, this.phoneNumber, phoneNumber);
         this.phoneNumber = phoneNumber;
     }
 
@@ -141,6 +164,7 @@ public class Person {
      * @param address The address of the person.
      */
     public void setAddress(String address) {
+        changing(PersonField.ADDRESS, this.address, address);
         this.address = address;
     }
 
@@ -157,6 +181,7 @@ public class Person {
      * @param emailAddress The email address of the person.
      */
     public void setEmailAddress(String emailAddress) {
+        changing(PersonField.EMAIL_ADDRESS, this.emailAddress, emailAddress);
         this.emailAddress = emailAddress;
     }
 
@@ -173,6 +198,61 @@ public class Person {
      * @param birthDate The birth date of the person.
      */
     public void setBirthDate(LocalDate birthDate) {
+        changing(PersonField.BIRTH_DATE, this.birthDate, birthDate);
         this.birthDate = birthDate;
     }
-}
\ No newline at end of file
+
+    /**
+     * Get the version of the row the person was read from.
+     * @return The version, 0 if the person was not read from the database.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Set the version of the row the person was read from.
+     * @param version The version of the row.
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Get the fields changed since the person was read or last saved.
+     * @return A new set of the changed fields.
+     */
+    public Set<PersonField> getDirtyFields() {
+        Set<PersonField> fields = EnumSet.noneOf(PersonField.class);
+        for (PersonField field : PersonField.values()) {
+            if ((dirtyFields & field.mask()) != 0) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Tell whether fields were changed since the person was read or last saved.
+     * @return True if at least one field was changed.
+     */
+    public boolean isDirty() {
+        return dirtyFields != 0;
+    }
+
+    /**
+     * Forget the changes, once the person is read from or saved to the database.
+     */
+    public void clearDirtyFields() {
+        dirtyFields = 0;
+    }
+
+    /**
+     * Marks a field as changed if its new value differs from the current one.
+     */
+    private void changing(PersonField field, Object oldValue, Object newValue) {
+        if (!Objects.equals(oldValue, newValue)) {
+            dirtyFields |= field.mask();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package isen.project.model;
+
+/**
+ * The editable fields of a {@link Person}, with the column of the 'person' table each is stored in.
+ */
+public enum PersonField {
+
+	LASTNAME("lastname"),
+	FIRSTNAME("firstname"),
+	NICKNAME("nickname"),
+	PHONE_NUMBER("phone_number"),
+	ADDRESS("address"),
+	EMAIL_ADDRESS("email_address"),
+	BIRTH_DATE("birth_date");
+
+	private final String column;
+
+	PersonField(String column) {
+		this.column = column;
+	}
+
+	/**
+	 * @return the name of the column in the 'person' table
+	 */
+	public String getColumn() {
+		return column;
+	}
+
+	/**
+	 * @return the bit of the field in a set of fields packed in an int
+	 */
+	int mask() {
+		return 1 << ordinal();
+	}
+}
@@ -0,0 +1,481 @@
+package isen.project.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Compact storage of many persons, one array per column instead of one object per person.
+ * The names, which repeat a lot, are stored once each and referenced by number; the phone
+ * numbers, addresses and email addresses, mostly distinct, are packed as UTF-8 bytes in a
+ * single array; the birth dates are stored as epoch days. A million persons then take a
+ * few dozen objects instead of tens of millions.
+ * Persons are read through lightweight {@link Person} views created on demand, which read
+ * the arrays of the store. A view modified through its setters takes a copy of its values
+ * first, so the store itself never changes once filled.
+ */
+public class PersonStore {
+
+	// Epoch day standing for a missing birth date
+	private static final int NO_DATE = Integer.MIN_VALUE;
+
+	private int size;
+	private int[] ids;
+	private int[] versions;
+	private int[] birthDates;
+	private final DictionaryColumn lastnames;
+	private final DictionaryColumn firstnames;
+	private final DictionaryColumn nicknames;
+	private final PackedColumn phoneNumbers;
+	private final PackedColumn addresses;
+	private final PackedColumn emailAddresses;
+
+	/**
+	 * Creates an empty store.
+	 */
+	public PersonStore() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty store sized for a number of persons.
+	 * @param capacity The number of persons expected, the store grows beyond it if needed.
+	 */
+	public PersonStore(int capacity) {
+		int initialCapacity = Math.max(capacity, 1);
+		ids = new int[initialCapacity];
+		versions = new int[initialCapacity];
+		birthDates = new int[initialCapacity];
+		lastnames = new DictionaryColumn(initialCapacity);
+		firstnames = new DictionaryColumn(initialCapacity);
+		nicknames = new DictionaryColumn(initialCapacity);
+		phoneNumbers = new PackedColumn(initialCapacity);
+		addresses = new PackedColumn(initialCapacity);
+		emailAddresses = new PackedColumn(initialCapacity);
+	}
+
+	/**
+	 * Method to append a person to the store.
+	 * @param person The person, whose values and version are copied.
+	 */
+	public void add(Person person) {
+		add(person.getIdperson(), person.getLastname(), person.getFirstname(), person.getNickname(),
+				person.getPhoneNumber(), person.getAddress(), person.getEmailAddress(), person.getBirthDate(),
+				person.getVersion());
+	}
+
+	/**
+	 * Method to append a person to the store from the values of its columns.
+	 * @param idperson The ID of the person.
+	 * @param lastname The last name.
+	 * @param firstname The first name.
+	 * @param nickname The nickname.
+	 * @param phoneNumber The phone number.
+	 * @param address The address.
+	 * @param emailAddress The email address.
+	 * @param birthDate The birth date, may be null.
+	 */
+	public void add(int idperson, String lastname, String firstname, String nickname, String phoneNumber,
+			String address, String emailAddress, LocalDate birthDate) {
+		add(idperson, lastname, firstname, nickname, phoneNumber, address, emailAddress, birthDate, 0);
+	}
+
+	/**
+	 * Method to append a person read from the database to the store, with the version of its row.
+	 * @param idperson The ID of the person.
+	 * @param lastname The last name.
+	 * @param firstname The first name.
+	 * @param nickname The nickname.
+	 * @param phoneNumber The phone number.
+	 * @param address The address.
+	 * @param emailAddress The email address.
+	 * @param birthDate The birth date, may be null.
+	 * @param version The version of the row, 0 if unknown.
+	 */
+	public void add(int idperson, String lastname, String firstname, String nickname, String phoneNumber,
+			String address, String emailAddress, LocalDate birthDate, int version) {
+		if (size == ids.length) {
+			int capacity = size + (size >> 1) + 1;
+			ids = Arrays.copyOf(ids, capacity);
+			versions = Arrays.copyOf(versions, capacity);
+			birthDates = Arrays.copyOf(birthDates, capacity);
+		}
+		ids[size] = idperson;
+		versions[size] = version;
+		birthDates[size] = birthDate == null ? NO_DATE : (int) birthDate.toEpochDay();
+		lastnames.add(size, lastname);
+		firstnames.add(size, firstname);
+		nicknames.add(size, nickname);
+		phoneNumbers.add(size, phoneNumber);
+		addresses.add(size, address);
+		emailAddresses.add(size, emailAddress);
+		size++;
+	}
+
+	/**
+	 * Method to release the room reserved for persons that were not added, once the store is filled.
+	 */
+	public void trimToSize() {
+		ids = Arrays.copyOf(ids, size);
+		versions = Arrays.copyOf(versions, size);
+		birthDates = Arrays.copyOf(birthDates, size);
+		lastnames.trimToSize(size);
+		firstnames.trimToSize(size);
+		nicknames.trimToSize(size);
+		phoneNumbers.trimToSize(size);
+		addresses.trimToSize(size);
+		emailAddresses.trimToSize(size);
+	}
+
+	/**
+	 * @return the number of persons in the store
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param index The position of the person in the store.
+	 * @return the ID of the person
+	 */
+	public int getIdperson(int index) {
+		checkIndex(index);
+		return ids[index];
+	}
+
+	/**
+	 * @param index The position of the person in the store.
+	 * @return the version of the row the person was read from, 0 if unknown
+	 */
+	public int getVersion(int index) {
+		checkIndex(index);
+		return versions[index];
+	}
+
+	/**
+	 * @param index The position of the person in the store.
+	 * @return the last name of the person
+	 */
+	public String getLastname(int index) {
+		checkIndex(index);
+		return lastnames.get(index);
+	}
+
+	/**
+	 * @param index The position of the person in the store.
+	 * @return the first name of the person
+	 */
+	public String getFirstname(int index) {
+		checkIndex(index);
+		return firstnames.get(index);
+	}
+
+	/**
+	 * @param index The position of the person in the store.
+	 * @return the nickname of the person
+	 */
+	public String getNickname(int index) {
+		checkIndex(index);
+		return nicknames.get(index);
+	}
+
+	/**
+	 * @param index The position of the person in the store.
+	 * @return the phone number of the person
+	 */
+	public String getPhoneNumber(int index) {
+		checkIndex(index);
+		return phoneNumbers.get(index);
+	}
+
+	/**
+	 * @param index The position of the person in the store.
+	 * @return the address of the person
+	 */
+	public String getAddress(int index) {
+		checkIndex(index);
+		return addresses.get(index);
+	}
+
+	/**
+	 * @param index The position of the person in the store.
+	 * @return the email address of the person
+	 */
+	public String getEmailAddress(int index) {
+		checkIndex(index);
+		return emailAddresses.get(index);
+	}
+
+	/**
+	 * @param index The position of the person in the store.
+	 * @return the birth date of the person, null if it is unknown
+	 */
+	public LocalDate getBirthDate(int index) {
+		checkIndex(index);
+		return birthDates[index] == NO_DATE ? null : LocalDate.ofEpochDay(birthDates[index]);
+	}
+
+	/**
+	 * Method to get a view of a person of the store.
+	 * @param index The position of the person in the store.
+	 * @return a new view, reading its values from the store until it is modified
+	 */
+	public Person get(int index) {
+		checkIndex(index);
+		return new PersonView(index);
+	}
+
+	/**
+	 * @return a read-only list of the persons of the store, each view being created when it is read
+	 */
+	public List<Person> asList() {
+		return new PersonList();
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size + " persons");
+		}
+	}
+
+	/**
+	 * A person read from the store. Its getters read the arrays of the store, and its first
+	 * setter call copies every value into the view, so later changes only affect the view
+	 * and mark as changed the fields they actually change.
+	 */
+	private final class PersonView extends Person {
+
+		private final int index;
+		private boolean detached;
+
+		PersonView(int index) {
+			this.index = index;
+		}
+
+		private void detach() {
+			if (!detached) {
+				detached = true;
+				super.setIdperson(ids[index]);
+				super.setLastname(lastnames.get(index));
+				super.setFirstname(firstnames.get(index));
+				super.setNickname(nicknames.get(index));
+				super.setPhoneNumber(phoneNumbers.get(index));
+				super.setAddress(addresses.get(index));
+				super.setEmailAddress(emailAddresses.get(index));
+				super.setBirthDate(PersonStore.this.getBirthDate(index));
+				super.setVersion(versions[index]);
+				super.clearDirtyFields();
+			}
+		}
+
+		@Override
+		public int getVersion() {
+			return detached ? super.getVersion() : versions[index];
+		}
+
+		@Override
+		public void setVersion(int version) {
+			detach();
+			super.setVersion(version);
+		}
+
+		@Override
+		public int getIdperson() {
+			return detached ? super.getIdperson() : ids[index];
+		}
+
+		@Override
+		public void setIdperson(int idperson) {
+			detach();
+			super.setIdperson(idperson);
+		}
+
+		@Override
+		public String getLastname() {
+			return detached ? super.getLastname() : lastnames.get(index);
+		}
+
+		@Override
+		public void setLastname(String lastname) {
+			detach();
+			super.setLastname(lastname);
+		}
+
+		@Override
+		public String getFirstname() {
+			return detached ? super.getFirstname() : firstnames.get(index);
+		}
+
+		@Override
+		public void setFirstname(String firstname) {
+			detach();
+			super.setFirstname(firstname);
+		}
+
+		@Override
+		public String getNickname() {
+			return detached ? super.getNickname() : nicknames.get(index);
+		}
+
+		@Override
+		public void setNickname(String nickname) {
+			detach();
+			super.setNickname(nickname);
+		}
+
+		@Override
+		public String getPhoneNumber() {
+			return detached ? super.getPhoneNumber() : phoneNumbers.get(index);
+		}
+
+		@Override
+		public void setPhoneNumber(String phoneNumber) {
+			detach();
+			super.setPhoneNumber(phoneNumber);
+		}
+
+		@Override
+		public String getAddress() {
+			return detached ? super.getAddress() : addresses.get(index);
+		}
+
+		@Override
+		public void setAddress(String address) {
+			detach();
+			super.setAddress(address);
+		}
+
+		@Override
+		public String getEmailAddress() {
+			return detached ? super.getEmailAddress() : emailAddresses.get(index);
+		}
+
+		@Override
+		public void setEmailAddress(String emailAddress) {
+			detach();
+			super.setEmailAddress(emailAddress);
+		}
+
+		@Override
+		public LocalDate getBirthDate() {
+			return detached ? super.getBirthDate() : PersonStore.this.getBirthDate(index);
+		}
+
+		@Override
+		public void setBirthDate(LocalDate birthDate) {
+			detach();
+			super.setBirthDate(birthDate);
+		}
+	}
+
+	/**
+	 * Read-only list of the persons of the store.
+	 */
+	private final class PersonList extends AbstractList<Person> implements RandomAccess {
+
+		@Override
+		public Person get(int index) {
+			return PersonStore.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * Column of repeated values: each distinct value is stored once and the rows hold its number.
+	 */
+	private static final class DictionaryColumn {
+
+		private int[] codes;
+		private final List<String> values = new ArrayList<>();
+		private final Map<String, Integer> codesByValue = new HashMap<>();
+
+		DictionaryColumn(int capacity) {
+			codes = new int[capacity];
+		}
+
+		void add(int row, String value) {
+			if (row == codes.length) {
+				codes = Arrays.copyOf(codes, row + (row >> 1) + 1);
+			}
+			if (value == null) {
+				codes[row] = -1;
+				return;
+			}
+			Integer code = codesByValue.get(value);
+			if (code == null) {
+				code = values.size();
+				values.add(value);
+				codesByValue.put(value, code);
+			}
+			codes[row] = code;
+		}
+
+		String get(int row) {
+			int code = codes[row];
+			return code < 0 ? null : values.get(code);
+		}
+
+		void trimToSize(int size) {
+			codes = Arrays.copyOf(codes, size);
+		}
+	}
+
+	/**
+	 * Column of mostly distinct values, packed as UTF-8 bytes one after the other.
+	 * A String is only created when a value is read.
+	 */
+	private static final class PackedColumn {
+
+		private byte[] bytes;
+		// End offset of each value in the bytes
+		private int[] ends;
+		private int length;
+		private final BitSet nulls = new BitSet();
+
+		PackedColumn(int capacity) {
+			bytes = new byte[capacity * 16];
+			ends = new int[capacity];
+		}
+
+		void add(int row, String value) {
+			if (row == ends.length) {
+				ends = Arrays.copyOf(ends, row + (row >> 1) + 1);
+			}
+			if (value == null) {
+				nulls.set(row);
+			} else {
+				byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+				if (length + encoded.length > bytes.length) {
+					bytes = Arrays.copyOf(bytes, Math.max(length + encoded.length, bytes.length + (bytes.length >> 1) + 16));
+				}
+				System.arraycopy(encoded, 0, bytes, length, encoded.length);
+				length += encoded.length;
+			}
+			ends[row] = length;
+		}
+
+		String get(int row) {
+			if (nulls.get(row)) {
+				return null;
+			}
+			int start = row == 0 ? 0 : ends[row - 1];
+			return new String(bytes, start, ends[row] - start, StandardCharsets.UTF_8);
+		}
+
+		void trimToSize(int size) {
+			ends = Arrays.copyOf(ends, size);
+			bytes = Arrays.copyOf(bytes, length);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package isen.project.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import isen.project.db.ConnectionPool;
+import isen.project.db.DataSourceFactory;
+import isen.project.db.PersonBulkInserter;
+import isen.project.db.PersonDao;
+import isen.project.io.PersonCsvFormat;
+
+/**
+ * Command line tool filling a database or a CSV file with synthetic persons.
+ * Usage: {@code ContactGenerator --rows 1000000 [--seed 42] [--db database.db] [--csv persons.csv]}
+ * The same seed always gives the same content, so sizes can be reproduced on any machine.
+ */
+public class ContactGenerator {
+
+	// Number of rows between two progress messages
+	private static final int PROGRESS_STEP = 100_000;
+
+	private ContactGenerator() {
+		throw new IllegalStateException("This is a static class that should not be instantiated");
+	}
+
+	/**
+	 * Runs the generator.
+	 * @param args The command line options.
+	 * @throws Exception if the output cannot be written.
+	 */
+	public static void main(String[] args) throws Exception {
+		long rows = 100_000;
+		long seed = 42;
+		Path database = null;
+		Path csv = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--rows":
+				rows = Long.parseLong(args[++i]);
+				break;
+			case "--seed":
+				seed = Long.parseLong(args[++i]);
+				break;
+			case "--db":
+				database = Paths.get(args[++i]);
+				break;
+			case "--csv":
+				csv = Paths.get(args[++i]);
+				break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.err.println("Usage: ContactGenerator --rows <count> [--seed <seed>] [--db <file>] [--csv <file>]");
+				System.exit(2);
+			}
+		}
+		if (database == null && csv == null) {
+			database = Paths.get("database.db");
+		}
+		long start = System.nanoTime();
+		if (database != null) {
+			generateDatabase(database, rows, seed);
+		}
+		if (csv != null) {
+			generateCsv(csv, rows, seed);
+		}
+		System.out.printf("Generated %d persons in %.1f s%n", rows, (System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Appends generated persons to a database, creating its schema if needed.
+	 * All rows are inserted in a single transaction by batches, with the durability
+	 * settings of the writer connection relaxed for the duration of the load.
+	 * @param file The SQLite database file.
+	 * @param rows The number of persons to generate.
+	 * @param seed The seed of the sequence of persons.
+	 * @throws Exception if the database cannot be written.
+	 */
+	public static void generateDatabase(Path file, long rows, long seed) throws Exception {
+		try (ConnectionPool pool = DataSourceFactory.createConnectionPool("jdbc:sqlite:" + file.toAbsolutePath())) {
+			PersonDao personDao = new PersonDao(pool);
+			personDao.setBatchSize(5_000);
+			personDao.initDb();
+			applyBulkLoadPragmas(pool, true);
+			try {
+				PersonGenerator generator = new PersonGenerator(seed);
+				try (PersonBulkInserter inserter = personDao.openBulkInserter(rows)) {
+					for (long i = 1; i <= rows; i++) {
+						inserter.add(generator.next());
+						progress(i);
+					}
+					inserter.commit();
+				}
+			} finally {
+				applyBulkLoadPragmas(pool, false);
+			}
+		}
+	}
+
+	/**
+	 * Writes generated persons to a CSV file in the {@link PersonCsvFormat} layout.
+	 * @param file The CSV file, replaced if it exists.
+	 * @param rows The number of persons to generate.
+	 * @param seed The seed of the sequence of persons.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void generateCsv(Path file, long rows, long seed) throws IOException {
+		PersonGenerator generator = new PersonGenerator(seed);
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write(PersonCsvFormat.HEADER);
+			writer.write("\r\n");
+			for (long i = 1; i <= rows; i++) {
+				PersonCsvFormat.writeRow(writer, generator.next());
+				progress(i);
+			}
+		}
+	}
+
+	/**
+	 * Relaxes the durability of the writer connection, or restores the profile of the pool:
+	 * the load is a single transaction that can simply be run again if the machine crashes
+	 * in the middle.
+	 */
+	private static void applyBulkLoadPragmas(ConnectionPool pool, boolean bulkLoad) throws SQLException {
+		try (Connection connection = pool.getConnection()) {
+			if (!bulkLoad) {
+				pool.getProfile().apply(connection);
+				return;
+			}
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("PRAGMA synchronous = OFF");
+				statement.execute("PRAGMA cache_size = -262144");
+				statement.execute("PRAGMA temp_store = MEMORY");
+			}
+		}
+	}
+
+	private static void progress(long row) {
+		if (row % PROGRESS_STEP == 0) {
+			System.out.println(row + " persons generated");
+		}
+	}
+}
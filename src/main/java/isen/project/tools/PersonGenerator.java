@@ -0,0 +1,171 @@
+package isen.project.tools;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import isen.project.model.Person;
+
+/**
+ * Deterministic source of realistic synthetic persons for load and scale testing.
+ * The same seed always produces the same sequence of persons. The data mimics what a
+ * real address book holds: a few lastnames are very common while most are rare,
+ * optional fields are sometimes missing, and some entries are near copies of
+ * earlier ones (other case, typo, other phone formatting) like manual duplicates.
+ */
+public class PersonGenerator {
+
+	private static final String[] COMMON_LASTNAMES = { "Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard",
+			"Petit", "Durand", "Leroy", "Moreau", "Simon", "Laurent", "Lefebvre", "Michel", "Garcia", "David",
+			"Bertrand", "Roux", "Vincent", "Fournier", "Morel", "Girard", "Andre", "Mercier", "Dupont", "Lambert",
+			"Bonnet", "Francois", "Martinez", "Legrand", "Smith", "Johnson", "Williams", "Brown", "Jones", "Miller",
+			"Davis", "Wilson", "Anderson", "Taylor", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer", "Wagner",
+			"Rossi", "Russo", "Ferrari", "Esposito", "Nguyen", "Tran", "Le", "Pham", "Kim", "Lee", "Park", "Wang",
+			"Li", "Zhang" };
+	private static final String[] FIRSTNAMES = { "Jean", "Marie", "Pierre", "Anne", "Louis", "Camille", "Hugo",
+			"Emma", "Lucas", "Chloe", "Nathan", "Lea", "Gabriel", "Manon", "Arthur", "Ines", "Jules", "Sarah",
+			"Adam", "Alice", "James", "Mary", "John", "Linda", "Paul", "Laura", "Michael", "Julia", "David", "Anna",
+			"Thomas", "Eva", "Leo", "Zoe", "Ethan", "Nina", "Noah", "Lina", "Oscar", "Rose" };
+	private static final String[] SYLLABLES = { "ka", "lo", "mi", "ren", "sa", "tor", "vel", "dan", "fe", "gri",
+			"hol", "ja", "ber", "qui", "zo", "nes", "par", "tin", "el", "ou" };
+	private static final String[] STREETS = { "Rue de la Paix", "Avenue Victor Hugo", "Boulevard Voltaire",
+			"Rue Nationale", "Place de la Gare", "Chemin des Vignes", "Main Street", "Oak Street", "Elm Street",
+			"Pine Street" };
+	private static final String[] CITIES = { "Paris", "Lille", "Lyon", "Marseille", "Toulouse", "Nantes",
+			"Bordeaux", "Brest", "Rennes", "Strasbourg" };
+	private static final String[] DOMAINS = { "gmail.com", "yahoo.fr", "orange.fr", "outlook.com", "free.fr",
+			"isen.fr", "test.com" };
+
+	// Share of generated lastnames drawn from the synthetic long tail instead of the common list
+	private static final double RARE_LASTNAME_RATE = 0.25;
+	// Share of persons that are near copies of a recent person
+	private static final double DUPLICATE_RATE = 0.03;
+	// Shares of missing optional fields
+	private static final double MISSING_PHONE_RATE = 0.10;
+	private static final double MISSING_ADDRESS_RATE = 0.15;
+	private static final double MISSING_EMAIL_RATE = 0.12;
+	private static final double MISSING_BIRTH_DATE_RATE = 0.08;
+	private static final double MISSING_NICKNAME_RATE = 0.30;
+
+	private final Random random;
+
+	// Cumulative Zipf weights of the common lastnames, the first names are the most frequent
+	private final double[] lastnameCumulativeWeights;
+
+	// Recently generated persons, the duplicates are copied from them
+	private final Person[] recent = new Person[1024];
+	private long generated;
+
+	/**
+	 * Creates a generator.
+	 * @param seed The seed of the sequence of persons.
+	 */
+	public PersonGenerator(long seed) {
+		this.random = new Random(seed);
+		this.lastnameCumulativeWeights = new double[COMMON_LASTNAMES.length];
+		double total = 0;
+		for (int i = 0; i < COMMON_LASTNAMES.length; i++) {
+			total += 1.0 / Math.pow(i + 1, 1.1);
+			lastnameCumulativeWeights[i] = total;
+		}
+		for (int i = 0; i < lastnameCumulativeWeights.length; i++) {
+			lastnameCumulativeWeights[i] /= total;
+		}
+	}
+
+	/**
+	 * @return the next person of the sequence, without ID
+	 */
+	public Person next() {
+		Person person;
+		if (generated > 0 && random.nextDouble() < DUPLICATE_RATE) {
+			person = nearCopy(recent[random.nextInt((int) Math.min(generated, recent.length))]);
+		} else {
+			person = newPerson();
+		}
+		recent[(int) (generated % recent.length)] = person;
+		generated++;
+		return person;
+	}
+
+	private Person newPerson() {
+		String lastname = random.nextDouble() < RARE_LASTNAME_RATE ? rareLastname() : commonLastname();
+		String firstname = FIRSTNAMES[random.nextInt(FIRSTNAMES.length)];
+		String nickname = random.nextDouble() < MISSING_NICKNAME_RATE ? ""
+				: firstname.substring(0, Math.min(3, firstname.length())) + (random.nextBoolean() ? "y" : "");
+		String phone = random.nextDouble() < MISSING_PHONE_RATE ? null
+				: String.format("0%d%08d", 1 + random.nextInt(7), random.nextInt(100_000_000));
+		String address = random.nextDouble() < MISSING_ADDRESS_RATE ? null
+				: (1 + random.nextInt(250)) + " " + STREETS[random.nextInt(STREETS.length)] + ", "
+						+ CITIES[random.nextInt(CITIES.length)];
+		String email = random.nextDouble() < MISSING_EMAIL_RATE ? null
+				: (firstname + "." + lastname + (random.nextBoolean() ? "" : String.valueOf(random.nextInt(100)))
+						+ "@" + DOMAINS[random.nextInt(DOMAINS.length)]).toLowerCase(Locale.ROOT);
+		LocalDate birthDate = random.nextDouble() < MISSING_BIRTH_DATE_RATE ? null : birthDate();
+		return new Person(0, lastname, firstname, nickname, phone, address, email, birthDate);
+	}
+
+	/**
+	 * Copies a person with the kind of differences manual entry introduces.
+	 */
+	private Person nearCopy(Person original) {
+		String lastname = original.getLastname();
+		String firstname = original.getFirstname();
+		String phone = original.getPhoneNumber();
+		String email = original.getEmailAddress();
+		switch (random.nextInt(4)) {
+		case 0:
+			lastname = lastname.toUpperCase(Locale.ROOT);
+			break;
+		case 1:
+			firstname = swapTwoLetters(firstname);
+			break;
+		case 2:
+			phone = phone == null ? null : phone.replaceAll("(\\d{2})(?=\\d)", "$1 ");
+			break;
+		default:
+			email = email == null ? null : email.toUpperCase(Locale.ROOT);
+			break;
+		}
+		return new Person(0, lastname, firstname, original.getNickname(), phone, original.getAddress(), email,
+				original.getBirthDate());
+	}
+
+	private String commonLastname() {
+		int index = Arrays.binarySearch(lastnameCumulativeWeights, random.nextDouble());
+		return COMMON_LASTNAMES[Math.min(index < 0 ? -index - 1 : index, COMMON_LASTNAMES.length - 1)];
+	}
+
+	private String rareLastname() {
+		StringBuilder lastname = new StringBuilder();
+		int syllables = 2 + random.nextInt(2);
+		for (int i = 0; i < syllables; i++) {
+			lastname.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		lastname.setCharAt(0, Character.toUpperCase(lastname.charAt(0)));
+		return lastname.toString();
+	}
+
+	/**
+	 * Birth dates between 1930 and 2010, more frequent around 1970 (sum of two uniform draws).
+	 */
+	private LocalDate birthDate() {
+		long start = LocalDate.of(1930, 1, 1).toEpochDay();
+		long span = LocalDate.of(2010, 12, 31).toEpochDay() - start;
+		long offset = (long) ((random.nextDouble() + random.nextDouble()) / 2 * span);
+		return LocalDate.ofEpochDay(start + offset);
+	}
+
+	private String swapTwoLetters(String value) {
+		if (value.length() < 3) {
+			return value;
+		}
+		int index = 1 + random.nextInt(value.length() - 2);
+		char[] letters = value.toCharArray();
+		char letter = letters[index];
+		letters[index] = letters[index + 1];
+		letters[index + 1] = letter;
+		return new String(letters);
+	}
+}
@@ -0,0 +1,291 @@
+package isen.project.util;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import isen.project.db.AsyncPersonDao;
+import isen.project.db.PageKey;
+import isen.project.db.PersonEvent;
+import isen.project.db.PersonPage;
+import isen.project.db.PersonSortColumn;
+import isen.project.db.SortDirection;
+import isen.project.metrics.MetricsRegistry;
+import isen.project.metrics.OperationTimer;
+import isen.project.model.Person;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableColumn.SortType;
+import javafx.scene.control.TableView;
+
+/**
+ * Feeds a person TableView page by page from the database.
+ * The next page is fetched in the background when the user scrolls close to the
+ * bottom of the table, and clicking a column header reloads the table sorted by
+ * the database instead of sorting the loaded rows in memory.
+ * Changes published by the DAO are applied row by row with {@link #apply(List)}, so a
+ * write only touches the affected rows instead of reloading the table.
+ */
+public class PersonTableModel {
+
+	private static final Logger LOGGER = Logger.getLogger(PersonTableModel.class.getName());
+
+	// Fraction of the scroll range after which the next page is requested
+	private static final double PREFETCH_THRESHOLD = 0.8;
+
+	// Time spent on the JavaFX thread putting rows in the table
+	private static final OperationTimer POPULATE_TIMER = MetricsRegistry.getDefault().timer("PersonTableModel.populate");
+	private static final OperationTimer APPLY_TIMER = MetricsRegistry.getDefault().timer("PersonTableModel.apply");
+
+	private final TableView<Person> table;
+	private final AsyncPersonDao personDao;
+	private final int pageSize;
+	private final Map<TableColumn<Person, ?>, PersonSortColumn> sortColumns = new HashMap<>();
+
+	private PersonSortColumn sortColumn = PersonSortColumn.ID;
+	private SortDirection direction = SortDirection.ASCENDING;
+	private PageKey nextKey;
+	private boolean exhausted;
+	// True when the table shows a fixed list of persons rather than the sorted pages
+	private boolean fixedList;
+	private CompletableFuture<PersonPage> pageRequest;
+
+	/**
+	 * Creates a model and installs it on the table.
+	 * @param table The table to feed.
+	 * @param personDao The DAO the pages are read from, completing its futures on the JavaFX thread.
+	 * @param pageSize The number of persons fetched at once.
+	 */
+	public PersonTableModel(TableView<Person> table, AsyncPersonDao personDao, int pageSize) {
+		this.table = table;
+		this.personDao = personDao;
+		this.pageSize = pageSize;
+		table.setSortPolicy(t -> {
+			applySortOrder();
+			return true;
+		});
+		table.skinProperty().addListener((observable, oldSkin, newSkin) -> watchScrollBar());
+	}
+
+	/**
+	 * Declares which database column a table column sorts on.
+	 * Columns that are not registered cannot be sorted.
+	 * @param column The table column.
+	 * @param sortColumn The database column.
+	 */
+	public void registerColumn(TableColumn<Person, ?> column, PersonSortColumn sortColumn) {
+		sortColumns.put(column, sortColumn);
+		column.setSortable(true);
+	}
+
+	/**
+	 * Clears the table and loads the first page with the current sort.
+	 */
+	public void reload() {
+		cancelPendingPage();
+		table.getItems().clear();
+		table.getSelectionModel().clearSelection();
+		nextKey = null;
+		exhausted = false;
+		fixedList = false;
+		loadNextPage();
+	}
+
+	/**
+	 * Shows a fixed list of persons (such as search results) instead of the paged content.
+	 * Scrolling does not load pages until {@link #reload()} is called.
+	 * @param persons The persons to show.
+	 */
+	public void showPersons(List<Person> persons) {
+		cancelPendingPage();
+		exhausted = true;
+		fixedList = true;
+		long start = System.nanoTime();
+		table.getItems().setAll(persons);
+		POPULATE_TIMER.record(System.nanoTime() - start, true);
+		POPULATE_TIMER.addRows(0, persons.size());
+		table.getSelectionModel().clearSelection();
+	}
+
+	/**
+	 * @return true if the table shows a list given to {@link #showPersons(List)} rather than the sorted pages
+	 */
+	public boolean isShowingFixedList() {
+		return fixedList;
+	}
+
+	/**
+	 * Fetches the page following the rows already in the table, unless one is already being fetched.
+	 */
+	public void loadNextPage() {
+		if (exhausted || pageRequest != null) {
+			return;
+		}
+		CompletableFuture<PersonPage> request = personDao.page(sortColumn, direction, nextKey, pageSize);
+		pageRequest = request;
+		request.whenComplete((page, error) -> {
+			if (pageRequest != request) {
+				// Superseded by a reload while it was running
+				return;
+			}
+			pageRequest = null;
+			if (error != null) {
+				LOGGER.log(Level.WARNING, "Could not load the next page of persons", error);
+				return;
+			}
+			long start = System.nanoTime();
+			table.getItems().addAll(page.getPersons());
+			POPULATE_TIMER.record(System.nanoTime() - start, true);
+			POPULATE_TIMER.addRows(0, page.getPersons().size());
+			nextKey = page.getNextKey();
+			exhausted = !page.hasNext();
+		});
+	}
+
+	/**
+	 * Applies changes of the 'person' table to the loaded rows: a deleted person is removed,
+	 * an updated one is replaced or moved to its new place in the sort, and an inserted one is
+	 * added where the sort puts it if that place is among the loaded rows. A fixed list only
+	 * follows the updates and deletions of the persons it shows.
+	 * Must be called on the JavaFX thread.
+	 * @param events The changes, in the order they were made.
+	 */
+	public void apply(List<PersonEvent> events) {
+		APPLY_TIMER.time(() -> {
+			applyEvents(events);
+			return null;
+		});
+	}
+
+	private void applyEvents(List<PersonEvent> events) {
+		if (!fixedList && pageRequest != null) {
+			// The page being read may or may not hold the changes, start again from the first one
+			reload();
+			return;
+		}
+		for (PersonEvent event : events) {
+			if (event.getType() == PersonEvent.Type.RELOADED) {
+				if (!fixedList) {
+					reload();
+				}
+				return;
+			}
+			ObservableList<Person> items = table.getItems();
+			int index = indexOf(event.getIdperson());
+			switch (event.getType()) {
+			case DELETED:
+				if (index >= 0) {
+					items.remove(index);
+				}
+				break;
+			case UPDATED:
+				if (fixedList) {
+					if (index >= 0) {
+						items.set(index, event.getPerson());
+					}
+				} else {
+					place(index, event.getPerson());
+				}
+				break;
+			case INSERTED:
+				if (!fixedList) {
+					place(-1, event.getPerson());
+				}
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Puts a person where the current sort places it among the loaded rows, replacing the row
+	 * at the given index. The person is left out if it belongs to a page not loaded yet.
+	 */
+	private void place(int index, Person person) {
+		ObservableList<Person> items = table.getItems();
+		Comparator<Person> order = sortColumn.getComparator();
+		if (direction == SortDirection.DESCENDING) {
+			order = order.reversed();
+		}
+		if (index >= 0) {
+			// Replacing in place only redraws this row. The last loaded row may not move past
+			// its old key, which the next page is read after
+			boolean last = index == items.size() - 1;
+			boolean inPlace = (index == 0 || order.compare(items.get(index - 1), person) < 0)
+					&& (last ? exhausted || order.compare(person, items.get(index)) <= 0
+							: order.compare(person, items.get(index + 1)) < 0);
+			if (inPlace) {
+				items.set(index, person);
+				return;
+			}
+			items.remove(index);
+		}
+		int position = -Collections.binarySearch(items, person, order) - 1;
+		if (position < 0) {
+			// Already in the loaded rows
+			return;
+		}
+		if (position < items.size() || exhausted) {
+			items.add(position, person);
+		}
+	}
+
+	private int indexOf(int idperson) {
+		List<Person> items = table.getItems();
+		for (int i = 0; i < items.size(); i++) {
+			if (items.get(i).getIdperson() == idperson) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void cancelPendingPage() {
+		CompletableFuture<PersonPage> pending = pageRequest;
+		if (pending != null) {
+			pageRequest = null;
+			pending.cancel(true);
+		}
+	}
+
+	/**
+	 * Reads the sort requested through the column headers and reloads the table if it changed.
+	 */
+	private void applySortOrder() {
+		PersonSortColumn requestedColumn = PersonSortColumn.ID;
+		SortDirection requestedDirection = SortDirection.ASCENDING;
+		if (!table.getSortOrder().isEmpty()) {
+			TableColumn<Person, ?> column = table.getSortOrder().get(0);
+			requestedColumn = sortColumns.getOrDefault(column, PersonSortColumn.ID);
+			requestedDirection = column.getSortType() == SortType.DESCENDING ? SortDirection.DESCENDING
+					: SortDirection.ASCENDING;
+		}
+		if (requestedColumn != sortColumn || requestedDirection != direction) {
+			sortColumn = requestedColumn;
+			direction = requestedDirection;
+			reload();
+		}
+	}
+
+	private void watchScrollBar() {
+		for (Node node : table.lookupAll(".scroll-bar")) {
+			if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+				ScrollBar scrollBar = (ScrollBar) node;
+				scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> {
+					if (newValue.doubleValue() >= scrollBar.getMax() * PREFETCH_THRESHOLD) {
+						loadNextPage();
+					}
+				});
+			}
+		}
+	}
+}
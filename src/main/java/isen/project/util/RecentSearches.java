@@ -0,0 +1,68 @@
+package isen.project.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import isen.project.model.Person;
+
+/**
+ * Results of the last searches, so going back to a query typed a moment ago
+ * (such as after a backspace) does not query the database again.
+ * Queries differing only by case or spaces share their results. The results
+ * must be forgotten with {@link #clear()} whenever the 'person' table changes.
+ */
+public class RecentSearches {
+
+	private final Map<String, List<Person>> results;
+
+	/**
+	 * Creates an empty cache.
+	 * @param maxSize The number of queries whose results are kept.
+	 */
+	public RecentSearches(int maxSize) {
+		this.results = new LinkedHashMap<String, List<Person>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, List<Person>> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Method to turn user input into the key its results are kept under.
+	 * @param searchInput The text typed by the user.
+	 * @return the input in lower case with its spaces collapsed, empty if it has no word
+	 */
+	public static String normalize(String searchInput) {
+		return searchInput.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @param query A query, as given by {@link #normalize(String)}.
+	 * @return the results of the query, or null if they are not known
+	 */
+	public List<Person> get(String query) {
+		return results.get(query);
+	}
+
+	/**
+	 * Keeps the results of a query, forgetting the least recently used query if the cache is full.
+	 * @param query A query, as given by {@link #normalize(String)}.
+	 * @param persons The results of the query.
+	 */
+	public void put(String query, List<Person> persons) {
+		results.put(query, Collections.unmodifiableList(persons));
+	}
+
+	/**
+	 * Forgets every result.
+	 */
+	public void clear() {
+		results.clear();
+	}
+}
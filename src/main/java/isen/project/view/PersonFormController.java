@@ -1,9 +1,19 @@
 package isen.project.view;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import isen.project.App;
-import isen.project.db.PersonDao;
+import isen.project.db.AsyncPersonDao;
+import isen.project.db.OptimisticLockException;
+import isen.project.db.PersonCache;
 import isen.project.model.Person;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.TextField;
 
@@ -13,6 +23,8 @@ import javafx.scene.control.TextField;
  */
 public class PersonFormController {
     
+    private static final Logger LOGGER = Logger.getLogger(PersonFormController.class.getName());
+    
     // Static variable to hold the person data
     private static Person person;
     
@@ -79,31 +91,62 @@ public class PersonFormController {
      */
     @FXML
     public void handleSaveButton() throws Exception {
-        // Create a new instance of PersonDao
-        PersonDao personDao = new PersonDao();
-        // Create a new Person object to store form data
-        Person personToSave = new Person();
+        // Create a DAO going through the shared cache and completing its calls on the JavaFX thread
+        AsyncPersonDao personDao = new AsyncPersonDao(PersonCache.getShared(), Platform::runLater);
+        // Edit a copy of the displayed person, so only the fields changed in the form are written,
+        // or create a new Person object to store form data
+        Person personToSave = person != null ? new Person(person) : new Person();
         // Set form data to the Person object
         personToSave.setFirstname(firstNameField.getText());
         personToSave.setLastname(lastNameField.getText());
         personToSave.setNickname(nicknameField.getText());
-        personToSave.setPhoneNumber(phoneField.getText());
-        personToSave.setAddress(addressField.getText());
-        personToSave.setEmailAddress(emailField.getText());
+        // The optional fields left blank stay NULL, so saving unchanged fields writes nothing
+        personToSave.setPhoneNumber(blankToNull(phoneField.getText()));
+        personToSave.setAddress(blankToNull(addressField.getText()));
+        personToSave.setEmailAddress(blankToNull(emailField.getText()));
         personToSave.setBirthDate(birthdatePicker.getValue());
         
-        // If person data is available, update the existing person
+        // If person data is available, update the existing person unless someone else changed it meanwhile
+        CompletableFuture<?> saving;
         if (person != null) {
-            Integer id = person.getIdperson();
-            personDao.updatePerson(id, personToSave);
+            saving = personDao.updatePersonIfUnchanged(personToSave);
         }
         // Otherwise, insert a new person
         else {
-            personDao.insertPerson(personToSave);
+            saving = personDao.insertPerson(personToSave);
         }
         
-        // Navigate back to the PersonOverview screen
-        App.setRoot("PersonOverview");
+        // Navigate back to the PersonOverview screen once saved, without blocking the window meanwhile
+        saving.whenComplete((result, error) -> {
+            if (error instanceof OptimisticLockException) {
+                // Stay on the form, so the changes are not lost
+                Alert alert = new Alert(AlertType.WARNING, error.getMessage()
+                        + ". Cancel and open the person again to see the current data.");
+                alert.setHeaderText(((OptimisticLockException) error).isDeleted()
+                        ? "This person was deleted by someone else since it was opened"
+                        : "This person was changed by someone else since it was opened");
+                alert.show();
+                return;
+            }
+            if (error != null) {
+                LOGGER.log(Level.WARNING, "Could not save the person", error);
+                return;
+            }
+            try {
+                App.setRoot("PersonOverview");
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not show the overview", e);
+            }
+        });
+    }
+    
+    /**
+     * Method to read an optional field of the form.
+     * @param text The text of the field.
+     * @return the text, or null if it is empty or only made of spaces
+     */
+    private static String blankToNull(String text) {
+        return text == null || text.trim().isEmpty() ? null : text;
     }
     
     /**
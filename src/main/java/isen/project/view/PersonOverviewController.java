@@ -1,18 +1,37 @@
 package isen.project.view;
 
+import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import isen.project.App;
-import isen.project.db.PersonDao;
+import isen.project.db.AsyncPersonDao;
+import isen.project.db.OptimisticLockException;
+import isen.project.db.PersonCache;
+import isen.project.db.PersonEventListener;
+import isen.project.db.PersonSortColumn;
+import isen.project.io.ImportReport;
+import isen.project.io.PersonCsvExporter;
+import isen.project.io.PersonCsvImporter;
+import isen.project.io.PersonVCardExporter;
+import isen.project.io.PersonVCardImporter;
 import isen.project.model.Person;
 import isen.project.util.*;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
 
 /**
  * Controller class for the PersonOverview.fxml file.
@@ -20,6 +39,8 @@ import javafx.scene.control.TextField;
  */
 public class PersonOverviewController {
 
+    private static final Logger LOGGER = Logger.getLogger(PersonOverviewController.class.getName());
+
     // FXML fields for various UI components
 	@FXML
 	TextField searchField;
@@ -45,11 +66,38 @@ public class PersonOverviewController {
 	// Selected person from the table
     private Person selectedPerson;
     
-    // Data access object for person operations
-    private PersonDao personDao = new PersonDao();
+    // Data access object for person operations, going through the shared cache and completing its calls on the JavaFX thread
+    private AsyncPersonDao personDao = new AsyncPersonDao(PersonCache.getShared(), Platform::runLater);
     
     // List to store retrieved persons from the database
-    private List<Person> persons = personDao.listPersons();
+    private List<Person> persons = new ArrayList<>();
+    
+    // Number of rows fetched at once when the table is scrolled
+    private static final int PAGE_SIZE = 100;
+    
+    // Model loading the table content page by page
+    private PersonTableModel tableModel;
+    
+    // Time without typing after which the search runs, so a fast typist triggers a single query
+    private static final Duration SEARCH_DELAY = Duration.millis(250);
+    
+    // Number of queries whose results are kept
+    private static final int RECENT_SEARCHES = 32;
+    
+    // Restarted on every keystroke in the search field
+    private final PauseTransition searchDelay = new PauseTransition(SEARCH_DELAY);
+    
+    // Results of the last queries, forgotten on every change to the database
+    private final RecentSearches recentSearches = new RecentSearches(RECENT_SEARCHES);
+    
+    // Query whose results were last shown in the table
+    private String shownQuery;
+    
+    // Applies the changes committed through the DAO to the table, on the JavaFX thread
+    private final PersonEventListener eventListener = events -> Platform.runLater(() -> {
+        recentSearches.clear();
+        tableModel.apply(events);
+    });
     
     /**
      * Method to refresh the displayed list of persons.
@@ -63,8 +111,7 @@ public class PersonOverviewController {
      * Method to populate the table with persons data.
      */
     private void populateList() {
-        personTable.getItems().clear();
-        personTable.getItems().addAll(persons);
+        tableModel.showPersons(persons);
         refreshList();
     }
     
@@ -83,8 +130,31 @@ public class PersonOverviewController {
         emailColumn.setCellValueFactory(new PersonValueFactoryEmail());
         birthdateColumn.setCellValueFactory(new PersonValueFactoryBirthDate());
         
+        // Sort and page the table from the database
+        tableModel = new PersonTableModel(personTable, personDao, PAGE_SIZE);
+        tableModel.registerColumn(idColumn, PersonSortColumn.ID);
+        tableModel.registerColumn(lastNameColumn, PersonSortColumn.LASTNAME);
+        tableModel.registerColumn(firstNameColumn, PersonSortColumn.FIRSTNAME);
+        tableModel.registerColumn(nicknameColumn, PersonSortColumn.NICKNAME);
+        tableModel.registerColumn(phoneColumn, PersonSortColumn.PHONE_NUMBER);
+        tableModel.registerColumn(addressColumn, PersonSortColumn.ADDRESS);
+        tableModel.registerColumn(emailColumn, PersonSortColumn.EMAIL_ADDRESS);
+        tableModel.registerColumn(birthdateColumn, PersonSortColumn.BIRTH_DATE);
+        
         // Populate the table with data
-        populateList();
+        tableModel.reload();
+        
+        // Search as the user types, once they pause
+        searchDelay.setOnFinished(event -> runSearch(searchField.getText()));
+        searchField.textProperty().addListener((observable, oldText, newText) -> searchDelay.playFromStart());
+        
+        // Follow the changes made to the database while the screen is shown
+        personDao.getPersonDao().addPersonEventListener(eventListener);
+        personTable.sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (newScene == null) {
+                personDao.getPersonDao().removePersonEventListener(eventListener);
+            }
+        });
         
         // Add listener for selection change in the table
         personTable.getSelectionModel().selectedItemProperty().addListener(new PersonChangeListener() {
@@ -97,40 +167,102 @@ public class PersonOverviewController {
 	
     /**
      * Event handler for searching a person.
-     * Searches for a person in the database using a lastname in the text field 
-     * next to the button, and updates the table list with the result if any is found.
-     * If no lastname is entered, it shows the full list. 
+     * Searches for persons in the database whose names, email or phone number start with
+     * the words in the text field next to the button, and updates the table list with the
+     * results, best matches first. If nothing is entered, it shows the full list. 
+     * The same search runs by itself when the user stops typing in the field.
      * @throws Exception if an error occurs during search process.
      */
 	@FXML
 	public void searchPerson() throws Exception {
-		String nameToSearch = searchField.getText();
-		persons = personDao.searchPerson(nameToSearch);
+		searchDelay.stop();
+		runSearch(searchField.getText());
+	}
+	
+	/**
+	 * Method to show the results of a search, from the recent searches when possible.
+	 * A search still running is cancelled, so the table never shows the results of an
+	 * older query than the one typed.
+	 */
+	private void runSearch(String searchInput) {
+		String query = RecentSearches.normalize(searchInput);
+		boolean showingResults = tableModel.isShowingFixedList();
+		if (showingResults && query.equals(shownQuery)) {
+			return;
+		}
+		personDao.cancel("search");
+		if (query.isEmpty()) {
+			shownQuery = null;
+			if (showingResults) {
+				tableModel.reload();
+			}
+			return;
+		}
+		List<Person> cached = recentSearches.get(query);
+		if (cached != null) {
+			showSearchResults(query, cached);
+			return;
+		}
+		personDao.searchPerson(query).whenComplete((results, error) -> {
+			if (error instanceof CancellationException) {
+				// A newer search replaced this one
+				return;
+			}
+			if (error != null) {
+				LOGGER.log(Level.WARNING, "Could not search the persons", error);
+				return;
+			}
+			recentSearches.put(query, results);
+			showSearchResults(query, results);
+		});
+	}
+	
+	private void showSearchResults(String query, List<Person> results) {
+		shownQuery = query;
+		persons = results;
 		populateList();
 	}
 	
 	/**
      * Event handler for refreshing the table.
-     * Refreshes the content showed of the database on the screen.
-     * Can be useful when a search as been done and the user quickly wants to see the
-     * full table.
+     * Shows the first page of the database again. The table already follows the changes
+     * made through the application, so this is mostly useful when a search as been done
+     * and the user quickly wants to see the full table.
      */
 	@FXML
 	public void refreshButton() {
-		persons = personDao.listPersons();
-		populateList();
+		searchDelay.stop();
+		personDao.cancel("search");
+		shownQuery = null;
+		tableModel.reload();
 	}
 	
 	/**
      * Event handler for deleting a person.
-     * Deletes the selected person from the database and updates the table.
+     * Deletes the selected person from the database, unless someone else changed it since it
+     * was read; the deletion event then removes its row from the table, leaving the other rows untouched.
      * @throws Exception if an error occurs during deletion process.
      */
     @FXML
     public void handleDeletePerson() throws Exception {
-        personDao.deletePerson(selectedPerson.getIdperson());
-        persons = personDao.listPersons();
-        populateList();
+        if (selectedPerson == null) {
+            return;
+        }
+        int id = selectedPerson.getIdperson();
+        personDao.deletePersonIfUnchanged(id, selectedPerson.getVersion()).whenComplete((result, error) -> {
+            if (error instanceof OptimisticLockException) {
+                Alert alert = new Alert(AlertType.WARNING, error.getMessage()
+                        + ". Refresh the table to see the current data before deleting it.");
+                alert.setHeaderText(((OptimisticLockException) error).isDeleted()
+                        ? "This person was already deleted by someone else"
+                        : "This person was changed by someone else since it was shown");
+                alert.show();
+                return;
+            }
+            if (error != null) {
+                LOGGER.log(Level.WARNING, "Could not delete the person " + id, error);
+            }
+        });
     }
     
     /**
@@ -155,6 +287,83 @@ public class PersonOverviewController {
         App.setRoot("PersonForm");
     }
 	
+    /**
+     * Event handler for importing persons from a CSV or vCard file.
+     * The file is imported in the background, then a summary of the import, with the first
+     * rejected lines, is shown. The table is reloaded by the event published at commit.
+     */
+    @FXML
+    public void handleImport() {
+        File file = contactFileChooser("Import contacts").showOpenDialog(personTable.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        personDao.submit(() -> isVCard(file)
+                ? new PersonVCardImporter(personDao.getPersonDao()).importFile(file.toPath())
+                : new PersonCsvImporter(personDao.getPersonDao()).importFile(file.toPath()))
+                .whenComplete((report, error) -> {
+                    if (error != null) {
+                        showMessage(AlertType.ERROR, "Import failed", error.getMessage());
+                        return;
+                    }
+                    StringBuilder details = new StringBuilder(report.toString());
+                    for (ImportReport.Rejection rejection : report.getRejections().subList(0,
+                            Math.min(10, report.getRejections().size()))) {
+                        details.append('\n').append(rejection);
+                    }
+                    showMessage(AlertType.INFORMATION, "Import finished", details.toString());
+                });
+    }
+
+    /**
+     * Event handler for exporting every person to a CSV or vCard file, in the background.
+     */
+    @FXML
+    public void handleExport() {
+        File file = contactFileChooser("Export contacts").showSaveDialog(personTable.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        personDao.submit(() -> isVCard(file)
+                ? new PersonVCardExporter(personDao.getPersonDao()).exportFile(file.toPath())
+                : new PersonCsvExporter(personDao.getPersonDao()).exportFile(file.toPath()))
+                .whenComplete((count, error) -> {
+                    if (error != null) {
+                        showMessage(AlertType.ERROR, "Export failed", error.getMessage());
+                        return;
+                    }
+                    showMessage(AlertType.INFORMATION, "Export finished", count + " persons exported to " + file);
+                });
+    }
+
+    /**
+     * Method to create a file chooser limited to CSV and vCard files.
+     */
+    private FileChooser contactFileChooser(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                new FileChooser.ExtensionFilter("vCard files", "*.vcf", "*.vcard"));
+        return chooser;
+    }
+
+    /**
+     * Method to tell vCard files from CSV files by their extension.
+     */
+    private static boolean isVCard(File file) {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".vcf") || name.endsWith(".vcard");
+    }
+
+    /**
+     * Method to show a message in a dialog box.
+     */
+    private void showMessage(AlertType type, String title, String message) {
+        Alert alert = new Alert(type, message);
+        alert.setHeaderText(title);
+        alert.show();
+    }
+
     /**
      * Event handler for exiting the program.
      * Quits the program (like the "Quit" button on the Home Screen).
@@ -3,8 +3,12 @@ module isen.project {
     requires javafx.fxml;
 	requires java.sql;
 	requires sqlite.jdbc;
+	requires java.management;
+	requires jdk.httpserver;
 
     opens isen.project.view to javafx.fxml;
     exports isen.project;
     exports isen.project.view;
+    // The timers are read by JMX through their MXBean interface
+    exports isen.project.metrics;
 }
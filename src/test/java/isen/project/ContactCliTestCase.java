@@ -0,0 +1,149 @@
+package isen.project;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import isen.project.db.PersonDao;
+import isen.project.db.TemporaryDatabase;
+import isen.project.model.Person;
+
+/**
+ * Test case class for the headless command line.
+ */
+public class ContactCliTestCase {
+
+    @Rule
+    public TemporaryDatabase database = TemporaryDatabase.empty("cli");
+
+    private Path directory;
+    private PersonDao personDao;
+    private StringWriter out;
+    private StringWriter err;
+
+    /**
+     * Gets the temporary folder and the DAO of its empty database before each test.
+     */
+    @Before
+    public void openDatabase() {
+        directory = database.getDirectory();
+        personDao = database.getPersonDao();
+        out = new StringWriter();
+        err = new StringWriter();
+    }
+
+    private int run(String input, String... args) {
+        ContactCli cli = new ContactCli(personDao, new BufferedReader(new StringReader(input)),
+                new PrintWriter(out), new PrintWriter(err, true));
+        return cli.run(Arrays.asList(args));
+    }
+
+    /**
+     * Test case to ensure a file is imported into a new database, then listed, searched and exported.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldImportListSearchAndExport() throws Exception {
+        // GIVEN
+        Path csv = directory.resolve("in.csv");
+        Files.write(csv, Arrays.asList(
+                "lastname,firstname,nickname,phone_number,address,email_address,birth_date",
+                "Smith,Jane,JS,0102030405,,jane.smith@example.com,1990-01-02",
+                "Martin,Paul,,,,,",
+                ",,,,,,"), StandardCharsets.UTF_8);
+        Path exported = directory.resolve("out.vcf");
+        // WHEN
+        int importStatus = run("", "import", csv.toString());
+        int listStatus = run("", "list");
+        int searchStatus = run("", "search", "--fuzzy", "Smtih");
+        int exportStatus = run("", "export", exported.toString());
+        // THEN
+        assertThat(importStatus).isEqualTo(ContactCli.EXIT_OK);
+        assertThat(listStatus).isEqualTo(ContactCli.EXIT_OK);
+        assertThat(searchStatus).isEqualTo(ContactCli.EXIT_OK);
+        assertThat(exportStatus).isEqualTo(ContactCli.EXIT_OK);
+        List<String> lines = Arrays.asList(out.toString().split("\\R"));
+        assertThat(lines).contains(
+                "1\tSmith\tJane\tJS\t0102030405\t\tjane.smith@example.com\t1990-01-02",
+                "2\tMartin\tPaul\t\t\t\t\t");
+        // The search prints the header and Jane Smith only
+        assertThat(lines.subList(lines.size() - 2, lines.size()).get(1)).startsWith("1\tSmith\tJane");
+        assertThat(err.toString()).contains("in.csv: Line 4: Missing lastname");
+        assertThat(new String(Files.readAllBytes(exported), StandardCharsets.UTF_8)).contains("FN:Jane Smith");
+    }
+
+    /**
+     * Test case to ensure the IDs piped from a listing are deleted, the header line being skipped.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldDeleteTheIdsReadFromTheInput() throws Exception {
+        // GIVEN
+        personDao.initDb();
+        List<Integer> ids = personDao.insertPersons(Arrays.asList(
+                new Person(0, "Smith", "Jane", "", null, null, null, null),
+                new Person(0, "Martin", "Paul", "", null, null, null, null),
+                new Person(0, "Durand", "Claire", "", null, null, null, null)));
+        String listing = "idperson\tlastname\n" + ids.get(0) + "\tSmith\n\n" + ids.get(2) + "\tDurand\n";
+        // WHEN
+        int status = run(listing, "delete", "-");
+        // THEN
+        assertThat(status).isEqualTo(ContactCli.EXIT_OK);
+        assertThat(out.toString()).contains("2 persons deleted");
+        assertThat(personDao.listPersons()).extracting("lastname").containsExactly("Martin");
+    }
+
+    /**
+     * Test case to ensure duplicates are merged and a batch stops at the first failing command.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldRunABatchUntilItFails() throws Exception {
+        // GIVEN
+        personDao.initDb();
+        personDao.insertPersons(Arrays.asList(
+                new Person(0, "Dupont", "Jean", "", "0612345678", null, "jean.dupont@example.com", LocalDate.of(1980, 5, 1)),
+                new Person(0, "Dupond", "Jean", "JD", "06 12 34 56 78", null, "jean.dupont@example.com", LocalDate.of(1980, 5, 1))));
+        String batch = "# nightly clean-up\n"
+                + "dedupe --merge\n"
+                + "\n"
+                + "search \"jean dupont\"\n"
+                + "delete abc\n"
+                + "list\n";
+        // WHEN
+        int status = run(batch, "batch", "-");
+        // THEN
+        assertThat(status).isEqualTo(ContactCli.EXIT_USAGE);
+        assertThat(out.toString()).contains("1 duplicate pairs found, 1 persons merged");
+        // Only the search printed a listing, the batch stopped before "list"
+        assertThat(out.toString().split("idperson\t", -1)).hasSize(2);
+        assertThat(personDao.listPersons()).hasSize(1);
+        assertThat(personDao.listPersons().get(0).getNickname()).isEqualTo("JD");
+        assertThat(err.toString()).contains("Not a person ID: abc").contains("Batch stopped at line 5");
+    }
+
+    /**
+     * Test case to ensure the lines of a batch are split on spaces, quoted words staying together.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldTokenizeBatchLines() throws Exception {
+        // WHEN
+        List<String> tokens = ContactCli.tokenize("  search --limit 5 \"jean  dupont\" \"\" x");
+        // THEN
+        assertThat(tokens).containsExactly("search", "--limit", "5", "jean  dupont", "", "x");
+    }
+}
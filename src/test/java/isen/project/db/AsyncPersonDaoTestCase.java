@@ -0,0 +1,75 @@
+package isen.project.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test case class for the AsyncPersonDao class.
+ */
+public class AsyncPersonDaoTestCase {
+
+    // Single database thread, so queued calls run one after the other
+    private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // Callbacks run on the calling thread instead of the JavaFX thread
+    private AsyncPersonDao asyncDao = new AsyncPersonDao(new PersonDao(), executor, Runnable::run);
+
+    /**
+     * Stops the database thread after each test.
+     */
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test case to ensure a request superseded before it started is cancelled and never runs.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldCancelSupersededRequest() throws Exception {
+        // GIVEN
+        // The database thread is busy until the latch is released
+        CountDownLatch busy = new CountDownLatch(1);
+        asyncDao.submit(() -> busy.await(5, TimeUnit.SECONDS));
+        AtomicInteger runs = new AtomicInteger();
+        // WHEN
+        CompletableFuture<String> first = asyncDao.latest("search", () -> {
+            runs.incrementAndGet();
+            return "first";
+        });
+        CompletableFuture<String> second = asyncDao.latest("search", () -> {
+            runs.incrementAndGet();
+            return "second";
+        });
+        busy.countDown();
+        // THEN
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(first.isCancelled()).isTrue();
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    /**
+     * Test case to ensure errors of the database call complete the future exceptionally.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldCompleteExceptionallyOnError() throws Exception {
+        // WHEN
+        CompletableFuture<Object> failing = asyncDao.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        // THEN
+        assertThat(failing.handle((value, error) -> error).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
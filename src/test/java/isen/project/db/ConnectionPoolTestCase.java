@@ -0,0 +1,233 @@
+package isen.project.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sqlite.SQLiteDataSource;
+
+/**
+ * Test case class for the ConnectionPool class.
+ */
+public class ConnectionPoolTestCase {
+
+    private File databaseFile;
+    private ConnectionPool pool;
+
+    /**
+     * Creates a pool with two readers on a temporary database before each test.
+     * @throws Exception if the temporary file cannot be created.
+     */
+    @Before
+    public void createPool() throws Exception {
+        databaseFile = File.createTempFile("pool", ".db");
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        pool = new ConnectionPool(dataSource, new SqliteProfile("WAL", "NORMAL", 2_000, 0, "MEMORY", 1_000, 8), 2,
+                200, 60_000);
+    }
+
+    /**
+     * Closes the pool and removes the temporary database after each test.
+     */
+    @After
+    public void closePool() {
+        pool.close();
+        databaseFile.delete();
+        new File(databaseFile.getPath() + "-wal").delete();
+        new File(databaseFile.getPath() + "-shm").delete();
+    }
+
+    /**
+     * Test case to ensure closed connections are reused instead of reopened.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldReuseReleasedConnections() throws Exception {
+        // WHEN
+        try (Connection connection = pool.getReadConnection()) {
+            assertThat(pool.getStats().getActiveReaders()).isEqualTo(1);
+        }
+        try (Connection connection = pool.getReadConnection()) {
+            assertThat(connection.isClosed()).isFalse();
+        }
+        // THEN
+        PoolStats stats = pool.getStats();
+        assertThat(stats.getBorrowCount()).isEqualTo(2);
+        assertThat(stats.getActiveCount()).isEqualTo(0);
+        assertThat(stats.getIdleCount()).isEqualTo(1);
+    }
+
+    /**
+     * Test case to ensure only one writer connection can be borrowed at a time.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldHandOutASingleWriter() throws Exception {
+        try (Connection writer = pool.getConnection()) {
+            try (Connection other = pool.getConnection()) {
+                fail("A second writer should not have been handed out");
+            } catch (SQLException e) {
+                assertThat(e.getMessage()).contains("writer");
+            }
+            // Readers are still available while the writer is busy
+            try (Connection reader = pool.getReadConnection()) {
+                assertThat(reader.isClosed()).isFalse();
+            }
+        }
+        assertThat(pool.getStats().getActiveWriters()).isEqualTo(0);
+    }
+
+    /**
+     * Test case to ensure an unfinished transaction is rolled back when the connection is released.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldRollbackUnfinishedTransactionOnRelease() throws Exception {
+        try (Connection connection = pool.getConnection()) {
+            connection.createStatement().executeUpdate("CREATE TABLE item (id INTEGER PRIMARY KEY)");
+        }
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.createStatement().executeUpdate("INSERT INTO item(id) VALUES (1)");
+        }
+        try (Connection connection = pool.getConnection()) {
+            assertThat(connection.getAutoCommit()).isTrue();
+            assertThat(connection.createStatement().executeQuery("SELECT COUNT(*) FROM item").getInt(1)).isEqualTo(0);
+        }
+    }
+
+    /**
+     * Test case to ensure a reader sees the last committed data while the writer is in a transaction.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldReadWhileWriterIsInTransaction() throws Exception {
+        try (Connection connection = pool.getConnection()) {
+            connection.createStatement().executeUpdate("CREATE TABLE item (id INTEGER PRIMARY KEY)");
+            connection.createStatement().executeUpdate("INSERT INTO item(id) VALUES (1)");
+        }
+        try (Connection writer = pool.getConnection()) {
+            writer.setAutoCommit(false);
+            writer.createStatement().executeUpdate("INSERT INTO item(id) VALUES (2)");
+            // The writer holds its lock, the reader is not blocked and sees the committed row only
+            try (Connection reader = pool.getReadConnection()) {
+                assertThat(reader.createStatement().executeQuery("PRAGMA journal_mode").getString(1)).isEqualTo("wal");
+                assertThat(reader.createStatement().executeQuery("SELECT COUNT(*) FROM item").getInt(1)).isEqualTo(1);
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * Test case to ensure closed prepared statements are reused by the next borrower of the connection.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldReusePreparedStatements() throws Exception {
+        try (Connection connection = pool.getConnection()) {
+            connection.createStatement().executeUpdate("CREATE TABLE item (id INTEGER PRIMARY KEY)");
+            connection.createStatement().executeUpdate("INSERT INTO item(id) VALUES (1), (2)");
+        }
+        // WHEN
+        for (int id = 1; id <= 2; id++) {
+            try (Connection connection = pool.getReadConnection();
+                    PreparedStatement statement = connection.prepareStatement("SELECT id FROM item WHERE id = ?")) {
+                statement.setInt(1, id);
+                try (ResultSet results = statement.executeQuery()) {
+                    // THEN
+                    assertThat(results.next()).isTrue();
+                    assertThat(results.getInt(1)).isEqualTo(id);
+                }
+                assertThat(statement.getConnection()).isSameAs(connection);
+            }
+        }
+        PoolStats stats = pool.getStats();
+        assertThat(stats.getStatementCacheMisses()).isEqualTo(1);
+        assertThat(stats.getStatementCacheHits()).isEqualTo(1);
+    }
+
+    /**
+     * Test case to ensure a statement prepared twice at the same time is not shared.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldNotShareStatementInUse() throws Exception {
+        try (Connection connection = pool.getConnection();
+                PreparedStatement first = connection.prepareStatement("SELECT ?");
+                PreparedStatement second = connection.prepareStatement("SELECT ?")) {
+            first.setInt(1, 1);
+            second.setInt(1, 2);
+            assertThat(first.executeQuery().getInt(1)).isEqualTo(1);
+            assertThat(second.executeQuery().getInt(1)).isEqualTo(2);
+        }
+    }
+
+    /**
+     * Test case to ensure the slow statements are logged with their parameters, rows and plan.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldLogSlowStatementsWithTheirPlan() throws Exception {
+        // GIVEN
+        File logFile = new File(databaseFile.getPath() + ".slow.log");
+        // A threshold of 0 logs every statement
+        pool.setSlowQueryLog(SlowQueryLog.toFiles(logFile.getPath(), 1024 * 1024, 1, 0));
+        try {
+            try (Connection connection = pool.getConnection()) {
+                connection.createStatement().executeUpdate("CREATE TABLE item (id INTEGER PRIMARY KEY, name TEXT)");
+                connection.createStatement().executeUpdate("INSERT INTO item(id, name) VALUES (1, 'a'), (2, 'b'), (3, 'b')");
+            }
+            // WHEN
+            for (int i = 0; i < 2; i++) {
+                try (Connection connection = pool.getReadConnection();
+                        PreparedStatement statement = connection.prepareStatement("SELECT id FROM item WHERE name = ?")) {
+                    statement.setString(1, "b");
+                    try (ResultSet results = statement.executeQuery()) {
+                        while (results.next()) {
+                            assertThat(results.getInt(1)).isGreaterThan(1);
+                        }
+                    }
+                }
+            }
+            try (Connection connection = pool.getReadConnection();
+                    PreparedStatement statement = connection.prepareStatement("SELECT name FROM item WHERE id = ?")) {
+                statement.setInt(1, 1);
+                assertThat(statement.executeQuery().next()).isTrue();
+            }
+            // THEN
+            List<String> lines = Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+            List<String> slowLines = new ArrayList<>();
+            List<String> planLines = new ArrayList<>();
+            for (String line : lines) {
+                if (line.contains("\tSLOW\t")) {
+                    slowLines.add(line);
+                } else if (line.contains("\tPLAN\t")) {
+                    planLines.add(line);
+                }
+            }
+            assertThat(slowLines).hasSize(5);
+            assertThat(slowLines.get(2)).contains("rows=2\tSELECT id FROM item WHERE name = ?\t['b']");
+            // The plan is captured once per statement, the full scan of a table is flagged
+            assertThat(planLines).hasSize(4);
+            assertThat(planLines.get(2)).contains("SELECT id FROM item WHERE name = ?").endsWith("FULL SCAN: item");
+            assertThat(planLines.get(3)).contains("SELECT name FROM item WHERE id = ?").doesNotContain("FULL SCAN");
+        } finally {
+            pool.getSlowQueryLog().close();
+            logFile.delete();
+            new File(logFile.getPath() + ".lck").delete();
+        }
+    }
+}
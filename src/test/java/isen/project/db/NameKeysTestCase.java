@@ -0,0 +1,41 @@
+package isen.project.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test case class for the keys of the fuzzy search.
+ */
+public class NameKeysTestCase {
+
+    /**
+     * Test case to ensure the Soundex codes follow the American Soundex rules.
+     */
+    @Test
+    public void shouldComputeSoundexCodes() {
+        // THEN
+        assertThat(NameKeys.soundex("robert")).isEqualTo("r163");
+        assertThat(NameKeys.soundex("rupert")).isEqualTo("r163");
+        assertThat(NameKeys.soundex("tymczak")).isEqualTo("t522");
+        assertThat(NameKeys.soundex("pfister")).isEqualTo("p236");
+        // H and W do not separate letters with the same code
+        assertThat(NameKeys.soundex("ashcraft")).isEqualTo("a261");
+        assertThat(NameKeys.soundex("schmidt")).isEqualTo(NameKeys.soundex("smith"));
+        assertThat(NameKeys.soundex("li")).isEqualTo("l000");
+    }
+
+    /**
+     * Test case to ensure names are cut in words without case nor accents, and the distance counts swaps as one edit.
+     */
+    @Test
+    public void shouldCompareWords() {
+        // THEN
+        assertThat(NameKeys.words("  Lévy-Strauss, ANAÏS ")).containsExactly("levy", "strauss", "anais");
+        assertThat(NameKeys.trigrams("smith")).containsExactly("smi", "mit", "ith");
+        assertThat(NameKeys.distance("smtih", "smith")).isEqualTo(1);
+        assertThat(NameKeys.distance("jon", "john")).isEqualTo(1);
+        assertThat(NameKeys.distance("kitten", "sitting")).isEqualTo(3);
+        assertThat(NameKeys.distance("", "abc")).isEqualTo(3);
+    }
+}
@@ -0,0 +1,126 @@
+package isen.project.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import isen.project.model.Person;
+
+/**
+ * Test case class for the PersonCache class.
+ */
+public class PersonCacheTestCase {
+
+    // Cache small enough to test the eviction
+    private PersonCache cache = new PersonCache(2);
+
+    /**
+     * Method executed before each test case.
+     * Initializes the database with two persons.
+     * @throws Exception if an error occurs during database initialization.
+     */
+    @Before
+    public void initDb() throws Exception {
+        cache.initDb();
+        try (Connection connection = DataSourceFactory.getDataSource().getConnection();
+                Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM person");
+            stmt.executeUpdate("INSERT INTO person(idperson,lastname,firstname,nickname,birth_date) VALUES (1,'Doe','John','Johnny'," + storedDate("1990-01-01") + ")");
+            stmt.executeUpdate("INSERT INTO person(idperson,lastname,firstname,nickname,birth_date) VALUES (2,'Smith','Jane','Janie'," + storedDate("1995-02-02") + ")");
+        }
+    }
+
+    /**
+     * Method to get a birth date the way the driver stores it, in milliseconds since the epoch.
+     */
+    private static long storedDate(String date) {
+        return java.sql.Date.valueOf(date).getTime();
+    }
+
+    /**
+     * Test case to ensure the table is read once and then served from memory.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldServeReadsFromMemoryOnceFilled() throws Exception {
+        // WHEN
+        cache.fill();
+        List<Person> persons = cache.listPersons();
+        Person person = cache.getPerson(2);
+        // THEN
+        assertThat(persons).hasSize(2);
+        assertThat(person.getLastname()).isEqualTo("Smith");
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(2);
+    }
+
+    /**
+     * Test case to ensure writes go to the database and update the cached records.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldWriteThrough() throws Exception {
+        // GIVEN
+        cache.fill();
+        // WHEN
+        cache.updatePerson(1, new Person(0, "Doe", "Jack", "Jacky", null, null, null, LocalDate.of(1990, 1, 1)));
+        cache.deletePerson(2);
+        // THEN
+        assertThat(cache.getPerson(1).getFirstname()).isEqualTo("Jack");
+        assertThat(cache.getPerson(2)).isNull();
+        assertThat(cache.listPersons()).hasSize(1);
+        // The database has the same content as the cache
+        assertThat(new PersonDao().getPerson(1).getFirstname()).isEqualTo("Jack");
+        assertThat(new PersonDao().getPerson(2)).isNull();
+    }
+
+    /**
+     * Test case to ensure the least recently used person is evicted once the bound is reached.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        // GIVEN
+        cache.fill();
+        cache.getPerson(1);
+        // WHEN
+        Person inserted = cache.insertPerson(new Person(0, "Brown", "Jim", "Jimmy", null, null, null, null));
+        // THEN
+        assertThat(cache.size()).isEqualTo(2);
+        long misses = cache.getMissCount();
+        cache.getPerson(1);
+        cache.getPerson(inserted.getIdperson());
+        assertThat(cache.getMissCount()).isEqualTo(misses);
+        // Person 2 was the least recently used, so it has to be read again
+        assertThat(cache.getPerson(2).getLastname()).isEqualTo("Smith");
+        assertThat(cache.getMissCount()).isEqualTo(misses + 1);
+    }
+
+    /**
+     * Test case to ensure an update that wrote nothing is not cached, and that the listed
+     * persons are cached as copies detached from the store they were read from.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldOnlyCacheTheUpdatesThatWereWritten() throws Exception {
+        // GIVEN
+        List<Person> listed = cache.listPersons();
+        // WHEN
+        boolean updatedMissing = cache.updatePerson(42, new Person(0, "Ghost", "Casper", "", null, null, null, null));
+        boolean updated = cache.updatePerson(2, new Person(0, "Smith", "Janet", "Janie", null, null, null, null));
+        // THEN
+        assertThat(updatedMissing).isFalse();
+        assertThat(updated).isTrue();
+        assertThat(cache.getPerson(42)).isNull();
+        assertThat(cache.listPersons()).extracting(Person::getIdperson).containsExactly(1, 2);
+        assertThat(cache.getPerson(1)).isNotSameAs(listed.get(0));
+        assertThat(cache.getPerson(1).getClass()).isEqualTo(Person.class);
+        assertThat(cache.getPerson(2).getFirstname()).isEqualTo("Janet");
+    }
+}
@@ -6,7 +6,13 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -31,26 +37,32 @@ public class PersonDaoTestCase {
      */
     @Before
     public void initDb() throws Exception {
-        // Establish database connection and create necessary tables
+        // Create or migrate the person table with its indexes and search triggers
+        personDao.initDb();
+        // Establish database connection
         Connection connection = DataSourceFactory.getDataSource().getConnection();
         Statement stmt = connection.createStatement();
-        // Create person table if not exists
-        stmt.executeUpdate(
-                "CREATE TABLE IF NOT EXISTS person (idperson INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,lastname VARCHAR(45) NOT NULL, firstname VARCHAR(45) NOT NULL, nickname VARCHAR(45) NOT NULL, phone_number VARCHAR(15) NULL, address VARCHAR(200) NULL, email_address VARCHAR(150) NULL, birth_date DATE NULL);");
         // Clear existing data in the person table
         stmt.executeUpdate("DELETE FROM person");
         // Insert sample data into the person table
         stmt.executeUpdate("INSERT INTO person(idperson,lastname,firstname,nickname,phone_number,address,email_address,birth_date) " 
-                + "VALUES (1,'Doe','John','Johnny','1234567890','1234 Elm Street','doe.john@test.com','1990-01-01 12:00:00.000')");
+                + "VALUES (1,'Doe','John','Johnny','1234567890','1234 Elm Street','doe.john@test.com'," + storedDate("1990-01-01") + ")");
         stmt.executeUpdate("INSERT INTO person(idperson,lastname,firstname,nickname,phone_number,address,email_address,birth_date) " 
-                + "VALUES (2,'Smith','Jane','Janie','0987654321','5678 Oak Street','smith.jane@test.com','1995-02-02 12:00:00.000')");
+                + "VALUES (2,'Smith','Jane','Janie','0987654321','5678 Oak Street','smith.jane@test.com'," + storedDate("1995-02-02") + ")");
         stmt.executeUpdate("INSERT INTO person(idperson,lastname,firstname,nickname,phone_number,address,email_address,birth_date) "
-                + "VALUES (3,'Brown','Jim','Jimmy','6781234560','9101 Pine Street','brown.jim@test.com','2000-03-03 12:00:00.000')");
+                + "VALUES (3,'Brown','Jim','Jimmy','6781234560','9101 Pine Street','brown.jim@test.com'," + storedDate("2000-03-03") + ")");
         // Close resources
         stmt.close();
         connection.close();        
     }
     
+    /**
+     * Method to get a birth date the way the driver stores it, in milliseconds since the epoch.
+     */
+    private static long storedDate(String date) {
+        return java.sql.Date.valueOf(date).getTime();
+    }
+
     /**
      * Test case to ensure the listPersons() method functionality.
      * Verifies that the list of persons retrieved matches the expected data.
@@ -212,4 +224,571 @@ public class PersonDaoTestCase {
 		assertThat(persons.get(0).getEmailAddress()).isEqualTo("steve.jobs@test.com");
 		assertThat(persons.get(0).getBirthDate()).isEqualTo(LocalDate.of(1, 1, 1));
 	}
+
+    /**
+     * Test case to ensure a person is not inserted when its fuzzy search keys cannot be written,
+     * the row and its keys being committed together.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldNotInsertAPersonWithoutItsFuzzyKeys() throws Exception {
+        // GIVEN
+        Person person = new Person(0, "Hopper", "Grace", "Amazing", null, null, null, null);
+        Person inserted;
+        try (Connection connection = DataSourceFactory.getDataSource().getConnection();
+                Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE person_fuzzy RENAME TO person_fuzzy_away");
+            try {
+                // WHEN
+                inserted = personDao.insertPerson(person);
+            } finally {
+                stmt.executeUpdate("ALTER TABLE person_fuzzy_away RENAME TO person_fuzzy");
+            }
+        }
+        // THEN
+        assertThat(inserted).isNull();
+        assertThat(personDao.listPersons()).extracting(Person::getLastname).containsOnly("Doe", "Smith", "Brown");
+    }
+
+    /**
+     * Test case to ensure the insertPersons() method functionality.
+     * Verifies that the generated IDs are returned in input order.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldInsertPersonsInBatch() throws Exception {
+        // GIVEN
+        personDao.setBatchSize(2);
+        List<Person> newPersons = Arrays.asList(
+                new Person(0, "Curie", "Marie", "Polonium", "0102030405", "1 Radium Street", "curie.marie@test.com", LocalDate.of(1867, 11, 7)),
+                new Person(0, "Tesla", "Nikola", "Sparky", null, null, null, null),
+                new Person(0, "Lovelace", "Ada", "Countess", "0607080910", "10 Engine Road", "ada@test.com", LocalDate.of(1815, 12, 10)));
+        // WHEN
+        List<Integer> ids = personDao.insertPersons(newPersons);
+        // THEN
+        assertThat(ids).hasSize(3);
+        assertThat(personDao.getPerson(ids.get(0)).getLastname()).isEqualTo("Curie");
+        assertThat(personDao.getPerson(ids.get(1)).getLastname()).isEqualTo("Tesla");
+        assertThat(personDao.getPerson(ids.get(1)).getBirthDate()).isNull();
+        assertThat(personDao.getPerson(ids.get(2)).getLastname()).isEqualTo("Lovelace");
+        assertThat(newPersons.get(1).getIdperson()).isEqualTo(ids.get(1));
+    }
+
+    /**
+     * Test case to ensure a bulk insert dropping the indexes for a large load creates them again
+     * exactly as the migrations did, and indexes the loaded persons for the search.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldRebuildTheIndexesOfALargeBulkInsertAsTheMigrationsCreatedThem() throws Exception {
+        // GIVEN
+        List<String> schema = readIndexesAndTriggers();
+        // WHEN
+        try (PersonBulkInserter inserter = personDao.openBulkInserter(1_000)) {
+            for (int i = 0; i < 1_000; i++) {
+                inserter.add(new Person(0, "Loaded" + i, "Bulk", "", null, null, null, LocalDate.of(1980, 1, 1).plusDays(i)));
+            }
+            inserter.commit();
+        }
+        // THEN
+        assertThat(readIndexesAndTriggers()).isEqualTo(schema);
+        assertThat(personDao.searchPerson("Loaded999")).extracting(Person::getFirstname).containsExactly("Bulk");
+    }
+
+    private static List<String> readIndexesAndTriggers() throws Exception {
+        List<String> statements = new ArrayList<>();
+        try (Connection connection = DataSourceFactory.getDataSource().getConnection();
+                Statement stmt = connection.createStatement();
+                ResultSet results = stmt.executeQuery("SELECT sql FROM sqlite_master"
+                        + " WHERE type IN ('index', 'trigger') AND sql IS NOT NULL ORDER BY name")) {
+            while (results.next()) {
+                statements.add(results.getString("sql"));
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Test case to ensure the updatePersons() method functionality.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldUpdatePersonsInBatch() throws Exception {
+        // GIVEN
+        Map<Integer, Person> updates = new HashMap<>();
+        updates.put(1, new Person(0, "Doe", "Johnny", "J", "1111111111", "1 Elm Street", "doe.johnny@test.com", LocalDate.of(1990, 1, 2)));
+        updates.put(2, new Person(0, "Smith", "Janet", "Jan", "2222222222", "2 Oak Street", "smith.janet@test.com", LocalDate.of(1995, 2, 3)));
+        // WHEN
+        personDao.updatePersons(updates);
+        // THEN
+        assertThat(personDao.getPerson(1).getFirstname()).isEqualTo("Johnny");
+        assertThat(personDao.getPerson(2).getFirstname()).isEqualTo("Janet");
+        assertThat(personDao.getPerson(3).getFirstname()).isEqualTo("Jim");
+    }
+
+    /**
+     * Test case to ensure the deletePersons() method functionality.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldDeletePersonsInBatch() throws Exception {
+        // WHEN
+        int deleted = personDao.deletePersons(Arrays.asList(1, 3, 42));
+        // THEN
+        assertThat(deleted).isEqualTo(2);
+        List<Person> persons = personDao.listPersons();
+        assertThat(persons).hasSize(1);
+        assertThat(persons.get(0).getIdperson()).isEqualTo(2);
+    }
+
+    /**
+     * Test case to ensure the streamPersons() method functionality.
+     * Verifies that every person is streamed and that the connection is released on close.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldStreamPersons() throws Exception {
+        // WHEN
+        List<String> lastnames;
+        try (Stream<Person> stream = personDao.streamPersons(2)) {
+            lastnames = stream.map(Person::getLastname).collect(Collectors.toList());
+        }
+        // THEN
+        assertThat(lastnames).containsOnly("Doe", "Smith", "Brown");
+        assertThat(lastnames).hasSize(3);
+        assertThat(DataSourceFactory.getConnectionPool().getStats().getActiveCount()).isEqualTo(0);
+    }
+
+    /**
+     * Test case to ensure the page() method functionality.
+     * Verifies that walking the pages returns every person once, in sort order.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldPagePersonsSortedByLastname() throws Exception {
+        // GIVEN
+        // Two more persons sharing a lastname, so the ID has to break the tie between pages
+        personDao.insertPerson(new Person(0, "Smith", "Will", "Fresh Prince", null, null, null, null));
+        personDao.insertPerson(new Person(0, "Adams", "Ansel", "Ansel", null, null, null, null));
+        // WHEN
+        List<String> names = new ArrayList<>();
+        PageKey key = null;
+        int pages = 0;
+        do {
+            PersonPage page = personDao.page(PersonSortColumn.LASTNAME, SortDirection.DESCENDING, key, 2);
+            page.getPersons().forEach(person -> names.add(person.getLastname() + " " + person.getFirstname()));
+            key = page.getNextKey();
+            pages++;
+        } while (key != null);
+        // THEN
+        assertThat(names).containsExactly("Smith Will", "Smith Jane", "Doe John", "Brown Jim", "Adams Ansel");
+        assertThat(pages).isEqualTo(3);
+    }
+
+    /**
+     * Test case to ensure the pages sorted by birth date follow the order of the comparator of
+     * the column, the persons without a birth date included.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldPagePersonsSortedByBirthDateAsTheComparator() throws Exception {
+        // GIVEN
+        personDao.insertPerson(new Person(0, "Lovelace", "Ada", "", null, null, null, null));
+        personDao.insertPerson(new Person(0, "Turing", "Alan", "", null, null, null, LocalDate.of(1912, 6, 23)));
+        personDao.insertPerson(new Person(0, "Hopper", "Grace", "", null, null, null, null));
+        List<Person> expected = new ArrayList<>(personDao.listPersons());
+        expected.sort(PersonSortColumn.BIRTH_DATE.getComparator());
+        // WHEN
+        List<Integer> ids = new ArrayList<>();
+        PageKey key = null;
+        do {
+            PersonPage page = personDao.page(PersonSortColumn.BIRTH_DATE, SortDirection.ASCENDING, key, 2);
+            page.getPersons().forEach(person -> ids.add(person.getIdperson()));
+            key = page.getNextKey();
+        } while (key != null);
+        // THEN
+        assertThat(ids).containsExactlyElementsOf(expected.stream().map(Person::getIdperson).collect(Collectors.toList()));
+        assertThat(expected.get(0).getBirthDate()).isNull();
+        assertThat(expected.get(1).getBirthDate()).isNull();
+    }
+
+    /**
+     * Test case to ensure the searchPersons() method functionality.
+     * Verifies that word prefixes match without regard to case, best matches first.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldSearchPersonsByPrefixIgnoringCase() throws Exception {
+        // GIVEN
+        personDao.insertPerson(new Person(0, "Janeway", "Kathryn", "Captain", null, null, "voyager@test.com", null));
+        // WHEN
+        List<Person> byLastnamePrefix = personDao.searchPersons("smi", 10);
+        List<Person> byTwoWords = personDao.searchPersons("JANE smith", 10);
+        List<Person> ranked = personDao.searchPersons("jane", 10);
+        List<Person> noWord = personDao.searchPersons("\"*-", 10);
+        // THEN
+        assertThat(byLastnamePrefix).hasSize(1);
+        assertThat(byLastnamePrefix.get(0).getLastname()).isEqualTo("Smith");
+        assertThat(byTwoWords).hasSize(1);
+        assertThat(byTwoWords.get(0).getIdperson()).isEqualTo(2);
+        // A match in the lastname ranks above a match in the firstname
+        assertThat(ranked).hasSize(2);
+        assertThat(ranked.get(0).getLastname()).isEqualTo("Janeway");
+        assertThat(noWord).isEmpty();
+    }
+
+    /**
+     * Test case to ensure the writes publish their changes to the listeners once committed.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldPublishChangeEvents() throws Exception {
+        // GIVEN
+        List<PersonEvent> events = new ArrayList<>();
+        PersonEventListener listener = events::addAll;
+        personDao.addPersonEventListener(listener);
+        Person person = new Person(0, "Hopper", "Grace", "Amazing", null, null, null, LocalDate.of(1906, 12, 9));
+        // WHEN
+        try {
+            personDao.insertPerson(person);
+            person.setFirstname("Grace Brewster");
+            personDao.updatePerson(person.getIdperson(), person);
+            personDao.deletePersons(Arrays.asList(1, 42));
+            personDao.deletePerson(42);
+            try (PersonBulkInserter inserter = personDao.openBulkInserter()) {
+                inserter.add(new Person(0, "Knuth", "Donald", "Don", null, null, null, null));
+                inserter.commit();
+            }
+        } finally {
+            personDao.removePersonEventListener(listener);
+        }
+        personDao.deletePerson(2);
+        // THEN
+        assertThat(events).hasSize(5);
+        assertThat(events.get(0).getType()).isEqualTo(PersonEvent.Type.INSERTED);
+        assertThat(events.get(0).getIdperson()).isEqualTo(person.getIdperson());
+        assertThat(events.get(0).getPerson().getFirstname()).isEqualTo("Grace");
+        assertThat(events.get(1).getType()).isEqualTo(PersonEvent.Type.UPDATED);
+        assertThat(events.get(1).getPerson().getFirstname()).isEqualTo("Grace Brewster");
+        // Rows of a batch are published even if they did not exist, the single delete only when it removed a row
+        assertThat(events.get(2).getType()).isEqualTo(PersonEvent.Type.DELETED);
+        assertThat(events.get(2).getIdperson()).isEqualTo(1);
+        assertThat(events.get(3).getIdperson()).isEqualTo(42);
+        assertThat(events.get(4).getType()).isEqualTo(PersonEvent.Type.RELOADED);
+    }
+
+    /**
+     * Test case to ensure the persons of the events can be edited and saved, as the table of the
+     * application does with them.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldSaveEditsOfThePersonsOfEvents() throws Exception {
+        // GIVEN
+        List<PersonEvent> events = new ArrayList<>();
+        PersonEventListener listener = events::addAll;
+        personDao.addPersonEventListener(listener);
+        try {
+            personDao.insertPerson(new Person(0, "Hopper", "Grace", "Amazing", null, null, null, null));
+            Person inserted = events.get(0).getPerson();
+            // WHEN
+            inserted.setNickname("Grandma COBOL");
+            boolean insertedSaved = personDao.updatePersonIfUnchanged(inserted);
+            Person updated = events.get(1).getPerson();
+            updated.setFirstname("Grace Brewster");
+            boolean updatedSaved = personDao.updatePersonIfUnchanged(updated);
+            // THEN
+            assertThat(insertedSaved).isTrue();
+            assertThat(updatedSaved).isTrue();
+            Person stored = personDao.getPerson(updated.getIdperson());
+            assertThat(stored.getFirstname()).isEqualTo("Grace Brewster");
+            assertThat(stored.getNickname()).isEqualTo("Grandma COBOL");
+            assertThat(stored.getVersion()).isEqualTo(PersonDao.FIRST_VERSION + 2);
+        } finally {
+            personDao.removePersonEventListener(listener);
+        }
+    }
+
+    /**
+     * Test case to ensure the fuzzy search finds names despite typos and spelling variants.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldSearchPersonsWithTyposAndSpellingVariants() throws Exception {
+        // GIVEN
+        personDao.insertPerson(new Person(0, "Schmidt", "Johann", "Hans", null, null, null, null));
+        personDao.insertPerson(new Person(0, "Smithson", "Robert", "Bob", null, null, null, null));
+        // The sample persons were inserted without the DAO, their keys are written here
+        int indexed = personDao.indexMissingFuzzyKeys();
+        // WHEN
+        List<Person> typo = personDao.fuzzySearchPersons("Smtih", 10);
+        List<Person> variant = personDao.fuzzySearchPersons("jane smyth", 10);
+        List<Person> fallback = personDao.searchPerson("Brwon");
+        List<Person> unrelated = personDao.fuzzySearchPersons("Zygmunt", 10);
+        // THEN
+        assertThat(indexed).isEqualTo(3);
+        // The closest spelling comes first, the phonetic variant after
+        assertThat(typo).extracting(Person::getLastname).startsWith("Smith", "Schmidt");
+        assertThat(variant).extracting(Person::getLastname).containsExactly("Smith", "Schmidt");
+        assertThat(fallback).extracting(Person::getLastname).containsExactly("Brown");
+        assertThat(unrelated).isEmpty();
+    }
+
+    /**
+     * Test case to ensure the fuzzy search keys of a person renamed by another program are not
+     * kept stale, and are written again by the catch-up.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldIndexAgainThePersonsRenamedByOtherPrograms() throws Exception {
+        // GIVEN
+        Person person = personDao.insertPerson(new Person(0, "Schmidt", "Johann", "Hans", null, null, null, null));
+        personDao.indexMissingFuzzyKeys();
+        try (Connection connection = DataSourceFactory.getDataSource().getConnection();
+                Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("UPDATE person SET lastname = 'Kowalski' WHERE idperson = " + person.getIdperson());
+        }
+        // WHEN
+        List<Person> beforeCatchUp = personDao.fuzzySearchPersons("Schmit", 10);
+        int indexed = personDao.indexMissingFuzzyKeys();
+        List<Person> afterCatchUp = personDao.fuzzySearchPersons("Kowalsky", 10);
+        // THEN
+        assertThat(beforeCatchUp).extracting(Person::getIdperson).doesNotContain(person.getIdperson());
+        assertThat(indexed).isEqualTo(1);
+        assertThat(afterCatchUp).extracting(Person::getIdperson).contains(person.getIdperson());
+    }
+
+    /**
+     * Test case to ensure the mergePersons() method fills the kept person from the duplicate and deletes it.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldMergeDuplicatePersons() throws Exception {
+        // GIVEN
+        Person duplicate = personDao.insertPerson(new Person(0, "Doe", "Jon", "", "0600000000", "1 Main Street", "jon@test.com", null));
+        personDao.updatePerson(1, new Person(1, "Doe", "John", "", null, null, "doe.john@test.com", LocalDate.of(1990, 1, 1)));
+        // WHEN
+        Person merged = personDao.mergePersons(1, duplicate.getIdperson());
+        Person missing = personDao.mergePersons(1, 42);
+        // THEN
+        assertThat(merged.getFirstname()).isEqualTo("John");
+        assertThat(merged.getEmailAddress()).isEqualTo("doe.john@test.com");
+        assertThat(merged.getPhoneNumber()).isEqualTo("0600000000");
+        assertThat(merged.getAddress()).isEqualTo("1 Main Street");
+        assertThat(personDao.getPerson(1).getPhoneNumber()).isEqualTo("0600000000");
+        assertThat(personDao.getPerson(duplicate.getIdperson())).isNull();
+        assertThat(missing).isNull();
+    }
+
+    /**
+     * Test case to ensure the persons are read whatever the way their birth date is stored.
+     * Verifies that a missing date, a text date and a date written by the driver are all read.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldReadBirthDatesStoredInEveryForm() throws Exception {
+        // GIVEN
+        Person inserted = personDao.insertPerson(new Person(0, "White", "Walter", "", null, null, null, LocalDate.of(1958, 9, 7)));
+        try (Connection connection = DataSourceFactory.getDataSource().getConnection();
+                Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("INSERT INTO person(idperson,lastname,firstname,nickname,birth_date) VALUES (10,'Green','Ann','',NULL)");
+            stmt.executeUpdate("INSERT INTO person(idperson,lastname,firstname,nickname,birth_date) VALUES (11,'Black','Bob','','1985-06-15')");
+        }
+        // WHEN
+        List<Person> persons = personDao.listPersons();
+        Map<Integer, LocalDate> birthDates = new HashMap<>();
+        try (Stream<Person> stream = personDao.streamPersons(2)) {
+            stream.forEach(person -> birthDates.put(person.getIdperson(), person.getBirthDate()));
+        }
+        // THEN
+        assertThat(persons).hasSize(6);
+        assertThat(personDao.getPerson(10).getBirthDate()).isNull();
+        assertThat(personDao.getPerson(11).getBirthDate()).isEqualTo(LocalDate.of(1985, 6, 15));
+        assertThat(birthDates.get(1)).isEqualTo(LocalDate.of(1990, 1, 1));
+        assertThat(birthDates.get(10)).isNull();
+        assertThat(birthDates.get(inserted.getIdperson())).isEqualTo(LocalDate.of(1958, 9, 7));
+    }
+
+    /**
+     * Test case to ensure the updatePersonIfUnchanged() method functionality.
+     * Verifies that only the changed columns are written and that the version is incremented.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldUpdateOnlyTheChangedFields() throws Exception {
+        // GIVEN
+        Person person = personDao.getPerson(1);
+        // A field that is not marked as changed is not written, even if it differs from the row
+        person.setAddress("1 Main Street");
+        person.clearDirtyFields();
+        // Setting a field to its current value does not mark it as changed
+        person.setPhoneNumber("1234567890");
+        person.setNickname("John-John");
+        // WHEN
+        boolean updated = personDao.updatePersonIfUnchanged(person);
+        boolean updatedAgain = personDao.updatePersonIfUnchanged(person);
+        // THEN
+        assertThat(updated).isTrue();
+        assertThat(updatedAgain).isFalse();
+        assertThat(person.getVersion()).isEqualTo(PersonDao.FIRST_VERSION + 1);
+        assertThat(person.isDirty()).isFalse();
+        Person read = personDao.getPerson(1);
+        assertThat(read.getNickname()).isEqualTo("John-John");
+        assertThat(read.getAddress()).isEqualTo("1234 Elm Street");
+        assertThat(read.getPhoneNumber()).isEqualTo("1234567890");
+        assertThat(read.getVersion()).isEqualTo(PersonDao.FIRST_VERSION + 1);
+    }
+
+    /**
+     * Test case to ensure concurrent updates of the same person are detected.
+     * Verifies that the second update fails without writing anything, whether the row was
+     * updated through the DAO, outside of it, or deleted.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldRejectUpdatesOfPersonsChangedSinceRead() throws Exception {
+        // GIVEN
+        Person first = personDao.getPerson(2);
+        Person second = new Person(first);
+        Person third = personDao.getPerson(3);
+        first.setFirstname("Janet");
+        second.setAddress("1 Other Street");
+        try (Connection connection = DataSourceFactory.getDataSource().getConnection();
+                Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("UPDATE person SET nickname = 'J' WHERE idperson = 3");
+        }
+        third.setNickname("Jimbo");
+        Person deleted = personDao.getPerson(1);
+        personDao.deletePerson(1);
+        deleted.setNickname("Gone");
+        // WHEN
+        personDao.updatePersonIfUnchanged(first);
+        OptimisticLockException conflict = null;
+        try {
+            personDao.updatePersonIfUnchanged(second);
+        } catch (OptimisticLockException e) {
+            conflict = e;
+        }
+        OptimisticLockException outsideConflict = null;
+        try {
+            personDao.updatePersonIfUnchanged(third);
+        } catch (OptimisticLockException e) {
+            outsideConflict = e;
+        }
+        OptimisticLockException deletedConflict = null;
+        try {
+            personDao.updatePersonIfUnchanged(deleted);
+        } catch (OptimisticLockException e) {
+            deletedConflict = e;
+        }
+        // THEN
+        assertThat(conflict.getExpectedVersion()).isEqualTo(PersonDao.FIRST_VERSION);
+        assertThat(conflict.getCurrentVersion()).isEqualTo(PersonDao.FIRST_VERSION + 1);
+        assertThat(second.isDirty()).isTrue();
+        assertThat(personDao.getPerson(2).getAddress()).isEqualTo("5678 Oak Street");
+        assertThat(personDao.getPerson(2).getFirstname()).isEqualTo("Janet");
+        assertThat(outsideConflict.getIdperson()).isEqualTo(3);
+        assertThat(personDao.getPerson(3).getNickname()).isEqualTo("J");
+        assertThat(deletedConflict.isDeleted()).isTrue();
+    }
+
+    /**
+     * Test case to ensure a person is only deleted if it was not changed since it was read.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldRejectDeletionsOfPersonsChangedSinceRead() throws Exception {
+        // GIVEN
+        Person stale = personDao.getPerson(2);
+        Person changed = personDao.getPerson(2);
+        changed.setNickname("Jay");
+        personDao.updatePersonIfUnchanged(changed);
+        // WHEN
+        OptimisticLockException conflict = null;
+        try {
+            personDao.deletePersonIfUnchanged(stale.getIdperson(), stale.getVersion());
+        } catch (OptimisticLockException e) {
+            conflict = e;
+        }
+        boolean keptAfterConflict = personDao.getPerson(2) != null;
+        personDao.deletePersonIfUnchanged(changed.getIdperson(), changed.getVersion());
+        OptimisticLockException deletedConflict = null;
+        try {
+            personDao.deletePersonIfUnchanged(changed.getIdperson(), changed.getVersion());
+        } catch (OptimisticLockException e) {
+            deletedConflict = e;
+        }
+        // THEN
+        assertThat(conflict.getCurrentVersion()).isEqualTo(PersonDao.FIRST_VERSION + 1);
+        assertThat(keptAfterConflict).isTrue();
+        assertThat(personDao.getPerson(2)).isNull();
+        assertThat(deletedConflict.isDeleted()).isTrue();
+    }
+
+    /**
+     * Test case to ensure the upsertPersons() method functionality.
+     * Verifies that new persons are inserted, changed ones updated, unchanged ones left
+     * untouched and persons without email address skipped.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldUpsertPersonsFromAnExternalSource() throws Exception {
+        // GIVEN
+        List<Person> source = Arrays.asList(
+                new Person(0, "Allen", "Tim", "", null, null, "Allen.Tim@Source.com", null),
+                new Person(0, "Baker", "Ann", "", "0102030405", null, "baker.ann@source.com", null),
+                new Person(0, "Clark", "Bob", "", null, null, "clark.bob@source.com", LocalDate.of(1980, 5, 6)),
+                new Person(0, "Nokey", "Ned", "", null, null, null, null));
+        SyncReport first = personDao.upsertPersons(source.stream());
+        int allenId = source.get(0).getIdperson();
+        List<Person> nextSource = Arrays.asList(
+                new Person(0, "Allen", "Timothy", "", null, null, "allen.tim@source.com", null),
+                new Person(0, "Baker", "Ann", "", "0102030405", null, "baker.ann@source.com", null),
+                new Person(0, "Clark", "Bob", "", null, null, "clark.bob@source.com", LocalDate.of(1980, 5, 6)),
+                new Person(0, "Davis", "Dan", "", null, null, "davis.dan@source.com", null));
+        // WHEN
+        SyncReport second = personDao.upsertPersons(nextSource.stream());
+        // THEN
+        assertThat(first.getInsertedCount()).isEqualTo(3);
+        assertThat(first.getSkippedCount()).isEqualTo(1);
+        assertThat(second.getInsertedCount()).isEqualTo(1);
+        assertThat(second.getUpdatedCount()).isEqualTo(1);
+        assertThat(second.getUnchangedCount()).isEqualTo(2);
+        assertThat(nextSource.get(0).getIdperson()).isEqualTo(allenId);
+        assertThat(nextSource.get(0).getVersion()).isEqualTo(PersonDao.FIRST_VERSION + 1);
+        assertThat(nextSource.get(1).getVersion()).isEqualTo(PersonDao.FIRST_VERSION);
+        assertThat(personDao.getPerson(allenId).getFirstname()).isEqualTo("Timothy");
+        assertThat(personDao.getPerson(nextSource.get(3).getIdperson()).getLastname()).isEqualTo("Davis");
+        assertThat(personDao.listPersons()).hasSize(7);
+        assertThat(personDao.fuzzySearchPersons("Timothy Allen", 10)).extracting(Person::getIdperson).contains(allenId);
+    }
+
+    /**
+     * Test case to ensure the first synchronization adopts the persons created in the application
+     * with the same email address instead of inserting copies of them.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldAdoptThePersonsCreatedInTheApplicationWhenSynchronizing() throws Exception {
+        // GIVEN
+        Person grey = new Person(0, "Grey", "Ann", "", null, null, "Ann.Grey@Mail.com", null);
+        Person hill = new Person(0, "Hill", "Bob", "", null, null, " bob.hill@mail.com", null);
+        personDao.insertPerson(grey);
+        personDao.insertPerson(hill);
+        int count = personDao.listPersons().size();
+        List<Person> source = Arrays.asList(
+                new Person(0, "Grey", "Ann", "", null, null, "Ann.Grey@Mail.com", null),
+                new Person(0, "Hill", "Bob", "", "0607080910", null, "BOB.HILL@mail.com", null));
+        // WHEN
+        SyncReport report = personDao.upsertPersons(source.stream());
+        SyncReport again = personDao.upsertPersons(source.stream());
+        // THEN
+        assertThat(report.getInsertedCount()).isZero();
+        assertThat(report.getUpdatedCount()).isEqualTo(1);
+        assertThat(report.getUnchangedCount()).isEqualTo(1);
+        assertThat(again.getUnchangedCount()).isEqualTo(2);
+        assertThat(personDao.listPersons()).hasSize(count);
+        assertThat(source).extracting(Person::getIdperson).containsExactly(grey.getIdperson(), hill.getIdperson());
+        assertThat(personDao.getPerson(hill.getIdperson()).getPhoneNumber()).isEqualTo("0607080910");
+    }
 }
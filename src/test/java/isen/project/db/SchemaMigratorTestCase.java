@@ -0,0 +1,176 @@
+package isen.project.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import isen.project.model.Person;
+
+/**
+ * Test case class for the SchemaMigrator class and the migrations of the 'person' table.
+ */
+public class SchemaMigratorTestCase {
+
+    @Rule
+    public TemporaryDatabase database = TemporaryDatabase.empty("migrations");
+
+    private ConnectionPool pool;
+
+    /**
+     * Gets the pool of the empty temporary database before each test.
+     */
+    @Before
+    public void openDatabase() {
+        pool = database.getConnectionPool();
+    }
+
+    /**
+     * Test case to ensure a database created before the schema was versioned is brought up to date.
+     * Verifies that its rows get a version, are found by the searches and that a second run applies nothing.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldMigrateADatabaseCreatedBeforeTheSchemaWasVersioned() throws Exception {
+        // GIVEN
+        try (Connection connection = pool.getConnection(); Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE person (idperson INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,lastname VARCHAR(45) NOT NULL, firstname VARCHAR(45) NOT NULL, nickname VARCHAR(45) NOT NULL, phone_number VARCHAR(15) NULL, address VARCHAR(200) NULL, email_address VARCHAR(150) NULL, birth_date DATE NULL);");
+            stmt.executeUpdate("INSERT INTO person(idperson,lastname,firstname,nickname) VALUES (1,'Doe','John','Johnny')");
+        }
+        PersonDao personDao = new PersonDao(pool);
+        // WHEN
+        List<SchemaMigration> applied = personDao.migrateSchema();
+        List<SchemaMigration> appliedAgain = personDao.migrateSchema();
+        personDao.initDb();
+        // THEN
+        assertThat(applied).extracting(SchemaMigration::getVersion).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+        assertThat(appliedAgain).isEmpty();
+        try (Connection connection = pool.getConnection()) {
+            assertThat(SchemaMigrator.getSchemaVersion(connection)).isEqualTo(PersonSchema.MIGRATIONS.size());
+        }
+        Person person = personDao.getPerson(1);
+        assertThat(person.getVersion()).isEqualTo(PersonDao.FIRST_VERSION);
+        assertThat(personDao.searchPersons("doe", 10)).extracting(Person::getIdperson).containsExactly(1);
+        assertThat(personDao.fuzzySearchPersons("Jon Do", 10)).extracting(Person::getIdperson).containsExactly(1);
+        person.setNickname("Jack");
+        assertThat(personDao.updatePersonIfUnchanged(person)).isTrue();
+    }
+
+    /**
+     * Test case to ensure the birth dates stored as text or as a Julian day are rewritten as the driver
+     * writes them, so the birth date index orders the persons like the comparator of the column.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldStoreEveryBirthDateAsTheDriverWritesIt() throws Exception {
+        // GIVEN
+        try (Connection connection = pool.getConnection()) {
+            new SchemaMigrator(PersonSchema.MIGRATIONS.subList(0, 10)).migrate(connection);
+            execute(connection, "INSERT INTO person(idperson,lastname,firstname,nickname,birth_date) VALUES (1,'Doe','John','','1990-01-01 12:00:00.000')");
+            execute(connection, "INSERT INTO person(idperson,lastname,firstname,nickname,birth_date) VALUES (2,'Smith','Jane',''," + java.sql.Date.valueOf("1995-02-02").getTime() + ")");
+            execute(connection, "INSERT INTO person(idperson,lastname,firstname,nickname,birth_date) VALUES (3,'Brown','Jim','',julianday('2000-03-03'))");
+            execute(connection, "INSERT INTO person(idperson,lastname,firstname,nickname,birth_date) VALUES (4,'Green','Ann','','')");
+            execute(connection, "INSERT INTO person(idperson,lastname,firstname,nickname,birth_date) VALUES (5,'Black','Bob','',NULL)");
+            execute(connection, "INSERT INTO person(idperson,lastname,firstname,nickname,birth_date) VALUES (6,'White','Walter','','1970-01-02')");
+        }
+        PersonDao personDao = new PersonDao(pool);
+        // WHEN
+        List<SchemaMigration> applied = personDao.migrateSchema();
+        // THEN
+        assertThat(applied).extracting(SchemaMigration::getVersion).containsExactly(11);
+        try (Connection connection = pool.getConnection(); Statement stmt = connection.createStatement();
+                ResultSet results = stmt.executeQuery("SELECT COUNT(*) FROM person WHERE typeof(birth_date) NOT IN ('integer', 'null')")) {
+            assertThat(results.getInt(1)).isEqualTo(0);
+        }
+        assertThat(personDao.getPerson(1).getBirthDate()).isEqualTo(LocalDate.of(1990, 1, 1));
+        assertThat(personDao.getPerson(2).getBirthDate()).isEqualTo(LocalDate.of(1995, 2, 2));
+        assertThat(personDao.getPerson(3).getBirthDate()).isEqualTo(LocalDate.of(2000, 3, 3));
+        assertThat(personDao.getPerson(4).getBirthDate()).isNull();
+        assertThat(personDao.getPerson(6).getBirthDate()).isEqualTo(LocalDate.of(1970, 1, 2));
+        List<Person> expected = new ArrayList<>(personDao.listPersons());
+        expected.sort(PersonSortColumn.BIRTH_DATE.getComparator());
+        assertThat(personDao.page(PersonSortColumn.BIRTH_DATE, SortDirection.ASCENDING, null, 10).getPersons())
+                .extracting(Person::getIdperson)
+                .containsExactlyElementsOf(expected.stream().map(Person::getIdperson).collect(Collectors.toList()));
+    }
+
+    /**
+     * Test case to ensure a failing migration leaves the database at the last version that succeeded.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldStopAtTheFailingMigration() throws Exception {
+        // GIVEN
+        SchemaMigration first = SchemaMigration.of(1, "Create a", connection -> execute(connection, "CREATE TABLE a (id INTEGER)"));
+        SchemaMigrator failing = new SchemaMigrator(Arrays.asList(first, SchemaMigration.of(2, "Create b", connection -> {
+            execute(connection, "CREATE TABLE b (id INTEGER)");
+            throw new SQLException("Broken migration");
+        })));
+        SchemaMigrator fixed = new SchemaMigrator(Arrays.asList(first,
+                SchemaMigration.of(2, "Create b", connection -> execute(connection, "CREATE TABLE b (id INTEGER)"))));
+        try (Connection connection = pool.getConnection()) {
+            // WHEN
+            SQLException failure = null;
+            try {
+                failing.migrate(connection);
+            } catch (SQLException e) {
+                failure = e;
+            }
+            int versionAfterFailure = SchemaMigrator.getSchemaVersion(connection);
+            boolean tableAfterFailure = tableExists(connection, "b");
+            List<SchemaMigration> applied = fixed.migrate(connection);
+            // THEN
+            assertThat(failure.getMessage()).contains("V2 Create b");
+            assertThat(versionAfterFailure).isEqualTo(1);
+            assertThat(tableAfterFailure).isFalse();
+            assertThat(applied).extracting(SchemaMigration::getVersion).containsExactly(2);
+            assertThat(tableExists(connection, "b")).isTrue();
+        }
+    }
+
+    /**
+     * Test case to ensure a database migrated by a newer version of the application is not opened.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldRefuseASchemaNewerThanTheMigrations() throws Exception {
+        // GIVEN
+        try (Connection connection = pool.getConnection()) {
+            execute(connection, "PRAGMA user_version = 99");
+            // WHEN
+            SQLException failure = null;
+            try {
+                PersonSchema.migrator().migrate(connection);
+            } catch (SQLException e) {
+                failure = e;
+            }
+            // THEN
+            assertThat(failure.getMessage()).contains("version 99");
+            assertThat(tableExists(connection, "person")).isFalse();
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String name) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet results = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE name = '" + name + "'")) {
+            return results.next();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package isen.project.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.rules.ExternalResource;
+
+/**
+ * Rule giving each test its own database in a temporary folder.
+ * The pool is closed and the folder removed after the test, whatever its outcome.
+ */
+public class TemporaryDatabase extends ExternalResource {
+
+    private final String prefix;
+    private final boolean migrated;
+
+    private Path directory;
+    private ConnectionPool pool;
+    private PersonDao personDao;
+
+    private TemporaryDatabase(String prefix, boolean migrated) {
+        this.prefix = prefix;
+        this.migrated = migrated;
+    }
+
+    /**
+     * Creates a rule opening a database whose schema is up to date.
+     * @param prefix The prefix of the name of the temporary folder.
+     * @return The rule.
+     */
+    public static TemporaryDatabase migrated(String prefix) {
+        return new TemporaryDatabase(prefix, true);
+    }
+
+    /**
+     * Creates a rule opening a database without any table, for the tests creating the schema themselves.
+     * @param prefix The prefix of the name of the temporary folder.
+     * @return The rule.
+     */
+    public static TemporaryDatabase empty(String prefix) {
+        return new TemporaryDatabase(prefix, false);
+    }
+
+    @Override
+    protected void before() throws Throwable {
+        directory = Files.createTempDirectory(prefix);
+        pool = DataSourceFactory.createConnectionPool("jdbc:sqlite:" + directory.resolve("persons.db"));
+        personDao = new PersonDao(pool);
+        if (migrated) {
+            personDao.initDb();
+        }
+    }
+
+    @Override
+    protected void after() {
+        pool.close();
+        try {
+            for (File file : directory.toFile().listFiles()) {
+                file.delete();
+            }
+            Files.delete(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Get the temporary folder holding the database, where the tests can write their own files.
+     * @return The folder.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the pool of the connections to the database.
+     * @return The connection pool.
+     */
+    public ConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    /**
+     * Get a DAO working on the database.
+     * @return The DAO.
+     */
+    public PersonDao getPersonDao() {
+        return personDao;
+    }
+}
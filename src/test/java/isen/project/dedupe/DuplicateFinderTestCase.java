@@ -0,0 +1,88 @@
+package isen.project.dedupe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import isen.project.db.PersonDao;
+import isen.project.db.TemporaryDatabase;
+import isen.project.model.Person;
+import isen.project.tools.PersonGenerator;
+
+/**
+ * Test case class for the detection of duplicate persons.
+ */
+public class DuplicateFinderTestCase {
+
+    @Rule
+    public TemporaryDatabase database = TemporaryDatabase.migrated("dedupe");
+
+    private PersonDao personDao;
+
+    /**
+     * Gets the DAO of the temporary database before each test.
+     */
+    @Before
+    public void openDatabase() {
+        personDao = database.getPersonDao();
+    }
+
+    /**
+     * Test case to ensure duplicates are found through each blocking key, and only once per pair.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldFindDuplicatesAmongGeneratedPersons() throws Exception {
+        // GIVEN
+        List<Person> persons = new ArrayList<>();
+        PersonGenerator generator = new PersonGenerator(3);
+        for (int i = 0; i < 5_000; i++) {
+            persons.add(generator.next());
+        }
+        personDao.insertPersons(persons);
+        List<Integer> ids = personDao.insertPersons(Arrays.asList(
+                // Same email and phone, name typed differently
+                new Person(0, "Dupond", "Jean", "", "+33 6 12 34 56 78", null, "JEAN.DUPONT@example.com", null),
+                new Person(0, "Dupont", "Jean", "JD", "06.12.34.56.78", "1 rue de la Paix", "jean.dupont@example.com", LocalDate.of(1980, 5, 1)),
+                // Only the name and birth date, with a typo
+                new Person(0, "Martinez", "Lucia", "", null, null, null, LocalDate.of(1991, 3, 14)),
+                new Person(0, "Martines", "Lucia", "", null, null, null, LocalDate.of(1991, 3, 14)),
+                // Same family email, different persons
+                new Person(0, "Durand", "Paul", "", null, null, "famille.durand@example.com", LocalDate.of(1970, 1, 1)),
+                new Person(0, "Durand", "Claire", "", null, null, "famille.durand@example.com", LocalDate.of(1972, 2, 2))));
+        // WHEN
+        List<DuplicatePair> pairs = new ArrayList<>();
+        long found = new DuplicateFinder(personDao).findDuplicates(pairs::add);
+        // THEN
+        assertThat(found).isEqualTo(pairs.size());
+        List<String> pairedIds = new ArrayList<>();
+        for (DuplicatePair pair : pairs) {
+            pairedIds.add(pair.getFirst().getIdperson() + "-" + pair.getSecond().getIdperson());
+        }
+        assertThat(pairedIds).contains(ids.get(0) + "-" + ids.get(1), ids.get(2) + "-" + ids.get(3));
+        assertThat(pairedIds).doesNotContain(ids.get(4) + "-" + ids.get(5));
+        assertThat(pairedIds).doesNotHaveDuplicates();
+    }
+
+    /**
+     * Test case to ensure missing values are left out of the score instead of counting as differences.
+     */
+    @Test
+    public void shouldScoreOnlyKnownValues() {
+        // GIVEN
+        PersonSimilarity jean = new PersonSimilarity(new Person(1, "Dupont", "Jean", "", null, null, "jean@example.com", null));
+        PersonSimilarity sameEmail = new PersonSimilarity(new Person(2, "Dupont", "Jean", "", "0612345678", null, "Jean@Example.com ", null));
+        PersonSimilarity otherEmail = new PersonSimilarity(new Person(3, "Dupont", "Jean", "", null, null, "dupont@example.com", null));
+        // THEN
+        assertThat(jean.score(sameEmail)).isEqualTo(1.0);
+        assertThat(jean.score(otherEmail)).isEqualTo(0.5);
+        assertThat(PersonSimilarity.normalizePhone("+33 6 12 34 56 78")).isEqualTo(PersonSimilarity.normalizePhone("06 12 34 56 78"));
+    }
+}
@@ -0,0 +1,275 @@
+package isen.project.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import isen.project.db.PersonDao;
+import isen.project.db.TemporaryDatabase;
+import isen.project.model.Person;
+import isen.project.tools.PersonGenerator;
+
+/**
+ * Test case class for the HTTP API over the persons.
+ */
+public class PersonApiServerTestCase {
+
+    private static final Pattern ID = Pattern.compile("\"idperson\":(\\d+)");
+
+    @Rule
+    public TemporaryDatabase database = TemporaryDatabase.migrated("http");
+
+    private PersonDao personDao;
+    private PersonApiServer server;
+
+    /**
+     * Starts a server on the temporary database before each test.
+     * @throws Exception if the server cannot be started.
+     */
+    @Before
+    public void startServer() throws Exception {
+        personDao = database.getPersonDao();
+        server = new PersonApiServer(personDao, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16);
+        server.start();
+    }
+
+    /**
+     * Stops the server after each test, before the rule removes the temporary database.
+     * @throws Exception if the server cannot be stopped.
+     */
+    @After
+    public void stopServer() throws Exception {
+        server.close();
+    }
+
+    /**
+     * Response of a request: its status, body and ETag.
+     */
+    private static class Response {
+        int status;
+        String body;
+        String etag;
+        String location;
+    }
+
+    private Response request(String method, String path, String body, String header, String headerValue) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (header != null) {
+            connection.setRequestProperty(header, headerValue);
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Response response = new Response();
+        response.status = connection.getResponseCode();
+        response.etag = connection.getHeaderField("ETag");
+        response.location = connection.getHeaderField("Location");
+        InputStream in = response.status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                stream.transferTo(content);
+            }
+        }
+        response.body = content.toString(StandardCharsets.UTF_8);
+        return response;
+    }
+
+    private Response get(String path) throws IOException {
+        return request("GET", path, null, null, null);
+    }
+
+    /**
+     * Test case to ensure a person goes through creation, reading, update and deletion,
+     * updates and deletions based on a stale ETag being refused.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldCreateReadUpdateAndDeleteAPerson() throws Exception {
+        // GIVEN
+        String json = "{\"lastname\":\"Smith\",\"firstname\":\"Jane\",\"phone_number\":\"01 02 03 04 05\","
+                + "\"email_address\":\"Jane.Smith@Example.com\",\"birth_date\":\"1990-01-02\",\"address\":\"1 \\\"Elm\\\" St\\nSpringfield\"}";
+        // WHEN
+        Response created = request("POST", "/persons", json, null, null);
+        Response read = get(created.location);
+        Response updated = request("PUT", created.location, json.replace("Jane", "Janet"), "If-Match", read.etag);
+        Response stale = request("PUT", created.location, json, "If-Match", read.etag);
+        Response staleDelete = request("DELETE", created.location, null, "If-Match", read.etag);
+        Response deleted = request("DELETE", created.location, null, "If-Match", updated.etag);
+        Response missing = get(created.location);
+        Response deletedAgain = request("DELETE", created.location, null, null, null);
+        // THEN
+        assertThat(created.status).isEqualTo(201);
+        assertThat(created.location).matches("/persons/\\d+");
+        assertThat(read.status).isEqualTo(200);
+        assertThat(read.etag).isEqualTo(created.etag);
+        assertThat(read.body).contains("\"lastname\":\"Smith\"", "\"phone_number\":\"0102030405\"",
+                "\"email_address\":\"jane.smith@example.com\"", "\"birth_date\":\"1990-01-02\"",
+                "\"address\":\"1 \\\"Elm\\\" St\\nSpringfield\"", "\"nickname\":\"\"");
+        assertThat(updated.status).isEqualTo(200);
+        assertThat(updated.body).contains("\"firstname\":\"Janet\"");
+        assertThat(updated.etag).isNotEqualTo(read.etag);
+        assertThat(stale.status).isEqualTo(412);
+        assertThat(staleDelete.status).isEqualTo(412);
+        assertThat(deleted.status).isEqualTo(204);
+        assertThat(missing.status).isEqualTo(404);
+        assertThat(deletedAgain.status).isEqualTo(404);
+        assertThat(personDao.listPersons()).isEmpty();
+    }
+
+    /**
+     * Test case to ensure invalid requests are answered with a client error and a message.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldRejectInvalidRequests() throws Exception {
+        // WHEN
+        Response missingName = request("POST", "/persons", "{\"firstname\":\"Jane\"}", null, null);
+        Response badJson = request("POST", "/persons", "{\"lastname\":", null, null);
+        Response badSort = get("/persons?sort=password");
+        Response badCursor = get("/persons?after=%21%21");
+        Response badMethod = request("POST", "/persons/1", "{}", null, null);
+        // THEN
+        assertThat(missingName.status).isEqualTo(400);
+        assertThat(missingName.body).isEqualTo("{\"error\":\"Missing lastname\"}");
+        assertThat(badJson.status).isEqualTo(400);
+        assertThat(badSort.status).isEqualTo(400);
+        assertThat(badCursor.status).isEqualTo(400);
+        assertThat(badMethod.status).isEqualTo(405);
+    }
+
+    /**
+     * Test case to ensure the pages follow each other through their cursors and are
+     * answered with 304 when the client already has them.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldPageThroughThePersonsWithConditionalGets() throws Exception {
+        // GIVEN
+        List<Person> persons = new ArrayList<>();
+        PersonGenerator generator = new PersonGenerator(5);
+        for (int i = 0; i < 120; i++) {
+            persons.add(generator.next());
+        }
+        personDao.insertPersons(persons);
+        // WHEN
+        Set<String> ids = new HashSet<>();
+        String path = "/persons?sort=lastname&direction=desc&limit=50";
+        int pages = 0;
+        Response first = null;
+        while (path != null) {
+            Response page = get(path);
+            assertThat(page.status).isEqualTo(200);
+            first = first == null ? page : first;
+            Matcher matcher = ID.matcher(page.body);
+            while (matcher.find()) {
+                ids.add(matcher.group(1));
+            }
+            Matcher next = Pattern.compile("\"next\":\"([^\"]+)\"").matcher(page.body);
+            path = next.find() ? "/persons?sort=lastname&direction=desc&limit=50&after=" + next.group(1) : null;
+            pages++;
+        }
+        Response notModified = request("GET", "/persons?sort=lastname&direction=desc&limit=50", null, "If-None-Match", first.etag);
+        Response export = get("/persons/export");
+        // THEN
+        assertThat(pages).isEqualTo(3);
+        assertThat(ids).hasSize(120);
+        assertThat(notModified.status).isEqualTo(304);
+        assertThat(notModified.body).isEmpty();
+        assertThat(export.body).startsWith("[{").endsWith("}]");
+        Matcher exported = ID.matcher(export.body);
+        int count = 0;
+        while (exported.find()) {
+            count++;
+        }
+        assertThat(count).isEqualTo(120);
+    }
+
+    /**
+     * Test case to ensure many clients are served at the same time and counted in the metrics.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldServeConcurrentClients() throws Exception {
+        // GIVEN
+        List<Person> persons = new ArrayList<>();
+        PersonGenerator generator = new PersonGenerator(9);
+        for (int i = 0; i < 500; i++) {
+            persons.add(generator.next());
+        }
+        personDao.insertPersons(persons);
+        String name = URLEncoder.encode(persons.get(0).getLastname(), StandardCharsets.UTF_8);
+        ExecutorService clients = Executors.newFixedThreadPool(100);
+        List<Future<Integer>> statuses = new ArrayList<>();
+        // WHEN
+        try {
+            for (int i = 0; i < 400; i++) {
+                String path = i % 2 == 0 ? "/persons?limit=20" : "/persons?q=" + name;
+                statuses.add(clients.submit(() -> get(path).status));
+            }
+            for (Future<Integer> status : statuses) {
+                // THEN
+                assertThat(status.get()).isEqualTo(200);
+            }
+        } finally {
+            clients.shutdown();
+        }
+        Response metrics = get("/metrics");
+        assertThat(metrics.status).isEqualTo(200);
+        assertThat(metrics.body).contains("\"name\":\"PersonApiServer.listPersons\"", "\"name\":\"PersonApiServer.searchPersons\"", "\"p99Ms\":");
+    }
+
+    /**
+     * Test case to ensure the export holds every person once when it spans several batches.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldExportEveryPersonInBatches() throws Exception {
+        // GIVEN
+        List<Person> persons = new ArrayList<>();
+        PersonGenerator generator = new PersonGenerator(7);
+        for (int i = 0; i < PersonApiServer.MAX_PAGE_SIZE * 2 + 1; i++) {
+            persons.add(generator.next());
+        }
+        personDao.insertPersons(persons);
+        // WHEN
+        Response export = get("/persons/export");
+        // THEN
+        assertThat(export.status).isEqualTo(200);
+        Set<String> ids = new HashSet<>();
+        Matcher exported = ID.matcher(export.body);
+        while (exported.find()) {
+            ids.add(exported.group(1));
+        }
+        assertThat(ids).hasSize(persons.size());
+        assertThat(personDao.getConnectionPool().getStats().getActiveReaders()).isZero();
+    }
+}
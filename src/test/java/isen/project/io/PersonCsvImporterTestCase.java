@@ -0,0 +1,130 @@
+package isen.project.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import isen.project.db.ConnectionPool;
+import isen.project.db.DataSourceFactory;
+import isen.project.db.PersonDao;
+import isen.project.db.TemporaryDatabase;
+import isen.project.model.Person;
+import isen.project.tools.ContactGenerator;
+
+/**
+ * Test case class for the CSV import and export.
+ */
+public class PersonCsvImporterTestCase {
+
+    @Rule
+    public TemporaryDatabase database = TemporaryDatabase.migrated("csv");
+
+    private Path directory;
+    private PersonDao personDao;
+
+    /**
+     * Gets the temporary folder and the DAO of its database before each test.
+     */
+    @Before
+    public void openDatabase() {
+        directory = database.getDirectory();
+        personDao = database.getPersonDao();
+    }
+
+    /**
+     * Test case to ensure quoted fields, reordered columns and other date layouts are imported.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldImportQuotedFieldsWithHeaderMapping() throws Exception {
+        // GIVEN
+        Path csv = write("\uFEFFfirstname,lastname,address,birth_date,phone_number\r\n"
+                + "Jean,Dupont,\"1 rue de la Paix,\r\nParis\",31/12/1990,01 23 45 67 89\r\n"
+                + "Anne,\"O\"\"Neil\",,1985-02-03,\r\n");
+        // WHEN
+        ImportReport report = new PersonCsvImporter(personDao).importFile(csv);
+        // THEN
+        assertThat(report.getImportedCount()).isEqualTo(2);
+        assertThat(report.getRejectedCount()).isEqualTo(0);
+        List<Person> persons = personDao.listPersons();
+        assertThat(persons).hasSize(2);
+        assertThat(persons.get(0).getLastname()).isEqualTo("Dupont");
+        assertThat(persons.get(0).getAddress()).isEqualTo("1 rue de la Paix,\r\nParis");
+        assertThat(persons.get(0).getPhoneNumber()).isEqualTo("0123456789");
+        assertThat(persons.get(0).getBirthDate()).isEqualTo(LocalDate.of(1990, 12, 31));
+        assertThat(persons.get(1).getLastname()).isEqualTo("O\"Neil");
+        assertThat(persons.get(1).getNickname()).isEqualTo("");
+    }
+
+    /**
+     * Test case to ensure invalid lines are reported with their line number and the others imported.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldReportRejectedLines() throws Exception {
+        // GIVEN
+        Path csv = write(PersonCsvFormat.HEADER + "\n"
+                + "Dupont,Jean,,,,jean@test.com,\n"
+                + ",Anne,,,,,\n"
+                + "Martin,Paul,,,,not an email,\n"
+                + "Petit,Lea,,,,,tomorrow\n"
+                + "Moreau,Hugo\n");
+        // WHEN
+        ImportReport report = new PersonCsvImporter(personDao).importFile(csv);
+        // THEN
+        assertThat(report.getImportedCount()).isEqualTo(1);
+        assertThat(report.getRejectedCount()).isEqualTo(4);
+        assertThat(report.getRejections().get(0).getLineNumber()).isEqualTo(3);
+        assertThat(report.getRejections().get(0).getReason()).isEqualTo("Missing lastname");
+        assertThat(report.getRejections().get(1).getReason()).startsWith("Invalid email address");
+        assertThat(report.getRejections().get(2).getReason()).startsWith("Invalid birth date");
+        assertThat(report.getRejections().get(3).getLineNumber()).isEqualTo(6);
+    }
+
+    /**
+     * Test case to ensure an exported table is imported back identically in another database.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldRoundTripExportedFile() throws Exception {
+        // GIVEN
+        Path generated = directory.resolve("generated.csv");
+        ContactGenerator.generateCsv(generated, 10_000, 42);
+        ImportReport generatedReport = new PersonCsvImporter(personDao).importFile(generated);
+        Path exported = directory.resolve("exported.csv");
+        // WHEN
+        long exportedCount = new PersonCsvExporter(personDao).exportFile(exported);
+        ImportReport report;
+        List<Person> found;
+        Path again = directory.resolve("again.csv");
+        try (ConnectionPool otherPool = DataSourceFactory.createConnectionPool("jdbc:sqlite:" + directory.resolve("other.db"))) {
+            PersonDao otherDao = new PersonDao(otherPool);
+            otherDao.initDb();
+            report = new PersonCsvImporter(otherDao).importFile(exported);
+            new PersonCsvExporter(otherDao).exportFile(again);
+            // The indexes rebuilt after the load are used by the search
+            found = otherDao.searchPersons("Martin", 10);
+        }
+        // THEN
+        assertThat(generatedReport.getImportedCount()).isEqualTo(10_000);
+        assertThat(exportedCount).isEqualTo(10_000);
+        assertThat(report.getRejectedCount()).isEqualTo(0);
+        assertThat(report.getImportedCount()).isEqualTo(10_000);
+        assertThat(Files.readAllLines(again)).isEqualTo(Files.readAllLines(exported));
+        assertThat(found).isNotEmpty();
+    }
+
+    private Path write(String content) throws Exception {
+        Path file = Files.createTempFile(directory, "import", ".csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,147 @@
+package isen.project.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import isen.project.db.ConnectionPool;
+import isen.project.db.DataSourceFactory;
+import isen.project.db.PersonDao;
+import isen.project.db.TemporaryDatabase;
+import isen.project.model.Person;
+import isen.project.tools.ContactGenerator;
+
+/**
+ * Test case class for the vCard import and export.
+ */
+public class PersonVCardImporterTestCase {
+
+    @Rule
+    public TemporaryDatabase database = TemporaryDatabase.migrated("vcard");
+
+    private Path directory;
+    private PersonDao personDao;
+
+    /**
+     * Gets the temporary folder and the DAO of its database before each test.
+     */
+    @Before
+    public void openDatabase() {
+        directory = database.getDirectory();
+        personDao = database.getPersonDao();
+    }
+
+    /**
+     * Test case to ensure folded lines, several phone numbers, escaped values and version 2.1 cards are read.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldImportCardsOfEveryVersion() throws Exception {
+        // GIVEN
+        String cards = "BEGIN:VCARD\r\n"
+                + "VERSION:4.0\r\n"
+                + "FN:Jean Dupont\r\n"
+                + "N:Dupont;Jean;;;\r\n"
+                + "NICKNAME:Jeannot,JD\r\n"
+                + "TEL;TYPE=home:01 23 45 67 89\r\n"
+                + "TEL;TYPE=cell;PREF=1:tel:+33612345678\r\n"
+                + "EMAIL;TYPE=work:Jean.Dupont@Example.com\r\n"
+                + "ADR;TYPE=home:;;1 rue de la Paix\\, bâtiment B;Paris;;75002;Fra\r\n"
+                + " nce\r\n"
+                + "PHOTO;ENCODING=b;TYPE=JPEG:MIICajCCAdOgAwIBAgICBEUwDQYJKoZIhvcNAQEEBQAwdzELMAkGA1UEBhMCVVMxLDAqBgNVBAoTI05l\r\n"
+                + " dHNjYXBlIENvbW11bmljYXRpb25zIENvcnBvcmF0aW9uMRwwGgYDVQQLExNJbmZvcm1hdGlvbiBT\r\n"
+                + "BDAY:19901231\r\n"
+                + "END:VCARD\r\n"
+                + "BEGIN:VCARD\n"
+                + "VERSION:2.1\n"
+                + "N;CHARSET=UTF-8;ENCODING=QUOTED-PRINTABLE:L=C3=A9vy;Ana=\n"
+                + "=C3=AFs;;;\n"
+                + "TEL;CELL:06.11.22.33.44\n"
+                + "BDAY:1985-02-03\n"
+                + "END:VCARD\n"
+                + "BEGIN:VCARD\n"
+                + "VERSION:3.0\n"
+                + "FN:Nobody\n"
+                + "EMAIL:not an email\n"
+                + "END:VCARD\n";
+        // WHEN
+        ImportReport report = new PersonVCardImporter(personDao).importFrom(new BufferedReader(new StringReader(cards)));
+        // THEN
+        assertThat(report.getImportedCount()).isEqualTo(2);
+        assertThat(report.getRejectedCount()).isEqualTo(1);
+        assertThat(report.getRejections().get(0).getLineNumber()).isEqualTo(22);
+        List<Person> persons = personDao.listPersons();
+        Person jean = persons.get(0);
+        assertThat(jean.getLastname()).isEqualTo("Dupont");
+        assertThat(jean.getFirstname()).isEqualTo("Jean");
+        assertThat(jean.getNickname()).isEqualTo("Jeannot");
+        assertThat(jean.getPhoneNumber()).isEqualTo("+33612345678");
+        assertThat(jean.getEmailAddress()).isEqualTo("jean.dupont@example.com");
+        assertThat(jean.getAddress()).isEqualTo("1 rue de la Paix, bâtiment B, 75002 Paris, France");
+        assertThat(jean.getBirthDate()).isEqualTo(LocalDate.of(1990, 12, 31));
+        Person ana = persons.get(1);
+        assertThat(ana.getLastname()).isEqualTo("Lévy");
+        assertThat(ana.getFirstname()).isEqualTo("Anaïs");
+        assertThat(ana.getPhoneNumber()).isEqualTo("0611223344");
+    }
+
+    /**
+     * Test case to ensure long values are folded at 75 octets without cutting a character.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldFoldLongLines() throws Exception {
+        // GIVEN
+        StringWriter out = new StringWriter();
+        VCardWriter writer = new VCardWriter(out);
+        // WHEN
+        writer.property("NOTE", "é".repeat(100));
+        writer.flush();
+        // THEN
+        for (String line : out.toString().split("\r\n")) {
+            assertThat(line.getBytes("UTF-8").length).isLessThanOrEqualTo(75);
+        }
+        assertThat(VCardReader.Property.unescape(out.toString().replace("\r\n ", "").trim()))
+                .isEqualTo("NOTE:" + "é".repeat(100));
+    }
+
+    /**
+     * Test case to ensure an exported address book is imported back identically in another database.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldRoundTripExportedFile() throws Exception {
+        // GIVEN
+        Path generated = directory.resolve("generated.csv");
+        ContactGenerator.generateCsv(generated, 5_000, 7);
+        new PersonCsvImporter(personDao).importFile(generated);
+        Path cards = directory.resolve("exported.vcf");
+        // WHEN
+        long exportedCount = new PersonVCardExporter(personDao).exportFile(cards);
+        ImportReport report;
+        Path expected = directory.resolve("expected.csv");
+        Path actual = directory.resolve("actual.csv");
+        new PersonCsvExporter(personDao).exportFile(expected);
+        try (ConnectionPool otherPool = DataSourceFactory.createConnectionPool("jdbc:sqlite:" + directory.resolve("other.db"))) {
+            PersonDao otherDao = new PersonDao(otherPool);
+            otherDao.initDb();
+            report = new PersonVCardImporter(otherDao).importFile(cards);
+            new PersonCsvExporter(otherDao).exportFile(actual);
+        }
+        // THEN
+        assertThat(exportedCount).isEqualTo(5_000);
+        assertThat(report.getRejectedCount()).isEqualTo(0);
+        assertThat(report.getImportedCount()).isEqualTo(5_000);
+        assertThat(Files.readAllLines(actual)).isEqualTo(Files.readAllLines(expected));
+    }
+}
@@ -0,0 +1,73 @@
+package isen.project.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+/**
+ * Test case class for the latency histogram.
+ */
+public class LatencyHistogramTestCase {
+
+    /**
+     * Test case to ensure the percentiles are read within the precision of the buckets.
+     */
+    @Test
+    public void shouldReadPercentilesWithinThreePercent() {
+        // GIVEN
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 to 100 000 microseconds, once each
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        // WHEN
+        HistogramSnapshot snapshot = histogram.snapshot();
+        // THEN
+        assertThat(snapshot.getCount()).isEqualTo(100_000);
+        assertThat(snapshot.getMaxNanos()).isEqualTo(100_000_000L);
+        assertThat(snapshot.getMeanNanos()).isEqualTo(50_000_500L);
+        assertThat((double) snapshot.getValueAtPercentile(50)).isCloseTo(50_000_000, within(1_500_000.0));
+        assertThat((double) snapshot.getValueAtPercentile(99)).isCloseTo(99_000_000, within(3_000_000.0));
+        assertThat((double) snapshot.getValueAtPercentile(99.9)).isCloseTo(99_900_000, within(3_000_000.0));
+        assertThat(snapshot.getValueAtPercentile(100)).isEqualTo(100_000_000L);
+    }
+
+    /**
+     * Test case to ensure every value falls in a bucket whose bounds contain it, from 0 to Long.MAX_VALUE.
+     */
+    @Test
+    public void shouldCountEveryValueInAMatchingBucket() {
+        // GIVEN
+        long[] values = { 0, 1, 63, 64, 65, 127, 128, 1000, 999_999, 1L << 40, Long.MAX_VALUE };
+        for (long value : values) {
+            // WHEN
+            int index = LatencyHistogram.indexOf(value);
+            // THEN
+            assertThat(index).isBetween(0, LatencyHistogram.BUCKET_COUNT - 1);
+            assertThat(LatencyHistogram.highestValueOf(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.highestValueOf(index - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    /**
+     * Test case to ensure the snapshot of an interval only holds the values recorded during it.
+     */
+    @Test
+    public void shouldSubtractAnEarlierSnapshot() {
+        // GIVEN
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5_000_000);
+        HistogramSnapshot earlier = histogram.snapshot();
+        histogram.record(1000);
+        histogram.record(2000);
+        // WHEN
+        HistogramSnapshot interval = histogram.snapshot().since(earlier);
+        // THEN
+        assertThat(interval.getCount()).isEqualTo(2);
+        assertThat(interval.getMeanNanos()).isEqualTo(1500);
+        assertThat(interval.getMaxNanos()).isBetween(2000L, 2100L);
+    }
+}
@@ -0,0 +1,116 @@
+package isen.project.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import isen.project.db.PersonDao;
+
+/**
+ * Test case class for the metrics registry, its timers and its reports.
+ */
+public class MetricsRegistryTestCase {
+
+    /**
+     * Test case to ensure a timer counts the calls, the failures and the rows.
+     */
+    @Test
+    public void shouldTimeOperations() {
+        // GIVEN
+        MetricsRegistry registry = new MetricsRegistry();
+        OperationTimer timer = registry.timer("test.operation");
+        // WHEN
+        String result = timer.time(() -> "done");
+        try {
+            timer.time(() -> {
+                throw new SQLException("failed");
+            });
+            fail("The exception should be rethrown");
+        } catch (SQLException e) {
+            assertThat(e.getMessage()).isEqualTo("failed");
+        }
+        timer.addRows(10, 3);
+        // THEN
+        assertThat(result).isEqualTo("done");
+        assertThat(registry.timer("test.operation")).isSameAs(timer);
+        OperationStats stats = registry.getStats().get(0);
+        assertThat(stats.getName()).isEqualTo("test.operation");
+        assertThat(stats.getCount()).isEqualTo(2);
+        assertThat(stats.getErrorCount()).isEqualTo(1);
+        assertThat(stats.getRowsScanned()).isEqualTo(10);
+        assertThat(stats.getRowsReturned()).isEqualTo(3);
+    }
+
+    /**
+     * Test case to ensure the timers are readable through JMX, including those created after the registration.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldPublishTimersInJmx() throws Exception {
+        // GIVEN
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.timer("test.before").record(2_000_000, true);
+        // WHEN
+        registry.registerMBeans(server);
+        registry.timer("test.after").record(1_000_000, false);
+        // THEN
+        try {
+            ObjectName before = new ObjectName(MetricsRegistry.OBJECT_NAME_PREFIX + "test.before");
+            ObjectName after = new ObjectName(MetricsRegistry.OBJECT_NAME_PREFIX + "test.after");
+            assertThat(server.getAttribute(before, "Count")).isEqualTo(1L);
+            assertThat((Double) server.getAttribute(before, "P99Millis")).isBetween(1.9, 2.1);
+            assertThat(server.getAttribute(after, "ErrorCount")).isEqualTo(1L);
+        } finally {
+            registry.unregisterMBeans();
+        }
+        assertThat(server.isRegistered(new ObjectName(MetricsRegistry.OBJECT_NAME_PREFIX + "test.before"))).isFalse();
+    }
+
+    /**
+     * Test case to ensure a report only covers the operations called since the previous one.
+     */
+    @Test
+    public void shouldReportTheLastPeriod() {
+        // GIVEN
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsReporter reporter = new MetricsReporter(registry);
+        registry.timer("test.first").record(1000, true);
+        String firstReport = reporter.report();
+        registry.timer("test.second").record(1000, true);
+        // WHEN
+        String secondReport = reporter.report();
+        String thirdReport = reporter.report();
+        // THEN
+        assertThat(firstReport).contains("test.first[count=1");
+        assertThat(secondReport).contains("test.second[count=1").doesNotContain("test.first");
+        assertThat(thirdReport).isEmpty();
+    }
+
+    /**
+     * Test case to ensure the DAO records its operations in the default registry.
+     * @throws Exception if an error occurs during the test.
+     */
+    @Test
+    public void shouldRecordDaoOperations() throws Exception {
+        // GIVEN
+        PersonDao personDao = new PersonDao();
+        personDao.initDb();
+        OperationTimer timer = MetricsRegistry.getDefault().timer("PersonDao.loadPersonStore");
+        long callsBefore = timer.getCount();
+        long rowsBefore = timer.getRowsReturned();
+        // WHEN
+        int size = personDao.listPersons().size();
+        // THEN
+        assertThat(timer.getCount()).isEqualTo(callsBefore + 1);
+        assertThat(timer.getRowsReturned()).isEqualTo(rowsBefore + size);
+        assertThat(MetricsRegistry.getDefault().timer("ConnectionPool.getReadConnection").getCount()).isGreaterThan(0);
+    }
+}
@@ -0,0 +1,67 @@
+package isen.project.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test case class for the compact storage of persons.
+ */
+public class PersonStoreTestCase {
+
+    /**
+     * Test case to ensure the views give back the stored values, missing ones included.
+     */
+    @Test
+    public void shouldReadStoredPersons() {
+        // GIVEN
+        PersonStore store = new PersonStore(1);
+        store.add(new Person(7, "Lévy", "Anaïs", "Ana", "0611223344", "1 rue de la Paix", "ana@test.com", LocalDate.of(1985, 2, 3)));
+        store.add(new Person(8, "Lévy", "Paul", "", null, null, null, null));
+        store.add(new Person(9, "Doe", "Jane", "", "", "€ 12", null, LocalDate.of(1969, 12, 31)));
+        store.trimToSize();
+        // WHEN
+        List<Person> persons = store.asList();
+        // THEN
+        assertThat(persons).hasSize(3);
+        Person ana = persons.get(0);
+        assertThat(ana.getIdperson()).isEqualTo(7);
+        assertThat(ana.getLastname()).isEqualTo("Lévy");
+        assertThat(ana.getFirstname()).isEqualTo("Anaïs");
+        assertThat(ana.getPhoneNumber()).isEqualTo("0611223344");
+        assertThat(ana.getAddress()).isEqualTo("1 rue de la Paix");
+        assertThat(ana.getBirthDate()).isEqualTo(LocalDate.of(1985, 2, 3));
+        Person paul = persons.get(1);
+        assertThat(paul.getPhoneNumber()).isNull();
+        assertThat(paul.getEmailAddress()).isNull();
+        assertThat(paul.getBirthDate()).isNull();
+        // Repeated names are stored once
+        assertThat(paul.getLastname()).isSameAs(ana.getLastname());
+        Person jane = persons.get(2);
+        assertThat(jane.getPhoneNumber()).isEmpty();
+        assertThat(jane.getAddress()).isEqualTo("€ 12");
+        assertThat(jane.getBirthDate()).isEqualTo(LocalDate.of(1969, 12, 31));
+    }
+
+    /**
+     * Test case to ensure modifying a view leaves the store and the other views unchanged.
+     */
+    @Test
+    public void shouldDetachModifiedViews() {
+        // GIVEN
+        PersonStore store = new PersonStore();
+        store.add(new Person(1, "Doe", "John", "Johnny", "1234567890", null, null, LocalDate.of(1990, 1, 1)));
+        Person view = store.get(0);
+        // WHEN
+        view.setFirstname("Jack");
+        // THEN
+        assertThat(view.getFirstname()).isEqualTo("Jack");
+        assertThat(view.getLastname()).isEqualTo("Doe");
+        assertThat(view.getBirthDate()).isEqualTo(LocalDate.of(1990, 1, 1));
+        assertThat(store.getFirstname(0)).isEqualTo("John");
+        assertThat(store.get(0).getFirstname()).isEqualTo("John");
+    }
+}
@@ -0,0 +1,50 @@
+package isen.project.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import isen.project.model.Person;
+
+/**
+ * Test case class for the PersonGenerator class.
+ */
+public class PersonGeneratorTestCase {
+
+    /**
+     * Test case to ensure the same seed always produces the same persons.
+     */
+    @Test
+    public void shouldGenerateSameSequenceForSameSeed() {
+        // GIVEN
+        PersonGenerator first = new PersonGenerator(7);
+        PersonGenerator second = new PersonGenerator(7);
+        // WHEN
+        for (int i = 0; i < 1000; i++) {
+            Person expected = first.next();
+            Person actual = second.next();
+            // THEN
+            assertThat(actual.getLastname()).isEqualTo(expected.getLastname());
+            assertThat(actual.getFirstname()).isEqualTo(expected.getFirstname());
+            assertThat(actual.getPhoneNumber()).isEqualTo(expected.getPhoneNumber());
+            assertThat(actual.getEmailAddress()).isEqualTo(expected.getEmailAddress());
+            assertThat(actual.getBirthDate()).isEqualTo(expected.getBirthDate());
+        }
+    }
+
+    /**
+     * Test case to ensure the generated persons always have the mandatory fields.
+     */
+    @Test
+    public void shouldAlwaysFillMandatoryFields() {
+        // GIVEN
+        PersonGenerator generator = new PersonGenerator(42);
+        for (int i = 0; i < 1000; i++) {
+            // WHEN
+            Person person = generator.next();
+            // THEN
+            assertThat(person.getLastname()).isNotEmpty();
+            assertThat(person.getFirstname()).isNotEmpty();
+        }
+    }
+}